@@ -24,7 +24,9 @@ import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.core.sys.remoting.LocalFileExchangeService;
 import com.haulmont.cuba.core.sys.remoting.discovery.ServerSelector;
+import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.HttpClient;
@@ -92,13 +94,20 @@ public class FileLoaderClientImpl implements FileLoader {
 
     @Override
     public InputStream openStream(FileDescriptor fd) throws FileStorageException {
+        return openStream(fd, 0);
+    }
+
+    @Override
+    public InputStream openStream(FileDescriptor fd, long offset) throws FileStorageException {
         checkNotNullArgument(fd);
+        if (offset < 0)
+            throw new IllegalArgumentException("Negative offset: " + offset);
 
         String useLocalInvocation = AppContext.getProperty("cuba.useLocalServiceInvocation");
         if (Boolean.parseBoolean(useLocalInvocation)) {
-            return openStreamLocally(fd);
+            return openStreamLocally(fd, offset);
         } else {
-            return openStreamWithServlet(fd);
+            return openStreamWithServlet(fd, offset);
         }
     }
 
@@ -187,12 +196,20 @@ public class FileLoaderClientImpl implements FileLoader {
     }
 
     protected InputStream openStreamLocally(FileDescriptor fd) throws FileStorageException {
+        return openStreamLocally(fd, 0);
+    }
+
+    protected InputStream openStreamLocally(FileDescriptor fd, long offset) throws FileStorageException {
         // cannot be injected since there is no implementation for Desktop
         LocalFileExchangeService localFileExchangeService = AppBeans.get(LocalFileExchangeService.NAME);
-        return localFileExchangeService.downloadFile(fd);
+        return localFileExchangeService.downloadFile(fd, offset);
     }
 
     protected InputStream openStreamWithServlet(FileDescriptor fd) throws FileStorageException {
+        return openStreamWithServlet(fd, 0);
+    }
+
+    protected InputStream openStreamWithServlet(FileDescriptor fd, long offset) throws FileStorageException {
         ClientConfig clientConfig = configuration.getConfig(ClientConfig.class);
         String fileDownloadContext = clientConfig.getFileDownloadContext();
 
@@ -212,14 +229,22 @@ public class FileLoaderClientImpl implements FileLoader {
                     .build();
 
             HttpGet httpGet = new HttpGet(url);
+            if (offset > 0) {
+                httpGet.setHeader(HttpHeaders.RANGE, "bytes=" + offset + "-");
+            }
 
             try {
                 HttpResponse httpResponse = httpClient.execute(httpGet);
                 int httpStatus = httpResponse.getStatusLine().getStatusCode();
-                if (httpStatus == HttpStatus.SC_OK) {
+                if (httpStatus == HttpStatus.SC_OK || (httpStatus == HttpStatus.SC_PARTIAL_CONTENT && offset > 0)) {
                     HttpEntity httpEntity = httpResponse.getEntity();
                     if (httpEntity != null) {
-                        return httpEntity.getContent();
+                        InputStream inputStream = httpEntity.getContent();
+                        if (httpStatus == HttpStatus.SC_OK && offset > 0) {
+                            // the middleware does not support ranges
+                            skipFully(inputStream, offset, fd);
+                        }
+                        return inputStream;
                     } else {
                         log.debug("Unable to download file from {}\nHttpEntity is null", url);
                         selectedUrl = failAndGetNextUrl(context);
@@ -247,6 +272,15 @@ public class FileLoaderClientImpl implements FileLoader {
         }
     }
 
+    protected void skipFully(InputStream inputStream, long offset, FileDescriptor fd) throws FileStorageException {
+        try {
+            IOUtils.skipFully(inputStream, offset);
+        } catch (IOException e) {
+            IOUtils.closeQuietly(inputStream);
+            throw new FileStorageException(FileStorageException.Type.IO_EXCEPTION, fd.getName(), e);
+        }
+    }
+
     @Nullable
     protected String failAndGetNextUrl(Object context) {
         serverSelector.fail(context);
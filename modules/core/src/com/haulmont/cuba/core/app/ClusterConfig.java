@@ -66,4 +66,34 @@ public interface ClusterConfig extends Config {
     @Property("cuba.cluster.messageSendingQueueCapacity")
     @DefaultInt(Integer.MAX_VALUE)
     int getClusterMessageSendingQueueCapacity();
+
+    /**
+     * @return interval in milliseconds within which asynchronously sent messages are collected and sent to the
+     * cluster in one batch. Repeated messages implementing {@link CoalescingClusterMessage} are sent once per batch.
+     * 0 (default) means every message is sent separately.
+     * <p>
+     * Nodes of previous versions cannot receive batches, so turn batching on only when all nodes of the cluster
+     * are upgraded.
+     */
+    @Property("cuba.cluster.messageBatchingInterval")
+    @DefaultInt(0)
+    int getMessageBatchingInterval();
+
+    /**
+     * @return whether messages having a {@link ClusterMessageCodec} are sent in the compact binary format.
+     * By default all messages are serialized.
+     * <p>
+     * Nodes of previous versions cannot decode the binary format, so turn it on only when all nodes of the cluster
+     * are upgraded.
+     */
+    @Property("cuba.cluster.messageCodecsEnabled")
+    @DefaultBoolean(false)
+    boolean getMessageCodecsEnabled();
+
+    /**
+     * @return max number of messages sent in one batch
+     */
+    @Property("cuba.cluster.messageBatchMaxSize")
+    @DefaultInt(1000)
+    int getMessageBatchMaxSize();
 }
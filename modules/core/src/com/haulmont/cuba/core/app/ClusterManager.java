@@ -43,10 +43,9 @@ import javax.inject.Inject;
 import javax.management.MBeanServer;
 import java.io.*;
 import java.lang.management.ManagementFactory;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.LongAdder;
 
 /**
@@ -65,6 +64,16 @@ public class ClusterManager implements ClusterManagerAPI {
 
     protected ThreadPoolExecutor executor;
 
+    protected volatile ScheduledExecutorService batchSender;
+
+    protected final Object pendingLock = new Object();
+
+    protected LinkedHashMap<Object, Serializable> pendingMessages = new LinkedHashMap<>();
+
+    protected final Object flushLock = new Object();
+
+    protected BatchStat batchStat = new BatchStat();
+
     @Inject
     protected Resources resources;
 
@@ -72,6 +81,8 @@ public class ClusterManager implements ClusterManagerAPI {
     protected GlobalConfig globalConfig;
     @Inject
     protected ClusterConfig clusterConfig;
+    @Inject
+    protected ClusterMessageCodecs codecs;
 
     protected ThreadLocal<Boolean> forceSyncSending = new ThreadLocal<>();
 
@@ -85,6 +96,8 @@ public class ClusterManager implements ClusterManagerAPI {
 
     @PostConstruct
     protected void init() {
+        codecs.register(new MessageBatchCodec());
+
         int nThreads = clusterConfig.getClusterMessageSendingThreadPoolSize();
         executor = new ThreadPoolExecutor(nThreads, nThreads,
                 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(clusterConfig.getClusterMessageSendingQueueCapacity()),
@@ -116,7 +129,10 @@ public class ClusterManager implements ClusterManagerAPI {
 
         Boolean sync = forceSyncSending.get();
         if (sync != null && sync) {
-            internalSend(message, true);
+            sendSync(message);
+        } else if (batchSender != null) {
+            log.trace("Adding message: {}: {} to the next batch", message.getClass(), message);
+            addPendingMessage(message);
         } else {
             log.trace("Submitting message: {}: {} to send asynchronously", message.getClass(), message);
             executor.execute(new SendMessageRunnable(message));
@@ -128,15 +144,106 @@ public class ClusterManager implements ClusterManagerAPI {
         if (channel == null)
             return;
 
+        // messages sent earlier must not be received after this one
+        flushPendingMessages();
         internalSend(message, true);
     }
 
+    protected void addPendingMessage(Serializable message) {
+        Object key = message instanceof CoalescingClusterMessage
+                ? Arrays.asList(message.getClass(), ((CoalescingClusterMessage) message).getCoalescingKey())
+                : new Object();
+        synchronized (pendingLock) {
+            if (pendingMessages.remove(key) != null) {
+                batchStat.coalescedMessages.increment();
+            } else if (pendingMessages.size() >= clusterConfig.getClusterMessageSendingQueueCapacity()) {
+                log.info("Queue capacity is exceeded. Message: {}: {}", message.getClass(), message);
+                return;
+            }
+            // the message is moved to the end to keep the order of the last state changes
+            pendingMessages.put(key, message);
+        }
+    }
+
+    /**
+     * Sends messages collected since the last flush.
+     */
+    protected void flushPendingMessages() {
+        synchronized (flushLock) {
+            List<Serializable> messages;
+            synchronized (pendingLock) {
+                if (pendingMessages.isEmpty())
+                    return;
+                messages = new ArrayList<>(pendingMessages.values());
+                pendingMessages = new LinkedHashMap<>();
+            }
+            if (channel == null)
+                return;
+
+            int maxSize = Math.max(1, clusterConfig.getMessageBatchMaxSize());
+            for (int i = 0; i < messages.size(); i += maxSize) {
+                List<Serializable> batch = messages.subList(i, Math.min(i + maxSize, messages.size()));
+                try {
+                    if (batch.size() == 1) {
+                        internalSend(batch.get(0), false);
+                    } else {
+                        internalSendBatch(batch);
+                    }
+                } catch (RuntimeException e) {
+                    log.error("Error sending batch of cluster messages", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Encodes the message by {@link ClusterMessageCodecs} if {@link ClusterConfig#getMessageCodecsEnabled()},
+     * otherwise serializes it to be readable by nodes of previous versions.
+     */
+    protected byte[] encode(Serializable message) {
+        return clusterConfig.getMessageCodecsEnabled()
+                ? codecs.encode(message)
+                : SerializationSupport.serialize(message);
+    }
+
+    protected void internalSendBatch(List<Serializable> messages) {
+        StopWatch sw = new Slf4JStopWatch("sendClusterMessageBatch");
+        try {
+            List<byte[]> serializedMessages = new ArrayList<>(messages.size());
+            for (Serializable message : messages) {
+                byte[] bytes;
+                try {
+                    bytes = encode(message);
+                } catch (Exception e) {
+                    log.error("Cluster message serialization error, message is not sent: {}", message.getClass(), e);
+                    continue;
+                }
+                MessageStat stat = messagesStat.get(message.getClass().getName());
+                if (stat != null) {
+                    stat.updateSent(bytes.length);
+                }
+                serializedMessages.add(bytes);
+            }
+
+            byte[] bytes = codecs.encode(new MessageBatch(serializedMessages));
+            log.debug("Sending batch of {} messages ({} bytes)", serializedMessages.size(), bytes.length);
+            batchStat.update(serializedMessages.size(), bytes.length);
+            try {
+                sendToChannel(new Message().setBuffer(bytes));
+            } catch (Exception e) {
+                log.error("Error sending message", e);
+            }
+        } finally {
+            sw.stop();
+        }
+    }
+
     protected void internalSend(Serializable message, boolean sync) {
         StopWatch sw = new Slf4JStopWatch(String.format("sendClusterMessage(%s)", message.getClass().getSimpleName()));
         try {
             byte[] bytes;
             try {
-                bytes = SerializationSupport.serialize(message);
+                bytes = encode(message);
             } catch (Exception e) {
                 log.error("Cluster message serialization error", e);
                 throw new RuntimeException("Cluster message serialization error", e);
@@ -152,7 +259,7 @@ public class ClusterManager implements ClusterManagerAPI {
                 msg.setFlag(Message.Flag.RSVP);
             }
             try {
-                channel.send(msg);
+                sendToChannel(msg);
             } catch (Exception e) {
                 log.error("Error sending message", e);
             }
@@ -161,6 +268,10 @@ public class ClusterManager implements ClusterManagerAPI {
         }
     }
 
+    protected void sendToChannel(Message message) throws Exception {
+        channel.send(message);
+    }
+
     @Override
     public boolean getSyncSendingForCurrentThread() {
         return forceSyncSending.get() == null ? false : forceSyncSending.get();
@@ -220,12 +331,31 @@ public class ClusterManager implements ClusterManagerAPI {
                 }
             }
             registerJmxBeans();
+            startBatchSender();
         } catch (Exception e) {
             channel = null;
             throw new RuntimeException("Error starting cluster", e);
         }
     }
 
+    protected void startBatchSender() {
+        int batchingInterval = clusterConfig.getMessageBatchingInterval();
+        if (batchingInterval > 0) {
+            batchSender = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("ClusterManagerBatchSender-%d").setDaemon(true).build());
+            batchSender.scheduleWithFixedDelay(this::flushPendingMessages,
+                    batchingInterval, batchingInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    protected void stopBatchSender() {
+        if (batchSender != null) {
+            batchSender.shutdown();
+            batchSender = null;
+            flushPendingMessages();
+        }
+    }
+
     protected void initLogger() {
         LogFactory.setCustomLogFactory(JGroupsLoggerFactory.INSTANCE);
     }
@@ -275,7 +405,13 @@ public class ClusterManager implements ClusterManagerAPI {
 
     @Override
     public int getMessagesCount() {
-        return executor.getQueue().size();
+        return executor.getQueue().size() + getPendingMessagesCount();
+    }
+
+    protected int getPendingMessagesCount() {
+        synchronized (pendingLock) {
+            return pendingMessages.size();
+        }
     }
 
     @Override
@@ -284,6 +420,7 @@ public class ClusterManager implements ClusterManagerAPI {
             return;
 
         log.info("Stopping cluster");
+        stopBatchSender();
         unregisterJmxBeans();
         try {
             channel.close();
@@ -347,6 +484,14 @@ public class ClusterManager implements ClusterManagerAPI {
                                 stat.getSentMessages(), stat.getSentBytes()));
             }
         }
+        if (batchSender != null || batchStat.getBatches() > 0) {
+            messagesStats
+                    .append(String.format("Batches: sent: %s, %s messages, %s bytes; avg size: %.1f, max size: %s, last size: %s; " +
+                                    "coalesced messages: %s; queue depth: %s\n",
+                            batchStat.getBatches(), batchStat.getBatchedMessages(), batchStat.getBatchedBytes(),
+                            batchStat.getAverageBatchSize(), batchStat.maxBatchSize.get(), batchStat.lastBatchSize,
+                            batchStat.coalescedMessages.longValue(), getPendingMessagesCount()));
+        }
         return messagesStats.toString();
     }
 
@@ -399,22 +544,39 @@ public class ClusterManager implements ClusterManagerAPI {
                 log.debug("Null buffer received");
                 return;
             }
+            Serializable data;
+            try {
+                data = codecs.decode(bytes);
+            } catch (Exception e) {
+                log.error("Cluster message deserialization error", e);
+                throw new RuntimeException("Cluster message deserialization error", e);
+            }
+
+            if (data instanceof MessageBatch) {
+                List<byte[]> messages = ((MessageBatch) data).messages;
+                log.debug("Received batch of {} messages ({} bytes)", messages.size(), bytes.length);
+                for (byte[] messageBytes : messages) {
+                    try {
+                        receiveMessage(codecs.decode(messageBytes), messageBytes.length);
+                    } catch (Exception e) {
+                        log.error("Error receiving cluster message from batch", e);
+                    }
+                }
+            } else {
+                receiveMessage(data, bytes.length);
+            }
+        }
+
+        protected void receiveMessage(Serializable data, int size) {
             StopWatch sw = new Slf4JStopWatch();
             String simpleClassName = null;
             try {
-                Serializable data;
-                try {
-                    data = (Serializable) SerializationSupport.deserialize(bytes);
-                } catch (Exception e) {
-                    log.error("Cluster message deserialization error", e);
-                    throw new RuntimeException("Cluster message deserialization error", e);
-                }
                 String className = data.getClass().getName();
                 simpleClassName = data.getClass().getSimpleName();
-                log.debug("Received message: {}: {} ({} bytes)", data.getClass(), data, bytes.length);
+                log.debug("Received message: {}: {} ({} bytes)", data.getClass(), data, size);
                 MessageStat stat = messagesStat.get(className);
                 if (stat != null) {
-                    stat.updateReceived(bytes.length);
+                    stat.updateReceived(size);
                 }
                 @SuppressWarnings("unchecked")
                 ClusterListener<Serializable> listener = listeners.get(className);
@@ -564,4 +726,90 @@ public class ClusterManager implements ClusterManagerAPI {
             return receivedMessages.longValue();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Envelope for several serialized messages sent at once.
+     */
+    protected static class MessageBatch implements Serializable {
+        private static final long serialVersionUID = 2394837519283479124L;
+
+        protected List<byte[]> messages;
+
+        public MessageBatch(List<byte[]> messages) {
+            this.messages = messages;
+        }
+    }
+
+    protected static class MessageBatchCodec implements ClusterMessageCodec<MessageBatch> {
+
+        @Override
+        public Class<MessageBatch> getMessageClass() {
+            return MessageBatch.class;
+        }
+
+        @Override
+        public int getTypeId() {
+            return 1;
+        }
+
+        @Override
+        public int getVersion() {
+            return 0;
+        }
+
+        @Override
+        public void write(MessageBatch message, DataOutput out) throws IOException {
+            out.writeInt(message.messages.size());
+            for (byte[] bytes : message.messages) {
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+
+        @Override
+        public MessageBatch read(DataInput in, int version) throws IOException {
+            int count = in.readInt();
+            List<byte[]> messages = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                messages.add(bytes);
+            }
+            return new MessageBatch(messages);
+        }
+    }
+
+    protected static class BatchStat {
+        protected LongAdder batches = new LongAdder();
+        protected LongAdder batchedMessages = new LongAdder();
+        protected LongAdder batchedBytes = new LongAdder();
+        protected LongAdder coalescedMessages = new LongAdder();
+        protected AtomicInteger maxBatchSize = new AtomicInteger();
+        protected volatile int lastBatchSize;
+
+        public void update(int size, int bytes) {
+            batches.increment();
+            batchedMessages.add(size);
+            batchedBytes.add(bytes);
+            maxBatchSize.accumulateAndGet(size, Math::max);
+            lastBatchSize = size;
+        }
+
+        public long getBatches() {
+            return batches.longValue();
+        }
+
+        public long getBatchedMessages() {
+            return batchedMessages.longValue();
+        }
+
+        public long getBatchedBytes() {
+            return batchedBytes.longValue();
+        }
+
+        public double getAverageBatchSize() {
+            long count = batches.longValue();
+            return count == 0 ? 0 : (double) batchedMessages.longValue() / count;
+        }
+    }
+}
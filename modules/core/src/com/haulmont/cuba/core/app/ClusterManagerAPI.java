@@ -118,7 +118,8 @@ public interface ClusterManagerAPI {
     String printSharedStateStat();
 
     /**
-     * Sent/received messages statistics
+     * Sent/received messages statistics, including sizes of sent batches and the number of messages waiting
+     * for the next batch.
      *
      * @return statistics
      */
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.app;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Compact binary encoding of cluster messages of a particular class, used instead of the generic serialization.
+ * <p>
+ * Codecs are Spring beans collected by {@link ClusterMessageCodecs}. Type ids must be unique and the same
+ * on all cluster members. Ids below 1000 are reserved for the platform.
+ *
+ * @param <T> message class
+ */
+public interface ClusterMessageCodec<T extends Serializable> {
+
+    /**
+     * @return class of messages encoded by this codec. Subclasses are encoded by the generic serialization.
+     */
+    Class<T> getMessageClass();
+
+    /**
+     * @return id of the message type written to each encoded message, from 1 to 32767
+     */
+    int getTypeId();
+
+    /**
+     * @return version of the format written by {@link #write(Serializable, DataOutput)}, from 0 to 255.
+     * It is passed to {@link #read(DataInput, int)} on the receiving side.
+     */
+    int getVersion();
+
+    void write(T message, DataOutput out) throws IOException;
+
+    /**
+     * @param version version of the format the message is written in
+     */
+    T read(DataInput in, int version) throws IOException;
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.app;
+
+import com.haulmont.cuba.core.sys.serialization.SerializationSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import java.io.*;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of {@link ClusterMessageCodec}s used by {@link ClusterManager} to convert messages to bytes and back.
+ * <p>
+ * A message encoded by a codec starts with a two-byte magic, the type id and the format version. Messages having
+ * no codec are serialized by {@link SerializationSupport}, as well as messages which the codec fails to write.
+ * <p>
+ * {@link ClusterManager} encodes messages by codecs only if {@link ClusterConfig#getMessageCodecsEnabled()},
+ * received messages are decoded in both formats.
+ */
+@Component(ClusterMessageCodecs.NAME)
+public class ClusterMessageCodecs {
+
+    public static final String NAME = "cuba_ClusterMessageCodecs";
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterMessageCodecs.class);
+
+    protected static final int MAGIC_1 = 0xCB;
+    protected static final int MAGIC_2 = 0x4D;
+
+    protected Map<Class<?>, ClusterMessageCodec> codecsByClass = new ConcurrentHashMap<>();
+    protected Map<Integer, ClusterMessageCodec> codecsById = new ConcurrentHashMap<>();
+
+    @Inject
+    public void setCodecs(@Nullable List<ClusterMessageCodec> codecs) {
+        if (codecs != null) {
+            codecs.forEach(this::register);
+        }
+    }
+
+    public void register(ClusterMessageCodec<?> codec) {
+        int typeId = codec.getTypeId();
+        if (typeId < 1 || typeId > Short.MAX_VALUE)
+            throw new IllegalArgumentException("Invalid type id of cluster message codec: " + codec);
+        if (codec.getVersion() < 0 || codec.getVersion() > 255)
+            throw new IllegalArgumentException("Invalid version of cluster message codec: " + codec);
+
+        ClusterMessageCodec existing = codecsById.putIfAbsent(typeId, codec);
+        if (existing != null && existing != codec) {
+            throw new IllegalStateException(String.format("Cluster message codecs %s and %s have the same type id %s",
+                    existing, codec, typeId));
+        }
+        codecsByClass.put(codec.getMessageClass(), codec);
+        log.debug("Registered cluster message codec {} for {}", typeId, codec.getMessageClass().getName());
+    }
+
+    /**
+     * @return true if messages of the given class are encoded by a codec
+     */
+    public boolean hasCodec(Class<?> messageClass) {
+        return codecsByClass.containsKey(messageClass);
+    }
+
+    @SuppressWarnings("unchecked")
+    public byte[] encode(Serializable message) {
+        ClusterMessageCodec codec = codecsByClass.get(message.getClass());
+        if (codec != null) {
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeByte(MAGIC_1);
+                out.writeByte(MAGIC_2);
+                out.writeShort(codec.getTypeId());
+                out.writeByte(codec.getVersion());
+                codec.write(message, out);
+                out.flush();
+                return bytes.toByteArray();
+            } catch (IOException | RuntimeException e) {
+                log.warn("Unable to encode cluster message {} by {}, using serialization", message.getClass(), codec, e);
+            }
+        }
+        return SerializationSupport.serialize(message);
+    }
+
+    public Serializable decode(byte[] bytes) {
+        if (bytes.length < 5 || (bytes[0] & 0xFF) != MAGIC_1 || (bytes[1] & 0xFF) != MAGIC_2) {
+            return (Serializable) SerializationSupport.deserialize(bytes);
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 2, bytes.length - 2));
+        try {
+            int typeId = in.readShort();
+            int version = in.readUnsignedByte();
+            ClusterMessageCodec codec = codecsById.get(typeId);
+            if (codec == null) {
+                throw new IllegalStateException("No cluster message codec for type id " + typeId);
+            }
+            return (Serializable) codec.read(in, version);
+        } catch (IOException e) {
+            throw new RuntimeException("Error decoding cluster message", e);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.app;
+
+import java.io.Serializable;
+
+/**
+ * Cluster message which makes earlier not yet sent messages of the same class with an equal key obsolete.
+ * <p>
+ * When messages are sent in batches (see {@link ClusterConfig#getMessageBatchingInterval()}), only the last
+ * of such messages is sent.
+ */
+public interface CoalescingClusterMessage extends Serializable {
+
+    /**
+     * @return key identifying the state transferred by the message, e.g. an id of the changed object.
+     * Must implement {@code equals()} and {@code hashCode()}.
+     */
+    Object getCoalescingKey();
+}
@@ -32,6 +32,7 @@ import javax.inject.Inject;
 import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
 import java.util.*;
+import java.util.function.Consumer;
 
 @Component(DataManager.NAME)
 public class DataManagerBean implements DataManager {
@@ -80,6 +81,16 @@ public class DataManagerBean implements DataManager {
         return entities;
     }
 
+    @Override
+    public <E extends Entity> void stream(LoadContext<E> context, Consumer<? super E> consumer) {
+        MetaClass metaClass = metadata.getClassNN(context.getMetaClass());
+        DataStore storage = storeFactory.get(getStoreName(metaClass));
+        storage.stream(context, chunk -> {
+            readCrossDataStoreReferences(chunk, context.getView(), metaClass, context.isJoinTransaction());
+            chunk.forEach(consumer);
+        });
+    }
+
     @Override
     public long getCount(LoadContext<? extends Entity> context) {
         MetaClass metaClass = metadata.getClassNN(context.getMetaClass());
@@ -398,6 +409,12 @@ public class DataManagerBean implements DataManager {
             return dataManager.loadList(context);
         }
 
+        @Override
+        public <E extends Entity> void stream(LoadContext<E> context, Consumer<? super E> consumer) {
+            context.setAuthorizationRequired(true);
+            dataManager.stream(context, consumer);
+        }
+
         @Override
         public List<KeyValueEntity> loadValues(ValueLoadContext context) {
             context.setAuthorizationRequired(true);
@@ -25,6 +25,7 @@ import com.haulmont.cuba.core.global.ValueLoadContext;
 import javax.annotation.Nullable;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Interface defining methods for storing and loading entities in a persistent storage.
@@ -47,6 +48,21 @@ public interface DataStore {
      */
     <E extends Entity> List<E> loadList(LoadContext<E> context);
 
+    /**
+     * Loads collection of entity instances and passes them to the consumer by chunks, so the whole collection
+     * is not kept in memory.
+     * <p>
+     * The default implementation loads the collection at once.
+     *
+     * @param chunkConsumer receives chunks of loaded instances in the order of the query
+     */
+    default <E extends Entity> void stream(LoadContext<E> context, Consumer<List<E>> chunkConsumer) {
+        List<E> list = loadList(context);
+        if (!list.isEmpty()) {
+            chunkConsumer.accept(list);
+        }
+    }
+
     /**
      * Returns the number of entity instances for the given query passed in the {@link LoadContext}.
      * @return number of instances in the storage
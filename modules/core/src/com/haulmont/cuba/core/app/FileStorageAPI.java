@@ -18,7 +18,9 @@ package com.haulmont.cuba.core.app;
 
 import com.haulmont.cuba.core.entity.FileDescriptor;
 import com.haulmont.cuba.core.global.FileStorageException;
+import org.apache.commons.io.IOUtils;
 
+import java.io.IOException;
 import java.io.InputStream;
 
 /**
@@ -63,6 +65,29 @@ public interface FileStorageAPI {
      */
     InputStream openStream(FileDescriptor fileDescr) throws FileStorageException;
 
+    /**
+     * Return an input stream to load a file contents starting from the given offset.
+     * The default implementation skips the leading bytes of the stream returned by {@link #openStream(FileDescriptor)}.
+     * @param fileDescr             file descriptor
+     * @param offset                number of bytes to skip
+     * @return                      input stream, must be closed after use
+     * @throws IllegalArgumentException if arguments are incorrect
+     * @throws FileStorageException     if something goes wrong
+     */
+    default InputStream openStream(FileDescriptor fileDescr, long offset) throws FileStorageException {
+        if (offset < 0)
+            throw new IllegalArgumentException("Negative offset: " + offset);
+
+        InputStream inputStream = openStream(fileDescr);
+        try {
+            IOUtils.skipFully(inputStream, offset);
+        } catch (IOException e) {
+            IOUtils.closeQuietly(inputStream);
+            throw new FileStorageException(FileStorageException.Type.IO_EXCEPTION, fileDescr.getId().toString(), e);
+        }
+        return inputStream;
+    }
+
     /**
      * Load a file contents into byte array.
      * @param fileDescr             file descriptor
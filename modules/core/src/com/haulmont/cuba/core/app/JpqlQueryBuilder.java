@@ -58,6 +58,7 @@ public class JpqlQueryBuilder {
     protected String[] noConversionParams;
     protected Condition condition;
     protected Sort sort;
+    protected Keyset keyset;
 
     protected String entityName;
     protected List<String> valueProperties;
@@ -136,6 +137,11 @@ public class JpqlQueryBuilder {
         return this;
     }
 
+    public JpqlQueryBuilder setKeyset(Keyset keyset) {
+        this.keyset = keyset;
+        return this;
+    }
+
     public JpqlQueryBuilder setPreviousResults(UUID sessionId, int queryKey) {
         this.previousResults = true;
         this.sessionId = sessionId;
@@ -215,7 +221,13 @@ public class JpqlQueryBuilder {
     }
 
     protected void applySorting() {
-        if (sort != null) {
+        if (keyset != null) {
+            if (entityName == null) {
+                throw new UnsupportedOperationException("Keyset pagination is supported only for entity queries");
+            }
+            resultParameters = new HashMap<>(resultParameters);
+            resultQuery = sortJpqlGenerator.processQueryWithKeyset(entityName, resultQuery, sort, keyset, resultParameters);
+        } else if (sort != null) {
             resultQuery = sortJpqlGenerator.processQuery(entityName, valueProperties, resultQuery, sort);
         }
     }
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.app;
+
+import com.haulmont.cuba.core.global.EntityStates;
+import com.haulmont.cuba.core.global.LockInfo;
+import com.haulmont.cuba.core.global.Metadata;
+import com.haulmont.cuba.security.entity.User;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Encodes {@link LockInfo} cluster messages. Only id, login and name of the user are transferred, so the receiving
+ * node gets a detached user reference with other attributes not loaded.
+ */
+@Component("cuba_LockInfoCodec")
+public class LockInfoCodec implements ClusterMessageCodec<LockInfo> {
+
+    @Inject
+    protected Metadata metadata;
+
+    @Inject
+    protected EntityStates entityStates;
+
+    @Override
+    public Class<LockInfo> getMessageClass() {
+        return LockInfo.class;
+    }
+
+    @Override
+    public int getTypeId() {
+        return 2;
+    }
+
+    @Override
+    public int getVersion() {
+        return 0;
+    }
+
+    @Override
+    public void write(LockInfo message, DataOutput out) throws IOException {
+        out.writeLong(message.getId().getMostSignificantBits());
+        out.writeLong(message.getId().getLeastSignificantBits());
+        out.writeUTF(message.getEntityName());
+        out.writeUTF(message.getEntityId());
+        out.writeLong(message.getSince().getTime());
+        User user = message.getUser();
+        out.writeBoolean(user != null);
+        if (user != null) {
+            out.writeLong(user.getId().getMostSignificantBits());
+            out.writeLong(user.getId().getLeastSignificantBits());
+            writeNullableString(user.getLogin(), out);
+            writeNullableString(user.getName(), out);
+        }
+    }
+
+    @Override
+    public LockInfo read(DataInput in, int version) throws IOException {
+        UUID id = new UUID(in.readLong(), in.readLong());
+        String entityName = in.readUTF();
+        String entityId = in.readUTF();
+        Date since = new Date(in.readLong());
+        User user = null;
+        if (in.readBoolean()) {
+            user = metadata.create(User.class);
+            user.setId(new UUID(in.readLong(), in.readLong()));
+            user.setLogin(readNullableString(in));
+            user.setName(readNullableString(in));
+            entityStates.makeDetached(user);
+        }
+        LockInfo lockInfo = new LockInfo(user, entityName, entityId, since);
+        lockInfo.setId(id);
+        return lockInfo;
+    }
+
+    protected void writeNullableString(String value, DataOutput out) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    protected String readNullableString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -17,6 +17,9 @@
 
 package com.haulmont.cuba.core.app;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.haulmont.cuba.core.global.GlobalConfig;
 import com.haulmont.cuba.core.sys.StatisticsAccumulator;
 import org.slf4j.Logger;
@@ -27,6 +30,10 @@ import javax.inject.Inject;
 import javax.management.MBeanServerConnection;
 import javax.management.ObjectName;
 import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
 @Component(MiddlewareStatisticsAccumulator.NAME)
@@ -42,6 +49,28 @@ public class MiddlewareStatisticsAccumulator extends StatisticsAccumulator {
     protected AtomicLong middlewareRequestsCount = new AtomicLong();
     protected AtomicLong cubaScheduledTasksCount = new AtomicLong();
     protected AtomicLong implicitFlushCount = new AtomicLong();
+    protected AtomicLong detachedReferencesBatchQueriesCount = new AtomicLong();
+    protected AtomicLong detachedReferencesSavedRoundTripsCount = new AtomicLong();
+    protected AtomicLong commitPreloadQueriesCount = new AtomicLong();
+    protected AtomicLong commitPreloadSavedRoundTripsCount = new AtomicLong();
+    protected AtomicLong jdbcBatchesCount = new AtomicLong();
+    protected AtomicLong jdbcBatchedStatementsCount = new AtomicLong();
+    protected AtomicLong inMemoryConstraintChecksCount = new AtomicLong();
+    protected AtomicLong inMemoryConstraintChecksTimeNanos = new AtomicLong();
+    protected AtomicLong userSessionEvictionsCount = new AtomicLong();
+    protected AtomicLong userSessionEvictionsTimeNanos = new AtomicLong();
+    protected AtomicLong lastUserSessionEvictionTimeNanos = new AtomicLong();
+    protected AtomicLong expiredUserSessionsCount = new AtomicLong();
+
+    /**
+     * Max number of in-memory constraints having statistics, the statistics of least recently checked constraints
+     * are dropped, e.g. of the constraints edited many times.
+     */
+    protected static final int IN_MEMORY_CONSTRAINT_CHECKS_MAX_SIZE = 1000;
+
+    protected LoadingCache<String, ConstraintChecks> inMemoryConstraintChecks = CacheBuilder.newBuilder()
+            .maximumSize(IN_MEMORY_CONSTRAINT_CHECKS_MAX_SIZE)
+            .build(CacheLoader.from(constraint -> new ConstraintChecks()));
 
     protected Parameter dbConnectionPoolNumActive = new Parameter();
     protected Parameter dbConnectionPoolNumIdle = new Parameter();
@@ -52,6 +81,11 @@ public class MiddlewareStatisticsAccumulator extends StatisticsAccumulator {
     @Inject
     protected GlobalConfig config;
 
+    protected static class ConstraintChecks {
+        protected final AtomicLong count = new AtomicLong();
+        protected final AtomicLong timeNanos = new AtomicLong();
+    }
+
     @Override
     public void gatherParameters() {
         super.gatherParameters();
@@ -82,6 +116,19 @@ public class MiddlewareStatisticsAccumulator extends StatisticsAccumulator {
         middlewareRequestsCount.set(0);
         cubaScheduledTasksCount.set(0);
         implicitFlushCount.set(0);
+        detachedReferencesBatchQueriesCount.set(0);
+        detachedReferencesSavedRoundTripsCount.set(0);
+        commitPreloadQueriesCount.set(0);
+        commitPreloadSavedRoundTripsCount.set(0);
+        jdbcBatchesCount.set(0);
+        jdbcBatchedStatementsCount.set(0);
+        inMemoryConstraintChecksCount.set(0);
+        inMemoryConstraintChecksTimeNanos.set(0);
+        inMemoryConstraintChecks.invalidateAll();
+        userSessionEvictionsCount.set(0);
+        userSessionEvictionsTimeNanos.set(0);
+        lastUserSessionEvictionTimeNanos.set(0);
+        expiredUserSessionsCount.set(0);
     }
 
     protected String getAppName() {
@@ -112,6 +159,50 @@ public class MiddlewareStatisticsAccumulator extends StatisticsAccumulator {
         implicitFlushCount.incrementAndGet();
     }
 
+    public void incDetachedReferencesBatchQueriesCount() {
+        detachedReferencesBatchQueriesCount.incrementAndGet();
+    }
+
+    public void addDetachedReferencesSavedRoundTripsCount(long count) {
+        detachedReferencesSavedRoundTripsCount.addAndGet(count);
+    }
+
+    public void incCommitPreloadQueriesCount() {
+        commitPreloadQueriesCount.incrementAndGet();
+    }
+
+    public void addCommitPreloadSavedRoundTripsCount(long count) {
+        commitPreloadSavedRoundTripsCount.addAndGet(count);
+    }
+
+    public void addJdbcBatch(int size) {
+        jdbcBatchesCount.incrementAndGet();
+        jdbcBatchedStatementsCount.addAndGet(size);
+    }
+
+    /**
+     * Registers checks of entities by an in-memory constraint.
+     *
+     * @param constraint description of the constraint, e.g. entity name and script
+     * @param count      number of checked entities
+     * @param timeNanos  total time of the checks
+     */
+    public void addInMemoryConstraintChecks(String constraint, long count, long timeNanos) {
+        inMemoryConstraintChecksCount.addAndGet(count);
+        inMemoryConstraintChecksTimeNanos.addAndGet(timeNanos);
+
+        ConstraintChecks checks = inMemoryConstraintChecks.getUnchecked(constraint);
+        checks.count.addAndGet(count);
+        checks.timeNanos.addAndGet(timeNanos);
+    }
+
+    public void addUserSessionEviction(long timeNanos, int expiredSessions) {
+        userSessionEvictionsCount.incrementAndGet();
+        userSessionEvictionsTimeNanos.addAndGet(timeNanos);
+        lastUserSessionEvictionTimeNanos.set(timeNanos);
+        expiredUserSessionsCount.addAndGet(expiredSessions);
+    }
+
     public Long getActiveTransactionsCount() {
         return (startedTransactionsCount.get() - committedTransactionsCount.get() - rolledBackTransactionsCount.get());
     }
@@ -140,6 +231,79 @@ public class MiddlewareStatisticsAccumulator extends StatisticsAccumulator {
         return implicitFlushCount.get();
     }
 
+    public Long getDetachedReferencesBatchQueriesCount() {
+        return detachedReferencesBatchQueriesCount.get();
+    }
+
+    public Long getDetachedReferencesSavedRoundTripsCount() {
+        return detachedReferencesSavedRoundTripsCount.get();
+    }
+
+    public Long getCommitPreloadQueriesCount() {
+        return commitPreloadQueriesCount.get();
+    }
+
+    public Long getCommitPreloadSavedRoundTripsCount() {
+        return commitPreloadSavedRoundTripsCount.get();
+    }
+
+    public Long getJdbcBatchesCount() {
+        return jdbcBatchesCount.get();
+    }
+
+    public Long getJdbcBatchedStatementsCount() {
+        return jdbcBatchedStatementsCount.get();
+    }
+
+    public double getAvgJdbcBatchSize() {
+        long batches = jdbcBatchesCount.get();
+        return batches == 0 ? 0 : (double) jdbcBatchedStatementsCount.get() / batches;
+    }
+
+    public Long getInMemoryConstraintChecksCount() {
+        return inMemoryConstraintChecksCount.get();
+    }
+
+    public double getAvgInMemoryConstraintCheckTimeMicros() {
+        long count = inMemoryConstraintChecksCount.get();
+        return count == 0 ? 0 : inMemoryConstraintChecksTimeNanos.get() / 1000.0 / count;
+    }
+
+    /**
+     * @return statistics of in-memory constraints, the most expensive constraints first
+     */
+    public String printInMemoryConstraintStatistics() {
+        List<Map.Entry<String, ConstraintChecks>> entries = new ArrayList<>(inMemoryConstraintChecks.asMap().entrySet());
+        entries.sort(Comparator.comparingLong(
+                (Map.Entry<String, ConstraintChecks> entry) -> entry.getValue().timeNanos.get()).reversed());
+
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, ConstraintChecks> entry : entries) {
+            long count = entry.getValue().count.get();
+            long timeNanos = entry.getValue().timeNanos.get();
+            sb.append(String.format("%s: checks=%d, time=%.2f ms, avg=%.2f us\n", entry.getKey(), count,
+                    timeNanos / 1_000_000.0, count == 0 ? 0 : timeNanos / 1000.0 / count));
+        }
+        return sb.toString();
+    }
+
+    public Long getUserSessionEvictionsCount() {
+        return userSessionEvictionsCount.get();
+    }
+
+    public double getAvgUserSessionEvictionTimeMs() {
+        long count = userSessionEvictionsCount.get();
+        return count == 0 ? 0 : userSessionEvictionsTimeNanos.get() / 1_000_000.0 / count;
+    }
+
+    public double getLastUserSessionEvictionTimeMs() {
+        return lastUserSessionEvictionTimeNanos.get() / 1_000_000.0;
+    }
+
+    public Long getExpiredUserSessionsCount() {
+        return expiredUserSessionsCount.get();
+    }
+
     public double getCubaScheduledTasksPerSecond() {
         return getCubaScheduledTasksCount() / ((System.currentTimeMillis() - startTime) / 1000.0);
     }
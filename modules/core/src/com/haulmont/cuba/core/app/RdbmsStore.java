@@ -16,7 +16,9 @@
 
 package com.haulmont.cuba.core.app;
 
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.haulmont.bali.datastruct.Pair;
 import com.haulmont.bali.util.Preconditions;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.chile.core.model.MetaProperty;
@@ -37,6 +39,10 @@ import com.haulmont.cuba.security.entity.EntityAttrAccess;
 import com.haulmont.cuba.security.entity.EntityOp;
 import com.haulmont.cuba.security.entity.PermissionType;
 import org.apache.commons.lang3.StringUtils;
+import org.eclipse.persistence.config.HintValues;
+import org.eclipse.persistence.config.QueryHints;
+import org.eclipse.persistence.queries.CursoredStream;
+import org.eclipse.persistence.queries.ReportQueryResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Scope;
@@ -46,6 +52,7 @@ import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.persistence.NoResultException;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -104,6 +111,9 @@ public class RdbmsStore implements DataStore {
     @Inject
     protected EntityChangedEventManager entityChangedEventManager;
 
+    @Inject
+    protected MiddlewareStatisticsAccumulator statisticsAccumulator;
+
     protected String storeName;
 
     public RdbmsStore(String storeName) {
@@ -271,6 +281,153 @@ public class RdbmsStore implements DataStore {
         return resultList;
     }
 
+    /**
+     * Reads identifiers of the entities through a JDBC cursor and loads the entities by chunks of
+     * {@link ServerConfig#getDataManagerStreamChunkSize()} size in a single transaction. Each chunk is processed
+     * like the result of {@link #loadList(LoadContext)} and detached before passing to the consumer.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <E extends Entity> void stream(LoadContext<E> context, Consumer<List<E>> chunkConsumer) {
+        if (log.isDebugEnabled())
+            log.debug("stream: metaClass=" + context.getMetaClass() + ", view=" + context.getView()
+                    + (context.getPrevQueries().isEmpty() ? "" : ", from selected")
+                    + ", query=" + context.getQuery());
+
+        MetaClass metaClass = metadata.getClassNN(context.getMetaClass());
+        LoadContext.Query contextQuery = context.getQuery();
+
+        if (contextQuery == null
+                || contextQuery.getFirstResult() != 0
+                || contextQuery.getMaxResults() != 0
+                || !context.getIds().isEmpty()
+                || context.isJoinTransaction()
+                || entityHasEmbeddedId(metaClass)) {
+            DataStore.super.stream(context, chunkConsumer);
+            return;
+        }
+
+        if (isAuthorizationRequired(context) && !isEntityOpPermitted(metaClass, EntityOp.READ)) {
+            log.debug("reading of {} not permitted, returning nothing", metaClass);
+            return;
+        }
+
+        queryResultsManager.savePreviousQueryResults(context);
+
+        int chunkSize = Math.max(serverConfig.getDataManagerStreamChunkSize(), 1);
+        Integer maxIdsBatchSize = DbmsSpecificFactory.getDbmsFeatures(storeName).getMaxIdsBatchSize();
+        if (maxIdsBatchSize != null) {
+            chunkSize = Math.min(chunkSize, maxIdsBatchSize);
+        }
+        String pkName = metadataTools.getPrimaryKeyName(metaClass);
+
+        LoadContext<E> idsContext = (LoadContext<E>) context.copy();
+        QueryTransformer transformer = queryTransformerFactory.transformer(contextQuery.getQueryString());
+        // identifiers of a distinct query are made distinct in memory, because databases may not allow
+        // sorting of distinct values by columns which are not selected
+        Set<Object> loadedIds = transformer.removeDistinct() ? new HashSet<>() : null;
+        transformer.replaceWithSelectId(pkName);
+        idsContext.getQuery().setQueryString(transformer.getResult());
+
+        LoadContext<E> chunkContext = (LoadContext<E>) context.copy();
+        chunkContext.setQuery(null);
+        chunkContext.getPrevQueries().clear();
+
+        View view = createRestrictedView(context);
+
+        try (Transaction tx = getLoadTransaction(false)) {
+            EntityManager em = persistence.getEntityManager(storeName);
+            em.setSoftDeletion(context.isSoftDeletion());
+
+            javax.persistence.Query idsQuery = createQuery(em, idsContext, false, false).getDelegate();
+            idsQuery.setHint(QueryHints.CURSOR, HintValues.TRUE);
+            idsQuery.setHint(QueryHints.CURSOR_PAGE_SIZE, chunkSize);
+            idsQuery.setHint(QueryHints.JDBC_FETCH_SIZE, chunkSize);
+
+            CursoredStream cursor = (CursoredStream) idsQuery.getSingleResult();
+            try {
+                while (!cursor.atEnd()) {
+                    List<Object> ids = new ArrayList<>(chunkSize);
+                    for (Object row : (List<Object>) cursor.next(chunkSize)) {
+                        Object id = row instanceof ReportQueryResult ? ((ReportQueryResult) row).getByIndex(0) : row;
+                        if (loadedIds == null || loadedIds.add(id)) {
+                            ids.add(id);
+                        }
+                    }
+                    cursor.releasePrevious();
+
+                    if (!ids.isEmpty()) {
+                        chunkContext.setIds(ids);
+                        List<E> chunk = loadChunk(chunkContext, em, view, metaClass);
+                        if (!chunk.isEmpty()) {
+                            chunkConsumer.accept(chunk);
+                        }
+                    }
+                }
+            } finally {
+                cursor.close();
+            }
+
+            tx.commit();
+        }
+    }
+
+    /**
+     * Loads entities by identifiers within the current transaction of the streaming load and detaches them.
+     * Entities filtered out by in-memory constraints are skipped.
+     */
+    @SuppressWarnings("unchecked")
+    protected <E extends Entity> List<E> loadChunk(LoadContext<E> chunkContext, EntityManager em, View view,
+                                                   MetaClass metaClass) {
+        Query query = createQuery(em, chunkContext, false, false);
+        query.setView(view);
+        List<E> entities = executeQuery(query, false);
+
+        Map<Object, E> idToEntityMap = new HashMap<>();
+        for (E entity : entities) {
+            idToEntityMap.put(entity.getId(), entity);
+        }
+        List<E> chunk = new ArrayList<>(entities.size());
+        for (Object id : chunkContext.getIds()) {
+            E entity = idToEntityMap.get(id);
+            if (entity != null) {
+                chunk.add(entity);
+            }
+        }
+
+        if (needToFilterByInMemoryReadConstraints(chunkContext)) {
+            security.filterByConstraints((Collection<Entity>) chunk);
+        }
+
+        if (!chunk.isEmpty() && chunk.get(0) instanceof BaseGenericIdEntity && chunkContext.isLoadDynamicAttributes()) {
+            dynamicAttributesManagerAPI.fetchDynamicAttributes((List<BaseGenericIdEntity>) chunk,
+                    collectEntityClassesWithDynamicAttributes(chunkContext.getView()));
+        }
+
+        boolean needToApplyInMemoryReadConstraints = needToApplyInMemoryReadConstraints(chunkContext);
+        if (needToApplyInMemoryReadConstraints) {
+            security.calculateFilteredData((Collection<Entity>) chunk);
+        }
+
+        attributeSecurity.onLoad(chunk, view);
+
+        for (E entity : chunk) {
+            detachEntity(em, entity, view);
+        }
+        // keeps the persistence context small, the cursor is not affected
+        em.getDelegate().clear();
+
+        if (needToApplyInMemoryReadConstraints) {
+            security.applyConstraints((Collection<Entity>) chunk);
+        }
+
+        if (isAuthorizationRequired(chunkContext)) {
+            attributeSecurity.afterLoad(chunk);
+        }
+
+        return chunk;
+    }
+
     protected boolean entityHasEmbeddedId(MetaClass metaClass) {
         MetaProperty pkProperty = metadataTools.getPrimaryKeyProperty(metaClass);
         return pkProperty == null || pkProperty.getRange().isClass();
@@ -413,6 +570,8 @@ public class RdbmsStore implements DataStore {
             if (!context.isSoftDeletion())
                 em.setSoftDeletion(false);
 
+            preloadDetachedEntities(context, em);
+
             List<BaseGenericIdEntity> entitiesToStoreDynamicAttributes = new ArrayList<>();
 
             // persist new
@@ -445,6 +604,7 @@ public class RdbmsStore implements DataStore {
             }
 
             // merge the rest - instances can be detached or not
+            List<Pair<Entity, Entity>> mergedEntities = new ArrayList<>();
             for (Entity entity : context.getCommitInstances()) {
                 if (!entityStates.isNew(entity)) {
                     if (isAuthorizationRequired(context)) {
@@ -457,19 +617,31 @@ public class RdbmsStore implements DataStore {
 
                     Entity merged = em.merge(entity);
                     saved.add(merged);
+                    mergedEntities.add(new Pair<>(entity, merged));
+                }
+            }
+
+            // merged instances are not returned if committed ones are discarded, so there is no need to fetch them
+            if (!context.isDiscardCommitted()) {
+                fetchMergedEntities(context, mergedEntities);
+            }
 
-                    entityFetcher.fetch(merged, getViewFromContext(context, entity));
+            for (Pair<Entity, Entity> pair : mergedEntities) {
+                Entity entity = pair.getFirst();
+                Entity merged = pair.getSecond();
+
+                if (!context.isDiscardCommitted()) {
                     attributeSecurity.afterMerge(merged);
+                }
 
-                    if (isAuthorizationRequired(context))
-                        checkOperationPermitted(merged, EntityOp.UPDATE);
+                if (isAuthorizationRequired(context))
+                    checkOperationPermitted(merged, EntityOp.UPDATE);
 
-                    if (entityHasDynamicAttributes(entity)) {
-                        BaseGenericIdEntity originalBaseGenericIdEntity = (BaseGenericIdEntity) entity;
-                        BaseGenericIdEntity mergedBaseGenericIdEntity = (BaseGenericIdEntity) merged;
-                        mergeDynamicAttributes(originalBaseGenericIdEntity, mergedBaseGenericIdEntity);
-                        entitiesToStoreDynamicAttributes.add(mergedBaseGenericIdEntity);
-                    }
+                if (entityHasDynamicAttributes(entity)) {
+                    BaseGenericIdEntity originalBaseGenericIdEntity = (BaseGenericIdEntity) entity;
+                    BaseGenericIdEntity mergedBaseGenericIdEntity = (BaseGenericIdEntity) merged;
+                    mergeDynamicAttributes(originalBaseGenericIdEntity, mergedBaseGenericIdEntity);
+                    entitiesToStoreDynamicAttributes.add(mergedBaseGenericIdEntity);
                 }
             }
 
@@ -488,8 +660,10 @@ public class RdbmsStore implements DataStore {
                 if (entity instanceof SoftDelete) {
                     attributeSecurity.beforeMerge(entity);
                     e = em.merge(entity);
-                    entityFetcher.fetch(e, getViewFromContext(context, entity));
-                    attributeSecurity.afterMerge(e);
+                    if (!context.isDiscardCommitted()) {
+                        entityFetcher.fetch(e, getViewFromContext(context, entity));
+                        attributeSecurity.afterMerge(e);
+                    }
                 } else {
                     e = em.merge(entity);
                 }
@@ -654,6 +828,83 @@ public class RdbmsStore implements DataStore {
         return entities;
     }
 
+    /**
+     * Loads managed instances of detached entities to be merged or removed by batches of ids, so
+     * {@link EntityManager#merge(Entity)} finds them in the persistence context instead of loading them one by one.
+     */
+    protected void preloadDetachedEntities(CommitContext context, EntityManager em) {
+        int batchSize = serverConfig.getCommitPreloadBatchSize();
+        if (batchSize <= 1) {
+            return;
+        }
+
+        Map<MetaClass, Set<Object>> idsByMetaClass = new LinkedHashMap<>();
+        for (Entity entity : Iterables.concat(context.getCommitInstances(), context.getRemoveInstances())) {
+            if (!entityStates.isNew(entity) && entityStates.isDetached(entity) && entity.getId() != null) {
+                MetaClass metaClass = metadata.getClassNN(entity.getClass());
+                Object id = entity.getId() instanceof IdProxy ? ((IdProxy) entity.getId()).getNN() : entity.getId();
+                idsByMetaClass.computeIfAbsent(metaClass, k -> new LinkedHashSet<>()).add(id);
+            }
+        }
+
+        int queries = 0;
+        boolean softDeletion = em.isSoftDeletion();
+        // merge finds soft deleted instances too
+        em.setSoftDeletion(false);
+        try {
+            for (Map.Entry<MetaClass, Set<Object>> entry : idsByMetaClass.entrySet()) {
+                MetaClass metaClass = entry.getKey();
+                MetaProperty primaryKeyProperty = metadataTools.getPrimaryKeyProperty(metaClass);
+                if (entry.getValue().size() < 2 || primaryKeyProperty == null || primaryKeyProperty.getRange().isClass()) {
+                    // nothing to batch or composite key entity
+                    continue;
+                }
+
+                for (List<Object> batch : Iterables.partition(entry.getValue(), batchSize)) {
+                    // the query is built as for loading by ids, but security constraints are not applied like in merge
+                    JpqlQueryBuilder queryBuilder = AppBeans.get(JpqlQueryBuilder.NAME);
+                    queryBuilder.setIds(batch)
+                            .setEntityName(metaClass.getName());
+                    Query query = em.createQuery(queryBuilder.getResultQueryString());
+                    queryBuilder.getResultParameters().forEach(query::setParameter);
+                    query.getResultList();
+                    queries++;
+                    statisticsAccumulator.incCommitPreloadQueriesCount();
+                    statisticsAccumulator.addCommitPreloadSavedRoundTripsCount(batch.size() - 1);
+                }
+            }
+        } finally {
+            em.setSoftDeletion(softDeletion);
+        }
+
+        if (queries > 0) {
+            log.debug("commit: preloaded detached instances of {} entities by {} queries", idsByMetaClass.size(), queries);
+        }
+    }
+
+    /**
+     * Fetches merged instances by views, the instances having the same view are fetched together so their detached
+     * references are reloaded by batches.
+     */
+    protected void fetchMergedEntities(CommitContext context, List<Pair<Entity, Entity>> mergedEntities) {
+        // views are compared by identity because unnamed views of the same class are equal
+        Map<View, List<Entity>> entitiesByView = new IdentityHashMap<>();
+        for (Pair<Entity, Entity> pair : mergedEntities) {
+            View view = context.getViews().get(pair.getFirst());
+            if (view == null) {
+                view = viewRepository.getView(pair.getFirst().getClass(), View.LOCAL);
+            }
+            entitiesByView.computeIfAbsent(view, k -> new ArrayList<>()).add(pair.getSecond());
+        }
+
+        for (Map.Entry<View, List<Entity>> entry : entitiesByView.entrySet()) {
+            View view = isAuthorizationRequired(context)
+                    ? attributeSecurity.createRestrictedView(entry.getKey())
+                    : entry.getKey();
+            entityFetcher.fetch(entry.getValue(), view, false);
+        }
+    }
+
     protected View getViewFromContext(CommitContext context, Entity entity) {
         View view = context.getViews().get(entity);
         if (view == null) {
@@ -701,7 +952,8 @@ public class RdbmsStore implements DataStore {
                     .setQueryParameters(contextQuery.getParameters())
                     .setNoConversionParams(contextQuery.getNoConversionParams());
             if (!countQuery) {
-                queryBuilder.setSort(contextQuery.getSort());
+                queryBuilder.setSort(contextQuery.getSort())
+                        .setKeyset(contextQuery.getKeyset());
             }
         }
 
@@ -21,8 +21,12 @@ import com.haulmont.cuba.core.config.Property;
 import com.haulmont.cuba.core.config.Source;
 import com.haulmont.cuba.core.config.SourceType;
 import com.haulmont.cuba.core.config.defaults.*;
+import com.haulmont.cuba.core.config.type.CommaSeparatedStringListTypeFactory;
+import com.haulmont.cuba.core.config.type.Factory;
 import com.haulmont.cuba.security.app.UserSessionsAPI;
 
+import java.util.List;
+
 /**
  * Configuration parameters interface used by the CORE layer.
  */
@@ -102,6 +106,15 @@ public interface ServerConfig extends Config {
     @DefaultInt(1)
     int getUserSessionTouchTimeoutSec();
 
+    /**
+     * @return names of user session attributes indexed by {@link UserSessionsAPI}, so sessions are found by values
+     * of these attributes without scanning all sessions. A session is indexed when it is added, refreshed,
+     * propagated or received from the cluster.
+     */
+    @Property("cuba.userSessionIndexedAttributes")
+    @Factory(factory = CommaSeparatedStringListTypeFactory.class)
+    List<String> getUserSessionIndexedAttributes();
+
     /**
      * @return DB scripts directory.
      * Does not end with "/"
@@ -207,6 +220,15 @@ public interface ServerConfig extends Config {
     @DefaultString("CUBA.Platform")
     String getKeyForSecurityTokenEncryption();
 
+    /**
+     * Whether security tokens are written in the compact binary format instead of JSON. Tokens are read in both
+     * formats, but middleware nodes of previous versions cannot read binary tokens, so turn it on only when
+     * all nodes of the cluster are upgraded.
+     */
+    @Property("cuba.securityTokenBinaryFormat")
+    @DefaultBoolean(false)
+    boolean getSecurityTokenBinaryFormat();
+
     /**
      * Indicates that {@code DataManager} should always apply security restrictions on the middleware.
      */
@@ -270,6 +292,53 @@ public interface ServerConfig extends Config {
     @DefaultInt(50)
     int getCrossDataStoreReferenceLoadingBatchSize();
 
+    /**
+     * @return max number of detached references reloaded by a single query when fetching entities by views.
+     * Values less than 2 turn off batching, so every detached reference is loaded separately.
+     */
+    @Property("cuba.detachedReferenceFetchBatchSize")
+    @DefaultInt(100)
+    int getDetachedReferenceFetchBatchSize();
+
+    /**
+     * @return max number of detached instances of an entity loaded by a single query before merging them on commit.
+     * Values less than 2 turn off preloading, so every detached instance is loaded separately when merged.
+     */
+    @Property("cuba.commitPreloadBatchSize")
+    @DefaultInt(100)
+    int getCommitPreloadBatchSize();
+
+    /**
+     * @return max number of JPQL strings transformed for execution which are kept in memory to be reused
+     * by subsequent executions of the same queries. 0 turns off the cache. Applied on server start.
+     */
+    @Property("cuba.transformedQueryCacheMaxSize")
+    @DefaultInt(2000)
+    int getTransformedQueryCacheMaxSize();
+
+    /**
+     * @return number of entities loaded and processed at once by {@code DataManager.stream()}. It is also used as
+     * the JDBC fetch size of the cursor reading identifiers of the entities.
+     */
+    @Property("cuba.dataManagerStreamChunkSize")
+    @DefaultInt(500)
+    int getDataManagerStreamChunkSize();
+
+    /**
+     * @return max number of entities committed in one transaction by {@code EntityImportExportAPI.importEntities()}.
+     * 0 (default) means that all entities are committed in one transaction.
+     */
+    @Property("cuba.entityImportCommitChunkSize")
+    @DefaultInt(0)
+    int getEntityImportCommitChunkSize();
+
+    /**
+     * @return max number of ids in one query loading existing and referenced entities on import
+     */
+    @Property("cuba.entityImportLoadBatchSize")
+    @DefaultInt(100)
+    int getEntityImportLoadBatchSize();
+
     /**
      * @return use read-only transactions in {@code DataManager} load operations and do not commit them
      */
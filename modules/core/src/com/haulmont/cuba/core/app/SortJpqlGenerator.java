@@ -24,6 +24,7 @@ import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.persistence.DbmsSpecificFactory;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -79,6 +80,75 @@ public class SortJpqlGenerator {
         return transformQuery(queryString, sortExpressions, asc);
     }
 
+    /**
+     * Sorts the query by the given properties followed by the primary key and restricts it to the instances
+     * following the keyset position.
+     *
+     * @param entityName name of the loaded entity
+     * @param queryString JPQL query
+     * @param sort sort, or null to sort by the primary key only
+     * @param keyset values of the sort properties and the primary key of the last instance of the previous page
+     * @param params map to which the keyset parameters are added
+     * @return transformed query
+     */
+    public String processQueryWithKeyset(String entityName, String queryString, @Nullable Sort sort, Keyset keyset,
+                                         Map<String, Object> params) {
+        MetaClass metaClass = metadata.getClassNN(entityName);
+        List<Sort.Order> orders = sort == null ? Collections.emptyList() : sort.getOrders();
+
+        Set<Sort.Direction> directions = orders.stream().map(Sort.Order::getDirection).collect(Collectors.toSet());
+        if (directions.size() > 1) {
+            throw new UnsupportedOperationException("Sorting by multiple properties in different directions is not supported");
+        }
+        boolean asc = directions.isEmpty() || directions.iterator().next() == Sort.Direction.ASC;
+
+        List<String> properties = new ArrayList<>();
+        for (Sort.Order order : orders) {
+            MetaPropertyPath metaPropertyPath = metaClass.getPropertyPath(order.getProperty());
+            checkNotNullArgument(metaPropertyPath, "Could not resolve property path '%s' in '%s'", order.getProperty(), metaClass);
+            MetaProperty metaProperty = metaPropertyPath.getMetaProperty();
+            if (!metadataTools.isPersistent(metaPropertyPath) || metaProperty.getRange().isClass()
+                    || metadataTools.isLob(metaProperty)) {
+                throw new UnsupportedOperationException(String.format(
+                        "Keyset pagination supports only persistent properties of datatypes, '%s' cannot be used",
+                        order.getProperty()));
+            }
+            properties.add(order.getProperty());
+        }
+        String primaryKeyName = metadataTools.getPrimaryKeyName(metaClass);
+        if (!properties.contains(primaryKeyName)) {
+            properties.add(primaryKeyName);
+        }
+
+        List<Object> values = keyset.getValues();
+        if (values.size() != properties.size()) {
+            throw new IllegalArgumentException(String.format("Keyset %s does not match sort properties %s", keyset, properties));
+        }
+
+        // (p0 > v0) or (p0 = v0 and p1 > v1) or ...
+        String operator = asc ? ">" : "<";
+        StringBuilder where = new StringBuilder();
+        for (int i = 0; i < properties.size(); i++) {
+            if (i > 0) {
+                where.append(" or ");
+            }
+            where.append("(");
+            for (int j = 0; j < i; j++) {
+                where.append(String.format("{E}.%s = :_keyset%d and ", properties.get(j), j));
+            }
+            where.append(String.format("{E}.%s %s :_keyset%d)", properties.get(i), operator, i));
+            params.put("_keyset" + i, values.get(i));
+        }
+
+        QueryTransformer transformer = queryTransformerFactory.transformer(queryString);
+        transformer.addWhere(where.toString());
+        // plain property expressions are used, the seek condition must follow the same order
+        transformer.replaceOrderByExpressions(!asc, properties.stream()
+                .map(property -> "{E}." + property)
+                .toArray(String[]::new));
+        return transformer.getResult();
+    }
+
     protected List<String> getUniqueSortExpression(List<String> sortExpressions, MetaClass metaClass, boolean asc) {
         MetaPropertyPath idProperty = metaClass.getPropertyPath(metadataTools.getPrimaryKeyName(metaClass));
         List<String> uniqueSortExpressions = getPropertySortExpressions(Objects.requireNonNull(idProperty), asc);
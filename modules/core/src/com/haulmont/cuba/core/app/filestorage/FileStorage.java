@@ -256,7 +256,18 @@ public class FileStorage implements FileStorageAPI {
 
     @Override
     public InputStream openStream(FileDescriptor fileDescr) throws FileStorageException {
+        return openStream(fileDescr, 0);
+    }
+
+    /**
+     * Returns a {@link FileInputStream} positioned at the offset, so the caller running in the same JVM
+     * can transfer the file contents using its channel.
+     */
+    @Override
+    public InputStream openStream(FileDescriptor fileDescr, long offset) throws FileStorageException {
         checkFileDescriptor(fileDescr);
+        if (offset < 0)
+            throw new IllegalArgumentException("Negative offset: " + offset);
 
         File[] roots = getStorageRoots();
         if (roots.length == 0) {
@@ -274,10 +285,16 @@ public class FileStorage implements FileStorageAPI {
                 continue;
             }
 
+            FileInputStream fileInputStream = null;
             try {
-                inputStream = FileUtils.openInputStream(file);
+                fileInputStream = FileUtils.openInputStream(file);
+                if (offset > 0) {
+                    fileInputStream.getChannel().position(offset);
+                }
+                inputStream = fileInputStream;
                 break;
             } catch (IOException e) {
+                IOUtils.closeQuietly(fileInputStream);
                 log.error("Error opening input stream for " + file, e);
             }
         }
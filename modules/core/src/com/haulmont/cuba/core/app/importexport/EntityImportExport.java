@@ -17,6 +17,8 @@
 
 package com.haulmont.cuba.core.app.importexport;
 
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.chile.core.model.Range;
@@ -24,9 +26,11 @@ import com.haulmont.cuba.core.Persistence;
 import com.haulmont.cuba.core.PersistenceSecurity;
 import com.haulmont.cuba.core.app.DataStore;
 import com.haulmont.cuba.core.app.RdbmsStore;
+import com.haulmont.cuba.core.app.ServerConfig;
 import com.haulmont.cuba.core.app.StoreFactory;
 import com.haulmont.cuba.core.app.dynamicattributes.DynamicAttributesManagerAPI;
 import com.haulmont.cuba.core.app.dynamicattributes.DynamicAttributesUtils;
+import com.haulmont.cuba.core.app.serialization.EntityJsonWriter;
 import com.haulmont.cuba.core.app.serialization.EntitySerializationAPI;
 import com.haulmont.cuba.core.app.serialization.EntitySerializationOption;
 import com.haulmont.cuba.core.entity.*;
@@ -38,19 +42,19 @@ import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
 import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.aop.support.AopUtils;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.validation.groups.Default;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import java.util.zip.CRC32;
 
 import static java.lang.String.format;
@@ -58,6 +62,10 @@ import static java.lang.String.format;
 @Component(EntityImportExportAPI.NAME)
 public class EntityImportExport implements EntityImportExportAPI {
 
+    private static final Logger log = LoggerFactory.getLogger(EntityImportExport.class);
+
+    protected static final String ENTITIES_ENTRY_NAME = "entities.json";
+
     @Inject
     protected EntitySerializationAPI entitySerialization;
 
@@ -88,6 +96,9 @@ public class EntityImportExport implements EntityImportExportAPI {
     @Inject
     protected GlobalConfig globalConfig;
 
+    @Inject
+    protected ServerConfig serverConfig;
+
     @Override
     public byte[] exportEntitiesToZIP(Collection<? extends Entity> entities, View view) {
         return exportEntitiesToZIP(reloadEntities(entities, view));
@@ -95,23 +106,13 @@ public class EntityImportExport implements EntityImportExportAPI {
 
     @Override
     public byte[] exportEntitiesToZIP(Collection<? extends Entity> entities) {
+        //the whole collection is serialized at once, so an entity repeated in different top-level entities
+        //is written in full only the first time, unlike the streaming export
         String json = entitySerialization.toJson(entities, null, EntitySerializationOption.COMPACT_REPEATED_ENTITIES);
         byte[] jsonBytes = json.getBytes(StandardCharsets.UTF_8);
 
         ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        ZipArchiveOutputStream zipOutputStream = new ZipArchiveOutputStream(byteArrayOutputStream);
-        zipOutputStream.setMethod(ZipArchiveOutputStream.STORED);
-        zipOutputStream.setEncoding(StandardCharsets.UTF_8.name());
-        ArchiveEntry singleDesignEntry = newStoredEntry("entities.json", jsonBytes);
-        try {
-            zipOutputStream.putArchiveEntry(singleDesignEntry);
-            zipOutputStream.write(jsonBytes);
-            zipOutputStream.closeArchiveEntry();
-        } catch (Exception e) {
-            throw new RuntimeException("Error on creating zip archive during entities export", e);
-        } finally {
-            IOUtils.closeQuietly(zipOutputStream);
-        }
+        writeZip(byteArrayOutputStream, false, zipOutputStream -> zipOutputStream.write(jsonBytes));
         return byteArrayOutputStream.toByteArray();
     }
 
@@ -126,7 +127,106 @@ public class EntityImportExport implements EntityImportExportAPI {
                 EntitySerializationOption.COMPACT_REPEATED_ENTITIES, EntitySerializationOption.PRETTY_PRINT);
     }
 
+    @Override
+    public void exportEntitiesToJSON(Collection<? extends Entity> entities, @Nullable View view, OutputStream outputStream) {
+        try {
+            writeJson(outputStream, jsonWriter -> writeEntities(entities, view, jsonWriter),
+                    EntitySerializationOption.COMPACT_REPEATED_ENTITIES, EntitySerializationOption.PRETTY_PRINT);
+        } catch (IOException e) {
+            throw new RuntimeException("Error on writing JSON during entities export", e);
+        }
+    }
+
+    @Override
+    public void exportEntitiesToJSON(LoadContext<? extends Entity> loadContext, OutputStream outputStream) {
+        try {
+            writeJson(outputStream, jsonWriter -> writeEntities(loadContext, jsonWriter),
+                    EntitySerializationOption.COMPACT_REPEATED_ENTITIES, EntitySerializationOption.PRETTY_PRINT);
+        } catch (IOException e) {
+            throw new RuntimeException("Error on writing JSON during entities export", e);
+        }
+    }
+
+    @Override
+    public void exportEntitiesToZIP(Collection<? extends Entity> entities, @Nullable View view, OutputStream outputStream,
+                                    boolean deflate) {
+        writeZip(outputStream, deflate, zipOutputStream ->
+                writeJson(zipOutputStream, jsonWriter -> writeEntities(entities, view, jsonWriter),
+                        EntitySerializationOption.COMPACT_REPEATED_ENTITIES));
+    }
+
+    @Override
+    public void exportEntitiesToZIP(LoadContext<? extends Entity> loadContext, OutputStream outputStream, boolean deflate) {
+        writeZip(outputStream, deflate, zipOutputStream ->
+                writeJson(zipOutputStream, jsonWriter -> writeEntities(loadContext, jsonWriter),
+                        EntitySerializationOption.COMPACT_REPEATED_ENTITIES));
+    }
+
+    protected void writeJson(OutputStream outputStream, ExportAction<EntityJsonWriter> action,
+                             EntitySerializationOption... options) throws IOException {
+        Writer writer = new OutputStreamWriter(new CloseShieldOutputStream(outputStream), StandardCharsets.UTF_8);
+        try (EntityJsonWriter jsonWriter = entitySerialization.createJsonWriter(writer, null, options)) {
+            action.perform(jsonWriter);
+        }
+    }
+
+    protected void writeZip(OutputStream outputStream, boolean deflate, ExportAction<OutputStream> action) {
+        ZipArchiveOutputStream zipOutputStream = new ZipArchiveOutputStream(new CloseShieldOutputStream(outputStream));
+        zipOutputStream.setEncoding(StandardCharsets.UTF_8.name());
+        try {
+            if (deflate) {
+                //the entry size and checksum are written after the data, so the entry is not buffered
+                zipOutputStream.setMethod(ZipArchiveOutputStream.DEFLATED);
+                zipOutputStream.putArchiveEntry(new ZipArchiveEntry(ENTITIES_ENTRY_NAME));
+                action.perform(zipOutputStream);
+            } else {
+                ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+                action.perform(byteArrayOutputStream);
+                byte[] jsonBytes = byteArrayOutputStream.toByteArray();
+
+                zipOutputStream.setMethod(ZipArchiveOutputStream.STORED);
+                zipOutputStream.putArchiveEntry(newStoredEntry(ENTITIES_ENTRY_NAME, jsonBytes));
+                zipOutputStream.write(jsonBytes);
+            }
+            zipOutputStream.closeArchiveEntry();
+            zipOutputStream.finish();
+        } catch (Exception e) {
+            throw new RuntimeException("Error on creating zip archive during entities export", e);
+        } finally {
+            IOUtils.closeQuietly(zipOutputStream);
+        }
+    }
+
+    protected void writeEntities(Collection<? extends Entity> entities, @Nullable View view,
+                                 EntityJsonWriter jsonWriter) throws IOException {
+        if (view == null) {
+            for (Entity entity : entities) {
+                jsonWriter.write(entity);
+            }
+        } else {
+            writeEntities(createReloadContext(entities, view), jsonWriter);
+        }
+    }
+
+    protected void writeEntities(LoadContext<? extends Entity> loadContext, EntityJsonWriter jsonWriter) throws IOException {
+        try {
+            dataManager.stream(loadContext, entity -> {
+                try {
+                    jsonWriter.write(entity);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
     protected Collection<? extends Entity> reloadEntities(Collection<? extends Entity> entities, View view) {
+        return dataManager.loadList(createReloadContext(entities, view));
+    }
+
+    protected LoadContext<? extends Entity> createReloadContext(Collection<? extends Entity> entities, View view) {
         List<Object> ids = entities.stream()
                 .map(Entity::getId)
                 .collect(Collectors.toList());
@@ -134,11 +234,9 @@ public class EntityImportExport implements EntityImportExportAPI {
         MetaClass metaClass = metadata.getClassNN(view.getEntityClass());
         LoadContext.Query query = LoadContext.createQuery("select e from " + metaClass.getName() + " e where e.id in :ids")
                 .setParameter("ids", ids);
-        LoadContext<? extends Entity> ctx = LoadContext.create(view.getEntityClass())
+        return LoadContext.create(view.getEntityClass())
                 .setQuery(query)
                 .setView(view);
-
-        return dataManager.loadList(ctx);
     }
 
     protected ArchiveEntry newStoredEntry(String name, byte[] data) {
@@ -170,10 +268,13 @@ public class EntityImportExport implements EntityImportExportAPI {
         try {
             try {
                 while (archiveReader.getNextZipEntry() != null) {
-                    String json = new String(readBytesFromEntry(archiveReader), StandardCharsets.UTF_8);
-                    entities = entitySerialization.entitiesCollectionFromJson(json,
+                    //the entry is parsed while being unpacked, without reading it into a string
+                    List<Entity> entryEntities = new ArrayList<>();
+                    entitySerialization.entitiesFromJson(new InputStreamReader(archiveReader, StandardCharsets.UTF_8),
                             null,
+                            entryEntities::add,
                             EntitySerializationOption.COMPACT_REPEATED_ENTITIES);
+                    entities = entryEntities;
                     result.addAll(importEntities(entities, view));
                 }
             } catch (IOException e) {
@@ -201,6 +302,30 @@ public class EntityImportExport implements EntityImportExportAPI {
 
     @Override
     public Collection<Entity> importEntities(Collection<? extends Entity> entities, EntityImportView importView, boolean validate, boolean optimisticLocking) {
+        ImportStatistics statistics = new ImportStatistics();
+        View regularView = buildViewFromImportView(importView);
+
+        Collection<Entity> result;
+        int chunkSize = serverConfig.getEntityImportCommitChunkSize();
+        if (chunkSize <= 0 || entities.size() <= chunkSize) {
+            result = importEntitiesChunk(entities, importView, regularView, validate, optimisticLocking, statistics);
+        } else {
+            //each chunk is committed in a separate transaction, so references between entities of different chunks
+            //are resolved only if the referenced entity is in the same or a previous chunk
+            result = new ArrayList<>(entities.size());
+            for (List<? extends Entity> chunk : Iterables.partition(entities, chunkSize)) {
+                result.addAll(importEntitiesChunk(chunk, importView, regularView, validate, optimisticLocking, statistics));
+            }
+            result = EntitySet.of(result);
+        }
+
+        statistics.log(entities.size());
+        return result;
+    }
+
+    protected Collection<Entity> importEntitiesChunk(Collection<? extends Entity> entities, EntityImportView importView,
+                                                     View regularView, boolean validate, boolean optimisticLocking,
+                                                     ImportStatistics statistics) {
         List<ReferenceInfo> referenceInfoList = new ArrayList<>();
         CommitContext commitContext = new CommitContext();
         commitContext.setSoftDeletion(false);
@@ -210,25 +335,16 @@ public class EntityImportExport implements EntityImportExportAPI {
         //
         //1. entities that should be persisted are processed first, fields that should be references to existing entities
         //are stored in the referenceInfoList variable
+        Map<Entity, Entity> existingEntities = loadExistingEntities(entities, regularView, statistics);
         for (Entity srcEntity : entities) {
-            View regularView = buildViewFromImportView(importView);
-            //set softDeletion to false because we can import deleted entity, so we'll restore it and update
-            LoadContext<? extends Entity> ctx = LoadContext.create(srcEntity.getClass())
-                    .setSoftDeletion(false)
-                    .setView(regularView)
-                    .setLoadDynamicAttributes(true)
-                    .setId(srcEntity.getId())
-                    .setAuthorizationRequired(true);
-            Entity dstEntity = dataManager.load(ctx);
-
+            Entity dstEntity = existingEntities.get(srcEntity);
             importEntity(srcEntity, dstEntity, importView, regularView, commitContext, referenceInfoList, optimisticLocking);
         }
 
         //2. references to existing entities are processed
 
-        //store a list of loaded entities in the collection to prevent unnecessary database requests for searching the
-        //same instance
-        Set<Entity> loadedEntities = new HashSet<>();
+        //store loaded entities in the map to prevent unnecessary database requests for searching the same instance
+        Map<Entity, Entity> loadedEntities = loadReferencedEntities(referenceInfoList, commitContext, statistics);
         for (ReferenceInfo referenceInfo : referenceInfoList) {
             processReferenceInfo(referenceInfo, commitContext, loadedEntities);
         }
@@ -258,7 +374,129 @@ public class EntityImportExport implements EntityImportExportAPI {
 
         commitContext.setAuthorizationRequired(true);
 
-        return dataManager.commit(commitContext);
+        EntitySet committed = dataManager.commit(commitContext);
+        statistics.commits++;
+        return committed;
+    }
+
+    /**
+     * Loads destination entities for the imported ones by batches of ids.
+     *
+     * @return map of source entities to the loaded ones, non-existing entities are absent in the map
+     */
+    protected Map<Entity, Entity> loadExistingEntities(Collection<? extends Entity> entities, View regularView,
+                                                       ImportStatistics statistics) {
+        Map<Class<? extends Entity>, List<Object>> idsByClass = new LinkedHashMap<>();
+        for (Entity srcEntity : entities) {
+            if (srcEntity.getId() != null) {
+                idsByClass.computeIfAbsent(srcEntity.getClass(), c -> new ArrayList<>()).add(srcEntity.getId());
+            }
+        }
+
+        Map<Entity, Entity> result = new HashMap<>();
+        int batchSize = Math.max(serverConfig.getEntityImportLoadBatchSize(), 1);
+        for (Map.Entry<Class<? extends Entity>, List<Object>> entry : idsByClass.entrySet()) {
+            MetaClass metaClass = metadata.getClassNN(entry.getKey());
+            boolean embeddedId = entityHasEmbeddedId(metaClass);
+            for (List<Object> ids : Lists.partition(entry.getValue(), embeddedId ? 1 : batchSize)) {
+                //set softDeletion to false because we can import deleted entity, so we'll restore it and update
+                LoadContext<? extends Entity> ctx = LoadContext.create(entry.getKey())
+                        .setSoftDeletion(false)
+                        .setView(regularView)
+                        .setLoadDynamicAttributes(true)
+                        .setAuthorizationRequired(true);
+                for (Entity entity : loadByIds(ctx, metaClass, ids, embeddedId)) {
+                    result.put(entity, entity);
+                }
+                statistics.loadQueries++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Loads entities referenced by the import view properties without views by batches of ids.
+     *
+     * @return map of referenced entities to the loaded ones or to instances being committed. Entities which were
+     * not found in the database are mapped to null.
+     */
+    protected Map<Entity, Entity> loadReferencedEntities(Collection<ReferenceInfo> referenceInfoList,
+                                                         CommitContext commitContext, ImportStatistics statistics) {
+        Map<Entity, Entity> result = new HashMap<>();
+        for (Entity commitInstance : commitContext.getCommitInstances()) {
+            result.putIfAbsent(commitInstance, commitInstance);
+        }
+
+        Map<Class<? extends Entity>, Set<Entity>> referencesByClass = new LinkedHashMap<>();
+        for (ReferenceInfo referenceInfo : referenceInfoList) {
+            Object value = referenceInfo.getPropertyValue();
+            Collection<?> references = value instanceof Collection ? (Collection<?>) value : Collections.singleton(value);
+            for (Object reference : references) {
+                if (reference instanceof Entity && ((Entity) reference).getId() != null && !result.containsKey(reference)) {
+                    referencesByClass.computeIfAbsent(((Entity) reference).getClass(), c -> new LinkedHashSet<>())
+                            .add((Entity) reference);
+                }
+            }
+        }
+
+        int batchSize = Math.max(serverConfig.getEntityImportLoadBatchSize(), 1);
+        for (Map.Entry<Class<? extends Entity>, Set<Entity>> entry : referencesByClass.entrySet()) {
+            MetaClass metaClass = metadata.getClassNN(entry.getKey());
+            boolean embeddedId = entityHasEmbeddedId(metaClass);
+            for (List<Entity> batch : Iterables.partition(entry.getValue(), embeddedId ? 1 : batchSize)) {
+                LoadContext<? extends Entity> ctx = LoadContext.create(entry.getKey())
+                        .setSoftDeletion(false)
+                        .setView(new View(metaClass.getJavaClass(), false));
+                List<Object> ids = batch.stream()
+                        .map(Entity::getId)
+                        .collect(Collectors.toList());
+                for (Entity entity : loadByIds(ctx, metaClass, ids, embeddedId)) {
+                    result.put(entity, entity);
+                }
+                for (Entity reference : batch) {
+                    result.putIfAbsent(reference, null);
+                }
+                statistics.loadQueries++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Loads instances with the given ids by {@link #createLoadByIdsQuery(MetaClass, List)}. Entities with
+     * an embedded or composite primary key cannot be loaded by a list of ids, so they are loaded by a single id.
+     */
+    protected List<? extends Entity> loadByIds(LoadContext<? extends Entity> ctx, MetaClass metaClass, List<Object> ids,
+                                               boolean embeddedId) {
+        if (embeddedId) {
+            List<Entity> result = new ArrayList<>(ids.size());
+            for (Object id : ids) {
+                Entity entity = dataManager.load(ctx.setId(id));
+                if (entity != null) {
+                    result.add(entity);
+                }
+            }
+            return result;
+        }
+        return dataManager.loadList(ctx.setQuery(createLoadByIdsQuery(metaClass, ids)));
+    }
+
+    protected boolean entityHasEmbeddedId(MetaClass metaClass) {
+        MetaProperty pkProperty = metadata.getTools().getPrimaryKeyProperty(metaClass);
+        return pkProperty == null || pkProperty.getRange().isClass();
+    }
+
+    /**
+     * Creates a query loading instances with the given ids. Unlike loading by {@link LoadContext#setIds(Collection)},
+     * ids which are not found in the database are just absent in the result.
+     */
+    protected LoadContext.Query createLoadByIdsQuery(MetaClass metaClass, List<Object> ids) {
+        String primaryKeyName = metadata.getTools().getPrimaryKeyName(metaClass);
+        List<Object> idValues = ids.stream()
+                .map(id -> id instanceof IdProxy ? ((IdProxy) id).get() : id)
+                .collect(Collectors.toList());
+        return LoadContext.createQuery("select e from " + metaClass.getName() + " e where e." + primaryKeyName + " in :ids")
+                .setParameter("ids", idValues);
     }
 
     /**
@@ -557,7 +795,7 @@ public class EntityImportExport implements EntityImportExportAPI {
      * Method finds and set a reference value to the entity or throws EntityImportException if ERROR_ON_MISSING policy
      * is violated
      */
-    protected void processReferenceInfo(ReferenceInfo referenceInfo, CommitContext commitContext, Set<Entity> loadedEntities) {
+    protected void processReferenceInfo(ReferenceInfo referenceInfo, CommitContext commitContext, Map<Entity, Entity> loadedEntities) {
         Entity entity = referenceInfo.getEntity();
         EntityImportViewProperty viewProperty = referenceInfo.getViewProperty();
         MetaProperty metaProperty = entity.getMetaClass().getPropertyNN(viewProperty.getName());
@@ -694,28 +932,54 @@ public class EntityImportExport implements EntityImportExportAPI {
     }
 
     protected Entity findReferenceEntity(Entity entity, EntityImportViewProperty viewProperty, CommitContext commitContext,
-                                         Set<Entity> loadedEntities) {
-        Entity result = Stream.concat(loadedEntities.stream(), commitContext.getCommitInstances().stream())
-                .filter(item -> item.equals(entity))
-                .findFirst().orElse(null);
-        if (result == null) {
-            LoadContext<? extends Entity> ctx = LoadContext.create(entity.getClass())
-                    .setSoftDeletion(false)
-                    .setView(new View(entity.getMetaClass().getJavaClass(), false))
-                    .setId(entity.getId());
-            result = dataManager.load(ctx);
+                                         Map<Entity, Entity> loadedEntities) {
+        Entity result;
+        if (loadedEntities.containsKey(entity)) {
+            result = loadedEntities.get(entity);
+        } else {
+            result = commitContext.getCommitInstances().stream()
+                    .filter(item -> item.equals(entity))
+                    .findFirst().orElse(null);
             if (result == null) {
-                if (viewProperty.getReferenceImportBehaviour() == ReferenceImportBehaviour.ERROR_ON_MISSING) {
-                    throw new EntityImportException(String.format("Referenced entity for property '%s' with id = %s is missing",
-                            viewProperty.getName(), entity.getId()));
-                }
-            } else {
-                loadedEntities.add(result);
+                LoadContext<? extends Entity> ctx = LoadContext.create(entity.getClass())
+                        .setSoftDeletion(false)
+                        .setView(new View(entity.getMetaClass().getJavaClass(), false))
+                        .setId(entity.getId());
+                result = dataManager.load(ctx);
             }
+            loadedEntities.put(entity, result);
+        }
+        if (result == null && viewProperty.getReferenceImportBehaviour() == ReferenceImportBehaviour.ERROR_ON_MISSING) {
+            throw new EntityImportException(String.format("Referenced entity for property '%s' with id = %s is missing",
+                    viewProperty.getName(), entity.getId()));
         }
         return result;
     }
 
+    /**
+     * Counters of an import operation, logged when it is finished.
+     */
+    protected static class ImportStatistics {
+        protected final long startTime = System.currentTimeMillis();
+        protected int loadQueries;
+        protected int commits;
+
+        protected void log(int entityCount) {
+            if (log.isDebugEnabled()) {
+                long time = Math.max(System.currentTimeMillis() - startTime, 1);
+                log.debug(String.format("Imported %d entities in %d ms (%.1f entities/sec), load queries: %d, commits: %d",
+                        entityCount, time, entityCount * 1000.0 / time, loadQueries, commits));
+            }
+        }
+    }
+
+    /**
+     * Export step which can throw {@link IOException}.
+     */
+    protected interface ExportAction<T> {
+        void perform(T target) throws IOException;
+    }
+
     protected static class ReferenceInfo {
         protected Entity entity;
         protected SecurityState prevSecurityState;
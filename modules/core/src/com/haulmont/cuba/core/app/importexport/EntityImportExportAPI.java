@@ -18,8 +18,11 @@
 package com.haulmont.cuba.core.app.importexport;
 
 import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.global.LoadContext;
 import com.haulmont.cuba.core.global.View;
 
+import javax.annotation.Nullable;
+import java.io.OutputStream;
 import java.util.Collection;
 
 /**
@@ -50,6 +53,51 @@ public interface EntityImportExportAPI {
      */
     String exportEntitiesToJSON(Collection<? extends Entity> entities);
 
+    /**
+     * Writes entities to the output stream as a JSON array, serializing them one by one. If the view is specified,
+     * the entities are reloaded with the view by chunks of {@code cuba.dataManagerStreamChunkSize} instances.
+     * The stream is not closed.
+     * <p>
+     * Repeated entities are compacted within each top-level entity only, so an entity referenced by several
+     * top-level entities is written in full for each of them. The result can be imported the same way as the result
+     * of {@link #exportEntitiesToJSON(Collection)}.
+     *
+     * @param entities     entities to export
+     * @param view         view to reload the entities with, or null to export them as is
+     * @param outputStream target stream
+     */
+    void exportEntitiesToJSON(Collection<? extends Entity> entities, @Nullable View view, OutputStream outputStream);
+
+    /**
+     * Writes entities loaded by the context to the output stream as a JSON array. The entities are loaded by
+     * {@link com.haulmont.cuba.core.global.DataManager#stream(LoadContext, java.util.function.Consumer)}, so only
+     * one chunk of them is held in memory. The stream is not closed.
+     *
+     * @param loadContext  context defining the entities to export
+     * @param outputStream target stream
+     */
+    void exportEntitiesToJSON(LoadContext<? extends Entity> loadContext, OutputStream outputStream);
+
+    /**
+     * Writes a ZIP archive with the {@code entities.json} entry to the output stream. The entry content is the same as
+     * in {@link #exportEntitiesToJSON(Collection, View, OutputStream)}. The stream is not closed.
+     *
+     * @param entities     entities to export
+     * @param view         view to reload the entities with, or null to export them as is
+     * @param outputStream target stream
+     * @param deflate      whether to compress the entry. Uncompressed entry is buffered in memory to calculate
+     *                     its size and checksum, so large exports should be compressed.
+     */
+    void exportEntitiesToZIP(Collection<? extends Entity> entities, @Nullable View view, OutputStream outputStream,
+                             boolean deflate);
+
+    /**
+     * Writes a ZIP archive with the {@code entities.json} entry containing entities loaded by the context.
+     * See {@link #exportEntitiesToJSON(LoadContext, OutputStream)} and
+     * {@link #exportEntitiesToZIP(Collection, View, OutputStream, boolean)}.
+     */
+    void exportEntitiesToZIP(LoadContext<? extends Entity> loadContext, OutputStream outputStream, boolean deflate);
+
     /**
      * See documentation for {@link EntityImportExportService#importEntitiesFromJSON(String, EntityImportView)}
      */
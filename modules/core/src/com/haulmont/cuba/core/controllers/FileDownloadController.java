@@ -24,6 +24,7 @@ import com.haulmont.cuba.core.global.FileStorageException;
 import com.haulmont.cuba.core.global.FileTypesHelper;
 import com.haulmont.cuba.core.global.LoadContext;
 import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.ByteRange;
 import com.haulmont.cuba.core.sys.SecurityContext;
 import com.haulmont.cuba.security.app.UserSessionsAPI;
 import com.haulmont.cuba.security.global.UserSession;
@@ -85,12 +86,39 @@ public class FileDownloadController {
             response.setIntHeader("Expires", -1);
             response.setHeader("Content-Type", FileTypesHelper.DEFAULT_MIME_TYPE);
 
+            Long length = fd != null ? fd.getSize() : (file.isFile() ? Long.valueOf(file.length()) : null);
+            ByteRange range = null;
+            if (length != null) {
+                response.setHeader("Accept-Ranges", "bytes");
+                range = ByteRange.parse(request.getHeader("Range"), length);
+                if (range != null && !range.isSatisfiable()) {
+                    response.setHeader("Content-Range", range.getContentRange());
+                    response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+            }
+
             InputStream is = null;
             ServletOutputStream os = null;
             try {
-                is = fd != null ? fileStorage.openStream(fd) : FileUtils.openInputStream(file);
+                long offset = range != null ? range.getStart() : 0;
+                if (fd != null) {
+                    is = fileStorage.openStream(fd, offset);
+                } else {
+                    is = FileUtils.openInputStream(file);
+                    IOUtils.skipFully(is, offset);
+                }
+                if (range != null) {
+                    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    response.setHeader("Content-Range", range.getContentRange());
+                    response.setHeader("Content-Length", String.valueOf(range.getLength()));
+                }
                 os = response.getOutputStream();
-                IOUtils.copy(is, os);
+                if (range != null) {
+                    IOUtils.copyLarge(is, os, 0, range.getLength());
+                } else {
+                    IOUtils.copy(is, os);
+                }
                 os.flush();
             } catch (FileStorageException e) {
                 log.error("Unable to download file", e);
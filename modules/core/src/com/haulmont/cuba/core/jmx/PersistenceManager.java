@@ -17,6 +17,7 @@
 
 package com.haulmont.cuba.core.jmx;
 
+import com.google.common.cache.CacheStats;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.cuba.core.*;
 import com.haulmont.cuba.core.app.PersistenceConfig;
@@ -26,6 +27,8 @@ import com.haulmont.cuba.core.entity.EntityStatistics;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.DbInitializationException;
 import com.haulmont.cuba.core.sys.DbUpdater;
+import com.haulmont.cuba.core.sys.TransformedQueryCache;
+import com.haulmont.cuba.core.sys.jpql.QueryTreeCache;
 import com.haulmont.cuba.core.sys.persistence.DbmsType;
 import com.haulmont.cuba.security.app.Authenticated;
 import org.apache.commons.lang3.StringUtils;
@@ -60,6 +63,9 @@ public class PersistenceManager implements PersistenceManagerMBean {
     @Inject
     protected PersistenceSecurity security;
 
+    @Inject
+    protected TransformedQueryCache transformedQueryCache;
+
     protected PersistenceConfig persistenceConfig;
 
     protected ServerConfig serverConfig;
@@ -335,4 +341,28 @@ public class PersistenceManager implements PersistenceManagerMBean {
             return ExceptionUtils.getStackTrace(e);
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public long getTransformedQueryCacheSize() {
+        return transformedQueryCache.size();
+    }
+
+    @Override
+    public String printTransformedQueryCacheStats() {
+        CacheStats stats = transformedQueryCache.getStats();
+        CacheStats parseStats = QueryTreeCache.getStats();
+        return String.format("Transformed queries: enabled=%s, size=%d, hits=%d, misses=%d, hitRate=%.2f, evictions=%d\n" +
+                        "Parsed query trees: size=%d, hits=%d, misses=%d, hitRate=%.2f, evictions=%d",
+                transformedQueryCache.isEnabled(), transformedQueryCache.size(), stats.hitCount(),
+                stats.missCount(), stats.hitRate(), stats.evictionCount(),
+                QueryTreeCache.size(), parseStats.hitCount(), parseStats.missCount(), parseStats.hitRate(),
+                parseStats.evictionCount());
+    }
+
+    @Override
+    public String clearTransformedQueryCache() {
+        transformedQueryCache.invalidateAll();
+        QueryTreeCache.invalidateAll();
+        return "Done";
+    }
+}
@@ -138,4 +138,15 @@ public interface PersistenceManagerMBean {
      */
     @ManagedOperation(description = "Flush statistics cache. It will be reloaded on a next request")
     String flushStatisticsCache();
+
+    long getTransformedQueryCacheSize();
+
+    /**
+     * @return hit and miss counts of the caches of transformed JPQL strings and parsed query trees
+     */
+    @ManagedOperation(description = "Print statistics of the caches of transformed JPQL strings and parsed query trees")
+    String printTransformedQueryCacheStats();
+
+    @ManagedOperation(description = "Clear the caches of transformed JPQL strings and parsed query trees")
+    String clearTransformedQueryCache();
 }
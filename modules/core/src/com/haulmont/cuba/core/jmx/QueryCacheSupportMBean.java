@@ -27,6 +27,18 @@ public interface QueryCacheSupportMBean {
     @ManagedAttribute(description = "Current number of cached queries")
     long getSize();
 
+    @ManagedAttribute(description = "Number of times cached query results have been found")
+    long getHitCount();
+
+    @ManagedAttribute(description = "Number of times cached query results have not been found")
+    long getMissCount();
+
+    @ManagedAttribute(description = "Ratio of found cached query results to all requests")
+    double getHitRate();
+
+    @ManagedAttribute(description = "Number of queries evicted because of the cache size limit")
+    long getEvictionCount();
+
     @ManagedOperation(description = "Discard all query results in the cache")
     String evictAll();
 
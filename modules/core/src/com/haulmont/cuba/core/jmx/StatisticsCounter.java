@@ -106,6 +106,76 @@ public class StatisticsCounter implements StatisticsCounterMBean {
         return accumulator.getImplicitFlushCount();
     }
 
+    @Override
+    public Long getDetachedReferencesBatchQueriesCount() {
+        return accumulator.getDetachedReferencesBatchQueriesCount();
+    }
+
+    @Override
+    public Long getDetachedReferencesSavedRoundTripsCount() {
+        return accumulator.getDetachedReferencesSavedRoundTripsCount();
+    }
+
+    @Override
+    public Long getCommitPreloadQueriesCount() {
+        return accumulator.getCommitPreloadQueriesCount();
+    }
+
+    @Override
+    public Long getCommitPreloadSavedRoundTripsCount() {
+        return accumulator.getCommitPreloadSavedRoundTripsCount();
+    }
+
+    @Override
+    public Long getJdbcBatchesCount() {
+        return accumulator.getJdbcBatchesCount();
+    }
+
+    @Override
+    public Long getJdbcBatchedStatementsCount() {
+        return accumulator.getJdbcBatchedStatementsCount();
+    }
+
+    @Override
+    public double getAvgJdbcBatchSize() {
+        return accumulator.getAvgJdbcBatchSize();
+    }
+
+    @Override
+    public Long getInMemoryConstraintChecksCount() {
+        return accumulator.getInMemoryConstraintChecksCount();
+    }
+
+    @Override
+    public double getAvgInMemoryConstraintCheckTimeMicros() {
+        return accumulator.getAvgInMemoryConstraintCheckTimeMicros();
+    }
+
+    @Override
+    public String printInMemoryConstraintStatistics() {
+        return accumulator.printInMemoryConstraintStatistics();
+    }
+
+    @Override
+    public Long getUserSessionEvictionsCount() {
+        return accumulator.getUserSessionEvictionsCount();
+    }
+
+    @Override
+    public double getAvgUserSessionEvictionTimeMs() {
+        return accumulator.getAvgUserSessionEvictionTimeMs();
+    }
+
+    @Override
+    public double getLastUserSessionEvictionTimeMs() {
+        return accumulator.getLastUserSessionEvictionTimeMs();
+    }
+
+    @Override
+    public Long getExpiredUserSessionsCount() {
+        return accumulator.getExpiredUserSessionsCount();
+    }
+
     @Override
     public int getDbConnectionPoolNumActive() {
         connectionPoolInfo = getConnectionPoolInfo();
@@ -47,6 +47,37 @@ public interface StatisticsCounterMBean {
 
     Long getImplicitFlushCount();
 
+    Long getDetachedReferencesBatchQueriesCount();
+
+    Long getDetachedReferencesSavedRoundTripsCount();
+
+    Long getCommitPreloadQueriesCount();
+
+    Long getCommitPreloadSavedRoundTripsCount();
+
+    Long getJdbcBatchesCount();
+
+    Long getJdbcBatchedStatementsCount();
+
+    double getAvgJdbcBatchSize();
+
+    Long getInMemoryConstraintChecksCount();
+
+    double getAvgInMemoryConstraintCheckTimeMicros();
+
+    /**
+     * @return number and time of checks by each in-memory constraint, the most expensive constraints first
+     */
+    String printInMemoryConstraintStatistics();
+
+    Long getUserSessionEvictionsCount();
+
+    double getAvgUserSessionEvictionTimeMs();
+
+    double getLastUserSessionEvictionTimeMs();
+
+    Long getExpiredUserSessionsCount();
+
     int getDbConnectionPoolNumActive();
 
     int getDbConnectionPoolNumIdle();
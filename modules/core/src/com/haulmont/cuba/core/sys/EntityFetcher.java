@@ -22,8 +22,11 @@ import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.cuba.core.EntityManager;
 import com.haulmont.cuba.core.Persistence;
 import com.haulmont.cuba.core.Transaction;
+import com.haulmont.cuba.core.app.MiddlewareStatisticsAccumulator;
+import com.haulmont.cuba.core.app.ServerConfig;
 import com.haulmont.cuba.core.entity.EmbeddableEntity;
 import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.entity.IdProxy;
 import com.haulmont.cuba.core.global.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,11 +35,17 @@ import org.springframework.stereotype.Component;
 import javax.inject.Inject;
 import javax.persistence.Basic;
 import javax.persistence.FetchType;
+import javax.persistence.FlushModeType;
 import java.lang.reflect.AnnotatedElement;
 import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * Fetches entities by views by accessing reference attributes.
+ * <p>
+ * Detached references encountered in the graph are reloaded. If {@link ServerConfig#getDetachedReferenceFetchBatchSize()}
+ * is greater than 1, they are first collected for the whole graph and then loaded by {@code in} queries, one query
+ * per entity class, view and batch.
  */
 @Component(EntityFetcher.NAME)
 public class EntityFetcher {
@@ -57,13 +66,19 @@ public class EntityFetcher {
     @Inject
     protected EntityStates entityStates;
 
+    @Inject
+    protected ServerConfig serverConfig;
+
+    @Inject
+    protected MiddlewareStatisticsAccumulator statisticsAccumulator;
+
     /**
      * Fetch instance by view object.
      */
     public void fetch(Entity instance, View view) {
         if (view == null)
             return;
-        fetch(instance, view, new HashMap<>(), false);
+        fetch(Collections.singletonList(instance), view, false);
     }
 
     /**
@@ -73,7 +88,7 @@ public class EntityFetcher {
         if (viewName == null)
             return;
         View view = viewRepository.getView(instance.getClass(), viewName);
-        fetch(instance, view, new HashMap<>(), false);
+        fetch(Collections.singletonList(instance), view, false);
     }
 
     /**
@@ -86,7 +101,7 @@ public class EntityFetcher {
     public void fetch(Entity instance, View view, boolean optimizeForDetached) {
         if (view == null)
             return;
-        fetch(instance, view, new HashMap<>(), optimizeForDetached);
+        fetch(Collections.singletonList(instance), view, optimizeForDetached);
     }
 
     /**
@@ -100,7 +115,45 @@ public class EntityFetcher {
         if (viewName == null)
             return;
         View view = viewRepository.getView(instance.getClass(), viewName);
-        fetch(instance, view, new HashMap<>(), optimizeForDetached);
+        fetch(Collections.singletonList(instance), view, optimizeForDetached);
+    }
+
+    /**
+     * Fetch a collection of instances by view object. Detached references found in the graphs of all instances
+     * are reloaded together.
+     *
+     * @param optimizeForDetached if true, detached objects encountered in the graph will be first checked whether all
+     *                            required attributes are already loaded, and reloaded only when needed.
+     *                            If the argument is false, all detached objects are reloaded anyway.
+     */
+    public void fetch(Collection<? extends Entity> instances, View view, boolean optimizeForDetached) {
+        if (view == null || instances.isEmpty())
+            return;
+
+        Map<Instance, Set<View>> visited = new HashMap<>();
+        int batchSize = serverConfig.getDetachedReferenceFetchBatchSize();
+        if (batchSize <= 1) {
+            for (Entity instance : instances) {
+                fetch(instance, view, visited, optimizeForDetached);
+            }
+            return;
+        }
+
+        Map<DetachedReferenceGroup, List<DetachedReference>> references = new LinkedHashMap<>();
+        for (Entity instance : instances) {
+            collectDetachedReferences(instance, view, visited, optimizeForDetached, references);
+        }
+        while (!references.isEmpty()) {
+            List<DetachedReference> reloaded = new ArrayList<>();
+            for (Map.Entry<DetachedReferenceGroup, List<DetachedReference>> entry : references.entrySet()) {
+                reloadDetachedReferences(entry.getKey(), entry.getValue(), batchSize, reloaded);
+            }
+
+            references = new LinkedHashMap<>();
+            for (DetachedReference reference : reloaded) {
+                collectDetachedReferences(reference.managed, reference.view, visited, optimizeForDetached, references);
+            }
+        }
     }
 
     protected void fetch(Entity entity, View view, Map<Instance, Set<View>> visited, boolean optimizeForDetached) {
@@ -160,7 +213,176 @@ public class EntityFetcher {
         }
     }
 
+    /**
+     * Traverses the graph like {@link #fetch(Entity, View, Map, boolean)}, but instead of reloading detached
+     * references immediately, collects them grouped by entity class and view.
+     */
+    protected void collectDetachedReferences(Entity entity, View view, Map<Instance, Set<View>> visited,
+                                             boolean optimizeForDetached,
+                                             Map<DetachedReferenceGroup, List<DetachedReference>> references) {
+        Set<View> views = visited.computeIfAbsent(entity, k -> new HashSet<>());
+        if (!views.add(view)) {
+            return;
+        }
+
+        if (log.isTraceEnabled()) log.trace("Fetching instance " + entity);
+
+        MetaClass metaClass = metadata.getClassNN(entity.getClass());
+        for (ViewProperty property : view.getProperties()) {
+            MetaProperty metaProperty = metaClass.getPropertyNN(property.getName());
+            if (!metaProperty.getRange().isClass() && !metadata.getTools().isLazyFetchedLocalAttribute(metaProperty))
+                continue;
+
+            if (log.isTraceEnabled()) log.trace("Fetching property " + property.getName());
+
+            Object value = entity.getValue(property.getName());
+            View propertyView = property.getView();
+            if (value != null && propertyView != null) {
+                if (value instanceof Collection) {
+                    for (Object item : ((Collection) value)) {
+                        if (item instanceof Entity)
+                            collectDetachedReferences((Entity) item, propertyView, visited, optimizeForDetached, references);
+                    }
+                } else if (value instanceof Entity) {
+                    Entity e = (Entity) value;
+                    if (!metaProperty.isReadOnly() && PersistenceHelper.isDetached(value) && !(value instanceof EmbeddableEntity)) {
+                        if (!optimizeForDetached || needReloading(e, propertyView)) {
+                            if (log.isTraceEnabled()) {
+                                log.trace("Object " + value + " is detached, collecting it for loading");
+                            }
+                            DetachedReferenceGroup group = new DetachedReferenceGroup(e.getMetaClass(), propertyView);
+                            references.computeIfAbsent(group, k -> new ArrayList<>())
+                                    .add(new DetachedReference(entity, property.getName(), e, propertyView));
+                        }
+                    } else {
+                        collectDetachedReferences(e, propertyView, visited, optimizeForDetached, references);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads managed instances for the given detached references and sets them to the owning entities.
+     *
+     * @param reloaded collection to add references which have been successfully reloaded
+     */
+    protected void reloadDetachedReferences(DetachedReferenceGroup group, List<DetachedReference> references,
+                                            int batchSize, List<DetachedReference> reloaded) {
+        MetaClass metaClass = group.metaClass;
+        String storeName = metadata.getTools().getStoreName(metaClass);
+        if (storeName == null) {
+            return;
+        }
+
+        MetaProperty primaryKeyProperty = metadata.getTools().getPrimaryKeyProperty(metaClass);
+
+        try (Transaction tx = persistence.getTransaction(storeName)) {
+            EntityManager em = persistence.getEntityManager(storeName);
+
+            Map<Object, Entity> managedById = new HashMap<>();
+            List<Object> ids = references.stream()
+                    .map(reference -> unwrapId(reference.detached.getId()))
+                    .distinct()
+                    .collect(Collectors.toList());
+
+            if (ids.size() == 1 || primaryKeyProperty == null || primaryKeyProperty.getRange().isClass()) {
+                // nothing to batch or composite key entity
+                for (DetachedReference reference : references) {
+                    Object id = unwrapId(reference.detached.getId());
+                    if (!managedById.containsKey(id)) {
+                        //noinspection unchecked
+                        managedById.put(id, em.find(reference.detached.getClass(), reference.detached.getId()));
+                    }
+                }
+            } else {
+                String queryString = String.format("select e from %s e where e.%s in :ids",
+                        metaClass.getName(), primaryKeyProperty.getName());
+                // no view and COMMIT flush mode to load instances like em.find(): a view would make the query
+                // refresh managed instances and flush the current changes
+                for (int i = 0; i < ids.size(); i += batchSize) {
+                    List<Object> batch = ids.subList(i, Math.min(i + batchSize, ids.size()));
+                    if (log.isTraceEnabled()) {
+                        log.trace("Loading " + batch.size() + " detached instances of " + metaClass.getName());
+                    }
+                    List<Entity> loaded = em.createQuery(queryString, Entity.class)
+                            .setParameter("ids", batch)
+                            .setFlushMode(FlushModeType.COMMIT)
+                            .getResultList();
+                    for (Entity managed : loaded) {
+                        managedById.put(unwrapId(managed.getId()), managed);
+                    }
+                    statisticsAccumulator.incDetachedReferencesBatchQueriesCount();
+                    statisticsAccumulator.addDetachedReferencesSavedRoundTripsCount(batch.size() - 1);
+                }
+            }
+
+            for (DetachedReference reference : references) {
+                Entity managed = managedById.get(unwrapId(reference.detached.getId()));
+                if (managed != null) { // the instance here can be null if it has been deleted
+                    reference.owner.setValue(reference.propertyName, managed);
+                    reference.managed = managed;
+                    reloaded.add(reference);
+                }
+            }
+
+            tx.commit();
+        }
+    }
+
+    protected Object unwrapId(Object id) {
+        return id instanceof IdProxy ? ((IdProxy) id).getNN() : id;
+    }
+
     protected boolean needReloading(Entity entity, View view) {
         return !entityStates.isLoadedWithView(entity, view);
     }
+
+    /**
+     * Key to group detached references. Views are compared by identity because unnamed views
+     * of the same entity are equal.
+     */
+    protected static class DetachedReferenceGroup {
+
+        protected final MetaClass metaClass;
+        protected final View view;
+
+        public DetachedReferenceGroup(MetaClass metaClass, View view) {
+            this.metaClass = metaClass;
+            this.view = view;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            DetachedReferenceGroup that = (DetachedReferenceGroup) o;
+            return metaClass.equals(that.metaClass) && view == that.view;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * metaClass.hashCode() + System.identityHashCode(view);
+        }
+    }
+
+    /**
+     * Detached instance referenced by an entity property.
+     */
+    protected static class DetachedReference {
+
+        protected final Entity owner;
+        protected final String propertyName;
+        protected final Entity detached;
+        protected final View view;
+        protected Entity managed;
+
+        public DetachedReference(Entity owner, String propertyName, Entity detached, View view) {
+            this.owner = owner;
+            this.propertyName = propertyName;
+            this.detached = detached;
+            this.view = view;
+        }
+    }
 }
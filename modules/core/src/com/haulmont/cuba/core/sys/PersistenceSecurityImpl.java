@@ -17,6 +17,8 @@
 
 package com.haulmont.cuba.core.sys;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Multimap;
 import com.haulmont.chile.core.datatypes.Datatype;
 import com.haulmont.chile.core.datatypes.Datatypes;
@@ -28,18 +30,24 @@ import com.haulmont.cuba.core.Persistence;
 import com.haulmont.cuba.core.PersistenceSecurity;
 import com.haulmont.cuba.core.Query;
 import com.haulmont.cuba.core.app.AttributeSecuritySupport;
+import com.haulmont.cuba.core.app.MiddlewareStatisticsAccumulator;
 import com.haulmont.cuba.core.entity.*;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.jpql.JpqlSyntaxException;
+import com.haulmont.cuba.security.app.group.ConstraintScriptPredicate;
 import com.haulmont.cuba.security.entity.ConstraintOperationType;
 import com.haulmont.cuba.security.entity.EntityOp;
 import com.haulmont.cuba.security.global.UserSession;
+import com.haulmont.cuba.security.group.AccessConstraint;
 import com.haulmont.cuba.security.group.ConstraintValidationResult;
 import com.haulmont.cuba.security.group.JpqlAccessConstraint;
+import groovy.lang.Binding;
+import groovy.lang.Script;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.codehaus.groovy.control.CompilationFailedException;
+import org.codehaus.groovy.runtime.InvokerHelper;
 import org.codehaus.groovy.runtime.MethodClosure;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -50,6 +58,7 @@ import java.text.ParseException;
 import java.util.*;
 import java.util.function.BiPredicate;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static java.lang.String.format;
@@ -76,6 +85,16 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
     @Inject
     protected EntityStates entityStates;
 
+    @Inject
+    protected MiddlewareStatisticsAccumulator statisticsAccumulator;
+
+    protected static final int CONSTRAINT_SCRIPT_CLASSES_MAX_SIZE = 1000;
+
+    // bounded because edited constraints leave classes of their old scripts
+    protected Cache<String, Class<? extends Script>> constraintScriptClasses = CacheBuilder.newBuilder()
+            .maximumSize(CONSTRAINT_SCRIPT_CLASSES_MAX_SIZE)
+            .build();
+
     @Override
     public boolean applyConstraints(Query query) {
         QueryParser parser = QueryTransformerFactory.createParser(query.getQueryString());
@@ -137,13 +156,18 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
     @Override
     public boolean filterByConstraints(Collection<Entity> entities) {
         boolean filtered = false;
-        for (Iterator<Entity> iterator = entities.iterator(); iterator.hasNext(); ) {
-            Entity entity = iterator.next();
-            if (isNotPermittedInMemory(entity)) {
-                //we ignore situations when the collection is immutable
-                iterator.remove();
-                filtered = true;
+        InMemoryReadConstraints constraints = new InMemoryReadConstraints();
+        try {
+            for (Iterator<Entity> iterator = entities.iterator(); iterator.hasNext(); ) {
+                Entity entity = iterator.next();
+                if (!constraints.isPermitted(entity)) {
+                    //we ignore situations when the collection is immutable
+                    iterator.remove();
+                    filtered = true;
+                }
             }
+        } finally {
+            constraints.registerStatistics();
         }
         return filtered;
     }
@@ -166,13 +190,20 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
 
     @Override
     public void calculateFilteredData(Entity entity) {
-        calculateFilteredData(entity, new HashSet<>(), false);
+        calculateFilteredData(Collections.singletonList(entity));
     }
 
     @Override
     public void calculateFilteredData(Collection<Entity> entities) {
         Set<EntityId> handled = new LinkedHashSet<>();
-        entities.forEach(entity -> calculateFilteredData(entity, handled, false));
+        InMemoryReadConstraints constraints = new InMemoryReadConstraints();
+        List<Entity> tokenEntities = new ArrayList<>();
+        try {
+            entities.forEach(entity -> calculateFilteredData(entity, handled, false, constraints, tokenEntities));
+            securityTokenManager.writeSecurityTokens(tokenEntities);
+        } finally {
+            constraints.registerStatistics();
+        }
     }
 
     @Override
@@ -342,13 +373,17 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
         }
     }
 
+    /**
+     * @param tokenEntities collects entities which security tokens should be written after the calculation
+     */
     @SuppressWarnings("unchecked")
-    protected boolean calculateFilteredData(Entity entity, Set<EntityId> handled, boolean checkPermitted) {
+    protected boolean calculateFilteredData(Entity entity, Set<EntityId> handled, boolean checkPermitted,
+                                            InMemoryReadConstraints constraints, List<Entity> tokenEntities) {
         if (referenceToEntitySupport.getReferenceId(entity) == null) {
             return false;
         }
         MetaClass metaClass = entity.getMetaClass();
-        if (isNotPermittedInMemory(entity) && checkPermitted) {
+        if (checkPermitted && !constraints.isPermitted(entity)) {
             return true;
         }
         EntityId entityId = new EntityId(referenceToEntitySupport.getReferenceId(entity), metaClass.getName());
@@ -364,7 +399,7 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
                     if (value instanceof Collection) {
                         Set filtered = new LinkedHashSet();
                         for (Entity item : (Collection<Entity>) value) {
-                            if (calculateFilteredData(item, handled, true)) {
+                            if (calculateFilteredData(item, handled, true, constraints, tokenEntities)) {
                                 filtered.add(referenceToEntitySupport.getReferenceId(item));
                             }
                         }
@@ -373,14 +408,14 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
                         }
                     } else if (value instanceof Entity) {
                         Entity valueEntity = (Entity) value;
-                        if (calculateFilteredData(valueEntity, handled, true)) {
+                        if (calculateFilteredData(valueEntity, handled, true, constraints, tokenEntities)) {
                             securityTokenManager.addFiltered(baseGenericIdEntity, property.getName(),
                                     referenceToEntitySupport.getReferenceId(valueEntity));
                         }
                     }
                 }
             }
-            securityTokenManager.writeSecurityToken(baseGenericIdEntity);
+            tokenEntities.add(baseGenericIdEntity);
         }
         return false;
     }
@@ -420,20 +455,24 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
 
     @Override
     public Object evaluateConstraintScript(Entity entity, String groovyScript) {
-        String metaClassName = entity.getMetaClass().getName();
         if (StringUtils.isNotBlank(groovyScript)) {
-            try {
-                Object result = runGroovyScript(entity, groovyScript);
-                if (Boolean.FALSE.equals(result)) {
-                    log.trace("Entity does not match security constraint. Entity class [{}]. Entity [{}].",
-                            metaClassName, entity.getId());
-                    return false;
-                }
-            } catch (Exception e) {
-                log.error("An error occurred while applying constraint's Groovy script. The entity has been filtered out." +
-                        "Entity class [{}]. Entity [{}].", metaClassName, entity.getId(), e);
+            return evaluateConstraintScript(entity, () -> runGroovyScript(entity, groovyScript));
+        }
+        return true;
+    }
+
+    protected boolean evaluateConstraintScript(Entity entity, Supplier<Object> script) {
+        try {
+            Object result = script.get();
+            if (Boolean.FALSE.equals(result)) {
+                log.trace("Entity does not match security constraint. Entity class [{}]. Entity [{}].",
+                        entity.getMetaClass().getName(), entity.getId());
                 return false;
             }
+        } catch (Exception e) {
+            log.error("An error occurred while applying constraint's Groovy script. The entity has been filtered out." +
+                    "Entity class [{}]. Entity [{}].", entity.getMetaClass().getName(), entity.getId(), e);
+            return false;
         }
         return true;
     }
@@ -442,7 +481,10 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
     public ConstraintValidationResult validateConstraintScript(String entityType, String groovyScript) {
         ConstraintValidationResult result = new ConstraintValidationResult();
         try {
-            runGroovyScript(metadata.create(entityType), groovyScript);
+            // not cached, the script can be edited many times before it is saved
+            Binding binding = createConstraintScriptBinding();
+            binding.setVariable("__entity__", metadata.create(entityType));
+            InvokerHelper.createScript(scripting.compileGroovy(prepareConstraintScript(groovyScript)), binding).run();
         } catch (CompilationFailedException e) {
             result.setCompilationFailedException(true);
             result.setStacktrace(ExceptionUtils.getStackTrace(e));
@@ -454,12 +496,34 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
     }
 
     protected Object runGroovyScript(Entity entity, String groovyScript) {
+        Binding binding = createConstraintScriptBinding();
+        binding.setVariable("__entity__", entity);
+        return createConstraintScript(groovyScript, binding).run();
+    }
+
+    /**
+     * Creates an instance of the constraint script compiled once for all evaluations of the script.
+     */
+    protected Script createConstraintScript(String groovyScript, Binding binding) {
+        Class<? extends Script> scriptClass = constraintScriptClasses.getIfPresent(groovyScript);
+        if (scriptClass == null) {
+            // concurrent threads can compile the same script, the last class is kept
+            scriptClass = scripting.compileGroovy(prepareConstraintScript(groovyScript));
+            constraintScriptClasses.put(groovyScript, scriptClass);
+        }
+        return InvokerHelper.createScript(scriptClass, binding);
+    }
+
+    protected String prepareConstraintScript(String groovyScript) {
+        return groovyScript.replace("{E}", "__entity__");
+    }
+
+    protected Binding createConstraintScriptBinding() {
         Map<String, Object> context = new HashMap<>();
-        context.put("__entity__", entity);
         context.put("parse", new MethodClosure(this, "parseValue"));
         context.put("userSession", userSessionSource.getUserSession());
         fillGroovyConstraintsContext(context);
-        return scripting.evaluateGroovy(groovyScript.replace("{E}", "__entity__"), context);
+        return new Binding(context);
     }
 
     /**
@@ -503,6 +567,98 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
         }
     }
 
+    /**
+     * Checks entities by in-memory READ constraints of the current user. Constraints of a meta-class are collected
+     * on the first check of its entity, and a Groovy script of a constraint is instantiated and bound once for all
+     * checked entities. The instance must be used by one thread.
+     */
+    protected class InMemoryReadConstraints {
+
+        protected Map<MetaClass, List<ConstraintCheck>> checks = new HashMap<>();
+
+        public boolean isPermitted(Entity entity) {
+            List<ConstraintCheck> metaClassChecks = checks.get(entity.getMetaClass());
+            if (metaClassChecks == null) {
+                metaClassChecks = createChecks(entity.getMetaClass());
+                checks.put(entity.getMetaClass(), metaClassChecks);
+            }
+            for (ConstraintCheck check : metaClassChecks) {
+                if (!check.test(entity)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        protected List<ConstraintCheck> createChecks(MetaClass metaClass) {
+            return getConstraints(metaClass)
+                    .filter(c -> c.isInMemory() && c.getOperation() == EntityOp.READ)
+                    .map(c -> new ConstraintCheck(metaClass, c))
+                    .collect(Collectors.toList());
+        }
+
+        public void registerStatistics() {
+            for (List<ConstraintCheck> metaClassChecks : checks.values()) {
+                for (ConstraintCheck check : metaClassChecks) {
+                    if (check.count > 0) {
+                        statisticsAccumulator.addInMemoryConstraintChecks(check.description, check.count, check.timeNanos);
+                    }
+                }
+            }
+            checks.clear();
+        }
+    }
+
+    protected class ConstraintCheck {
+
+        protected String description;
+        protected Predicate<Entity> predicate;
+        protected Map<String, Object> context;
+        protected Script script;
+
+        protected long count;
+        protected long timeNanos;
+
+        @SuppressWarnings("unchecked")
+        protected ConstraintCheck(MetaClass metaClass, AccessConstraint constraint) {
+            predicate = (Predicate<Entity>) constraint.getPredicate();
+            if (predicate instanceof ConstraintScriptPredicate) {
+                String groovyScript = ((ConstraintScriptPredicate) predicate).getGroovyScript();
+                description = metaClass.getName() + ": " + StringUtils.normalizeSpace(groovyScript);
+                if (StringUtils.isNotBlank(groovyScript)) {
+                    try {
+                        Binding binding = createConstraintScriptBinding();
+                        context = binding.getVariables();
+                        script = createConstraintScript(groovyScript, binding);
+                    } catch (Exception e) {
+                        // the predicate logs the error and filters out each entity, as if the script was not compiled
+                        script = null;
+                    }
+                }
+            } else {
+                description = metaClass.getName() + ": " + predicate.getClass().getName();
+            }
+        }
+
+        protected boolean test(Entity entity) {
+            long start = System.nanoTime();
+            try {
+                if (script != null) {
+                    // the script instance is reused, but each entity gets a fresh binding,
+                    // so variables assigned by the script for one entity are not seen for the next one
+                    Binding binding = new Binding(new HashMap<>(context));
+                    binding.setVariable("__entity__", entity);
+                    script.setBinding(binding);
+                    return evaluateConstraintScript(entity, script::run);
+                }
+                return predicate.test(entity);
+            } finally {
+                count++;
+                timeNanos += System.nanoTime() - start;
+            }
+        }
+    }
+
     protected static class EntityId {
         Object id;
         String metaClassName;
@@ -84,6 +84,8 @@ public class QueryImpl<T> implements TypedQuery<T> {
     protected ServerConfig serverConfig;
     @Inject
     protected QueryHintsProcessor hintsProcessor;
+    @Inject
+    protected TransformedQueryCache transformedQueryCache;
 
     protected javax.persistence.EntityManager emDelegate;
     protected JpaQuery query;
@@ -239,7 +241,68 @@ public class QueryImpl<T> implements TypedQuery<T> {
     }
 
     protected String transformQueryString() {
-        String result = expandMacros(queryString);
+        String expandedQuery = expandMacros(queryString);
+        if (!transformedQueryCache.isEnabled()) {
+            return transformQueryString(expandedQuery);
+        }
+
+        TransformedQueryCache.Key key = new TransformedQueryCache.Key(
+                expandedQuery, firstResult != null && firstResult > 0, getParamsSignature());
+        TransformedQueryCache.Entry entry = transformedQueryCache.get(key);
+        if (entry != null) {
+            // the cached string already has case-insensitive conditions, only parameter values are to be adjusted
+            for (Iterator<Param> iterator = params.iterator(); iterator.hasNext(); ) {
+                Param param = iterator.next();
+                if (entry.getRemovedParams().contains(param.name)) {
+                    iterator.remove();
+                } else if (isCaseInsensitiveValue(param.value)) {
+                    param.value = ((String) param.value).substring(4).toLowerCase();
+                }
+            }
+            return entry.getResult();
+        }
+
+        Set<Object> paramNames = params.stream().map(param -> param.name).collect(Collectors.toSet());
+        String result = transformQueryString(expandedQuery);
+        for (Param param : params) {
+            paramNames.remove(param.name);
+        }
+        transformedQueryCache.put(key, new TransformedQueryCache.Entry(result, paramNames));
+        return result;
+    }
+
+    /**
+     * Builds a string describing parameters in the way they affect the transformation of the query.
+     */
+    protected String getParamsSignature() {
+        if (params.isEmpty()) {
+            return "";
+        }
+        List<String> items = new ArrayList<>(params.size());
+        for (Param param : params) {
+            StringBuilder sb = new StringBuilder();
+            sb.append(param.isNamedParam() ? ':' : '?').append(param.name).append('=');
+            if (param.value == null) {
+                sb.append('N');
+            } else if (isCaseInsensitiveValue(param.value)) {
+                sb.append('I');
+            } else if (param.value instanceof Collection && ((Collection) param.value).isEmpty()) {
+                sb.append('E');
+            } else {
+                sb.append('V');
+            }
+            items.add(sb.toString());
+        }
+        Collections.sort(items);
+        return String.join(",", items);
+    }
+
+    protected boolean isCaseInsensitiveValue(Object value) {
+        return value instanceof String && ((String) value).startsWith("(?i)");
+    }
+
+    protected String transformQueryString(String expandedQuery) {
+        String result = expandedQuery;
 
         boolean rebuildParser = false;
         QueryParser parser = queryTransformerFactory.parser(result);
@@ -306,12 +369,9 @@ public class QueryImpl<T> implements TypedQuery<T> {
         for (Iterator<Param> iterator = params.iterator(); iterator.hasNext(); ) {
             Param param = iterator.next();
             String paramName = param.name.toString();
-            if (param.value instanceof String) {
-                String strValue = (String) param.value;
-                if (strValue.startsWith("(?i)")) {
-                    result = replaceCaseInsensitiveParam(result, paramName);
-                    param.value = strValue.substring(4).toLowerCase();
-                }
+            if (isCaseInsensitiveValue(param.value)) {
+                result = replaceCaseInsensitiveParam(result, paramName);
+                param.value = ((String) param.value).substring(4).toLowerCase();
             }
             if (param.isNamedParam()) {
                 paramNames.remove(paramName);
@@ -410,11 +470,17 @@ public class QueryImpl<T> implements TypedQuery<T> {
         preExecute(query);
         @SuppressWarnings("unchecked")
         List<T> resultList = (List<T>) getResultFromCache(query, false, obj -> {
-            ((List) obj).stream().filter(item -> item instanceof Entity).forEach(item -> {
+            List<Entity> entities = new ArrayList<>();
+            for (Object item : (List) obj) {
+                if (item instanceof Entity) {
+                    entities.add((Entity) item);
+                }
+            }
+            if (!entities.isEmpty()) {
                 for (View view : views) {
-                    entityFetcher.fetch((Entity) item, view);
+                    entityFetcher.fetch(entities, view, false);
                 }
-            });
+            }
         });
         return resultList;
     }
@@ -33,11 +33,14 @@ import org.slf4j.LoggerFactory;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.Nullable;
 import javax.crypto.Cipher;
 import javax.crypto.spec.SecretKeySpec;
 import javax.inject.Inject;
+import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
 
 import static com.haulmont.cuba.core.entity.BaseEntityInternalAccess.*;
 import static org.apache.commons.lang3.StringUtils.rightPad;
@@ -60,6 +63,19 @@ public class SecurityTokenManager {
     protected static final String ENTITY_NAME_KEY = "__entityName";
     protected static final String ENTITY_ID_KEY = "__entityId";
 
+    /**
+     * First byte of a binary token. Tokens in JSON format start with '{'.
+     *
+     * @see ServerConfig#getSecurityTokenBinaryFormat()
+     */
+    protected static final byte BINARY_TOKEN_VERSION = 1;
+
+    protected static final byte ID_NULL = 0;
+    protected static final byte ID_UUID = 1;
+    protected static final byte ID_LONG = 2;
+    protected static final byte ID_INTEGER = 3;
+    protected static final byte ID_STRING = 4;
+
     protected static final Set<String> SYSTEM_ATTRIBUTE_KEYS = new ImmutableSet.Builder<String>()
             .add(READ_ONLY_ATTRIBUTES_KEY)
             .add(REQUIRED_ATTRIBUTES_KEY)
@@ -68,44 +84,75 @@ public class SecurityTokenManager {
             .add(ENTITY_ID_KEY)
             .build();
 
+    protected static final int CIPHERS_POOL_MAX_SIZE = 32;
+
+    /**
+     * Initialized ciphers reused by all threads. Unlike thread local ones, they do not outlive the application
+     * in pooled threads of the container.
+     */
+    protected Queue<TokenCiphers> ciphersPool = new ArrayBlockingQueue<>(CIPHERS_POOL_MAX_SIZE);
+
+    protected static class TokenCiphers {
+        protected final String key;
+        protected final Cipher encryptCipher;
+        protected final Cipher decryptCipher;
+
+        protected TokenCiphers(String key, Cipher encryptCipher, Cipher decryptCipher) {
+            this.key = key;
+            this.encryptCipher = encryptCipher;
+            this.decryptCipher = decryptCipher;
+        }
+    }
+
+    /**
+     * Gives access to the written bytes without copying them.
+     */
+    protected static class TokenBuffer extends ByteArrayOutputStream {
+
+        public TokenBuffer() {
+            super(256);
+        }
+
+        public byte[] getBuffer() {
+            return buf;
+        }
+    }
+
     /**
      * Encrypt filtered data and write the result to the security token
      */
     public void writeSecurityToken(Entity entity) {
+        writeSecurityTokens(Collections.singletonList(entity));
+    }
+
+    /**
+     * Encrypt filtered data and write the result to the security tokens of the given entities. Unlike calling
+     * {@link #writeSecurityToken(Entity)} for each entity, uses the same cipher and buffer for all entities,
+     * e.g. for a loaded list.
+     */
+    public void writeSecurityTokens(Collection<? extends Entity> entities) {
+        if (entities.isEmpty()) {
+            return;
+        }
+        TokenCiphers tokenCiphers = borrowCiphers();
+        TokenBuffer buffer = new TokenBuffer();
+        for (Entity entity : entities) {
+            writeSecurityToken(entity, tokenCiphers.encryptCipher, buffer);
+        }
+        releaseCiphers(tokenCiphers);
+    }
+
+    protected void writeSecurityToken(Entity entity, Cipher cipher, TokenBuffer buffer) {
         SecurityState securityState = getOrCreateSecurityState(entity);
         if (securityState != null) {
-            JSONObject jsonObject = new JSONObject();
-            Multimap<String, Object> filtered = getFilteredData(securityState);
-            if (filtered != null) {
-                Set<Map.Entry<String, Collection<Object>>> entries = filtered.asMap().entrySet();
-                String[] filteredAttributes = new String[entries.size()];
-                int i = 0;
-                for (Map.Entry<String, Collection<Object>> entry : entries) {
-                    jsonObject.put(entry.getKey(), entry.getValue());
-                    filteredAttributes[i++] = entry.getKey();
-                }
-                setFilteredAttributes(securityState, filteredAttributes);
-            }
-            if (!securityState.getReadonlyAttributes().isEmpty()) {
-                jsonObject.put(READ_ONLY_ATTRIBUTES_KEY, securityState.getReadonlyAttributes());
-            }
-            if (!securityState.getHiddenAttributes().isEmpty()) {
-                jsonObject.put(HIDDEN_ATTRIBUTES_KEY, securityState.getHiddenAttributes());
-            }
-            if (!securityState.getRequiredAttributes().isEmpty()) {
-                jsonObject.put(REQUIRED_ATTRIBUTES_KEY, securityState.getRequiredAttributes());
-            }
-            MetaClass metaClass = entity.getMetaClass();
-            jsonObject.put(ENTITY_NAME_KEY, metaClass.getName());
-            if (!metadata.getTools().hasCompositePrimaryKey(metaClass)) {
-                jsonObject.put(ENTITY_ID_KEY, getEntityId(entity));
-            }
-
-            String json = jsonObject.toString();
             byte[] encrypted;
-            Cipher cipher = getCipher(Cipher.ENCRYPT_MODE);
             try {
-                encrypted = cipher.doFinal(json.getBytes(StandardCharsets.UTF_8));
+                if (config.getSecurityTokenBinaryFormat()) {
+                    writeBinaryToken(entity, securityState, buffer);
+                } else {
+                    writeJsonToken(entity, securityState, buffer);
+                }
+                encrypted = cipher.doFinal(buffer.getBuffer(), 0, buffer.size());
             } catch (Exception e) {
                 throw new RuntimeException("An error occurred while generating security token", e);
             }
@@ -113,6 +160,107 @@ public class SecurityTokenManager {
         }
     }
 
+    protected void writeJsonToken(Entity entity, SecurityState securityState, TokenBuffer buffer) throws IOException {
+        JSONObject jsonObject = new JSONObject();
+        Multimap<String, Object> filtered = getFilteredData(securityState);
+        if (filtered != null) {
+            Set<Map.Entry<String, Collection<Object>>> entries = filtered.asMap().entrySet();
+            String[] filteredAttributes = new String[entries.size()];
+            int i = 0;
+            for (Map.Entry<String, Collection<Object>> entry : entries) {
+                jsonObject.put(entry.getKey(), entry.getValue());
+                filteredAttributes[i++] = entry.getKey();
+            }
+            setFilteredAttributes(securityState, filteredAttributes);
+        }
+        if (!securityState.getReadonlyAttributes().isEmpty()) {
+            jsonObject.put(READ_ONLY_ATTRIBUTES_KEY, securityState.getReadonlyAttributes());
+        }
+        if (!securityState.getHiddenAttributes().isEmpty()) {
+            jsonObject.put(HIDDEN_ATTRIBUTES_KEY, securityState.getHiddenAttributes());
+        }
+        if (!securityState.getRequiredAttributes().isEmpty()) {
+            jsonObject.put(REQUIRED_ATTRIBUTES_KEY, securityState.getRequiredAttributes());
+        }
+        MetaClass metaClass = entity.getMetaClass();
+        jsonObject.put(ENTITY_NAME_KEY, metaClass.getName());
+        if (!metadata.getTools().hasCompositePrimaryKey(metaClass)) {
+            jsonObject.put(ENTITY_ID_KEY, getEntityId(entity));
+        }
+
+        buffer.reset();
+        buffer.write(jsonObject.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    protected void writeBinaryToken(Entity entity, SecurityState securityState, TokenBuffer buffer) throws IOException {
+        buffer.reset();
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeByte(BINARY_TOKEN_VERSION);
+
+        MetaClass metaClass = entity.getMetaClass();
+        out.writeUTF(metaClass.getName());
+        if (!metadata.getTools().hasCompositePrimaryKey(metaClass) && !(entity instanceof EmbeddableEntity)) {
+            writeId(out, getEntityId(entity));
+        } else {
+            writeId(out, null);
+        }
+
+        Multimap<String, Object> filtered = getFilteredData(securityState);
+        if (filtered != null) {
+            Set<Map.Entry<String, Collection<Object>>> entries = filtered.asMap().entrySet();
+            String[] filteredAttributes = new String[entries.size()];
+            out.writeInt(entries.size());
+            int i = 0;
+            for (Map.Entry<String, Collection<Object>> entry : entries) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (Object id : entry.getValue()) {
+                    writeId(out, id);
+                }
+                filteredAttributes[i++] = entry.getKey();
+            }
+            setFilteredAttributes(securityState, filteredAttributes);
+        } else {
+            out.writeInt(0);
+        }
+
+        writeStrings(out, securityState.getReadonlyAttributes());
+        writeStrings(out, securityState.getHiddenAttributes());
+        writeStrings(out, securityState.getRequiredAttributes());
+        out.flush();
+    }
+
+    protected void writeId(DataOutputStream out, @Nullable Object id) throws IOException {
+        if (id instanceof IdProxy) {
+            id = ((IdProxy) id).get();
+        }
+        if (id == null) {
+            out.writeByte(ID_NULL);
+        } else if (id instanceof UUID) {
+            out.writeByte(ID_UUID);
+            out.writeLong(((UUID) id).getMostSignificantBits());
+            out.writeLong(((UUID) id).getLeastSignificantBits());
+        } else if (id instanceof Long) {
+            out.writeByte(ID_LONG);
+            out.writeLong((Long) id);
+        } else if (id instanceof Integer) {
+            out.writeByte(ID_INTEGER);
+            out.writeInt((Integer) id);
+        } else if (id instanceof String) {
+            out.writeByte(ID_STRING);
+            out.writeUTF((String) id);
+        } else {
+            throw new IllegalStateException("Unsupported id type: " + id.getClass().getSimpleName());
+        }
+    }
+
+    protected void writeStrings(DataOutputStream out, Collection<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (String string : strings) {
+            out.writeUTF(string);
+        }
+    }
+
     /**
      * Decrypt security token and read filtered data
      */
@@ -123,52 +271,20 @@ public class SecurityTokenManager {
         }
         Multimap<String, Object> filteredData = ArrayListMultimap.create();
         BaseEntityInternalAccess.setFilteredData(securityState, filteredData);
-        Cipher cipher = getCipher(Cipher.DECRYPT_MODE);
+        TokenCiphers tokenCiphers = borrowCiphers();
+        byte[] decrypted;
         try {
-            byte[] decrypted = cipher.doFinal(getSecurityToken(securityState));
-            String json = new String(decrypted, StandardCharsets.UTF_8);
-            JSONObject jsonObject = new JSONObject(json);
-            for (String key : jsonObject.keySet()) {
-                if (!SYSTEM_ATTRIBUTE_KEYS.contains(key)) {
-                    String elementName = String.valueOf(key);
-                    JSONArray jsonArray = jsonObject.getJSONArray(elementName);
-                    MetaProperty metaProperty = entity.getMetaClass().getPropertyNN(elementName);
-                    for (int i = 0; i < jsonArray.length(); i++) {
-                        Object id = jsonArray.get(i);
-                        filteredData.put(elementName, convertId(id, metaProperty.getRange().asClass(), true));
-                    }
-                }
-            }
-            if (jsonObject.has(READ_ONLY_ATTRIBUTES_KEY)) {
-                BaseEntityInternalAccess.setReadonlyAttributes(securityState, parseJsonArrayAsStrings(
-                        jsonObject.getJSONArray(READ_ONLY_ATTRIBUTES_KEY)));
-            }
-            if (jsonObject.has(HIDDEN_ATTRIBUTES_KEY)) {
-                BaseEntityInternalAccess.setHiddenAttributes(securityState, parseJsonArrayAsStrings(
-                        jsonObject.getJSONArray(HIDDEN_ATTRIBUTES_KEY)));
-            }
-            if (jsonObject.has(REQUIRED_ATTRIBUTES_KEY)) {
-                BaseEntityInternalAccess.setRequiredAttributes(securityState, parseJsonArrayAsStrings(
-                        jsonObject.getJSONArray(REQUIRED_ATTRIBUTES_KEY)));
-            }
-            MetaClass metaClass = entity.getMetaClass();
-            if (!metadata.getTools().hasCompositePrimaryKey(entity.getMetaClass())
-                    && !(entity instanceof EmbeddableEntity)) {
-                if (!jsonObject.has(ENTITY_ID_KEY) || !jsonObject.has(ENTITY_NAME_KEY)) {
-                    throw new SecurityTokenException("Invalid format for security token");
-                }
-                String entityName = jsonObject.getString(ENTITY_NAME_KEY);
-                if (!Objects.equals(entityName, metaClass.getName())) {
-                    throw new SecurityTokenException("Invalid format for security token: incorrect entity type");
-                }
-                Object jsonEntityId = jsonObject.get(ENTITY_ID_KEY);
-                if (jsonEntityId == null) {
-                    throw new SecurityTokenException("Invalid format for security token: incorrect entity id");
-                }
-                Object entityId = getEntityId(entity);
-                if (entityId != null && !Objects.equals(entityId, convertId(jsonEntityId, metaClass, false))) {
-                    throw new SecurityTokenException("Invalid format for security token: incorrect entity id");
-                }
+            decrypted = tokenCiphers.decryptCipher.doFinal(getSecurityToken(securityState));
+        } catch (Exception e) {
+            throw new RuntimeException("An error occurred while reading security token", e);
+        }
+        releaseCiphers(tokenCiphers);
+        try {
+            if (decrypted.length > 0 && decrypted[0] == BINARY_TOKEN_VERSION) {
+                readBinaryToken(entity, securityState, filteredData, decrypted);
+            } else {
+                // tokens written before the binary format was introduced
+                readJsonToken(entity, securityState, filteredData, new String(decrypted, StandardCharsets.UTF_8));
             }
         } catch (SecurityTokenException e) {
             throw e;
@@ -177,6 +293,145 @@ public class SecurityTokenManager {
         }
     }
 
+    protected void readBinaryToken(Entity entity, SecurityState securityState, Multimap<String, Object> filteredData,
+                                   byte[] token) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(token, 1, token.length - 1));
+        String entityName = in.readUTF();
+        Object tokenEntityId = readId(in);
+
+        int filteredCount = in.readInt();
+        for (int i = 0; i < filteredCount; i++) {
+            String property = in.readUTF();
+            entity.getMetaClass().getPropertyNN(property);
+            int idCount = in.readInt();
+            for (int j = 0; j < idCount; j++) {
+                filteredData.put(property, readId(in));
+            }
+        }
+
+        String[] readonlyAttributes = readStrings(in);
+        if (readonlyAttributes.length > 0) {
+            BaseEntityInternalAccess.setReadonlyAttributes(securityState, readonlyAttributes);
+        }
+        String[] hiddenAttributes = readStrings(in);
+        if (hiddenAttributes.length > 0) {
+            BaseEntityInternalAccess.setHiddenAttributes(securityState, hiddenAttributes);
+        }
+        String[] requiredAttributes = readStrings(in);
+        if (requiredAttributes.length > 0) {
+            BaseEntityInternalAccess.setRequiredAttributes(securityState, requiredAttributes);
+        }
+
+        if (isTokenEntityChecked(entity)) {
+            if (tokenEntityId == null) {
+                throw new SecurityTokenException("Invalid format for security token");
+            }
+            checkTokenEntity(entity, entityName, tokenEntityId);
+        }
+    }
+
+    @Nullable
+    protected Object readId(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case ID_NULL:
+                return null;
+            case ID_UUID:
+                return new UUID(in.readLong(), in.readLong());
+            case ID_LONG:
+                return in.readLong();
+            case ID_INTEGER:
+                return in.readInt();
+            case ID_STRING:
+                return in.readUTF();
+            default:
+                throw new SecurityTokenException("Invalid format for security token: unknown id type");
+        }
+    }
+
+    protected String[] readStrings(DataInputStream in) throws IOException {
+        String[] strings = new String[in.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readUTF();
+        }
+        return strings;
+    }
+
+    protected void readJsonToken(Entity entity, SecurityState securityState, Multimap<String, Object> filteredData,
+                                 String json) {
+        JSONObject jsonObject = new JSONObject(json);
+        for (String key : jsonObject.keySet()) {
+            if (!SYSTEM_ATTRIBUTE_KEYS.contains(key)) {
+                String elementName = String.valueOf(key);
+                JSONArray jsonArray = jsonObject.getJSONArray(elementName);
+                MetaProperty metaProperty = entity.getMetaClass().getPropertyNN(elementName);
+                for (int i = 0; i < jsonArray.length(); i++) {
+                    Object id = jsonArray.get(i);
+                    filteredData.put(elementName, convertId(id, metaProperty.getRange().asClass(), true));
+                }
+            }
+        }
+        if (jsonObject.has(READ_ONLY_ATTRIBUTES_KEY)) {
+            BaseEntityInternalAccess.setReadonlyAttributes(securityState, parseJsonArrayAsStrings(
+                    jsonObject.getJSONArray(READ_ONLY_ATTRIBUTES_KEY)));
+        }
+        if (jsonObject.has(HIDDEN_ATTRIBUTES_KEY)) {
+            BaseEntityInternalAccess.setHiddenAttributes(securityState, parseJsonArrayAsStrings(
+                    jsonObject.getJSONArray(HIDDEN_ATTRIBUTES_KEY)));
+        }
+        if (jsonObject.has(REQUIRED_ATTRIBUTES_KEY)) {
+            BaseEntityInternalAccess.setRequiredAttributes(securityState, parseJsonArrayAsStrings(
+                    jsonObject.getJSONArray(REQUIRED_ATTRIBUTES_KEY)));
+        }
+        if (isTokenEntityChecked(entity)) {
+            if (!jsonObject.has(ENTITY_ID_KEY) || !jsonObject.has(ENTITY_NAME_KEY)) {
+                throw new SecurityTokenException("Invalid format for security token");
+            }
+            Object jsonEntityId = jsonObject.get(ENTITY_ID_KEY);
+            if (jsonEntityId == null) {
+                throw new SecurityTokenException("Invalid format for security token: incorrect entity id");
+            }
+            checkTokenEntity(entity, jsonObject.getString(ENTITY_NAME_KEY),
+                    convertId(jsonEntityId, entity.getMetaClass(), false));
+        }
+    }
+
+    protected boolean isTokenEntityChecked(Entity entity) {
+        return !metadata.getTools().hasCompositePrimaryKey(entity.getMetaClass())
+                && !(entity instanceof EmbeddableEntity);
+    }
+
+    protected void checkTokenEntity(Entity entity, String tokenEntityName, Object tokenEntityId) {
+        if (!Objects.equals(tokenEntityName, entity.getMetaClass().getName())) {
+            throw new SecurityTokenException("Invalid format for security token: incorrect entity type");
+        }
+        Object entityId = getEntityId(entity);
+        if (entityId != null && !Objects.equals(entityId, tokenEntityId)) {
+            throw new SecurityTokenException("Invalid format for security token: incorrect entity id");
+        }
+    }
+
+    /**
+     * Takes ciphers initialized with the current encryption key from the pool or creates new ones. Creating and
+     * initializing a cipher is much more expensive than encrypting a token, so the ciphers are reused.
+     * Return them by {@link #releaseCiphers(TokenCiphers)} unless they failed.
+     */
+    protected TokenCiphers borrowCiphers() {
+        String key = config.getKeyForSecurityTokenEncryption();
+        TokenCiphers tokenCiphers;
+        while ((tokenCiphers = ciphersPool.poll()) != null) {
+            if (tokenCiphers.key.equals(key)) {
+                return tokenCiphers;
+            }
+            // ciphers of the previous key are dropped
+        }
+        return new TokenCiphers(key, getCipher(Cipher.ENCRYPT_MODE), getCipher(Cipher.DECRYPT_MODE));
+    }
+
+    protected void releaseCiphers(TokenCiphers tokenCiphers) {
+        ciphersPool.offer(tokenCiphers);
+    }
+
     protected Cipher getCipher(int mode) {
         try {
             Cipher cipher = Cipher.getInstance("AES");
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.sys;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.haulmont.cuba.core.app.ServerConfig;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Keeps JPQL strings transformed by {@link QueryImpl} for execution.
+ * <p>
+ * The result of the transformation depends on the query string with expanded macros, on whether the query is paged,
+ * and on the kind of parameter values: case-insensitive strings, empty collections and nulls. All of them form
+ * the cache key, so a cached result is valid for any values of the same kind.
+ */
+@Component(TransformedQueryCache.NAME)
+public class TransformedQueryCache {
+
+    public static final String NAME = "cuba_TransformedQueryCache";
+
+    @Inject
+    protected ServerConfig serverConfig;
+
+    protected Cache<Key, Entry> cache;
+
+    @PostConstruct
+    protected void init() {
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(serverConfig.getTransformedQueryCacheMaxSize(), 0))
+                .recordStats()
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return serverConfig.getTransformedQueryCacheMaxSize() > 0;
+    }
+
+    @Nullable
+    public Entry get(Key key) {
+        return cache.getIfPresent(key);
+    }
+
+    public void put(Key key, Entry entry) {
+        cache.put(key, entry);
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public static class Key {
+        protected final String queryString;
+        protected final boolean paged;
+        protected final String paramsSignature;
+        protected final int hashCode;
+
+        /**
+         * @param queryString     query with expanded macros
+         * @param paged           whether the query is executed with the first result greater than 0
+         * @param paramsSignature names and kinds of parameter values in a stable order
+         */
+        public Key(String queryString, boolean paged, String paramsSignature) {
+            this.queryString = queryString;
+            this.paged = paged;
+            this.paramsSignature = paramsSignature;
+            this.hashCode = Objects.hash(queryString, paged, paramsSignature);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return hashCode == key.hashCode
+                    && paged == key.paged
+                    && queryString.equals(key.queryString)
+                    && paramsSignature.equals(key.paramsSignature);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    public static class Entry {
+        protected final String result;
+        protected final Set<Object> removedParams;
+
+        /**
+         * @param result        transformed query string
+         * @param removedParams names of parameters which are not used by the transformed query
+         */
+        public Entry(String result, Set<Object> removedParams) {
+            this.result = result;
+            this.removedParams = Collections.unmodifiableSet(removedParams);
+        }
+
+        public String getResult() {
+            return result;
+        }
+
+        public Set<Object> getRemovedParams() {
+            return removedParams;
+        }
+    }
+}
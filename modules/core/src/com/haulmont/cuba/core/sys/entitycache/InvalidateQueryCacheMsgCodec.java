@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.sys.entitycache;
+
+import com.haulmont.cuba.core.app.ClusterMessageCodec;
+import com.haulmont.cuba.core.sys.entitycache.QueryCacheManager.InvalidateQueryCacheMsg;
+import com.haulmont.cuba.core.sys.serialization.SerializationSupport;
+import org.springframework.stereotype.Component;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Encodes query cache invalidation cluster messages. A query key is serialized by {@link SerializationSupport}.
+ */
+@Component("cuba_InvalidateQueryCacheMsgCodec")
+public class InvalidateQueryCacheMsgCodec implements ClusterMessageCodec<InvalidateQueryCacheMsg> {
+
+    @Override
+    public Class<InvalidateQueryCacheMsg> getMessageClass() {
+        return InvalidateQueryCacheMsg.class;
+    }
+
+    @Override
+    public int getTypeId() {
+        return 4;
+    }
+
+    @Override
+    public int getVersion() {
+        return 0;
+    }
+
+    @Override
+    public void write(InvalidateQueryCacheMsg message, DataOutput out) throws IOException {
+        out.writeBoolean(message.invalidateAll);
+
+        out.writeInt(message.typeNames == null ? -1 : message.typeNames.size());
+        if (message.typeNames != null) {
+            for (String typeName : message.typeNames) {
+                out.writeUTF(typeName);
+            }
+        }
+
+        out.writeBoolean(message.queryKey != null);
+        if (message.queryKey != null) {
+            byte[] queryKey = SerializationSupport.serialize(message.queryKey);
+            out.writeInt(queryKey.length);
+            out.write(queryKey);
+        }
+    }
+
+    @Override
+    public InvalidateQueryCacheMsg read(DataInput in, int version) throws IOException {
+        InvalidateQueryCacheMsg message = new InvalidateQueryCacheMsg(in.readBoolean());
+
+        int typeCount = in.readInt();
+        if (typeCount >= 0) {
+            Set<String> typeNames = new HashSet<>(typeCount);
+            for (int i = 0; i < typeCount; i++) {
+                typeNames.add(in.readUTF());
+            }
+            message.typeNames = typeNames;
+        }
+
+        if (in.readBoolean()) {
+            byte[] queryKey = new byte[in.readInt()];
+            in.readFully(queryKey);
+            message.queryKey = (QueryKey) SerializationSupport.deserialize(queryKey);
+        }
+        return message;
+    }
+}
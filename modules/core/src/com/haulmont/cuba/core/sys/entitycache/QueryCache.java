@@ -16,7 +16,6 @@
 
 package com.haulmont.cuba.core.sys.entitycache;
 
-
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -80,6 +79,13 @@ public interface QueryCache {
      */
     long getMaxSize();
 
+    /**
+     * Returns hit, miss and eviction statistics of this cache.
+     */
+    default QueryCacheStats getStats() {
+        return QueryCacheStats.EMPTY;
+    }
+
     /**
      * Returns a view of the entries stored in this cache as a map. Modifications made to
      * the map doesn't affect the cache.
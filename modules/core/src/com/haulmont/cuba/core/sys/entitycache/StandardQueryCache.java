@@ -18,8 +18,10 @@ package com.haulmont.cuba.core.sys.entitycache;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -29,16 +31,20 @@ import javax.inject.Inject;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * Query cache based on Guava {@link Cache}. Keeps an index of query identifiers and an index of queries by related
+ * entity types. Both indexes are maintained by the cache removal listener, so they do not outlive evicted entries.
+ */
 @Component(QueryCache.NAME)
 public class StandardQueryCache implements QueryCache {
 
     protected Cache<QueryKey, QueryResult> data;
-    protected ConcurrentMap<String, CopyOnWriteArrayList<QueryKey>> typeIndex = new ConcurrentHashMap<>();
+    protected ConcurrentMap<String, Set<QueryKey>> typeIndex = new ConcurrentHashMap<>();
+    protected ConcurrentMap<UUID, QueryKey> idIndex = new ConcurrentHashMap<>();
     protected ReadWriteLock lock = new ReentrantReadWriteLock();
 
     @Inject
@@ -48,7 +54,31 @@ public class StandardQueryCache implements QueryCache {
 
     @PostConstruct
     protected void init() {
-        data = CacheBuilder.newBuilder().maximumSize(queryCacheConfig.getQueryCacheMaxSize()).build();
+        data = CacheBuilder.newBuilder()
+                .maximumSize(queryCacheConfig.getQueryCacheMaxSize())
+                .recordStats()
+                .removalListener(this::onRemoval)
+                .build();
+    }
+
+    protected void onRemoval(RemovalNotification<QueryKey, QueryResult> notification) {
+        QueryKey queryKey = notification.getKey();
+        // replaced entries are re-indexed by put()
+        if (queryKey == null || notification.getCause() == RemovalCause.REPLACED) {
+            return;
+        }
+
+        idIndex.remove(queryKey.getId(), queryKey);
+
+        QueryResult queryResult = notification.getValue();
+        if (queryResult != null) {
+            for (String type : queryResult.getRelatedTypes()) {
+                typeIndex.computeIfPresent(type, (t, keys) -> {
+                    keys.remove(queryKey);
+                    return keys.isEmpty() ? null : keys;
+                });
+            }
+        }
     }
 
     @Override
@@ -61,16 +91,21 @@ public class StandardQueryCache implements QueryCache {
         Lock readLock = lock.readLock();
         readLock.lock();
         try {
-            data.put(queryKey, queryResult);
+            // drop an equal key stored earlier together with its index entries
+            data.invalidate(queryKey);
 
+            idIndex.put(queryKey.getId(), queryKey);
             for (String type : queryResult.getRelatedTypes()) {
-                CopyOnWriteArrayList<QueryKey> keys = typeIndex.get(type);
-                if (keys == null) {
-                    typeIndex.putIfAbsent(type, new CopyOnWriteArrayList<>());
-                    keys = typeIndex.get(type);
-                }
-                keys.add(queryKey);
+                typeIndex.compute(type, (t, keys) -> {
+                    if (keys == null) {
+                        keys = ConcurrentHashMap.newKeySet();
+                    }
+                    keys.add(queryKey);
+                    return keys;
+                });
             }
+
+            data.put(queryKey, queryResult);
         } finally {
             readLock.unlock();
         }
@@ -78,13 +113,7 @@ public class StandardQueryCache implements QueryCache {
 
     @Override
     public QueryKey findQueryKeyById(UUID queryId) {
-        Set<QueryKey> keys = Sets.newHashSet(data.asMap().keySet());
-        for (QueryKey key : keys) {
-            if (Objects.equals(queryId, key.getId())) {
-                return key;
-            }
-        }
-        return null;
+        return idIndex.get(queryId);
     }
 
     @Override
@@ -104,10 +133,7 @@ public class StandardQueryCache implements QueryCache {
         Lock readLock = lock.readLock();
         readLock.lock();
         try {
-            CopyOnWriteArrayList<QueryKey> keys = typeIndex.get(typeName);
-            if (keys == null) return;
-            log.debug("Invalidate cache for type {}", typeName);
-            Arrays.stream(keys.toArray()).forEach(it -> data.invalidate(it));
+            invalidateType(typeName);
         } finally {
             readLock.unlock();
         }
@@ -118,35 +144,34 @@ public class StandardQueryCache implements QueryCache {
         Lock readLock = lock.readLock();
         readLock.lock();
         try {
-            typeNames.forEach(typeName -> {
-                        CopyOnWriteArrayList<QueryKey> keys = typeIndex.get(typeName);
-                        if (keys == null) return;
-                        log.debug("Invalidate cache for type {}", typeName);
-                        Arrays.stream(keys.toArray()).forEach(it -> data.invalidate(it));
-                    }
-            );
+            typeNames.forEach(this::invalidateType);
         } finally {
             readLock.unlock();
         }
     }
 
+    protected void invalidateType(String typeName) {
+        Set<QueryKey> keys = typeIndex.get(typeName);
+        if (keys == null) return;
+        log.debug("Invalidate cache for type {}", typeName);
+        // the removal listener removes keys from the set during iteration
+        data.invalidateAll(new ArrayList<>(keys));
+    }
+
     @Override
     public QueryKey invalidate(UUID queryId) {
         Lock readLock = lock.readLock();
         readLock.lock();
         try {
-            Set<QueryKey> keys = Sets.newHashSet(data.asMap().keySet());
-            for (QueryKey key : keys) {
-                if (Objects.equals(queryId, key.getId())) {
-                    log.debug("Invalidate query by identifier {}", queryId);
-                    data.invalidate(key);
-                    return key;
-                }
+            QueryKey key = idIndex.get(queryId);
+            if (key != null) {
+                log.debug("Invalidate query by identifier {}", queryId);
+                data.invalidate(key);
             }
+            return key;
         } finally {
             readLock.unlock();
         }
-        return null;
     }
 
     @Override
@@ -157,6 +182,7 @@ public class StandardQueryCache implements QueryCache {
             log.debug("Invalidate all cache");
             data.invalidateAll();
             typeIndex.clear();
+            idIndex.clear();
         } finally {
             writeLock.unlock();
         }
@@ -172,6 +198,12 @@ public class StandardQueryCache implements QueryCache {
         return queryCacheConfig.getQueryCacheMaxSize();
     }
 
+    @Override
+    public QueryCacheStats getStats() {
+        CacheStats stats = data.stats();
+        return new QueryCacheStats(stats.hitCount(), stats.missCount(), stats.evictionCount());
+    }
+
     @Override
     public Map<QueryKey, QueryResult> asMap() {
         return Maps.newHashMap(data.asMap());
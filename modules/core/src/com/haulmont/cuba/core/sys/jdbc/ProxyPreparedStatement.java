@@ -147,6 +147,7 @@ public class ProxyPreparedStatement<T extends PreparedStatement> extends ProxySt
     @Override
     public void addBatch() throws SQLException {
         statement.addBatch();
+        batchSize++;
     }
 
     @Override
@@ -16,16 +16,29 @@
 
 package com.haulmont.cuba.core.sys.jdbc;
 
+import com.haulmont.cuba.core.app.MiddlewareStatisticsAccumulator;
 import com.haulmont.cuba.core.app.execution.ExecutionContextHolder;
 import com.haulmont.cuba.core.app.execution.ExecutionContextImpl;
 import com.haulmont.cuba.core.app.execution.ResourceCanceledException;
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.sys.AppContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.sql.*;
 
 public class ProxyStatement<T extends Statement> implements Statement {
+
+    private static final Logger log = LoggerFactory.getLogger(ProxyStatement.class);
+
     protected T statement;
     protected Connection connection;
 
+    /**
+     * Number of statements added to the current batch.
+     */
+    protected int batchSize;
+
     public ProxyStatement(T statement, Connection connection) {
         this.statement = statement;
         this.connection = connection;
@@ -154,16 +167,23 @@ public class ProxyStatement<T extends Statement> implements Statement {
     @Override
     public void addBatch(String sql) throws SQLException {
         statement.addBatch(sql);
+        batchSize++;
     }
 
     @Override
     public void clearBatch() throws SQLException {
         statement.clearBatch();
+        batchSize = 0;
     }
 
     @Override
     public int[] executeBatch() throws SQLException {
-        return executeSqlStatement(() -> statement.executeBatch());
+        // the batch is cleared by execution even if it fails
+        int size = batchSize;
+        batchSize = 0;
+        int[] result = executeSqlStatement(() -> statement.executeBatch());
+        batchExecuted(size);
+        return result;
     }
 
     @Override
@@ -272,6 +292,21 @@ public class ProxyStatement<T extends Statement> implements Statement {
         }
     }
 
+    /**
+     * Registers the size of an executed batch in {@link MiddlewareStatisticsAccumulator}.
+     */
+    protected void batchExecuted(int size) {
+        if (size == 0) {
+            return;
+        }
+        log.trace("Executed JDBC batch of {} statements", size);
+
+        if (AppContext.getApplicationContext() != null) {
+            MiddlewareStatisticsAccumulator accumulator = AppBeans.get(MiddlewareStatisticsAccumulator.NAME);
+            accumulator.addJdbcBatch(size);
+        }
+    }
+
     protected interface SQLCallable<V> {
         V call() throws SQLException;
     }
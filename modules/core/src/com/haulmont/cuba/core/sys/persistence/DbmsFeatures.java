@@ -110,4 +110,12 @@ public interface DbmsFeatures {
     default Integer getMaxIdsBatchSize() {
         return null;
     }
+
+    /**
+     * @return true if the JDBC driver executes batches of parameterized statements and returns correct update counts,
+     * so JDBC batch writing can be turned on by the {@code cuba.jdbcBatchWritingSize} application property
+     */
+    default boolean supportsBatchWriting() {
+        return true;
+    }
 }
@@ -64,6 +64,39 @@ public class PersistenceConfigProcessor {
         this.storeName = storeName;
     }
 
+    /**
+     * Returns EclipseLink properties turning on JDBC batch writing if it is enabled for the store by the
+     * {@code cuba.jdbcBatchWritingSize} (or {@code cuba.jdbcBatchWritingSize_<store>}) app property.
+     * Changes are also ordered by ids to make the batches and the order of locks stable.
+     */
+    protected Map<String, String> getBatchWritingParameters(DbmsFeatures dbmsFeatures) {
+        String propertyName = Stores.isMain(storeName) ? "cuba.jdbcBatchWritingSize" : "cuba.jdbcBatchWritingSize_" + storeName;
+        String batchSize = StringUtils.trimToNull(AppContext.getProperty(propertyName));
+        if (batchSize == null) {
+            return Collections.emptyMap();
+        }
+        int size;
+        try {
+            size = Integer.parseInt(batchSize);
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException(String.format("Invalid value of %s app property: '%s'", propertyName, batchSize));
+        }
+        if (size <= 1) {
+            return Collections.emptyMap();
+        }
+        if (!dbmsFeatures.supportsBatchWriting()) {
+            log.warn("JDBC batch writing is not supported by the database of '{}' store, {} is ignored",
+                    Stores.isMain(storeName) ? Stores.MAIN : storeName, propertyName);
+            return Collections.emptyMap();
+        }
+
+        Map<String, String> params = new HashMap<>();
+        params.put("eclipselink.jdbc.batch-writing", "JDBC");
+        params.put("eclipselink.jdbc.batch-writing.size", String.valueOf(size));
+        params.put("eclipselink.persistence-context.commit-order", "Id");
+        return params;
+    }
+
     public void create() {
         if (sourceFileNames == null || sourceFileNames.isEmpty())
             throw new IllegalStateException("Source file list not set");
@@ -71,7 +104,9 @@ public class PersistenceConfigProcessor {
             throw new IllegalStateException("Output file not set");
 
         Map<String, String> classes = new LinkedHashMap<>();
-        Map<String, String> properties = new HashMap<>(DbmsSpecificFactory.getDbmsFeatures(storeName).getJpaParameters());
+        DbmsFeatures dbmsFeatures = DbmsSpecificFactory.getDbmsFeatures(storeName);
+        Map<String, String> properties = new HashMap<>(dbmsFeatures.getJpaParameters());
+        properties.putAll(getBatchWritingParameters(dbmsFeatures));
 
         for (String fileName : sourceFileNames) {
             Document doc = getDocument(fileName);
@@ -18,8 +18,11 @@
 package com.haulmont.cuba.core.sys.remoting;
 
 import com.google.common.base.Joiner;
+import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.core.sys.serialization.SerializationException;
 import com.haulmont.cuba.core.sys.serialization.SerializationSupport;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.springframework.beans.factory.BeanNameAware;
 import org.springframework.remoting.httpinvoker.HttpInvokerServiceExporter;
 import org.springframework.remoting.support.RemoteInvocation;
@@ -29,20 +32,24 @@ import org.springframework.web.util.NestedServletException;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.OptionalDataException;
+import java.io.*;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Exports a middleware service bean as an HTTP invoker service endpoint.
+ * <p>
+ * Accepts GZIP-compressed requests. Responses are compressed if the client accepts GZIP encoding and the size
+ * of the serialized result exceeds {@code cuba.remotingCompressionThreshold} bytes.
  */
 public class HttpServiceExporter extends HttpInvokerServiceExporter implements BeanNameAware {
 
+    protected int compressionThreshold;
+
     public HttpServiceExporter() {
         super();
         setRegisterTraceInterceptor(false);
         setRemoteInvocationExecutor(new CubaRemoteInvocationExecutor());
+        compressionThreshold = NumberUtils.toInt(AppContext.getProperty("cuba.remotingCompressionThreshold"), -1);
     }
 
     @Override
@@ -105,6 +112,25 @@ public class HttpServiceExporter extends HttpInvokerServiceExporter implements B
         }
     }
 
+    @Override
+    protected InputStream decorateInputStream(HttpServletRequest request, InputStream is) throws IOException {
+        if (StringUtils.containsIgnoreCase(request.getHeader("Content-Encoding"), HttpInvokerTransport.ENCODING_GZIP)) {
+            return new GZIPInputStream(is);
+        }
+        return is;
+    }
+
+    @Override
+    protected OutputStream decorateOutputStream(HttpServletRequest request, HttpServletResponse response,
+                                                OutputStream os) throws IOException {
+        if (compressionThreshold >= 0
+                && StringUtils.containsIgnoreCase(request.getHeader("Accept-Encoding"), HttpInvokerTransport.ENCODING_GZIP)) {
+            return new ThresholdGzipOutputStream(os, compressionThreshold,
+                    () -> response.setHeader("Content-Encoding", HttpInvokerTransport.ENCODING_GZIP));
+        }
+        return os;
+    }
+
     @Override
     protected void doWriteRemoteInvocationResult(RemoteInvocationResult result, ObjectOutputStream oos) throws IOException {
         SerializationSupport.serialize(result, oos);
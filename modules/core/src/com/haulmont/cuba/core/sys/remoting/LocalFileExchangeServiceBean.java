@@ -42,6 +42,11 @@ public class LocalFileExchangeServiceBean implements LocalFileExchangeService {
 
     @Override
     public InputStream downloadFile(FileDescriptor fileDescriptor) throws FileStorageException {
+        return downloadFile(fileDescriptor, 0);
+    }
+
+    @Override
+    public InputStream downloadFile(FileDescriptor fileDescriptor, long offset) throws FileStorageException {
         FileDescriptor descriptor;
         try {
             // FileDescriptor must be available for the current user and be non deleted
@@ -50,6 +55,6 @@ public class LocalFileExchangeServiceBean implements LocalFileExchangeService {
             throw new FileStorageException(FileStorageException.Type.FILE_NOT_FOUND, fileDescriptor.getName(), e);
         }
 
-        return fileStorage.openStream(descriptor);
+        return fileStorage.openStream(descriptor, offset);
     }
 }
\ No newline at end of file
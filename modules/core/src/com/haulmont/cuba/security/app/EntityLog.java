@@ -78,6 +78,8 @@ public class EntityLog implements EntityLogAPI {
     protected DataManager dataManager;
     @Inject
     protected ServerConfig serverConfig;
+    @Inject
+    protected EntityLogWriter entityLogWriter;
 
     protected volatile boolean loaded;
     protected EntityLogConfig config;
@@ -112,19 +114,24 @@ public class EntityLog implements EntityLogAPI {
         if (items == null || items.isEmpty())
             return;
 
-        Set<EntityLogItem> saved = new LinkedHashSet<>();
+        Map<Object, List<EntityLogItem>> itemsByEntity = new LinkedHashMap<>();
         for (EntityLogItem item : items) {
-            List<EntityLogItem> sameEntityList = items.stream()
-                    .filter(entityLogItem -> entityLogItem.getDbGeneratedIdEntity() != null ?
-                            entityLogItem.getDbGeneratedIdEntity().equals(item.getDbGeneratedIdEntity()) :
-                            entityLogItem.getObjectEntityId().equals(item.getObjectEntityId()))
-                    .collect(Collectors.toList());
+            Object entityKey = item.getDbGeneratedIdEntity() != null ?
+                    item.getDbGeneratedIdEntity() : item.getObjectEntityId();
+            itemsByEntity.computeIfAbsent(entityKey, k -> new ArrayList<>()).add(item);
+        }
+
+        List<EntityLogItem> itemsToSave = new ArrayList<>(itemsByEntity.size());
+        for (List<EntityLogItem> sameEntityList : itemsByEntity.values()) {
             EntityLogItem itemToSave = sameEntityList.get(0);
-            if (!saved.contains(itemToSave)) {
-                computeChanges(itemToSave, sameEntityList);
-                saved.add(itemToSave);
-                saveItem(itemToSave);
-            }
+            computeChanges(itemToSave, sameEntityList);
+            itemsToSave.add(itemToSave);
+        }
+
+        if (entityLogWriter.isStarted()) {
+            saveItemsAsync(storeName, itemsToSave);
+        } else {
+            saveItems(itemsToSave);
         }
     }
 
@@ -217,29 +224,50 @@ public class EntityLog implements EntityLogAPI {
         return attr;
     }
 
-    protected void saveItem(EntityLogItem item) {
-        String storeName = metadataTools.getStoreName(metadata.getClassNN(item.getEntity()));
-        if (item.getDbGeneratedIdEntity() == null) {
-            if (Stores.isMain(storeName)) {
-                EntityManager em = persistence.getEntityManager();
-                em.persist(item);
+    /**
+     * Saves the items in as few transactions as possible: items of the main data store are persisted in the
+     * current transaction, items of additional data stores in a single new transaction, and items of
+     * entities with DB-generated identifiers in a single transaction after commit.
+     * <p>
+     * Replaces {@link #saveItem(EntityLogItem)} of previous versions, override this method to customize
+     * saving of the items.
+     */
+    protected void saveItems(List<EntityLogItem> items) {
+        List<EntityLogItem> additionalStoreItems = new ArrayList<>();
+        List<EntityLogItem> dbGeneratedIdItems = new ArrayList<>();
+
+        for (EntityLogItem item : items) {
+            if (item.getDbGeneratedIdEntity() != null) {
+                dbGeneratedIdItems.add(item);
+            } else if (Stores.isMain(metadataTools.getStoreName(metadata.getClassNN(item.getEntity())))) {
+                persistence.getEntityManager().persist(item);
             } else {
-                // Create a new transaction in main DB if we are saving an entity from additional data store
-                try (Transaction tx = persistence.createTransaction()) {
-                    EntityManager em = persistence.getEntityManager();
+                additionalStoreItems.add(item);
+            }
+        }
+
+        if (!additionalStoreItems.isEmpty()) {
+            // Create a new transaction in main DB if we are saving entities from additional data stores
+            try (Transaction tx = persistence.createTransaction()) {
+                EntityManager em = persistence.getEntityManager();
+                for (EntityLogItem item : additionalStoreItems) {
                     em.persist(item);
-                    tx.commit();
                 }
+                tx.commit();
             }
-        } else {
+        }
+
+        if (!dbGeneratedIdItems.isEmpty()) {
             TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
                 @Override
                 public void afterCommit() {
-                    Number id = item.getDbGeneratedIdEntity().getId().getNN();
-                    item.setObjectEntityId(id);
                     try (Transaction tx = persistence.createTransaction()) {
                         EntityManager em = persistence.getEntityManager();
-                        em.persist(item);
+                        for (EntityLogItem item : dbGeneratedIdItems) {
+                            Number id = item.getDbGeneratedIdEntity().getId().getNN();
+                            item.setObjectEntityId(id);
+                            em.persist(item);
+                        }
                         tx.commit();
                     }
                 }
@@ -247,6 +275,49 @@ public class EntityLog implements EntityLogAPI {
         }
     }
 
+    /**
+     * Passes the items to {@link EntityLogWriter} after commit of the current transaction.
+     * Items saved by repeated flushes of the same transaction are passed once.
+     */
+    protected void saveItemsAsync(String storeName, List<EntityLogItem> items) {
+        String createdBy = auditInfoProvider.getCurrentUserLogin();
+        Date createTs = timeSource.currentTimestamp();
+        for (EntityLogItem item : items) {
+            item.setCreatedBy(createdBy);
+            item.setCreateTs(createTs);
+        }
+
+        EntityManagerContext context = persistence.getEntityManagerContext(storeName);
+        Set<EntityLogItem> scheduled = context.getAttribute(EntityLogWriter.class.getName());
+        if (scheduled == null) {
+            Set<EntityLogItem> transactionItems = new LinkedHashSet<>();
+            context.setAttribute(EntityLogWriter.class.getName(), transactionItems);
+
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    for (EntityLogItem item : transactionItems) {
+                        if (item.getDbGeneratedIdEntity() != null) {
+                            Number id = item.getDbGeneratedIdEntity().getId().getNN();
+                            item.setObjectEntityId(id);
+                        }
+                    }
+                    entityLogWriter.write(new ArrayList<>(transactionItems));
+                }
+            });
+            scheduled = transactionItems;
+        }
+        scheduled.addAll(items);
+    }
+
+    /**
+     * @deprecated use {@link #saveItems(List)}
+     */
+    @Deprecated
+    protected void saveItem(EntityLogItem item) {
+        saveItems(Collections.singletonList(item));
+    }
+
     @Override
     public synchronized boolean isEnabled() {
         return config.getEnabled() && isLoggingForCurrentThread();
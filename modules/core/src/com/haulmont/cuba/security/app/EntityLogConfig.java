@@ -21,6 +21,7 @@ import com.haulmont.cuba.core.config.Property;
 import com.haulmont.cuba.core.config.Source;
 import com.haulmont.cuba.core.config.SourceType;
 import com.haulmont.cuba.core.config.defaults.DefaultBoolean;
+import com.haulmont.cuba.core.config.defaults.DefaultInt;
 
 /**
  * {@link com.haulmont.cuba.security.app.EntityLog} configuration parameters
@@ -35,4 +36,46 @@ public interface EntityLogConfig extends Config {
     @DefaultBoolean(true)
     boolean getEnabled();
     void setEnabled(boolean value);
-}
\ No newline at end of file
+
+    /**
+     * @return whether Entity Log items are written by a background thread after commit of the business transaction
+     * instead of inside it. Read on application start.
+     */
+    @Property("cuba.entityLog.asyncWriting")
+    @Source(type = SourceType.APP)
+    @DefaultBoolean(false)
+    boolean getAsyncWriting();
+
+    /**
+     * @return max number of committed transactions waiting for the asynchronous writer
+     */
+    @Property("cuba.entityLog.asyncQueueCapacity")
+    @Source(type = SourceType.APP)
+    @DefaultInt(10000)
+    int getAsyncQueueCapacity();
+
+    /**
+     * @return number of items after which the asynchronous writer stops collecting queued transactions
+     * and writes them in one database transaction
+     */
+    @Property("cuba.entityLog.asyncBatchSize")
+    @Source(type = SourceType.APP)
+    @DefaultInt(500)
+    int getAsyncBatchSize();
+
+    /**
+     * @return how long a committing thread waits for free space in the full queue before writing its items itself
+     */
+    @Property("cuba.entityLog.asyncEnqueueTimeoutMs")
+    @Source(type = SourceType.APP)
+    @DefaultInt(1000)
+    int getAsyncEnqueueTimeoutMs();
+
+    /**
+     * @return whether queued items are stored in files in the data directory to be written after a crash
+     */
+    @Property("cuba.entityLog.asyncSpillEnabled")
+    @Source(type = SourceType.APP)
+    @DefaultBoolean(true)
+    boolean getAsyncSpillEnabled();
+}
@@ -0,0 +1,391 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.security.app;
+
+import com.haulmont.cuba.core.EntityManager;
+import com.haulmont.cuba.core.Persistence;
+import com.haulmont.cuba.core.Transaction;
+import com.haulmont.cuba.core.global.Configuration;
+import com.haulmont.cuba.core.global.GlobalConfig;
+import com.haulmont.cuba.core.global.UuidProvider;
+import com.haulmont.cuba.core.sys.events.AppContextStartedEvent;
+import com.haulmont.cuba.core.sys.events.AppContextStoppedEvent;
+import com.haulmont.cuba.core.sys.serialization.SerializationSupport;
+import com.haulmont.cuba.security.entity.EntityLogItem;
+import com.haulmont.cuba.security.entity.User;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Writes {@link EntityLogItem}s in a background thread when {@link EntityLogConfig#getAsyncWriting()} is on.
+ * <p>
+ * Items of a committed transaction are put to a bounded queue and written by a single thread in batches, each batch
+ * in one transaction. If the queue is full, the caller waits for {@link EntityLogConfig#getAsyncEnqueueTimeoutMs()}
+ * and then writes its items synchronously. Each queued batch is also stored in a spill file which is removed
+ * after the batch is written, so items which were not written before a crash are written on the next start.
+ * <p>
+ * If a batch fails, its items are written one by one in separate transactions, so a single bad item does not
+ * lose the whole batch. On stop, the writer finishes the current batch and writes all items remaining in the queue.
+ */
+@Component(EntityLogWriter.NAME)
+public class EntityLogWriter {
+
+    public static final String NAME = "cuba_EntityLogWriter";
+
+    private static final Logger log = LoggerFactory.getLogger(EntityLogWriter.class);
+
+    protected static final String SPILL_FILE_EXT = ".entitylog";
+
+    protected static final long POLL_TIMEOUT_MS = 200;
+
+    @Inject
+    protected Persistence persistence;
+    @Inject
+    protected GlobalConfig globalConfig;
+
+    protected EntityLogConfig config;
+
+    protected BlockingQueue<PendingItems> queue;
+
+    protected volatile Thread writerThread;
+
+    protected volatile boolean stopping;
+
+    /**
+     * Read lock is held while items are put to the queue, write lock while the writer is started or stopped,
+     * so no items are put to the queue after the writer has drained it on stop.
+     */
+    protected final ReadWriteLock stateLock = new ReentrantReadWriteLock();
+
+    protected AtomicLong writtenCount = new AtomicLong();
+    protected AtomicLong failedCount = new AtomicLong();
+    protected AtomicLong synchronouslyWrittenCount = new AtomicLong();
+    protected volatile long lastWriteLag;
+
+    @Inject
+    public EntityLogWriter(Configuration configuration) {
+        config = configuration.getConfig(EntityLogConfig.class);
+    }
+
+    @EventListener(AppContextStartedEvent.class)
+    protected void applicationStarted() {
+        if (config.getAsyncWriting()) {
+            start();
+        }
+    }
+
+    @EventListener(AppContextStoppedEvent.class)
+    protected void applicationStopped() {
+        stop();
+    }
+
+    /**
+     * @return true if the background writer is running and accepts items
+     */
+    public boolean isStarted() {
+        return writerThread != null && !stopping;
+    }
+
+    public synchronized void start() {
+        if (writerThread != null)
+            return;
+
+        log.info("Starting asynchronous Entity Log writer");
+        List<PendingItems> recovered = readSpillFiles();
+
+        stateLock.writeLock().lock();
+        try {
+            stopping = false;
+            queue = new LinkedBlockingQueue<>(Math.max(config.getAsyncQueueCapacity(), recovered.size()));
+            // recovered items go first, the queue has room for all of them
+            queue.addAll(recovered);
+
+            writerThread = new Thread(this::run, "EntityLogWriter");
+            writerThread.setDaemon(true);
+            writerThread.start();
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stops the background thread after writing all queued items.
+     */
+    public synchronized void stop() {
+        Thread thread = writerThread;
+        if (thread == null)
+            return;
+
+        stateLock.writeLock().lock();
+        try {
+            log.info("Stopping asynchronous Entity Log writer, {} transactions in queue", queue.size());
+            stopping = true;
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+
+        // the thread is not interrupted to not break a write in progress, it exits when the queue is drained
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            log.warn("Entity Log writer has not finished in 30 sec, {} transactions in queue", queue.size());
+        }
+        writerThread = null;
+    }
+
+    /**
+     * Hands over items of a committed transaction to the background writer. Writes the items in the current thread
+     * if the writer is not started or its queue remains full for the configured timeout.
+     */
+    public void write(List<EntityLogItem> items) {
+        if (items.isEmpty())
+            return;
+
+        PendingItems pendingItems = null;
+        stateLock.readLock().lock();
+        try {
+            if (isStarted()) {
+                pendingItems = new PendingItems(items, writeSpillFile(items));
+                if (queue.offer(pendingItems, config.getAsyncEnqueueTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+                log.debug("Entity Log writer queue is full, writing {} items synchronously", items.size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            stateLock.readLock().unlock();
+        }
+
+        if (pendingItems != null) {
+            writeItems(pendingItems);
+            synchronouslyWrittenCount.addAndGet(items.size());
+        } else {
+            writeItems(new PendingItems(items, null));
+        }
+    }
+
+    protected void run() {
+        int batchSize = config.getAsyncBatchSize();
+        List<PendingItems> batch = new ArrayList<>();
+        while (true) {
+            try {
+                // checked before polling: nothing is put to the queue once stopping is set
+                boolean drain = stopping;
+                PendingItems first = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (drain)
+                        break;
+                    continue;
+                }
+                batch.add(first);
+
+                int count = batch.get(0).items.size();
+                while (count < batchSize) {
+                    PendingItems pendingItems = queue.poll();
+                    if (pendingItems == null)
+                        break;
+                    batch.add(pendingItems);
+                    count += pendingItems.items.size();
+                }
+
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                log.warn("Entity Log writer is interrupted, {} transactions in queue", queue.size());
+                break;
+            } catch (Throwable e) {
+                log.error("Error writing Entity Log items", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    protected void writeBatch(List<PendingItems> batch) {
+        long now = System.currentTimeMillis();
+        try (Transaction tx = persistence.createTransaction()) {
+            EntityManager em = persistence.getEntityManager();
+            for (PendingItems pendingItems : batch) {
+                for (EntityLogItem item : pendingItems.items) {
+                    persistItem(em, item);
+                }
+            }
+            tx.commit();
+
+            for (PendingItems pendingItems : batch) {
+                writtenCount.addAndGet(pendingItems.items.size());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Error writing batch of Entity Log items, writing them one by one", e);
+            for (PendingItems pendingItems : batch) {
+                for (EntityLogItem item : pendingItems.items) {
+                    writeItem(item);
+                }
+            }
+        }
+
+        for (PendingItems pendingItems : batch) {
+            deleteSpillFile(pendingItems.spillFile);
+        }
+        lastWriteLag = now - batch.get(0).enqueueTime;
+    }
+
+    protected void writeItem(EntityLogItem item) {
+        try (Transaction tx = persistence.createTransaction()) {
+            persistItem(persistence.getEntityManager(), item);
+            tx.commit();
+            writtenCount.incrementAndGet();
+        } catch (RuntimeException e) {
+            failedCount.incrementAndGet();
+            log.error("Unable to write Entity Log item {} of {} {}", item.getId(), item.getEntity(), item.getObjectEntityId(), e);
+        }
+    }
+
+    protected void writeItems(PendingItems pendingItems) {
+        try (Transaction tx = persistence.createTransaction()) {
+            EntityManager em = persistence.getEntityManager();
+            for (EntityLogItem item : pendingItems.items) {
+                persistItem(em, item);
+            }
+            tx.commit();
+        }
+        deleteSpillFile(pendingItems.spillFile);
+    }
+
+    protected void persistItem(EntityManager em, EntityLogItem item) {
+        String createdBy = item.getCreatedBy();
+        Date createTs = item.getCreateTs();
+        if (item.getUser() != null) {
+            item.setUser(em.getReference(User.class, item.getUser().getId()));
+        }
+        em.persist(item);
+        // restore audit info of the original transaction overwritten on persist
+        item.setCreatedBy(createdBy);
+        if (createTs != null) {
+            item.setCreateTs(createTs);
+        }
+    }
+
+    protected File getSpillDir() {
+        return new File(globalConfig.getDataDir(), "entitylog");
+    }
+
+    @Nullable
+    protected File writeSpillFile(List<EntityLogItem> items) {
+        if (!config.getAsyncSpillEnabled())
+            return null;
+
+        File file = new File(getSpillDir(), UuidProvider.createUuid() + SPILL_FILE_EXT);
+        try {
+            FileUtils.forceMkdir(file.getParentFile());
+            try (OutputStream os = new BufferedOutputStream(new FileOutputStream(file))) {
+                SerializationSupport.serialize(new ArrayList<>(items), os);
+            }
+            return file;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Unable to write Entity Log spill file {}", file, e);
+            FileUtils.deleteQuietly(file);
+            return null;
+        }
+    }
+
+    protected void deleteSpillFile(@Nullable File file) {
+        if (file != null && !file.delete()) {
+            log.warn("Unable to delete Entity Log spill file {}", file);
+        }
+    }
+
+    protected List<PendingItems> readSpillFiles() {
+        List<PendingItems> result = new ArrayList<>();
+        File[] files = getSpillDir().listFiles((dir, name) -> name.endsWith(SPILL_FILE_EXT));
+        if (files == null)
+            return result;
+
+        for (File file : files) {
+            try (InputStream is = new BufferedInputStream(new FileInputStream(file))) {
+                @SuppressWarnings("unchecked")
+                List<EntityLogItem> items = (List<EntityLogItem>) SerializationSupport.deserialize(is);
+                result.add(new PendingItems(items, file));
+            } catch (IOException | RuntimeException e) {
+                log.error("Unable to read Entity Log spill file {}", file, e);
+            }
+        }
+        if (!result.isEmpty()) {
+            log.info("Recovered {} not written Entity Log transactions", result.size());
+        }
+        return result;
+    }
+
+    /**
+     * @return number of transactions waiting in the queue
+     */
+    public int getQueueSize() {
+        BlockingQueue<PendingItems> queue = this.queue;
+        return queue != null ? queue.size() : 0;
+    }
+
+    /**
+     * @return time in milliseconds between enqueueing and writing of the oldest item in the last written batch
+     */
+    public long getLastWriteLag() {
+        return lastWriteLag;
+    }
+
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getSynchronouslyWrittenCount() {
+        return synchronouslyWrittenCount.get();
+    }
+
+    protected static class PendingItems {
+
+        protected final List<EntityLogItem> items;
+        protected final File spillFile;
+        protected final long enqueueTime = System.currentTimeMillis();
+
+        public PendingItems(List<EntityLogItem> items, @Nullable File spillFile) {
+            this.items = items;
+            this.spillFile = spillFile;
+        }
+    }
+}
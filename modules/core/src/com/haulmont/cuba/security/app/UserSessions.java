@@ -18,6 +18,8 @@ package com.haulmont.cuba.security.app;
 import com.haulmont.bali.util.Preconditions;
 import com.haulmont.cuba.core.app.ClusterListener;
 import com.haulmont.cuba.core.app.ClusterManagerAPI;
+import com.haulmont.cuba.core.app.CoalescingClusterMessage;
+import com.haulmont.cuba.core.app.MiddlewareStatisticsAccumulator;
 import com.haulmont.cuba.core.app.ServerConfig;
 import com.haulmont.cuba.core.global.Configuration;
 import com.haulmont.cuba.core.global.Metadata;
@@ -37,6 +39,9 @@ import javax.inject.Inject;
 import java.io.*;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -46,7 +51,7 @@ import java.util.stream.Stream;
 @Component(UserSessionsAPI.NAME)
 public class UserSessions implements UserSessionsAPI {
 
-    public static class UserSessionInfo implements Serializable {
+    public static class UserSessionInfo implements CoalescingClusterMessage {
         private static final long serialVersionUID = -4834267718111570841L;
 
         public final UserSession session;
@@ -77,6 +82,11 @@ public class UserSessions implements UserSessionsAPI {
             return lastSentTs;
         }
 
+        @Override
+        public Object getCoalescingKey() {
+            return session.getId();
+        }
+
         @Override
         public String toString() {
             return String.format("%s, since: %s, lastUsed: %s",
@@ -88,6 +98,16 @@ public class UserSessions implements UserSessionsAPI {
 
     protected Map<UUID, UserSessionInfo> cache = new ConcurrentHashMap<>();
 
+    /**
+     * Ids of sessions by the second of their last usage known when they were scheduled. Eviction processes only
+     * the seconds after which sessions could expire, and reschedules sessions that were used since then.
+     */
+    protected ConcurrentSkipListMap<Long, Set<UUID>> expirationSchedule = new ConcurrentSkipListMap<>();
+
+    protected Set<UUID> scheduledSessions = ConcurrentHashMap.newKeySet();
+
+    protected Map<String, AttributeIndex> attributeIndexes = Collections.emptyMap();
+
     protected volatile int expirationTimeout = 1800;
 
     protected volatile int sendTimeout = 10;
@@ -109,6 +129,45 @@ public class UserSessions implements UserSessionsAPI {
     @Inject
     protected UserSessionLog userSessionLog;
 
+    @Inject
+    protected MiddlewareStatisticsAccumulator statisticsAccumulator;
+
+    /**
+     * Index of session ids by the value of a session attribute.
+     */
+    protected static class AttributeIndex {
+        protected final ConcurrentMap<Object, Set<UUID>> sessionsByValue = new ConcurrentHashMap<>();
+        protected final ConcurrentMap<UUID, Object> valuesBySession = new ConcurrentHashMap<>();
+
+        protected void put(UUID id, @Nullable Object value) {
+            Object oldValue = value == null ? valuesBySession.remove(id) : valuesBySession.put(id, value);
+            if (oldValue != null && !oldValue.equals(value)) {
+                removeFromValue(id, oldValue);
+            }
+            if (value != null && !value.equals(oldValue)) {
+                sessionsByValue.computeIfAbsent(value, v -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+        }
+
+        protected void remove(UUID id) {
+            Object oldValue = valuesBySession.remove(id);
+            if (oldValue != null) {
+                removeFromValue(id, oldValue);
+            }
+        }
+
+        protected void removeFromValue(UUID id, Object value) {
+            sessionsByValue.computeIfPresent(value, (v, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+
+        protected Set<UUID> find(Object value) {
+            return sessionsByValue.getOrDefault(value, Collections.emptySet());
+        }
+    }
+
     public UserSessions() {
         User noUser = new User();
         noUser.setLogin("server");
@@ -128,6 +187,15 @@ public class UserSessions implements UserSessionsAPI {
         setExpirationTimeoutSec(serverConfig.getUserSessionExpirationTimeoutSec());
         setSendTimeoutSec(serverConfig.getUserSessionSendTimeoutSec());
         touchTimeout = serverConfig.getUserSessionTouchTimeoutSec();
+
+        List<String> indexedAttributes = serverConfig.getUserSessionIndexedAttributes();
+        if (indexedAttributes != null && !indexedAttributes.isEmpty()) {
+            Map<String, AttributeIndex> indexes = new HashMap<>();
+            for (String attribute : indexedAttributes) {
+                indexes.put(attribute, new AttributeIndex());
+            }
+            attributeIndexes = indexes;
+        }
     }
 
     @Inject
@@ -380,6 +448,17 @@ public class UserSessions implements UserSessionsAPI {
     public List<UUID> findUserSessionsByAttribute(String attributeName, Object attributeValue) {
         Preconditions.checkNotNullArgument(attributeName);
 
+        AttributeIndex index = attributeIndexes.get(attributeName);
+        if (index != null && attributeValue != null) {
+            // the index could be outdated if the attribute was changed after the session had been indexed
+            return index.find(attributeValue).stream()
+                    .map(this::getSessionInfo)
+                    .filter(usInfo -> usInfo != null
+                            && Objects.equals(usInfo.session.getAttribute(attributeName), attributeValue))
+                    .map(userSessionInfo -> userSessionInfo.session.getId())
+                    .collect(Collectors.toList());
+        }
+
         //noinspection UnnecessaryLocalVariable
         List<UUID> sessionIds = getSessionInfoStream()
                 .filter(usInfo -> Objects.equals(usInfo.session.getAttribute(attributeName), attributeValue))
@@ -395,33 +474,97 @@ public class UserSessions implements UserSessionsAPI {
             return;
 
         log.trace("Processing eviction");
+        long start = System.nanoTime();
         long now = timeSource.currentTimeMillis();
+        int expired = 0;
+
+        // sessions used before this second have expired if they have not been used since they were scheduled,
+        // the sessions used since then are rescheduled to later seconds
+        long expiredSecond = TimeUnit.MILLISECONDS.toSeconds(now - toMillis(expirationTimeout));
+        for (Long second : expirationSchedule.headMap(expiredSecond).keySet()) {
+            Set<UUID> ids = expirationSchedule.remove(second);
+            if (ids == null) {
+                continue;
+            }
+            for (UUID id : ids) {
+                UserSessionInfo usi = getSessionInfo(id);
+                if (usi == null || usi.session.isSystem()) {
+                    unscheduleExpiration(id);
+                } else if (now > (usi.lastUsedTs + toMillis(expirationTimeout))) {
+                    expireSession(usi);
+                    unscheduleExpiration(id);
+                    expired++;
+                } else {
+                    scheduleExpiration(id, usi.lastUsedTs);
+                }
+            }
+        }
+
+        statisticsAccumulator.addUserSessionEviction(System.nanoTime() - start, expired);
+    }
 
-        getSessionInfoStream()
-                .filter(info -> !info.session.isSystem() && now > (info.lastUsedTs + toMillis(expirationTimeout)))
-                .forEach(usi -> {
-                    log.debug("Removing session due to timeout: {}", usi);
+    protected void expireSession(UserSessionInfo usi) {
+        log.debug("Removing session due to timeout: {}", usi);
 
-                    userSessionLog.updateSessionLogRecord(usi.getSession(), SessionAction.EXPIRATION);
+        userSessionLog.updateSessionLogRecord(usi.getSession(), SessionAction.EXPIRATION);
 
-                    removeSessionInfo(usi.session.getId());
+        removeSessionInfo(usi.session.getId());
 
-                    usi.lastUsedTs = 0;
-                    clusterManager.send(usi);
-                });
+        usi.lastUsedTs = 0;
+        clusterManager.send(usi);
+    }
+
+    protected void scheduleExpiration(UUID id, long lastUsedTs) {
+        // unlike computeIfAbsent(), compute() does not add the id to a set removed by the eviction meanwhile
+        expirationSchedule.compute(TimeUnit.MILLISECONDS.toSeconds(lastUsedTs), (second, ids) -> {
+            if (ids == null) {
+                ids = ConcurrentHashMap.newKeySet();
+            }
+            ids.add(id);
+            return ids;
+        });
+    }
+
+    protected void unscheduleExpiration(UUID id) {
+        scheduledSessions.remove(id);
+        // the session could be put after it was checked, when it was still scheduled, so it is scheduled again
+        UserSessionInfo usi = getSessionInfo(id);
+        if (usi != null && !usi.session.isSystem() && scheduledSessions.add(id)) {
+            scheduleExpiration(id, usi.lastUsedTs);
+        }
     }
 
     protected UserSessionInfo getSessionInfo(UUID id) {
         return cache.get(id);
     }
 
+    /**
+     * Puts the session to the cache, schedules its expiration and indexes its attributes.
+     * Override together with {@link #getSessionInfo(UUID)}, {@link #removeSessionInfo(UUID)} and
+     * {@link #getSessionInfoStream()} to store sessions elsewhere, calling {@link #scheduleExpiration(UUID, long)}
+     * and {@link #indexAttributes(UUID, UserSession)} for the sessions that have to be expired and indexed.
+     */
     protected void putSessionInfo(UUID id, UserSessionInfo info) {
         cache.put(id, info);
+        if (scheduledSessions.add(id)) {
+            scheduleExpiration(id, info.lastUsedTs);
+        }
+        indexAttributes(id, info.session);
     }
 
     @Nullable
     protected UserSessionInfo removeSessionInfo(UUID id) {
-        return cache.remove(id);
+        UserSessionInfo info = cache.remove(id);
+        for (AttributeIndex index : attributeIndexes.values()) {
+            index.remove(id);
+        }
+        return info;
+    }
+
+    protected void indexAttributes(UUID id, UserSession session) {
+        for (Map.Entry<String, AttributeIndex> entry : attributeIndexes.entrySet()) {
+            entry.getValue().put(id, session.getAttribute(entry.getKey()));
+        }
     }
 
     protected Stream<UserSessionInfo> getSessionInfoStream() {
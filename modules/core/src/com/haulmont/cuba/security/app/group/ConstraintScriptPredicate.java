@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.security.app.group;
+
+import com.haulmont.cuba.core.PersistenceSecurity;
+import com.haulmont.cuba.core.entity.Entity;
+
+import java.util.function.Predicate;
+
+/**
+ * In-memory predicate of an access constraint defined by a Groovy script.
+ * <p>
+ * Exposes the script, so {@link PersistenceSecurity} can compile it once and evaluate it for a collection of
+ * entities instead of evaluating the script for each entity separately.
+ */
+public class ConstraintScriptPredicate implements Predicate<Entity> {
+
+    protected final PersistenceSecurity security;
+    protected final String groovyScript;
+
+    public ConstraintScriptPredicate(PersistenceSecurity security, String groovyScript) {
+        this.security = security;
+        this.groovyScript = groovyScript;
+    }
+
+    public String getGroovyScript() {
+        return groovyScript;
+    }
+
+    @Override
+    public boolean test(Entity entity) {
+        return (boolean) security.evaluateConstraintScript(entity, groovyScript);
+    }
+}
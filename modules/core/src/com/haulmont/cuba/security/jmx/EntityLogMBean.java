@@ -36,4 +36,29 @@ public interface EntityLogMBean {
      * The configuration will be recreated from the database on next lifecycle event.
      */
     void invalidateCache();
+
+    /**
+     * Number of transactions waiting for the asynchronous writer.
+     */
+    int getAsyncQueueSize();
+
+    /**
+     * Time in milliseconds between commit and writing of the oldest item in the last batch of the asynchronous writer.
+     */
+    long getAsyncWriteLag();
+
+    /**
+     * Number of items written by the asynchronous writer.
+     */
+    long getAsyncWrittenCount();
+
+    /**
+     * Number of items written synchronously because the asynchronous writer queue was full.
+     */
+    long getAsyncSynchronouslyWrittenCount();
+
+    /**
+     * Number of items the asynchronous writer failed to write.
+     */
+    long getAsyncFailedCount();
 }
@@ -17,19 +17,28 @@
 
 package com.haulmont.cuba.core;
 
+import com.haulmont.cuba.core.app.LockInfoCodec;
 import com.haulmont.cuba.core.app.LockManagerAPI;
 import com.haulmont.cuba.core.entity.LockDescriptor;
 import com.haulmont.cuba.core.entity.Server;
 import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.EntityStates;
 import com.haulmont.cuba.core.global.LockInfo;
+import com.haulmont.cuba.security.entity.User;
 import com.haulmont.cuba.testsupport.TestContainer;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.junit.jupiter.api.Test;
 
+import java.io.*;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class LockManagerTest {
 
@@ -73,5 +82,30 @@ public class LockManagerTest {
         lockInfo = lockManager.getLockInfo("sys$Server", entity.getId().toString());
         assertNull(lockInfo);
     }
-}
 
+    @Test
+    public void testLockInfoCodec() throws Exception {
+        LockInfoCodec codec = AppBeans.get(LockInfoCodec.class);
+        EntityStates entityStates = AppBeans.get(EntityStates.class);
+
+        User user = cont.metadata().create(User.class);
+        user.setLogin("locker");
+        user.setName("Lock Owner");
+        LockInfo lockInfo = new LockInfo(user, "sys$Server", "1", new Date());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        codec.write(lockInfo, new DataOutputStream(bytes));
+        LockInfo decoded = codec.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), codec.getVersion());
+
+        assertEquals(lockInfo.getId(), decoded.getId());
+        assertEquals("sys$Server", decoded.getEntityName());
+        assertEquals(lockInfo.getSince(), decoded.getSince());
+
+        User decodedUser = decoded.getUser();
+        assertEquals(user.getId(), decodedUser.getId());
+        assertEquals("locker", decodedUser.getLogin());
+        assertEquals("Lock Owner", decodedUser.getName());
+        assertFalse(entityStates.isNew(decodedUser));
+        assertTrue(entityStates.isDetached(decodedUser));
+    }
+}
@@ -18,7 +18,9 @@ package com.haulmont.cuba.core;
 
 import com.google.common.base.Predicate;
 import com.google.common.collect.Iterables;
+import com.haulmont.cuba.core.global.AppBeans;
 import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.TransformedQueryCache;
 import com.haulmont.cuba.security.entity.Group;
 import com.haulmont.cuba.security.entity.Role;
 import com.haulmont.cuba.security.entity.RoleType;
@@ -644,4 +646,33 @@ public class QueryTest {
             tx.end();
         }
     }
+
+    @Test
+    public void testTransformedQueryCache() {
+        TransformedQueryCache cache = AppBeans.get(TransformedQueryCache.class);
+        String queryString = "select u from sec$User u where u.name like :name and u.id not in :ids";
+
+        try (Transaction tx = cont.persistence().createTransaction()) {
+            EntityManager em = cont.persistence().getEntityManager();
+
+            long hits = cache.getStats().hitCount();
+            for (int i = 0; i < 2; i++) {
+                TypedQuery<User> query = em.createQuery(queryString, User.class);
+                query.setParameter("name", "(?i)%USER2");
+                query.setParameter("ids", Collections.emptyList());
+                List<User> list = query.getResultList();
+                assertEquals(1, list.size());
+                assertEquals(user2Id, list.get(0).getId());
+            }
+            assertEquals(hits + 1, cache.getStats().hitCount());
+
+            // a non-empty collection produces a different query
+            TypedQuery<User> query = em.createQuery(queryString, User.class);
+            query.setParameter("name", "(?i)%USER2");
+            query.setParameter("ids", Collections.singletonList(user2Id));
+            assertTrue(query.getResultList().isEmpty());
+
+            tx.commit();
+        }
+    }
 }
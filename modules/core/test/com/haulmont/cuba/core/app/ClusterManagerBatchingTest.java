@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.haulmont.cuba.core.app;
+
+import com.haulmont.cuba.core.sys.serialization.SerializationSupport;
+import org.jgroups.JChannel;
+import org.jgroups.Message;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClusterManagerBatchingTest {
+
+    private ClusterMessageCodecs codecs;
+    private ClusterManager clusterManager;
+    private List<byte[]> sent = new ArrayList<>();
+    private int batchMaxSize = 1000;
+    private boolean codecsEnabled = true;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        codecs = new ClusterMessageCodecs();
+        codecs.register(new ValueMessageCodec());
+        codecs.register(new StateMessageCodec());
+
+        clusterManager = new ClusterManager() {
+            @Override
+            protected void sendToChannel(Message message) {
+                sent.add(message.getBuffer());
+            }
+        };
+        clusterManager.codecs = codecs;
+        clusterManager.clusterConfig = (ClusterConfig) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{ClusterConfig.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getMessageBatchMaxSize":
+                            return batchMaxSize;
+                        case "getClusterMessageSendingThreadPoolSize":
+                            return 1;
+                        case "getClusterMessageSendingQueueCapacity":
+                            return Integer.MAX_VALUE;
+                        case "getMessageCodecsEnabled":
+                            return codecsEnabled;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        clusterManager.init();
+        clusterManager.channel = new JChannel(false);
+        // messages are collected until flushPendingMessages() is called by the test
+        clusterManager.batchSender = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        clusterManager.batchSender.shutdown();
+        clusterManager.executor.shutdown();
+    }
+
+    @Test
+    public void testMessagesAreSentInBatch() {
+        clusterManager.send(new ValueMessage("first", 1));
+        clusterManager.send(new ValueMessage("second", 2));
+        clusterManager.send(new ValueMessage("third", 3));
+        assertTrue(sent.isEmpty());
+        assertEquals(3, clusterManager.getMessagesCount());
+
+        clusterManager.flushPendingMessages();
+
+        assertEquals(1, sent.size());
+        assertEquals(0, clusterManager.getMessagesCount());
+        assertEquals(1, clusterManager.batchStat.batches.sum());
+        assertEquals(3, clusterManager.batchStat.batchedMessages.sum());
+
+        List<Serializable> messages = decodeBatch(sent.get(0));
+        assertEquals(3, messages.size());
+        assertEquals(1, ((ValueMessage) messages.get(0)).value);
+        assertEquals(3, ((ValueMessage) messages.get(2)).value);
+    }
+
+    @Test
+    public void testCoalescingMessagesAreSentOnce() {
+        clusterManager.send(new StateMessage("a", 1));
+        clusterManager.send(new StateMessage("b", 1));
+        clusterManager.send(new StateMessage("a", 2));
+        clusterManager.send(new ValueMessage("other", 0));
+        clusterManager.send(new StateMessage("a", 3));
+
+        clusterManager.flushPendingMessages();
+
+        assertEquals(1, sent.size());
+        assertEquals(2, clusterManager.batchStat.coalescedMessages.sum());
+
+        List<Serializable> messages = decodeBatch(sent.get(0));
+        assertEquals(3, messages.size());
+        assertEquals("b", ((StateMessage) messages.get(0)).key);
+        assertTrue(messages.get(1) instanceof ValueMessage);
+        // the last state is moved to the end
+        assertEquals("a", ((StateMessage) messages.get(2)).key);
+        assertEquals(3, ((StateMessage) messages.get(2)).state);
+    }
+
+    @Test
+    public void testBatchesAreSplitByMaxSize() {
+        batchMaxSize = 2;
+        for (int i = 0; i < 5; i++) {
+            clusterManager.send(new ValueMessage("message", i));
+        }
+
+        clusterManager.flushPendingMessages();
+
+        assertEquals(3, sent.size());
+        assertEquals(2, decodeBatch(sent.get(0)).size());
+        assertEquals(2, decodeBatch(sent.get(1)).size());
+        // a single message is sent without a batch
+        Serializable last = codecs.decode(sent.get(2));
+        assertEquals(4, ((ValueMessage) last).value);
+        assertEquals(2, clusterManager.batchStat.batches.sum());
+    }
+
+    @Test
+    public void testSyncSendingFlushesPendingMessages() {
+        clusterManager.send(new ValueMessage("first", 1));
+        clusterManager.send(new ValueMessage("second", 2));
+
+        clusterManager.sendSync(new ValueMessage("sync", 3));
+
+        assertEquals(2, sent.size());
+        assertEquals(2, decodeBatch(sent.get(0)).size());
+        assertEquals(3, ((ValueMessage) codecs.decode(sent.get(1))).value);
+    }
+
+    @Test
+    public void testMessagesAreSerializedIfCodecsDisabled() {
+        codecsEnabled = false;
+
+        clusterManager.sendSync(new ValueMessage("sync", 3));
+
+        assertEquals(1, sent.size());
+        // readable by nodes having no codecs
+        Object message = SerializationSupport.deserialize(sent.get(0));
+        assertEquals(3, ((ValueMessage) message).value);
+    }
+
+    private List<Serializable> decodeBatch(byte[] bytes) {
+        ClusterManager.MessageBatch batch = (ClusterManager.MessageBatch) codecs.decode(bytes);
+        return batch.messages.stream()
+                .map(codecs::decode)
+                .collect(Collectors.toList());
+    }
+
+    public static class ValueMessage implements Serializable {
+        private final String name;
+        private final int value;
+
+        public ValueMessage(String name, int value) {
+            this.name = name;
+            this.value = value;
+        }
+    }
+
+    public static class ValueMessageCodec implements ClusterMessageCodec<ValueMessage> {
+
+        @Override
+        public Class<ValueMessage> getMessageClass() {
+            return ValueMessage.class;
+        }
+
+        @Override
+        public int getTypeId() {
+            return 1000;
+        }
+
+        @Override
+        public int getVersion() {
+            return 0;
+        }
+
+        @Override
+        public void write(ValueMessage message, DataOutput out) throws IOException {
+            out.writeUTF(message.name);
+            out.writeInt(message.value);
+        }
+
+        @Override
+        public ValueMessage read(DataInput in, int version) throws IOException {
+            return new ValueMessage(in.readUTF(), in.readInt());
+        }
+    }
+
+    public static class StateMessage implements CoalescingClusterMessage {
+        private final String key;
+        private final int state;
+
+        public StateMessage(String key, int state) {
+            this.key = key;
+            this.state = state;
+        }
+
+        @Override
+        public Object getCoalescingKey() {
+            return key;
+        }
+    }
+
+    public static class StateMessageCodec implements ClusterMessageCodec<StateMessage> {
+
+        @Override
+        public Class<StateMessage> getMessageClass() {
+            return StateMessage.class;
+        }
+
+        @Override
+        public int getTypeId() {
+            return 1001;
+        }
+
+        @Override
+        public int getVersion() {
+            return 0;
+        }
+
+        @Override
+        public void write(StateMessage message, DataOutput out) throws IOException {
+            out.writeUTF(message.key);
+            out.writeInt(message.state);
+        }
+
+        @Override
+        public StateMessage read(DataInput in, int version) throws IOException {
+            return new StateMessage(in.readUTF(), in.readInt());
+        }
+    }
+}
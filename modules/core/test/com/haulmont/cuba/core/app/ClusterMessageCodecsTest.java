@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.app;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClusterMessageCodecsTest {
+
+    private ClusterMessageCodecs codecs;
+
+    @BeforeEach
+    public void setUp() {
+        codecs = new ClusterMessageCodecs();
+        codecs.register(new ClusterManager.MessageBatchCodec());
+        codecs.register(new TestMessageCodec());
+    }
+
+    @Test
+    public void testEncodeDecode() {
+        byte[] bytes = codecs.encode(new TestMessage("abc", 42));
+        assertEquals(5 + 2 + 3 + 4, bytes.length);
+
+        TestMessage message = (TestMessage) codecs.decode(bytes);
+        assertEquals("abc", message.name);
+        assertEquals(42, message.value);
+    }
+
+    @Test
+    public void testBatch() {
+        byte[] first = codecs.encode(new TestMessage("first", 1));
+        byte[] second = codecs.encode(new TestMessage("second", 2));
+
+        byte[] bytes = codecs.encode(new ClusterManager.MessageBatch(Arrays.asList(first, second)));
+
+        ClusterManager.MessageBatch batch = (ClusterManager.MessageBatch) codecs.decode(bytes);
+        assertEquals(2, batch.messages.size());
+        assertEquals("second", ((TestMessage) codecs.decode(batch.messages.get(1))).name);
+    }
+
+    @Test
+    public void testDuplicateTypeId() {
+        assertThrows(IllegalStateException.class, () -> codecs.register(new TestMessageCodec() {
+            @Override
+            public int getVersion() {
+                return 1;
+            }
+        }));
+    }
+
+    public static class TestMessage implements Serializable {
+        private final String name;
+        private final int value;
+
+        public TestMessage(String name, int value) {
+            this.name = name;
+            this.value = value;
+        }
+    }
+
+    public static class TestMessageCodec implements ClusterMessageCodec<TestMessage> {
+
+        @Override
+        public Class<TestMessage> getMessageClass() {
+            return TestMessage.class;
+        }
+
+        @Override
+        public int getTypeId() {
+            return 1000;
+        }
+
+        @Override
+        public int getVersion() {
+            return 0;
+        }
+
+        @Override
+        public void write(TestMessage message, DataOutput out) throws IOException {
+            out.writeUTF(message.name);
+            out.writeInt(message.value);
+        }
+
+        @Override
+        public TestMessage read(DataInput in, int version) throws IOException {
+            return new TestMessage(in.readUTF(), in.readInt());
+        }
+    }
+}
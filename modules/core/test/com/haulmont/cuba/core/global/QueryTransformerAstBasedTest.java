@@ -19,14 +19,20 @@ package com.haulmont.cuba.core.global;
 
 import com.haulmont.cuba.core.sys.jpql.DomainModel;
 import com.haulmont.cuba.core.sys.jpql.JpqlSyntaxException;
+import com.haulmont.cuba.core.sys.jpql.QueryTreeCache;
+import com.haulmont.cuba.core.sys.jpql.TreeToQuery;
 import com.haulmont.cuba.core.sys.jpql.model.EntityBuilder;
 import com.haulmont.cuba.core.sys.jpql.model.JpqlEntityModel;
 import com.haulmont.cuba.core.sys.jpql.model.JpqlEntityModelImpl;
 import com.haulmont.cuba.core.sys.jpql.transform.QueryTransformerAstBased;
+import com.haulmont.cuba.core.sys.jpql.tree.SelectedItemNode;
 import org.antlr.runtime.RecognitionException;
+import org.antlr.runtime.tree.TreeVisitor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Set;
 
@@ -1407,4 +1413,52 @@ public class QueryTransformerAstBasedTest {
                 res);
 
     }
+
+    @Test
+    public void getResult_cachedTreeNotModified() {
+        EntityBuilder builder = new EntityBuilder();
+        builder.startNewEntity("Player");
+        builder.addStringAttribute("name");
+        builder.addStringAttribute("nickname");
+        JpqlEntityModel playerEntity = builder.produce();
+        DomainModel model = new DomainModel(playerEntity);
+
+        String query = "select p from Player p where p.name = :name";
+
+        QueryTransformerAstBased transformer = new QueryTransformerAstBased(model, query);
+        transformer.addWhere("{E}.nickname = :nickname");
+        transformer.replaceWithCount();
+        assertEquals("select count(p) from Player p where (p.name = :name) and (p.nickname = :nickname)",
+                transformer.getResult());
+
+        transformer = new QueryTransformerAstBased(model, query);
+        assertEquals(query, transformer.getResult());
+
+        QueryParserAstBased parser = new QueryParserAstBased(model, query);
+        assertEquals(Collections.singleton("name"), parser.getParamNames());
+        assertEquals(Collections.singletonList("p"), parser.getSelectedExpressionsList());
+    }
+
+    @Test
+    public void getResult_selectedItemOfCachedTree() {
+        EntityBuilder builder = new EntityBuilder();
+        builder.startNewEntity("Player");
+        builder.addStringAttribute("name");
+        builder.addStringAttribute("nickname");
+        JpqlEntityModel playerEntity = builder.produce();
+        DomainModel model = new DomainModel(playerEntity);
+
+        String query = "select p.name, p.nickname from Player p";
+
+        SelectedItemNode secondItem = QueryTreeCache.get(model, query).getAstSelectedNodes().skip(1).findFirst().get();
+        TreeToQuery toQuery = new TreeToQuery();
+        new TreeVisitor().visit(secondItem, toQuery);
+        assertEquals("p.nickname", toQuery.getQueryString().trim());
+
+        QueryParserAstBased parser = new QueryParserAstBased(model, query);
+        assertEquals(Arrays.asList("p.name", "p.nickname"), parser.getSelectedExpressionsList());
+
+        QueryTransformerAstBased transformer = new QueryTransformerAstBased(model, query);
+        assertEquals(query, transformer.getResult());
+    }
 }
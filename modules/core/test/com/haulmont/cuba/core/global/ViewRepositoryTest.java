@@ -26,9 +26,7 @@ import org.junit.jupiter.api.Test;
 import java.io.InputStream;
 import java.util.Collection;
 
-import static org.junit.jupiter.api.Assertions.assertFalse;
-import static org.junit.jupiter.api.Assertions.assertNotNull;
-import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class ViewRepositoryTest {
 
@@ -114,4 +112,25 @@ public class ViewRepositoryTest {
 
         assertNotNull(groupView.getProperty("constraints").getView());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testModifyFoundView() {
+        View view = repository.getView(User.class, "test");
+        assertFalse(view.isFrozen());
+        view.addProperty("email");
+        assertNotNull(view.getProperty("email"));
+
+        View otherView = repository.getView(User.class, "test");
+        assertNotSame(view, otherView);
+        assertNull(otherView.getProperty("email"));
+
+        View userRolesView = otherView.getProperty("userRoles").getView();
+        assertFalse(userRolesView.isFrozen());
+        assertNull(userRolesView.getProperty("user"));
+        userRolesView.addProperty("user");
+        assertNotNull(otherView.getProperty("userRoles").getView().getProperty("user"));
+
+        View anotherView = repository.getView(User.class, "test");
+        assertNull(anotherView.getProperty("userRoles").getView().getProperty("user"));
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.sys.entitycache;
+
+import com.google.common.collect.Sets;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StandardQueryCacheTest {
+
+    private StandardQueryCache queryCache;
+
+    @BeforeEach
+    public void setUp() {
+        queryCache = new StandardQueryCache();
+        queryCache.queryCacheConfig = new QueryCacheConfig() {
+            @Override
+            public boolean getQueryCacheEnabled() {
+                return true;
+            }
+
+            @Override
+            public int getQueryCacheMaxSize() {
+                return 2;
+            }
+        };
+        queryCache.init();
+    }
+
+    @Test
+    public void testInvalidateById() {
+        QueryKey key = createKey("select u from sec$User u");
+        queryCache.put(key, createResult("sec$User", "sec$Group"));
+
+        assertSame(key, queryCache.findQueryKeyById(key.getId()));
+        assertSame(key, queryCache.invalidate(key.getId()));
+
+        assertEquals(0, queryCache.size());
+        assertNull(queryCache.findQueryKeyById(key.getId()));
+        assertTrue(queryCache.typeIndex.isEmpty());
+    }
+
+    @Test
+    public void testInvalidateByType() {
+        QueryKey userKey = createKey("select u from sec$User u");
+        QueryKey groupKey = createKey("select g from sec$Group g");
+        queryCache.put(userKey, createResult("sec$User", "sec$Group"));
+        queryCache.put(groupKey, createResult("sec$Group"));
+
+        queryCache.invalidate("sec$User");
+
+        assertNull(queryCache.get(userKey));
+        assertNotNull(queryCache.get(groupKey));
+        assertFalse(queryCache.typeIndex.containsKey("sec$User"));
+        assertEquals(Collections.singleton(groupKey), queryCache.typeIndex.get("sec$Group"));
+    }
+
+    @Test
+    public void testIndexesFollowEviction() {
+        for (int i = 0; i < 10; i++) {
+            queryCache.put(createKey("select u from sec$User u where u.id = " + i), createResult("sec$User"));
+        }
+
+        assertTrue(queryCache.size() <= 2);
+        assertTrue(queryCache.getStats().getEvictionCount() >= 8);
+        assertEquals(queryCache.size(), queryCache.idIndex.size());
+        assertEquals(queryCache.size(), queryCache.typeIndex.get("sec$User").size());
+        for (QueryKey key : queryCache.typeIndex.get("sec$User")) {
+            assertNotNull(queryCache.get(key));
+        }
+    }
+
+    @Test
+    public void testPutEqualKey() {
+        QueryKey key = createKey("select u from sec$User u");
+        QueryKey equalKey = createKey("select u from sec$User u");
+        queryCache.put(key, createResult("sec$User"));
+        queryCache.put(equalKey, createResult("sec$Group"));
+
+        assertEquals(1, queryCache.size());
+        assertNull(queryCache.findQueryKeyById(key.getId()));
+        assertSame(equalKey, queryCache.findQueryKeyById(equalKey.getId()));
+        assertFalse(queryCache.typeIndex.containsKey("sec$User"));
+    }
+
+    private QueryKey createKey(String queryString) {
+        return new QueryKey(queryString, 0, 0, true, false, Collections.emptyMap(), null);
+    }
+
+    private QueryResult createResult(String type, String... relatedTypes) {
+        Set<String> types = Sets.newHashSet(relatedTypes);
+        types.add(type);
+        return new QueryResult(Collections.emptyList(), type, types);
+    }
+}
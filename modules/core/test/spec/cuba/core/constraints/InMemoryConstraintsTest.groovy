@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.constraints
+
+import com.haulmont.cuba.core.PersistenceSecurity
+import com.haulmont.cuba.core.app.MiddlewareStatisticsAccumulator
+import com.haulmont.cuba.core.entity.Entity
+import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.global.UserSessionSource
+import com.haulmont.cuba.security.app.group.AccessConstraintsBuilder
+import com.haulmont.cuba.security.entity.EntityOp
+import com.haulmont.cuba.security.entity.User
+import com.haulmont.cuba.security.group.SetOfAccessConstraints
+import com.haulmont.cuba.testsupport.TestContainer
+import org.junit.ClassRule
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.util.function.Predicate
+
+class InMemoryConstraintsTest extends Specification {
+
+    @Shared @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    private PersistenceSecurity security
+    private MiddlewareStatisticsAccumulator accumulator
+    private SetOfAccessConstraints originalConstraints
+
+    void setup() {
+        security = AppBeans.get(PersistenceSecurity)
+        accumulator = AppBeans.get(MiddlewareStatisticsAccumulator)
+        accumulator.reset()
+
+        def userSession = AppBeans.get(UserSessionSource).userSession
+        originalConstraints = userSession.constraints
+        userSession.constraints = AccessConstraintsBuilder.create()
+                .withGroovy(User, EntityOp.READ, "{E}.login.startsWith('a')")
+                .withInMemory(User, EntityOp.READ, { User u -> u.name != 'hidden' } as Predicate)
+                .build()
+    }
+
+    void cleanup() {
+        AppBeans.get(UserSessionSource).userSession.constraints = originalConstraints
+    }
+
+    def "collection is filtered by compiled constraint scripts and predicates"() {
+        List<Entity> users = [
+                createUser('a1', 'visible'),
+                createUser('b1', 'visible'),
+                createUser('a2', 'hidden'),
+                createUser('a3', 'visible')
+        ]
+
+        when:
+        def filtered = security.filterByConstraints(users)
+
+        then:
+        filtered
+        users*.login == ['a1', 'a3']
+
+        accumulator.inMemoryConstraintChecksCount == 7
+        def statistics = accumulator.printInMemoryConstraintStatistics()
+        statistics.contains("sec\$User: {E}.login.startsWith('a'): checks=4")
+    }
+
+    def "failing constraint script filters entities out"() {
+        AppBeans.get(UserSessionSource).userSession.constraints = AccessConstraintsBuilder.create()
+                .withGroovy(User, EntityOp.READ, "{E}.unknownProperty.startsWith('a')")
+                .build()
+
+        List<Entity> users = [createUser('a1', 'visible')]
+
+        when:
+        security.filterByConstraints(users)
+
+        then:
+        users.isEmpty()
+    }
+
+    def "variables assigned by constraint script are not seen for the next entity"() {
+        AppBeans.get(UserSessionSource).userSession.constraints = AccessConstraintsBuilder.create()
+                .withGroovy(User, EntityOp.READ, "def first = !binding.hasVariable('checked'); checked = {E}; first")
+                .build()
+
+        List<Entity> users = [createUser('a1', 'visible'), createUser('a2', 'visible')]
+
+        when:
+        security.filterByConstraints(users)
+
+        then:
+        users*.login == ['a1', 'a2']
+    }
+
+    def "single entity is checked by the same constraints"() {
+        expect:
+        !security.filterByConstraints((Entity) createUser('a1', 'visible'))
+        security.filterByConstraints((Entity) createUser('b1', 'visible'))
+    }
+
+    private User createUser(String login, String name) {
+        def user = cont.metadata().create(User)
+        user.login = login
+        user.name = name
+        return user
+    }
+}
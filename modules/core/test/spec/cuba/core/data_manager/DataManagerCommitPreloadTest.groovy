@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.data_manager
+
+import com.haulmont.cuba.core.app.MiddlewareStatisticsAccumulator
+import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.global.CommitContext
+import com.haulmont.cuba.core.global.DataManager
+import com.haulmont.cuba.core.global.LoadContext
+import com.haulmont.cuba.core.sys.AppContext
+import com.haulmont.cuba.testmodel.sales.Customer
+import com.haulmont.cuba.testsupport.TestContainer
+import org.junit.ClassRule
+import spock.lang.Shared
+import spock.lang.Specification
+
+class DataManagerCommitPreloadTest extends Specification {
+
+    @Shared @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    private DataManager dataManager
+    private MiddlewareStatisticsAccumulator accumulator
+    private List<Customer> customers
+
+    void setup() {
+        dataManager = AppBeans.get(DataManager)
+        accumulator = AppBeans.get(MiddlewareStatisticsAccumulator)
+
+        customers = (1..5).collect { dataManager.commit(new Customer(name: "customer-$it")) }
+        accumulator.reset()
+    }
+
+    void cleanup() {
+        AppContext.setProperty('cuba.commitPreloadBatchSize', null)
+        customers.each { cont.deleteRecord(it) }
+    }
+
+    def "detached instances are loaded by batches before merge"() {
+        AppContext.setProperty('cuba.commitPreloadBatchSize', '2')
+
+        customers.each { it.name = it.name + '-changed' }
+
+        when:
+        def committed = dataManager.commit(new CommitContext(customers))
+
+        then:
+        accumulator.commitPreloadQueriesCount == 3
+        accumulator.commitPreloadSavedRoundTripsCount == 2
+
+        committed.size() == 5
+        committed.every { it.name.endsWith('-changed') }
+        reload(customers[4]).name == 'customer-5-changed'
+    }
+
+    def "preloading can be turned off"() {
+        AppContext.setProperty('cuba.commitPreloadBatchSize', '0')
+
+        customers.each { it.name = it.name + '-changed' }
+
+        when:
+        dataManager.commit(new CommitContext(customers))
+
+        then:
+        accumulator.commitPreloadQueriesCount == 0
+        reload(customers[0]).name == 'customer-1-changed'
+    }
+
+    def "discarded commit of detached instances"() {
+        customers.each { it.name = it.name + '-changed' }
+
+        def context = new CommitContext(customers)
+        context.discardCommitted = true
+
+        when:
+        def committed = dataManager.commit(context)
+
+        then:
+        committed.isEmpty()
+        accumulator.commitPreloadQueriesCount == 1
+        customers.every { reload(it).name.endsWith('-changed') }
+    }
+
+    def "removed instances are preloaded too"() {
+        def context = new CommitContext()
+        customers.each { context.addInstanceToRemove(it) }
+
+        when:
+        dataManager.commit(context)
+
+        then:
+        accumulator.commitPreloadQueriesCount == 1
+        accumulator.commitPreloadSavedRoundTripsCount == 4
+        customers.every { reload(it) == null }
+    }
+
+    private Customer reload(Customer customer) {
+        dataManager.load(LoadContext.create(Customer).setId(customer.id))
+    }
+}
@@ -17,6 +17,7 @@
 package spec.cuba.core.data_manager
 
 
+import com.haulmont.cuba.core.entity.Entity
 import com.haulmont.cuba.core.entity.contracts.Id
 import com.haulmont.cuba.core.global.*
 import com.haulmont.cuba.core.sys.AppContext
@@ -408,4 +409,30 @@ class DataManagerTest extends Specification {
 
         users.isEmpty()
     }
+
+    def "stream loads entities by chunks in the query order"() {
+
+        def products = (1..5).collect { new Product(name: "stream-p$it", quantity: it) }
+        dataManager.commit(products as Entity[])
+
+        AppContext.setProperty('cuba.dataManagerStreamChunkSize', '2')
+
+        when:
+
+        List<Product> loaded = []
+        def loadContext = LoadContext.create(Product)
+                .setQuery(LoadContext.createQuery('select p from sales1$Product p where p.name like :name order by p.quantity desc')
+                    .setParameter('name', 'stream-p%'))
+        dataManager.stream(loadContext) { loaded << it }
+
+        then:
+
+        loaded == products.reverse()
+        loaded.every { AppBeans.get(EntityStates).isDetached(it) }
+
+        cleanup:
+
+        AppContext.setProperty('cuba.dataManagerStreamChunkSize', null)
+        cont.deleteRecord(products as Entity[])
+    }
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package spec.cuba.core.entity_fetcher
+
+import com.haulmont.cuba.core.Persistence
+import com.haulmont.cuba.core.Transaction
+import com.haulmont.cuba.core.app.MiddlewareStatisticsAccumulator
+import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.global.DataManager
+import com.haulmont.cuba.core.global.PersistenceHelper
+import com.haulmont.cuba.core.global.View
+import com.haulmont.cuba.core.sys.AppContext
+import com.haulmont.cuba.core.sys.EntityFetcher
+import com.haulmont.cuba.testmodel.sales.Customer
+import com.haulmont.cuba.testmodel.sales.Order
+import com.haulmont.cuba.testsupport.TestContainer
+import org.junit.ClassRule
+import spock.lang.Shared
+import spock.lang.Specification
+
+class EntityFetcherBatchTest extends Specification {
+
+    @Shared @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    private Persistence persistence
+    private EntityFetcher entityFetcher
+    private MiddlewareStatisticsAccumulator accumulator
+    private List<Customer> customers
+    private View orderView
+
+    void setup() {
+        persistence = cont.persistence()
+        entityFetcher = AppBeans.get(EntityFetcher)
+        accumulator = AppBeans.get(MiddlewareStatisticsAccumulator)
+
+        def dataManager = AppBeans.get(DataManager)
+        customers = (1..3).collect { dataManager.commit(new Customer(name: "customer-$it")) }
+
+        orderView = new View(Order)
+                .addProperty('number')
+                .addProperty('customer', new View(Customer).addProperty('name'))
+
+        accumulator.reset()
+    }
+
+    void cleanup() {
+        customers.each { cont.deleteRecord(it) }
+    }
+
+    def "detached references of several instances are loaded by one query"() {
+        def orders = customers.collect { new Order(number: "order-$it.name", customer: it) }
+
+        when:
+        boolean managed = persistence.callInTransaction { em ->
+            entityFetcher.fetch(orders, orderView, false)
+            orders.every { PersistenceHelper.isManaged(it.customer) }
+        }
+
+        then:
+        managed
+        orders.collect { it.customer.name } == ['customer-1', 'customer-2', 'customer-3']
+        accumulator.detachedReferencesBatchQueriesCount == 1
+        accumulator.detachedReferencesSavedRoundTripsCount == 2
+    }
+
+    def "batch loading neither flushes nor refreshes managed instances"() {
+        def orders = customers.collect { new Order(number: "order-$it.name", customer: it) }
+        def names
+
+        when:
+        Transaction tx = persistence.createTransaction()
+        try {
+            Customer changed = persistence.entityManager.find(Customer, customers[0].id)
+            changed.name = 'changed'
+
+            entityFetcher.fetch(orders, orderView, false)
+            names = orders.collect { it.customer.name }
+        } finally {
+            tx.end()
+        }
+
+        then:
+        names == ['changed', 'customer-2', 'customer-3']
+        accumulator.detachedReferencesBatchQueriesCount == 1
+        reload(customers[0]).name == 'customer-1'
+    }
+
+    def "batch loading can be turned off"() {
+        AppContext.setProperty('cuba.detachedReferenceFetchBatchSize', '1')
+        def orders = customers.collect { new Order(number: "order-$it.name", customer: it) }
+
+        when:
+        persistence.runInTransaction { em ->
+            entityFetcher.fetch(orders, orderView, false)
+        }
+
+        then:
+        orders.collect { it.customer.name } == ['customer-1', 'customer-2', 'customer-3']
+        accumulator.detachedReferencesBatchQueriesCount == 0
+
+        cleanup:
+        AppContext.setProperty('cuba.detachedReferenceFetchBatchSize', null)
+    }
+
+    private Customer reload(Customer customer) {
+        persistence.callInTransaction { em -> em.find(Customer, customer.id) }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.entity_log
+
+import com.haulmont.cuba.core.EntityManager
+import com.haulmont.cuba.security.entity.EntityLogItem
+import com.haulmont.cuba.testmodel.entity_log.EntityLogA
+
+class EntityLogFlushTest extends AbstractEntityLogTest {
+
+    private static final int COUNT = 50
+
+    void setup() {
+        clearTables("SEC_LOGGED_ATTR", "SEC_LOGGED_ENTITY", "SEC_ENTITY_LOG", "TEST_ENTITY_LOG_A")
+
+        withTransaction { EntityManager em ->
+            saveEntityLogAutoConfFor(em, 'test_EntityLogA', 'name')
+        }
+
+        initEntityLogAPI()
+    }
+
+    void cleanup() {
+        clearTables("SEC_LOGGED_ATTR", "SEC_LOGGED_ENTITY", "SEC_ENTITY_LOG", "TEST_ENTITY_LOG_A")
+    }
+
+    def "each of many entities changed in a transaction gets its own item"() {
+        List<UUID> ids = []
+
+        when:
+        withTransaction { EntityManager em ->
+            for (i in 1..COUNT) {
+                EntityLogA entity = cont.metadata().create(EntityLogA)
+                entity.setName("name-$i")
+                em.persist(entity)
+                ids << entity.id
+            }
+        }
+
+        then:
+        ids.every { id ->
+            def items = getEntityLogItems('test_EntityLogA', id)
+            items.size() == 1 && items[0].type == EntityLogItem.Type.CREATE
+        }
+        loggedValueMatches(getLatestEntityLogItem('test_EntityLogA', ids[9]), 'name', 'name-10')
+
+        when:
+        withTransaction { EntityManager em ->
+            em.createQuery('select e from test_EntityLogA e', EntityLogA).resultList.each {
+                it.setName(it.name + '-modified')
+            }
+        }
+
+        then:
+        ids.every { id -> getEntityLogItems('test_EntityLogA', id).size() == 2 }
+
+        def item = getLatestEntityLogItem('test_EntityLogA', ids[9])
+        item.type == EntityLogItem.Type.MODIFY
+        loggedOldValueMatches(item, 'name', 'name-10')
+        loggedValueMatches(item, 'name', 'name-10-modified')
+    }
+}
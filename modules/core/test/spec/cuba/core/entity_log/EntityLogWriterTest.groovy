@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package spec.cuba.core.entity_log
+
+import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.sys.AppContext
+import com.haulmont.cuba.security.app.EntityLogWriter
+import com.haulmont.cuba.security.entity.EntityLogItem
+import com.haulmont.cuba.security.entity.User
+
+class EntityLogWriterTest extends AbstractEntityLogTest {
+
+    private EntityLogWriter writer
+
+    void setup() {
+        clearTables("SEC_ENTITY_LOG")
+        AppContext.setProperty('cuba.entityLog.asyncSpillEnabled', 'false')
+        AppContext.setProperty('cuba.entityLog.asyncBatchSize', '10')
+
+        writer = AppBeans.get(EntityLogWriter)
+        writer.start()
+    }
+
+    void cleanup() {
+        writer.stop()
+        AppContext.setProperty('cuba.entityLog.asyncSpillEnabled', null)
+        AppContext.setProperty('cuba.entityLog.asyncBatchSize', null)
+        clearTables("SEC_ENTITY_LOG")
+    }
+
+    def "queued items are written on stop"() {
+        def ids = (1..50).collect { UUID.randomUUID() }
+        long writtenCount = writer.writtenCount
+
+        when:
+        ids.collate(5).each { writer.write(it.collect { createItem(it) }) }
+        writer.stop()
+
+        then:
+        !writer.started
+        writer.queueSize == 0
+        writer.writtenCount - writtenCount == 50
+        ids.every { getEntityLogItems('test_EntityLogA', it).size() == 1 }
+    }
+
+    def "items are not accepted after stop"() {
+        def id = UUID.randomUUID()
+
+        when:
+        writer.stop()
+        writer.write([createItem(id)])
+
+        then: "the items are written synchronously"
+        writer.queueSize == 0
+        getEntityLogItems('test_EntityLogA', id).size() == 1
+    }
+
+    def "items of a failed batch are written one by one"() {
+        def ids = (1..5).collect { UUID.randomUUID() }
+        long writtenCount = writer.writtenCount
+        long failedCount = writer.failedCount
+
+        def items = ids.collect { createItem(it) }
+        // references a not existing user, so the transaction fails on commit
+        def user = cont.metadata().create(User)
+        items[2].user = user
+
+        when:
+        writer.write(items)
+        writer.stop()
+
+        then:
+        writer.failedCount - failedCount == 1
+        writer.writtenCount - writtenCount == 4
+        getEntityLogItems('test_EntityLogA', ids[2]).isEmpty()
+        [0, 1, 3, 4].every { getEntityLogItems('test_EntityLogA', ids[it]).size() == 1 }
+    }
+
+    private EntityLogItem createItem(UUID entityId) {
+        EntityLogItem item = cont.metadata().create(EntityLogItem)
+        item.type = EntityLogItem.Type.MODIFY
+        item.entity = 'test_EntityLogA'
+        item.eventTs = new Date()
+        item.objectEntityId = entityId
+        item
+    }
+}
@@ -5,9 +5,14 @@
 
 package spec.cuba.core.entity_serialization
 
+import com.haulmont.cuba.core.app.serialization.EntitySerialization
 import com.haulmont.cuba.core.app.serialization.EntitySerializationAPI
 import com.haulmont.cuba.core.app.serialization.EntitySerializationOption
 import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.global.View
+import com.haulmont.cuba.core.global.ViewRepository
+import com.haulmont.cuba.security.entity.Group
+import com.haulmont.cuba.security.entity.User
 import com.haulmont.cuba.testmodel.entity_serialization.Serialization_Order
 import com.haulmont.cuba.testmodel.entity_serialization.Serialization_OrderItem
 import com.haulmont.cuba.testsupport.TestContainer
@@ -94,4 +99,115 @@ class EntityJsonSerializationTest extends Specification {
         parsedObject.transientField == 'tf'
         parsedObject.valueFromMetaPropertyMethod == null
     }
+
+    def "entities written by JSON writer are read by streaming deserialization"() {
+        def orders = (1..3).collect {
+            def order = cont.metadata().create(Serialization_Order.class)
+            order.setNumber("order-$it")
+            order
+        }
+
+        when:
+
+        def stringWriter = new StringWriter()
+        def jsonWriter = entitySerializationAPI.createJsonWriter(stringWriter, null)
+        orders.each { jsonWriter.write(it) }
+        jsonWriter.close()
+
+        then:
+
+        jsonWriter.count == 3
+        stringWriter.toString() == entitySerializationAPI.toJson(orders)
+
+        when:
+
+        List<Serialization_Order> read = []
+        def count = entitySerializationAPI.entitiesFromJson(new StringReader(stringWriter.toString()), null, { read << it })
+
+        then:
+
+        count == 3
+        read*.id == orders*.id
+        read*.number == orders*.number
+    }
+
+    def "serialization options are applied with cached serializers"() {
+        def order = cont.metadata().create(Serialization_Order.class)
+        order.setNumber('order-1')
+
+        when:
+
+        def compact = entitySerializationAPI.toJson(order)
+        def pretty = entitySerializationAPI.toJson(order, null, EntitySerializationOption.PRETTY_PRINT)
+        def withNulls = entitySerializationAPI.toJson(order, null, EntitySerializationOption.SERIALIZE_NULLS)
+
+        then:
+
+        !compact.contains('\n')
+        pretty.contains('\n')
+        !compact.contains('null')
+        withNulls.contains('null')
+        entitySerializationAPI.toJson(order) == compact
+    }
+
+    def "repeated entities of a collection are compacted and restored as the same instances"() {
+        def orders = (1..3).collect { i ->
+            def order = cont.metadata().create(Serialization_Order.class)
+            order.setNumber("order-$i")
+            order.items = (1..2).collect { j ->
+                def item = cont.metadata().create(Serialization_OrderItem.class)
+                item.name = "item-$i-$j"
+                item.order = order
+                item
+            }
+            order
+        }
+        def sharedItem = orders[0].items[0]
+        orders[1..2].each { order -> order.items.each { it.relatedItem = sharedItem } }
+
+        when:
+
+        def json = entitySerializationAPI.toJson(orders, null, EntitySerializationOption.COMPACT_REPEATED_ENTITIES)
+
+        then: "the shared item is written in full only once"
+
+        def parsedOrders = new JsonSlurper().parseText(json)
+        parsedOrders[0].items[0].name == 'item-1-1'
+        parsedOrders[1].items[0].relatedItem.id == sharedItem.id.toString()
+        parsedOrders[1].items[0].relatedItem.name == null
+        parsedOrders[2].items[1].relatedItem.name == null
+
+        when:
+
+        List<Serialization_Order> restored = entitySerializationAPI.entitiesCollectionFromJson(json, null,
+                EntitySerializationOption.COMPACT_REPEATED_ENTITIES) as List
+
+        then: "references point to the restored instances"
+
+        restored*.number == ['order-1', 'order-2', 'order-3']
+        restored.every { order -> order.items.every { it.order.is(order) } }
+        restored[1..2].every { order -> order.items.every { it.relatedItem.is(restored[0].items[0]) } }
+        restored[0].items[0].name == 'item-1-1'
+    }
+
+    def "serializers are reused for views obtained from the repository"() {
+        def entitySerialization = (EntitySerialization) entitySerializationAPI
+        def viewRepository = AppBeans.get(ViewRepository)
+
+        def view1 = viewRepository.getView(User, View.LOCAL)
+        def view2 = viewRepository.getView(User, View.LOCAL)
+
+        expect:
+
+        !view1.is(view2)
+        entitySerialization.getGsonForSerialization(view1).is(entitySerialization.getGsonForSerialization(view2))
+
+        when: "the view is modified"
+
+        view2.addProperty('group', viewRepository.getView(Group, View.MINIMAL))
+
+        then:
+
+        !entitySerialization.getGsonForSerialization(view1).is(entitySerialization.getGsonForSerialization(view2))
+    }
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.entity_serialization
+
+import com.google.gson.GsonBuilder
+import com.haulmont.cuba.core.app.serialization.EntitySerialization
+import com.haulmont.cuba.core.app.serialization.EntitySerializationAPI
+import com.haulmont.cuba.core.app.serialization.EntitySerializationOption
+import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.testmodel.entity_serialization.Serialization_Order
+import com.haulmont.cuba.testmodel.entity_serialization.Serialization_OrderItem
+import com.haulmont.cuba.testsupport.TestContainer
+import org.junit.ClassRule
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import spock.lang.Ignore
+import spock.lang.Shared
+import spock.lang.Specification
+
+/**
+ * Compares the time of serializing a list of entities by the cached streaming serializer and by a new {@code Gson}
+ * instance building an intermediate tree of JSON elements, as the serialization worked before.
+ * Too slow for regular builds, remove {@code @Ignore} to run it.
+ */
+@Ignore
+class EntitySerializationBenchmarkTest extends Specification {
+
+    @Shared @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    private Logger log = LoggerFactory.getLogger(EntitySerializationBenchmarkTest)
+
+    private EntitySerialization entitySerialization
+
+    private List<Serialization_Order> orders
+
+    void setup() {
+        entitySerialization = (EntitySerialization) AppBeans.get(EntitySerializationAPI)
+
+        orders = (1..100).collect { i ->
+            def order = cont.metadata().create(Serialization_Order)
+            order.number = "order-$i"
+            order.items = (1..10).collect { j ->
+                def item = cont.metadata().create(Serialization_OrderItem)
+                item.name = "item-$i-$j"
+                item.order = order
+                item
+            }
+            order
+        }
+    }
+
+    def "serializing entities by streaming and tree serializers"() {
+
+        int count = 1_000
+        def options = [EntitySerializationOption.COMPACT_REPEATED_ENTITIES] as EntitySerializationOption[]
+
+        when:
+
+        // warm up
+        measure(100) { entitySerialization.toJson(orders, null, options) }
+
+        long streamingTime = measure(count) {
+            entitySerialization.toJson(orders, null, options)
+        }
+        long treeTime = measure(count) {
+            def gson = entitySerialization.createGsonForSerialization(null, options)
+            entitySerialization.context.remove()
+            def tree = gson.toJsonTree(orders)
+            new GsonBuilder().create().toJson(tree)
+        }
+
+        log.info("Serialized ${count} times ${orders.size()} orders: streaming ${streamingTime / 1_000_000}ms, " +
+                "tree ${treeTime / 1_000_000}ms")
+
+        then:
+
+        streamingTime < treeTime
+    }
+
+    private static long measure(int count, Closure action) {
+        long start = System.nanoTime()
+        for (i in 1..count) {
+            action()
+        }
+        return System.nanoTime() - start
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package spec.cuba.core.file_storage
+
+import com.haulmont.cuba.core.app.FileStorageAPI
+import com.haulmont.cuba.core.entity.FileDescriptor
+import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.testsupport.TestContainer
+import org.junit.ClassRule
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+
+class FileStorageOffsetTest extends Specification {
+
+    @Shared @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    private FileStorageAPI fileStorage
+    private FileDescriptor fd
+
+    void setup() {
+        fileStorage = AppBeans.get(FileStorageAPI)
+
+        fd = cont.metadata().create(FileDescriptor)
+        fd.name = 'offset.txt'
+        fd.extension = 'txt'
+        fd.createDate = new Date()
+        fileStorage.saveFile(fd, '0123456789'.getBytes(StandardCharsets.UTF_8))
+    }
+
+    void cleanup() {
+        fileStorage.removeFile(fd)
+    }
+
+    def "file is read from offset"() {
+        when:
+        def stream = fileStorage.openStream(fd, 4)
+
+        then: "local file can be transferred by its channel"
+        stream instanceof FileInputStream
+
+        stream.withCloseable { it.getText('UTF-8') } == '456789'
+    }
+
+    def "offset beyond the file gives empty stream"() {
+        expect:
+        fileStorage.openStream(fd, 20).withCloseable { it.bytes } == new byte[0]
+        fileStorage.openStream(fd, 0).withCloseable { it.getText('UTF-8') } == '0123456789'
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.import_export
+
+import com.haulmont.cuba.core.app.importexport.EntityImportExportAPI
+import com.haulmont.cuba.core.app.importexport.EntityImportView
+import com.haulmont.cuba.core.app.serialization.EntitySerializationAPI
+import com.haulmont.cuba.core.app.serialization.EntitySerializationOption
+import com.haulmont.cuba.core.entity.Entity
+import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.global.DataManager
+import com.haulmont.cuba.core.global.LoadContext
+import com.haulmont.cuba.core.global.View
+import com.haulmont.cuba.core.sys.AppContext
+import com.haulmont.cuba.testmodel.sales_1.OrderLine
+import com.haulmont.cuba.testmodel.sales_1.Product
+import com.haulmont.cuba.testsupport.TestContainer
+import org.junit.ClassRule
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+import java.util.zip.ZipInputStream
+
+class EntityExportStreamTest extends Specification {
+
+    @Shared @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    private DataManager dataManager
+    private EntityImportExportAPI entityImportExport
+    private EntitySerializationAPI entitySerialization
+    private List<Product> products
+
+    void setup() {
+        dataManager = AppBeans.get(DataManager)
+        entityImportExport = AppBeans.get(EntityImportExportAPI)
+        entitySerialization = AppBeans.get(EntitySerializationAPI)
+
+        products = (1..5).collect { new Product(name: "export-p$it", quantity: it) }
+        dataManager.commit(products as Entity[])
+
+        AppContext.setProperty('cuba.dataManagerStreamChunkSize', '2')
+    }
+
+    void cleanup() {
+        AppContext.setProperty('cuba.dataManagerStreamChunkSize', null)
+        cont.deleteRecord(products as Entity[])
+    }
+
+    def "export entities reloaded with view to JSON stream"() {
+
+        def outputStream = new ByteArrayOutputStream()
+
+        when:
+
+        entityImportExport.exportEntitiesToJSON(products, new View(Product).addProperty('name'), outputStream)
+
+        then:
+
+        def json = new String(outputStream.toByteArray(), StandardCharsets.UTF_8)
+        Collection<Product> exported = entitySerialization.entitiesCollectionFromJson(json, null,
+                EntitySerializationOption.COMPACT_REPEATED_ENTITIES)
+        exported.collect { it.name }.sort() == products.collect { it.name }
+        exported.every { it.quantity == null }
+    }
+
+    def "export entities loaded by context to deflated ZIP stream and import them"() {
+
+        def loadContext = LoadContext.create(Product)
+                .setQuery(LoadContext.createQuery('select p from sales1$Product p where p.name like :name')
+                    .setParameter('name', 'export-p%'))
+                .setView(View.LOCAL)
+        def outputStream = new ByteArrayOutputStream()
+
+        when:
+
+        entityImportExport.exportEntitiesToZIP(loadContext, outputStream, true)
+
+        then:
+
+        def zipInputStream = new ZipInputStream(new ByteArrayInputStream(outputStream.toByteArray()))
+        zipInputStream.nextEntry.name == 'entities.json'
+        zipInputStream.close()
+
+        when:
+
+        def imported = entityImportExport.importEntitiesFromZIP(outputStream.toByteArray(),
+                new EntityImportView(Product).addLocalProperties())
+
+        then:
+
+        imported.size() == 5
+        imported.collect { ((Product) it).quantity }.sort() == (1..5).toList()
+    }
+
+    def "repeated entities are compacted in the whole collection by ZIP export to bytes and per entity by stream export"() {
+
+        def product = products[0]
+        def lines = (1..2).collect { new OrderLine(quantity: it, product: product) }
+        def outputStream = new ByteArrayOutputStream()
+
+        when:
+
+        def bytesJson = readZipEntry(entityImportExport.exportEntitiesToZIP(lines))
+        entityImportExport.exportEntitiesToZIP(lines, null, outputStream, false)
+        def streamJson = readZipEntry(outputStream.toByteArray())
+
+        then:
+
+        bytesJson.count(product.name) == 1
+        streamJson.count(product.name) == 2
+
+        entitySerialization.entitiesCollectionFromJson(bytesJson, null,
+                EntitySerializationOption.COMPACT_REPEATED_ENTITIES).every { ((OrderLine) it).product == product }
+        entitySerialization.entitiesCollectionFromJson(streamJson, null,
+                EntitySerializationOption.COMPACT_REPEATED_ENTITIES).every { ((OrderLine) it).product == product }
+    }
+
+    private static String readZipEntry(byte[] zipBytes) {
+        def zipInputStream = new ZipInputStream(new ByteArrayInputStream(zipBytes))
+        try {
+            zipInputStream.nextEntry
+            return new String(zipInputStream.bytes, StandardCharsets.UTF_8)
+        } finally {
+            zipInputStream.close()
+        }
+    }
+}
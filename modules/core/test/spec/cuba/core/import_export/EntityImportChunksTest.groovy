@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.import_export
+
+import com.haulmont.bali.db.QueryRunner
+import com.haulmont.cuba.core.app.importexport.EntityImportException
+import com.haulmont.cuba.core.app.importexport.EntityImportExportAPI
+import com.haulmont.cuba.core.app.importexport.EntityImportView
+import com.haulmont.cuba.core.app.importexport.ReferenceImportBehaviour
+import com.haulmont.cuba.core.entity.Entity
+import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.global.DataManager
+import com.haulmont.cuba.core.global.LoadContext
+import com.haulmont.cuba.core.global.View
+import com.haulmont.cuba.core.sys.AppContext
+import com.haulmont.cuba.testmodel.primary_keys.CompositeKeyEntity
+import com.haulmont.cuba.testmodel.primary_keys.EntityKey
+import com.haulmont.cuba.testmodel.sales_1.OrderLine
+import com.haulmont.cuba.testmodel.sales_1.Product
+import com.haulmont.cuba.testsupport.TestContainer
+import org.junit.ClassRule
+import spock.lang.Shared
+import spock.lang.Specification
+
+class EntityImportChunksTest extends Specification {
+
+    @Shared @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    private DataManager dataManager
+    private EntityImportExportAPI entityImportExport
+    private List<Product> products
+
+    void setup() {
+        dataManager = AppBeans.get(DataManager)
+        entityImportExport = AppBeans.get(EntityImportExportAPI)
+
+        products = (1..2).collect { new Product(name: "import-p$it", quantity: it) }
+        dataManager.commit(products as Entity[])
+
+        AppContext.setProperty('cuba.entityImportCommitChunkSize', '2')
+        AppContext.setProperty('cuba.entityImportLoadBatchSize', '2')
+    }
+
+    void cleanup() {
+        AppContext.setProperty('cuba.entityImportCommitChunkSize', null)
+        AppContext.setProperty('cuba.entityImportLoadBatchSize', null)
+        cont.deleteRecord(products as Entity[])
+    }
+
+    def "import by chunks resolves existing entities and references"() {
+
+        def importView = new EntityImportView(OrderLine)
+                .addLocalProperties()
+                .addManyToOneProperty('product', ReferenceImportBehaviour.ERROR_ON_MISSING)
+
+        def lines = (1..5).collect {
+            new OrderLine(quantity: it, product: new Product(id: products[it % 2].id))
+        }
+
+        when: "new entities are imported"
+
+        def imported = entityImportExport.importEntities(lines, importView)
+
+        then:
+
+        imported.size() == 5
+        loadLines(lines).size() == 5
+        loadLines(lines).every { it.product == products[it.quantity % 2] }
+
+        when: "existing entities are imported"
+
+        lines.each { it.quantity = it.quantity + 10 }
+        entityImportExport.importEntities(lines, importView)
+
+        then:
+
+        loadLines(lines)*.quantity.sort() == (11..15).toList()
+
+        cleanup:
+
+        cont.deleteRecord(lines as Entity[])
+    }
+
+    def "import fails on missing reference"() {
+
+        def importView = new EntityImportView(OrderLine)
+                .addLocalProperties()
+                .addManyToOneProperty('product', ReferenceImportBehaviour.ERROR_ON_MISSING)
+
+        def line = new OrderLine(quantity: 1, product: new Product(id: UUID.randomUUID()))
+
+        when:
+
+        entityImportExport.importEntities([line], importView)
+
+        then:
+
+        thrown(EntityImportException)
+    }
+
+    def "missing references are ignored"() {
+
+        def importView = new EntityImportView(OrderLine)
+                .addLocalProperties()
+                .addManyToOneProperty('product', ReferenceImportBehaviour.IGNORE_MISSING)
+
+        def lines = [
+                new OrderLine(quantity: 1, product: new Product(id: products[0].id)),
+                new OrderLine(quantity: 2, product: new Product(id: UUID.randomUUID())),
+                new OrderLine(quantity: 3, product: new Product(id: products[1].id))
+        ]
+
+        when:
+
+        entityImportExport.importEntities(lines, importView)
+        def loaded = loadLines(lines).sort { it.quantity }
+
+        then:
+
+        loaded*.product == [products[0], null, products[1]]
+
+        cleanup:
+
+        cont.deleteRecord(lines as Entity[])
+    }
+
+    def "entities with composite key are imported"() {
+
+        def importView = new EntityImportView(CompositeKeyEntity)
+                .addLocalProperties()
+
+        def entities = (1..3).collect { createCompositeKeyEntity(it, "name-$it") }
+        entityImportExport.importEntities(entities, importView)
+
+        when: "existing entities are imported"
+
+        entityImportExport.importEntities((1..3).collect { createCompositeKeyEntity(it, "updated-$it") }, importView)
+
+        then:
+
+        entities.every {
+            dataManager.load(LoadContext.create(CompositeKeyEntity).setId(it.id)).name == "updated-${it.id.entityId}"
+        }
+
+        cleanup:
+
+        new QueryRunner(cont.persistence().getDataSource()).update('delete from TEST_COMPOSITE_KEY')
+    }
+
+    private CompositeKeyEntity createCompositeKeyEntity(long entityId, String name) {
+        def key = cont.metadata().create(EntityKey)
+        key.tenant = 1
+        key.entityId = entityId
+
+        def entity = cont.metadata().create(CompositeKeyEntity)
+        entity.id = key
+        entity.name = name
+        entity
+    }
+
+    private List<OrderLine> loadLines(List<OrderLine> lines) {
+        dataManager.loadList(LoadContext.create(OrderLine)
+                .setIds(lines*.id)
+                .setView(new View(OrderLine)
+                    .addProperty('quantity')
+                    .addProperty('product', new View(Product).addProperty('name'))))
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package spec.cuba.core.metadata
+
+import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.sys.AppContext
+import com.haulmont.cuba.core.sys.NumberIdCache
+import com.haulmont.cuba.core.sys.NumberIdSequence
+import com.haulmont.cuba.core.sys.SecurityContext
+import com.haulmont.cuba.testsupport.TestContainer
+import org.junit.ClassRule
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+class NumberIdCacheTest extends Specification {
+
+    @Shared @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    private static final String ENTITY_NAME = 'test$NotExistingNumberIdEntity'
+
+    private NumberIdCache numberIdCache
+    private TestSequence sequence
+
+    void setup() {
+        numberIdCache = AppBeans.get(NumberIdCache)
+        numberIdCache.reset()
+        sequence = new TestSequence()
+    }
+
+    void cleanup() {
+        numberIdCache.reset()
+        AppContext.setProperty('cuba.numberIdCacheSize', null)
+    }
+
+    def "ids generated concurrently are unique and ordered in each thread"() {
+        AppContext.setProperty('cuba.numberIdCacheSize', '20')
+        def executor = Executors.newFixedThreadPool(8)
+
+        when:
+        def futures = (1..8).collect {
+            executor.submit({ (1..2000).collect { numberIdCache.createLongId(ENTITY_NAME, sequence) } } as Callable<List<Long>>)
+        }
+        List<List<Long>> results = futures.collect { it.get(30, TimeUnit.SECONDS) }
+        executor.shutdown()
+
+        then:
+        results.flatten().toSet().size() == 8 * 2000
+        results.every { ids -> (1..<ids.size()).every { ids[it] > ids[it - 1] } }
+        results.flatten().max() <= sequence.value.get()
+    }
+
+    def "next block is prefetched when the current block is half used"() {
+        AppContext.setProperty('cuba.numberIdCacheSize', '10')
+
+        when:
+        def ids = (1..5).collect { numberIdCache.createLongId(ENTITY_NAME, sequence) }
+        waitForPrefetch()
+
+        then:
+        ids == [1L, 2L, 3L, 4L, 5L]
+        sequence.callers.size() == 2
+        sequence.callers.toList()[1].startsWith('NumberIdCachePrefetch')
+
+        when:
+        ids = (1..6).collect { numberIdCache.createLongId(ENTITY_NAME, sequence) }
+
+        then: "the prefetched block is used without calling the sequence"
+        ids == [6L, 7L, 8L, 9L, 10L, 11L]
+        sequence.callers.size() == 2
+    }
+
+    def "ids are prefetched in the security context of the caller"() {
+        AppContext.setProperty('cuba.numberIdCacheSize', '10')
+        def previousSecurityContext = AppContext.getSecurityContext()
+        def securityContext = new SecurityContext(UUID.randomUUID())
+        AppContext.setSecurityContext(securityContext)
+
+        when:
+        (1..5).each { numberIdCache.createLongId(ENTITY_NAME, sequence) }
+        waitForPrefetch()
+
+        then:
+        sequence.callers.size() == 2
+        sequence.securityContexts.toList() == [securityContext, securityContext]
+
+        cleanup:
+        AppContext.setSecurityContext(previousSecurityContext)
+    }
+
+    def "ids are not prefetched with cache size 1"() {
+        AppContext.setProperty('cuba.numberIdCacheSize', '1')
+
+        when:
+        def ids = (1..5).collect { numberIdCache.createLongId(ENTITY_NAME, sequence) }
+        waitForPrefetch()
+
+        then:
+        ids == [1L, 2L, 3L, 4L, 5L]
+        sequence.callers.size() == 5
+        sequence.callers.every { it == Thread.currentThread().name }
+    }
+
+    def "number of prefetched blocks follows the rate of id usage"() {
+        AppContext.setProperty('cuba.numberIdCacheSize', '10')
+
+        when: "blocks are used up quickly"
+        (1..100).each { numberIdCache.createLongId(ENTITY_NAME, sequence) }
+        waitForPrefetch()
+        def generator = numberIdCache.cache[ENTITY_NAME]
+
+        then:
+        generator.blocksPerFetch > 1
+
+        when: "blocks are used up slowly"
+        int blocksPerFetch = generator.blocksPerFetch
+        generator.adaptBlocksPerFetch(TimeUnit.MINUTES.toMillis(1))
+
+        then:
+        generator.blocksPerFetch == Math.max(blocksPerFetch.intdiv(2), 1)
+
+        when: "the number of blocks is limited"
+        20.times { generator.adaptBlocksPerFetch(0) }
+
+        then:
+        generator.blocksPerFetch == 16
+    }
+
+    private void waitForPrefetch() {
+        // reset() waits for running prefetches, so submit an empty task the same way
+        numberIdCache.prefetchExecutor.submit({} as Runnable).get(10, TimeUnit.SECONDS)
+    }
+
+    /**
+     * Sequence incremented by the cache size like a DB sequence of cached ids.
+     */
+    static class TestSequence implements NumberIdSequence {
+
+        AtomicLong value = new AtomicLong()
+        Queue<String> callers = new ConcurrentLinkedQueue<>()
+        Queue<SecurityContext> securityContexts = new ConcurrentLinkedQueue<>()
+
+        @Override
+        Long createLongId(String entityName, String sequenceName) {
+            callers.add(Thread.currentThread().name)
+            value.incrementAndGet()
+        }
+
+        @Override
+        Long createCachedLongId(String entityName, String sequenceName) {
+            callers.add(Thread.currentThread().name)
+            def securityContext = AppContext.getSecurityContext()
+            if (securityContext != null) {
+                securityContexts.add(securityContext)
+            }
+            value.getAndAdd(AppContext.getProperty('cuba.numberIdCacheSize') as long)
+        }
+    }
+}
@@ -97,4 +97,21 @@ class PersistenceXmlPostProcessorTest extends Specification {
 
         AppContext.setProperty('cuba.persistenceXmlPostProcessor', null)
     }
+
+    def "invalid JDBC batch writing size is reported with the property name"() {
+        AppContext.setProperty('cuba.jdbcBatchWritingSize', 'abc')
+
+        when:
+
+        persistenceConfigProcessor.create()
+
+        then:
+
+        def e = thrown(IllegalStateException)
+        e.message.contains('cuba.jdbcBatchWritingSize')
+
+        cleanup:
+
+        AppContext.setProperty('cuba.jdbcBatchWritingSize', null)
+    }
 }
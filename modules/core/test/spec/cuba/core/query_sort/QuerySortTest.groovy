@@ -3,8 +3,10 @@ package spec.cuba.core.query_sort
 import com.haulmont.cuba.core.app.JpqlQueryBuilder
 import com.haulmont.cuba.core.app.JpqlSortExpressionProvider
 import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.global.Keyset
 import com.haulmont.cuba.core.global.Metadata
 import com.haulmont.cuba.core.global.Sort
+import com.haulmont.cuba.security.entity.User
 import com.haulmont.cuba.testsupport.TestContainer
 import com.haulmont.cuba.testsupport.TestJpqlSortExpressionProvider
 import org.junit.ClassRule
@@ -193,4 +195,120 @@ class QuerySortTest extends Specification {
 
         queryBuilder.getResultQueryString() == 'select e from sys$EntitySnapshot e left join e.author e_author order by e.snapshotDate desc, e_author.login desc, e_author.name desc, e.id desc'
     }
+
+    def "sort with keyset"() {
+
+        JpqlQueryBuilder queryBuilder
+        def id = UUID.randomUUID()
+
+        when: "by single property"
+
+        queryBuilder = AppBeans.get(JpqlQueryBuilder)
+        queryBuilder.setQueryString('select u from sec$User u')
+                .setQueryParameters([:])
+                .setSort(Sort.by('login'))
+                .setKeyset(Keyset.of('admin', id))
+                .setEntityName('sec$User')
+
+        then:
+
+        queryBuilder.getResultQueryString().endsWith('order by u.login, u.id')
+        queryBuilder.getResultQueryString().contains('u.login > :_keyset0')
+        queryBuilder.getResultQueryString().contains('u.login = :_keyset0 and u.id > :_keyset1')
+        queryBuilder.getResultParameters() == [_keyset0: 'admin', _keyset1: id]
+
+        when: "by primary key only desc"
+
+        queryBuilder = AppBeans.get(JpqlQueryBuilder)
+        queryBuilder.setQueryString('select u from sec$User u')
+                .setQueryParameters([:])
+                .setSort(Sort.by(Sort.Direction.DESC, 'id'))
+                .setKeyset(Keyset.of(id))
+                .setEntityName('sec$User')
+
+        then:
+
+        queryBuilder.getResultQueryString().endsWith('order by u.id desc')
+        queryBuilder.getResultQueryString().contains('u.id < :_keyset0')
+        queryBuilder.getResultParameters() == [_keyset0: id]
+
+        when: "by reference property"
+
+        queryBuilder = AppBeans.get(JpqlQueryBuilder)
+        queryBuilder.setQueryString('select u from sec$User u')
+                .setQueryParameters([:])
+                .setSort(Sort.by('group'))
+                .setKeyset(Keyset.of(id, id))
+                .setEntityName('sec$User').getResultQueryString()
+
+        then:
+
+        thrown(UnsupportedOperationException)
+
+        when: "keyset does not match sort"
+
+        queryBuilder = AppBeans.get(JpqlQueryBuilder)
+        queryBuilder.setQueryString('select u from sec$User u')
+                .setQueryParameters([:])
+                .setSort(Sort.by('login'))
+                .setKeyset(Keyset.of(id))
+                .setEntityName('sec$User').getResultQueryString()
+
+        then:
+
+        thrown(IllegalArgumentException)
+
+        when: "query of values"
+
+        queryBuilder = AppBeans.get(JpqlQueryBuilder)
+        queryBuilder.setQueryString('select u.login from sec$User u')
+                .setQueryParameters([:])
+                .setSort(Sort.by('login'))
+                .setKeyset(Keyset.of('admin', id))
+                .setValueProperties(['login']).getResultQueryString()
+
+        then:
+
+        thrown(UnsupportedOperationException)
+    }
+
+    def "sort with keyset created after an instance"() {
+
+        JpqlQueryBuilder queryBuilder
+        def user = cont.metadata().create(User)
+        user.login = 'admin'
+        user.name = 'Administrator'
+
+        when: "by properties without the primary key"
+
+        def sort = Sort.by('login', 'name')
+        queryBuilder = AppBeans.get(JpqlQueryBuilder)
+        queryBuilder.setQueryString('select u from sec$User u')
+                .setQueryParameters([:])
+                .setSort(sort)
+                .setKeyset(Keyset.after(user, sort))
+                .setEntityName('sec$User')
+
+        then:
+
+        queryBuilder.getResultQueryString().endsWith('order by u.login, u.name, u.id')
+        queryBuilder.getResultQueryString().contains('u.login = :_keyset0 and u.name = :_keyset1 and u.id > :_keyset2')
+        queryBuilder.getResultParameters() == [_keyset0: 'admin', _keyset1: 'Administrator', _keyset2: user.id]
+
+        when: "by properties including the primary key"
+
+        sort = Sort.by('login', 'id')
+        queryBuilder = AppBeans.get(JpqlQueryBuilder)
+        queryBuilder.setQueryString('select u from sec$User u')
+                .setQueryParameters([:])
+                .setSort(sort)
+                .setKeyset(Keyset.after(user, sort))
+                .setEntityName('sec$User')
+
+        then:
+
+        queryBuilder.getResultQueryString().endsWith('order by u.login, u.id')
+        queryBuilder.getResultQueryString().contains('u.login = :_keyset0 and u.id > :_keyset1')
+        queryBuilder.getResultParameters() == [_keyset0: 'admin', _keyset1: user.id]
+    }
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.query_transform
+
+import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.sys.TransformedQueryCache
+import com.haulmont.cuba.security.entity.User
+import com.haulmont.cuba.testsupport.TestContainer
+import com.haulmont.cuba.testsupport.TestSupport
+import org.junit.ClassRule
+import spock.lang.Shared
+import spock.lang.Specification
+
+class TransformedQueryCacheTest extends Specification {
+
+    @Shared @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    private TransformedQueryCache cache
+
+    private static final String QUERY = 'select u from sec$User u where u.login like :login and u.group.id in :groups'
+
+    void setup() {
+        cache = AppBeans.get(TransformedQueryCache)
+        cache.invalidateAll()
+    }
+
+    def "cached query string is reused for case-insensitive parameters"() {
+
+        when:
+
+        def first = load('(?i)ADMIN', [TestSupport.COMPANY_GROUP_ID])
+        long hits = cache.stats.hitCount()
+        def second = load('(?i)AdMiN', [TestSupport.COMPANY_GROUP_ID])
+
+        then:
+
+        first*.login == ['admin']
+        second*.login == ['admin']
+        cache.stats.hitCount() == hits + 1
+        cache.size() == 1
+    }
+
+    def "empty collection parameter is cached separately"() {
+
+        when:
+
+        def empty = load('admin', [])
+        def notEmpty = load('admin', [TestSupport.COMPANY_GROUP_ID])
+        def emptyAgain = load('admin', [])
+
+        then:
+
+        empty.isEmpty()
+        notEmpty*.login == ['admin']
+        emptyAgain.isEmpty()
+        cache.size() == 2
+    }
+
+    private List<User> load(String login, List<UUID> groups) {
+        cont.persistence().callInTransaction { em ->
+            em.createQuery(QUERY, User)
+                    .setParameter('login', login)
+                    .setParameter('groups', groups)
+                    .getResultList()
+        }
+    }
+}
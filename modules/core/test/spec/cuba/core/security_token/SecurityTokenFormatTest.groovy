@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.security_token
+
+import com.haulmont.cuba.core.entity.BaseEntityInternalAccess
+import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.sys.AppContext
+import com.haulmont.cuba.core.sys.SecurityTokenException
+import com.haulmont.cuba.core.sys.SecurityTokenManager
+import com.haulmont.cuba.security.entity.User
+import com.haulmont.cuba.testsupport.TestContainer
+import org.json.JSONObject
+import org.junit.ClassRule
+import spock.lang.Shared
+import spock.lang.Specification
+
+import javax.crypto.Cipher
+import java.nio.charset.StandardCharsets
+
+class SecurityTokenFormatTest extends Specification {
+
+    @Shared @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    private SecurityTokenManager securityTokenManager
+
+    void setup() {
+        securityTokenManager = AppBeans.get(SecurityTokenManager)
+        AppContext.setProperty('cuba.securityTokenBinaryFormat', 'true')
+    }
+
+    void cleanup() {
+        AppContext.setProperty('cuba.securityTokenBinaryFormat', null)
+    }
+
+    def "filtered data and attributes are restored from binary token"() {
+        def user = cont.metadata().create(User)
+        def roleIds = (1..3).collect { UUID.randomUUID() }
+        roleIds.each { securityTokenManager.addFiltered(user, 'userRoles', it) }
+
+        def state = BaseEntityInternalAccess.getOrCreateSecurityState(user)
+        BaseEntityInternalAccess.setReadonlyAttributes(state, ['login'] as String[])
+        BaseEntityInternalAccess.setHiddenAttributes(state, ['password', 'email'] as String[])
+
+        when:
+        securityTokenManager.writeSecurityToken(user)
+
+        BaseEntityInternalAccess.setReadonlyAttributes(state, null)
+        BaseEntityInternalAccess.setHiddenAttributes(state, null)
+        securityTokenManager.readSecurityToken(user)
+
+        then:
+        decrypt(BaseEntityInternalAccess.getSecurityToken(user))[0] == (byte) 1
+        BaseEntityInternalAccess.getFilteredData(user).get('userRoles') == roleIds
+        BaseEntityInternalAccess.getFilteredAttributes(state) == ['userRoles'] as String[]
+        BaseEntityInternalAccess.getReadonlyAttributes(state) == ['login'] as String[]
+        BaseEntityInternalAccess.getHiddenAttributes(state) == ['password', 'email'] as String[]
+    }
+
+    def "tokens of a list are written in batch"() {
+        def users = (1..3).collect { cont.metadata().create(User) }
+        def roleId = UUID.randomUUID()
+        securityTokenManager.addFiltered(users[1], 'userRoles', roleId)
+
+        when:
+        securityTokenManager.writeSecurityTokens(users)
+        users.each { securityTokenManager.readSecurityToken(it) }
+
+        then:
+        users.every { BaseEntityInternalAccess.getSecurityToken(it) != null }
+        BaseEntityInternalAccess.getFilteredData(users[0]).isEmpty()
+        BaseEntityInternalAccess.getFilteredData(users[1]).get('userRoles') == [roleId]
+    }
+
+    def "token of another entity is rejected"() {
+        def user1 = cont.metadata().create(User)
+        def user2 = cont.metadata().create(User)
+        securityTokenManager.writeSecurityToken(user1)
+
+        def state2 = BaseEntityInternalAccess.getOrCreateSecurityState(user2)
+        BaseEntityInternalAccess.setSecurityToken(state2, BaseEntityInternalAccess.getSecurityToken(user1))
+
+        when:
+        securityTokenManager.readSecurityToken(user2)
+
+        then:
+        thrown(SecurityTokenException)
+    }
+
+    def "token is written in JSON format unless binary format is enabled"() {
+        AppContext.setProperty('cuba.securityTokenBinaryFormat', null)
+
+        def user = cont.metadata().create(User)
+        def roleId = UUID.randomUUID()
+        securityTokenManager.addFiltered(user, 'userRoles', roleId)
+
+        when:
+        securityTokenManager.writeSecurityToken(user)
+
+        then:
+        def json = new JSONObject(new String(decrypt(BaseEntityInternalAccess.getSecurityToken(user)),
+                StandardCharsets.UTF_8))
+        json.getString('__entityName') == 'sec$User'
+        json.getJSONArray('userRoles').get(0).toString() == roleId.toString()
+
+        when:
+        securityTokenManager.readSecurityToken(user)
+
+        then:
+        BaseEntityInternalAccess.getFilteredData(user).get('userRoles') == [roleId]
+    }
+
+    def "token in JSON format is read"() {
+        def user = cont.metadata().create(User)
+        def roleId = UUID.randomUUID()
+
+        def json = new JSONObject()
+        json.put('userRoles', [roleId.toString()])
+        json.put('__readonlyAttributes', ['login'])
+        json.put('__entityName', 'sec$User')
+        json.put('__entityId', user.id.toString())
+
+        Cipher cipher = securityTokenManager.getCipher(Cipher.ENCRYPT_MODE)
+        def state = BaseEntityInternalAccess.getOrCreateSecurityState(user)
+        BaseEntityInternalAccess.setSecurityToken(state,
+                cipher.doFinal(json.toString().getBytes(StandardCharsets.UTF_8)))
+
+        when:
+        securityTokenManager.readSecurityToken(user)
+
+        then:
+        BaseEntityInternalAccess.getFilteredData(user).get('userRoles') == [roleId]
+        BaseEntityInternalAccess.getReadonlyAttributes(state) == ['login'] as String[]
+    }
+
+    private byte[] decrypt(byte[] token) {
+        securityTokenManager.getCipher(Cipher.DECRYPT_MODE).doFinal(token)
+    }
+}
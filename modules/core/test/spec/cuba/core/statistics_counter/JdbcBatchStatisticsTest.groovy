@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.statistics_counter
+
+import com.haulmont.cuba.core.app.MiddlewareStatisticsAccumulator
+import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.jmx.StatisticsCounterMBean
+import com.haulmont.cuba.core.sys.jdbc.ProxyPreparedStatement
+import com.haulmont.cuba.core.sys.jdbc.ProxyStatement
+import com.haulmont.cuba.testsupport.TestContainer
+import org.junit.ClassRule
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.sql.Connection
+import java.sql.PreparedStatement
+import java.sql.Statement
+
+class JdbcBatchStatisticsTest extends Specification {
+
+    @Shared @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    private StatisticsCounterMBean statCounter
+
+    void setup() {
+        statCounter = AppBeans.get(StatisticsCounterMBean)
+        AppBeans.get(MiddlewareStatisticsAccumulator).reset()
+    }
+
+    def "sizes of prepared statement batches are counted"() {
+        def statement = new ProxyPreparedStatement(Mock(PreparedStatement), Mock(Connection))
+
+        when:
+        3.times { statement.addBatch() }
+        statement.executeBatch()
+
+        2.times { statement.addBatch() }
+        statement.clearBatch()
+        statement.addBatch()
+        statement.executeBatch()
+
+        then:
+        statCounter.jdbcBatchesCount == 2
+        statCounter.jdbcBatchedStatementsCount == 4
+        statCounter.avgJdbcBatchSize == 2.0
+    }
+
+    def "empty batches are not counted"() {
+        def statement = new ProxyStatement(Mock(Statement), Mock(Connection))
+
+        when:
+        statement.executeBatch()
+        statement.addBatch('delete from TEST_CUSTOMER where 1 = 0')
+        statement.executeBatch()
+
+        then:
+        statCounter.jdbcBatchesCount == 1
+        statCounter.jdbcBatchedStatementsCount == 1
+    }
+}
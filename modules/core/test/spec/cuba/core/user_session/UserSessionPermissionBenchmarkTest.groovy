@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.user_session
+
+import com.haulmont.chile.core.model.MetaClass
+import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.global.Metadata
+import com.haulmont.cuba.security.entity.EntityAttrAccess
+import com.haulmont.cuba.security.entity.PermissionType
+import com.haulmont.cuba.security.entity.User
+import com.haulmont.cuba.security.global.UserSession
+import com.haulmont.cuba.security.role.RoleDefinitionBuilder
+import com.haulmont.cuba.testsupport.TestContainer
+import org.junit.ClassRule
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import spock.lang.Ignore
+import spock.lang.Shared
+import spock.lang.Specification
+
+/**
+ * Compares the time of attribute permission checks by the compiled permissions of a session and by the permission
+ * targets built for each check, as the checks worked before.
+ * Too slow for regular builds, remove {@code @Ignore} to run it.
+ */
+@Ignore
+class UserSessionPermissionBenchmarkTest extends Specification {
+
+    @Shared @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    private Logger log = LoggerFactory.getLogger(UserSessionPermissionBenchmarkTest)
+
+    private MetaClass metaClass
+
+    private List<String> properties
+
+    private UserSession session
+
+    void setup() {
+        Metadata metadata = AppBeans.get(Metadata)
+        metaClass = metadata.getClass(User)
+        properties = metaClass.properties*.name
+
+        def builder = RoleDefinitionBuilder.create().withName('test')
+        properties.eachWithIndex { String property, int i ->
+            if (i % 2 == 0) {
+                builder.withEntityAttrAccessPermission(metaClass, property, EntityAttrAccess.VIEW)
+            }
+        }
+        def role = builder.build()
+        session = new UserSession(UUID.randomUUID(), metadata.create(User), [role], Locale.ENGLISH, false)
+        session.applyEffectiveRole(role)
+    }
+
+    def "attribute permission checks by compiled and string based permissions"() {
+
+        int count = 100_000
+
+        when:
+
+        // warm up
+        measure(10_000) { String property -> session.isEntityAttrPermitted(metaClass, property, EntityAttrAccess.MODIFY) }
+        measure(10_000) { String property -> checkByTarget(property) }
+
+        long compiledTime = measure(count) { String property ->
+            session.isEntityAttrPermitted(metaClass, property, EntityAttrAccess.MODIFY)
+        }
+        long targetTime = measure(count) { String property ->
+            checkByTarget(property)
+        }
+
+        log.info("Checked ${count} attribute permissions: compiled ${compiledTime / 1_000_000}ms, " +
+                "by target ${targetTime / 1_000_000}ms")
+
+        then:
+
+        compiledTime < targetTime
+    }
+
+    private boolean checkByTarget(String property) {
+        session.isPermitted(PermissionType.ENTITY_ATTR, metaClass.name + ':' + property, EntityAttrAccess.MODIFY.id)
+    }
+
+    private long measure(int count, Closure action) {
+        int size = properties.size()
+        long start = System.nanoTime()
+        for (int i = 0; i < count; i++) {
+            action(properties[i % size])
+        }
+        return System.nanoTime() - start
+    }
+}
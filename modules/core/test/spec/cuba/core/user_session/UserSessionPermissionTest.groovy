@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.user_session
+
+import com.haulmont.chile.core.model.MetaClass
+import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.global.Metadata
+import com.haulmont.cuba.core.sys.serialization.SerializationSupport
+import com.haulmont.cuba.security.entity.*
+import com.haulmont.cuba.security.global.UserSession
+import com.haulmont.cuba.security.role.RoleDefinition
+import com.haulmont.cuba.security.role.RoleDefinitionBuilder
+import com.haulmont.cuba.testsupport.TestContainer
+import org.junit.ClassRule
+import spock.lang.Shared
+import spock.lang.Specification
+
+class UserSessionPermissionTest extends Specification {
+
+    @Shared @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    private Metadata metadata
+    private MetaClass metaClass
+
+    void setup() {
+        metadata = AppBeans.get(Metadata)
+        metaClass = metadata.getClass('sys$Server')
+    }
+
+    def "compiled entity permissions are the same as string based ones"() {
+        def role = RoleDefinitionBuilder.create()
+                .withName('test')
+                .withEntityAccessPermission(metaClass, EntityOp.DELETE, Access.DENY)
+                .withEntityAttrAccessPermission(metaClass, 'createdBy', EntityAttrAccess.VIEW)
+                .withEntityAttrAccessPermission(metaClass, 'data', EntityAttrAccess.DENY)
+                .build()
+        def session = createSession(role)
+
+        expect:
+        for (op in EntityOp.values()) {
+            assert session.isEntityOpPermitted(metaClass, op) ==
+                    session.isPermitted(PermissionType.ENTITY_OP, "sys\$Server:${op.id}")
+        }
+        for (property in ['createdBy', 'data', 'name', 'running', 'unknown']) {
+            for (access in EntityAttrAccess.values()) {
+                assert session.isEntityAttrPermitted(metaClass, property, access) ==
+                        session.isPermitted(PermissionType.ENTITY_ATTR, "sys\$Server:$property", access.id)
+            }
+        }
+
+        !session.isEntityOpPermitted(metaClass, EntityOp.DELETE)
+        session.isEntityAttrPermitted(metaClass, 'createdBy', EntityAttrAccess.VIEW)
+        !session.isEntityAttrPermitted(metaClass, 'createdBy', EntityAttrAccess.MODIFY)
+        !session.isEntityAttrPermitted(metaClass, 'data', EntityAttrAccess.VIEW)
+        session.isEntityAttrPermitted(metaClass, 'name', EntityAttrAccess.MODIFY)
+    }
+
+    def "compiled permissions are updated when permissions of the session change"() {
+        def session = createSession(RoleDefinitionBuilder.create().withName('test').build())
+
+        expect:
+        session.isEntityOpPermitted(metaClass, EntityOp.UPDATE)
+        session.isEntityAttrPermitted(metaClass, 'name', EntityAttrAccess.MODIFY)
+
+        when:
+        session.addPermission(PermissionType.ENTITY_OP, 'sys$Server:update', null, 0)
+        session.addPermission(PermissionType.ENTITY_ATTR, 'sys$Server:name', null, 1)
+
+        then:
+        !session.isEntityOpPermitted(metaClass, EntityOp.UPDATE)
+        !session.isEntityAttrPermitted(metaClass, 'name', EntityAttrAccess.MODIFY)
+
+        when:
+        session.removePermission(PermissionType.ENTITY_OP, 'sys$Server:update')
+        session.removePermissions(PermissionType.ENTITY_ATTR)
+
+        then:
+        session.isEntityOpPermitted(metaClass, EntityOp.UPDATE)
+        session.isEntityAttrPermitted(metaClass, 'name', EntityAttrAccess.MODIFY)
+    }
+
+    def "role types are merged into compiled permissions"() {
+        def denying = RoleDefinitionBuilder.create()
+                .withName('denying')
+                .withRoleType(RoleType.DENYING)
+                .withEntityAccessPermission(metaClass, EntityOp.READ, Access.ALLOW)
+                .build()
+        def session = createSession(denying)
+
+        def superSession = createSession(RoleDefinitionBuilder.create()
+                .withName('super')
+                .withRoleType(RoleType.SUPER)
+                .withEntityAccessPermission(metaClass, EntityOp.READ, Access.DENY)
+                .build())
+
+        expect:
+        session.isEntityOpPermitted(metaClass, EntityOp.READ)
+        !session.isEntityOpPermitted(metaClass, EntityOp.CREATE)
+        session.isEntityAttrPermitted(metaClass, 'name', EntityAttrAccess.MODIFY)
+
+        superSession.isEntityOpPermitted(metaClass, EntityOp.READ)
+    }
+
+    def "compiled permissions of all attributes survive session serialization"() {
+        def userMetaClass = metadata.getClass(User)
+        def properties = userMetaClass.properties*.name
+
+        def builder = RoleDefinitionBuilder.create().withName('test')
+        properties.eachWithIndex { String property, int i ->
+            if (i % 2 == 0) {
+                builder.withEntityAttrAccessPermission(userMetaClass, property, EntityAttrAccess.VIEW)
+            }
+        }
+        def session = createSession(builder.build())
+
+        expect:
+        for (property in properties) {
+            assert session.isEntityAttrPermitted(userMetaClass, property, EntityAttrAccess.MODIFY) ==
+                    session.isPermitted(PermissionType.ENTITY_ATTR, "sec\$User:$property", EntityAttrAccess.MODIFY.id)
+        }
+
+        when:
+        def restored = (UserSession) SerializationSupport.deserialize(SerializationSupport.serialize(session))
+
+        then:
+        properties.every { property ->
+            restored.isEntityAttrPermitted(userMetaClass, property, EntityAttrAccess.MODIFY) ==
+                    session.isEntityAttrPermitted(userMetaClass, property, EntityAttrAccess.MODIFY)
+        }
+        !restored.isEntityAttrPermitted(userMetaClass, properties[0], EntityAttrAccess.MODIFY)
+    }
+
+    private UserSession createSession(RoleDefinition role) {
+        def session = new UserSession(UUID.randomUUID(), metadata.create(User), [role], Locale.ENGLISH, false)
+        session.applyEffectiveRole(role)
+        return session
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package spec.cuba.core.user_sessions
+
+import com.haulmont.cuba.core.app.MiddlewareStatisticsAccumulator
+import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.global.TimeSource
+import com.haulmont.cuba.core.global.UserSessionSource
+import com.haulmont.cuba.security.app.UserSessions
+import com.haulmont.cuba.security.global.UserSession
+import com.haulmont.cuba.testsupport.TestContainer
+import org.junit.ClassRule
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.time.Instant
+import java.time.ZoneId
+import java.time.ZonedDateTime
+import java.util.concurrent.ConcurrentHashMap
+
+class UserSessionsTest extends Specification {
+
+    @Shared @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    private UserSessions userSessions
+    private MiddlewareStatisticsAccumulator accumulator
+    private List<UserSession> sessions = []
+    private int expirationTimeout
+    private Map attributeIndexes
+    private TimeSource timeSource
+    private Map cache
+    private TestTimeSource clock = new TestTimeSource(millis: System.currentTimeMillis())
+
+    void setup() {
+        userSessions = AppBeans.get(UserSessions)
+        accumulator = AppBeans.get(MiddlewareStatisticsAccumulator)
+        accumulator.reset()
+
+        expirationTimeout = userSessions.expirationTimeoutSec
+        attributeIndexes = userSessions.attributeIndexes
+        cache = userSessions.cache
+        timeSource = userSessions.timeSource
+        userSessions.timeSource = clock
+    }
+
+    void cleanup() {
+        userSessions.expirationTimeoutSec = expirationTimeout
+        userSessions.attributeIndexes = attributeIndexes
+        userSessions.cache = cache
+        userSessions.timeSource = timeSource
+        sessions.each { userSessions.remove(it) }
+    }
+
+    def "unused sessions are expired"() {
+        def session1 = createSession()
+        def session2 = createSession()
+        userSessions.expirationTimeoutSec = 2
+
+        when:
+        clock.millis += 2500
+        userSessions.getAndRefresh(session2.id)
+        clock.millis += 500
+        userSessions.processEviction()
+
+        then:
+        userSessions.get(session1.id) == null
+        userSessions.get(session2.id) != null
+        accumulator.userSessionEvictionsCount == 1
+        accumulator.expiredUserSessionsCount >= 1
+    }
+
+    def "sessions are found by indexed attribute"() {
+        userSessions.attributeIndexes = [department: new UserSessions.AttributeIndex()]
+
+        def session1 = createSession()
+        session1.setAttribute('department', 'sales')
+        userSessions.add(session1)
+
+        def session2 = createSession()
+        session2.setAttribute('department', 'finance')
+        userSessions.add(session2)
+
+        expect:
+        userSessions.findUserSessionsByAttribute('department', 'sales') == [session1.id]
+
+        when: "the attribute is changed after the session has been indexed"
+        session1.setAttribute('department', 'finance')
+
+        then:
+        userSessions.findUserSessionsByAttribute('department', 'sales').isEmpty()
+
+        when:
+        userSessions.remove(session2)
+
+        then:
+        userSessions.findUserSessionsByAttribute('department', 'finance').isEmpty()
+
+        when: "the session is indexed again on refresh"
+        clock.millis += 1500
+        userSessions.getAndRefresh(session1.id)
+
+        then:
+        userSessions.findUserSessionsByAttribute('department', 'finance') == [session1.id]
+    }
+
+    def "session put while its schedule is evicted is scheduled again"() {
+        def session = createSession()
+        userSessions.expirationTimeoutSec = 2
+        userSessions.remove(session)
+
+        // the session is put again between the eviction finds it missing and removes it from the scheduled ones
+        boolean raced = false
+        userSessions.cache = new ConcurrentHashMap(userSessions.cache) {
+            @Override
+            Object get(Object key) {
+                if (key == session.id && !raced) {
+                    raced = true
+                    userSessions.putSessionInfo(session.id, new UserSessions.UserSessionInfo(session, clock.millis))
+                    return null
+                }
+                return super.get(key)
+            }
+        }
+
+        when:
+        clock.millis += 3000
+        userSessions.processEviction()
+
+        then:
+        raced
+        userSessions.get(session.id) != null
+
+        when:
+        clock.millis += 3000
+        userSessions.processEviction()
+
+        then:
+        userSessions.get(session.id) == null
+    }
+
+    private UserSession createSession() {
+        def user = AppBeans.get(UserSessionSource).userSession.user
+        def session = new UserSession(UUID.randomUUID(), user, Collections.emptyList(), Locale.ENGLISH, false)
+        userSessions.add(session)
+        sessions.add(session)
+        session
+    }
+
+    static class TestTimeSource implements TimeSource {
+        long millis
+
+        @Override
+        Date currentTimestamp() {
+            new Date(millis)
+        }
+
+        @Override
+        long currentTimeMillis() {
+            millis
+        }
+
+        @Override
+        ZonedDateTime now() {
+            ZonedDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault())
+        }
+    }
+}
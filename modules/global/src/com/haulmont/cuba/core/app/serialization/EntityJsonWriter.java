@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app.serialization;
+
+import com.haulmont.cuba.core.entity.Entity;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes entities one by one to a JSON array. Obtain an instance using
+ * {@link EntitySerializationAPI#createJsonWriter(java.io.Writer, com.haulmont.cuba.core.global.View, EntitySerializationOption...)}.
+ * <p>
+ * The array is closed by {@link #close()}, which also closes the underlying writer.
+ */
+public interface EntityJsonWriter extends Closeable {
+
+    /**
+     * Writes the entity as the next element of the array.
+     */
+    void write(Entity entity) throws IOException;
+
+    /**
+     * @return number of entities written
+     */
+    int getCount();
+}
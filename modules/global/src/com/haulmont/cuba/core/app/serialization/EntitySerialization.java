@@ -22,6 +22,8 @@ import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.Table;
 import com.google.gson.*;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import com.haulmont.chile.core.datatypes.Datatype;
 import com.haulmont.chile.core.datatypes.Datatypes;
 import com.haulmont.chile.core.model.MetaClass;
@@ -41,14 +43,18 @@ import org.springframework.stereotype.Component;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
-import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
 import java.text.ParseException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
 
 import static com.haulmont.cuba.core.entity.BaseEntityInternalAccess.*;
 
@@ -57,6 +63,8 @@ public class EntitySerialization implements EntitySerializationAPI {
 
     private static final Logger log = LoggerFactory.getLogger(EntitySerialization.class);
 
+    protected static final int GSON_CACHE_MAX_SIZE = 200;
+
     @Inject
     protected MetadataTools metadataTools;
 
@@ -69,9 +77,49 @@ public class EntitySerialization implements EntitySerializationAPI {
     @Inject
     protected GlobalConfig globalConfig;
 
+    protected ConcurrentMap<MetaClass, MetaClassInfo> metaClassInfos = new ConcurrentHashMap<>();
+
+    protected Map<GsonKey, Gson> gsonCache = Collections.synchronizedMap(new LinkedHashMap<GsonKey, Gson>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<GsonKey, Gson> eldest) {
+            return size() > GSON_CACHE_MAX_SIZE;
+        }
+    });
+
     protected ThreadLocal<EntitySerializationContext> context =
             ThreadLocal.withInitial(EntitySerializationContext::new);
 
+    /**
+     * Key of a cached {@link Gson} instance. The view or meta-class is compared by identity, because views are mutable.
+     * Unmodified views obtained from {@link com.haulmont.cuba.core.global.ViewRepository} are replaced with their
+     * frozen source, see {@link View#getFrozenSource()}.
+     */
+    protected static class GsonKey {
+        protected final boolean serialization;
+        protected final Object target;
+        protected final Set<EntitySerializationOption> options;
+
+        public GsonKey(boolean serialization, @Nullable Object target, EntitySerializationOption... options) {
+            this.serialization = serialization;
+            this.target = target;
+            this.options = options == null || options.length == 0 ?
+                    EnumSet.noneOf(EntitySerializationOption.class) : EnumSet.copyOf(Arrays.asList(options));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            GsonKey that = (GsonKey) o;
+            return serialization == that.serialization && target == that.target && options.equals(that.options);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * Boolean.hashCode(serialization) + System.identityHashCode(target)) + options.hashCode();
+        }
+    }
+
     /**
      * Class is used for storing a collection of entities already processed during the serialization.
      */
@@ -93,7 +141,7 @@ public class EntitySerialization implements EntitySerializationAPI {
                          @Nullable View view,
                          EntitySerializationOption... options) {
         context.remove();
-        return createGsonForSerialization(view, options).toJson(entity);
+        return getGsonForSerialization(view, options).toJson(entity);
     }
 
     @Override
@@ -106,13 +154,27 @@ public class EntitySerialization implements EntitySerializationAPI {
                          @Nullable View view,
                          EntitySerializationOption... options) {
         context.remove();
-        return createGsonForSerialization(view, options).toJson(entities);
+        return getGsonForSerialization(view, options).toJson(entities);
+    }
+
+    @Override
+    public EntityJsonWriter createJsonWriter(Writer writer,
+                                             @Nullable View view,
+                                             EntitySerializationOption... options) {
+        Gson gson = getGsonForSerialization(view, options);
+        try {
+            JsonWriter jsonWriter = gson.newJsonWriter(writer);
+            jsonWriter.beginArray();
+            return new GsonEntityJsonWriter(gson, jsonWriter);
+        } catch (IOException e) {
+            throw new EntitySerializationException("Unable to start JSON array", e);
+        }
     }
 
     @Override
     public String objectToJson(Object object, EntitySerializationOption... options) {
         context.remove();
-        return createGsonForSerialization(null, options).toJson(object);
+        return getGsonForSerialization(null, options).toJson(object);
     }
 
     @SuppressWarnings("unchecked")
@@ -121,7 +183,7 @@ public class EntitySerialization implements EntitySerializationAPI {
                                                @Nullable MetaClass metaClass,
                                                EntitySerializationOption... options) {
         context.remove();
-        return (T) createGsonForDeserialization(metaClass, options).fromJson(json, Entity.class);
+        return (T) getGsonForDeserialization(metaClass, options).fromJson(json, Entity.class);
     }
 
     @Override
@@ -131,19 +193,64 @@ public class EntitySerialization implements EntitySerializationAPI {
         context.remove();
         Type collectionType = new TypeToken<Collection<Entity>>() {
         }.getType();
-        return createGsonForDeserialization(metaClass, options).fromJson(json, collectionType);
+        return getGsonForDeserialization(metaClass, options).fromJson(json, collectionType);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T extends Entity> int entitiesFromJson(Reader reader,
+                                                   @Nullable MetaClass metaClass,
+                                                   Consumer<? super T> consumer,
+                                                   EntitySerializationOption... options) {
+        context.remove();
+        Gson gson = getGsonForDeserialization(metaClass, options);
+        int count = 0;
+        try {
+            JsonReader jsonReader = gson.newJsonReader(reader);
+            jsonReader.beginArray();
+            while (jsonReader.hasNext()) {
+                consumer.accept((T) gson.fromJson(jsonReader, Entity.class));
+                count++;
+            }
+            jsonReader.endArray();
+        } catch (IOException e) {
+            throw new EntitySerializationException("Unable to read JSON array", e);
+        } finally {
+            context.remove();
+        }
+        return count;
     }
 
     @Override
     public <T> T objectFromJson(String json, Class<T> clazz, EntitySerializationOption... options) {
         context.remove();
-        return createGsonForDeserialization(null, options).fromJson(json, clazz);
+        return getGsonForDeserialization(null, options).fromJson(json, clazz);
     }
 
     @Override
     public <T> T objectFromJson(String json, Type type, EntitySerializationOption... options) {
         context.remove();
-        return createGsonForDeserialization(null, options).fromJson(json, type);
+        return getGsonForDeserialization(null, options).fromJson(json, type);
+    }
+
+    /**
+     * Returns a cached {@link Gson} instance for the view and options, creating it by
+     * {@link #createGsonForSerialization(View, EntitySerializationOption...)} if needed. Views are compared by identity.
+     */
+    protected Gson getGsonForSerialization(@Nullable View view, EntitySerializationOption... options) {
+        View frozenView = view != null ? view.getFrozenSource() : null;
+        View keyView = frozenView != null ? frozenView : view;
+        return gsonCache.computeIfAbsent(new GsonKey(true, keyView, options),
+                key -> createGsonForSerialization(keyView, options));
+    }
+
+    /**
+     * Returns a cached {@link Gson} instance for the meta-class and options, creating it by
+     * {@link #createGsonForDeserialization(MetaClass, EntitySerializationOption...)} if needed.
+     */
+    protected Gson getGsonForDeserialization(@Nullable MetaClass metaClass, EntitySerializationOption... options) {
+        return gsonCache.computeIfAbsent(new GsonKey(false, metaClass, options),
+                key -> createGsonForDeserialization(metaClass, options));
     }
 
     protected Gson createGsonForSerialization(@Nullable View view, EntitySerializationOption... options) {
@@ -153,8 +260,7 @@ public class EntitySerialization implements EntitySerializationAPI {
         }
         gsonBuilder
                 .registerTypeHierarchyAdapter(Entity.class, new EntitySerializer(view, options))
-                .registerTypeHierarchyAdapter(Date.class, new DateSerializer())
-                .create();
+                .registerTypeHierarchyAdapter(Date.class, new DateSerializer());
         if (ArrayUtils.contains(options, EntitySerializationOption.SERIALIZE_NULLS)) {
             gsonBuilder.serializeNulls();
         }
@@ -168,6 +274,46 @@ public class EntitySerialization implements EntitySerializationAPI {
                 .create();
     }
 
+    protected class GsonEntityJsonWriter implements EntityJsonWriter {
+
+        protected final Gson gson;
+        protected final JsonWriter jsonWriter;
+        protected int count;
+
+        public GsonEntityJsonWriter(Gson gson, JsonWriter jsonWriter) {
+            this.gson = gson;
+            this.jsonWriter = jsonWriter;
+        }
+
+        @Override
+        public void write(Entity entity) throws IOException {
+            // repeated entities are tracked per written entity to keep memory bounded
+            context.remove();
+            try {
+                gson.toJson(entity, Entity.class, jsonWriter);
+            } catch (JsonIOException e) {
+                throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e);
+            } finally {
+                context.remove();
+            }
+            count++;
+        }
+
+        @Override
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                jsonWriter.endArray();
+            } finally {
+                jsonWriter.close();
+            }
+        }
+    }
+
     @Nullable
     protected Field getField(@Nullable Class clazz, String fieldName) {
         try {
@@ -186,7 +332,63 @@ public class EntitySerialization implements EntitySerializationAPI {
         }
     }
 
-    protected class EntitySerializer implements JsonSerializer<Entity> {
+    /**
+     * Properties of a meta-class written to JSON, resolved once per meta-class.
+     */
+    protected static class MetaClassInfo {
+        protected final List<PropertyInfo> properties;
+        protected final boolean embeddable;
+        protected final MetaProperty primaryKeyProperty;
+        protected final boolean compositePrimaryKey;
+
+        public MetaClassInfo(List<PropertyInfo> properties, boolean embeddable,
+                             @Nullable MetaProperty primaryKeyProperty, boolean compositePrimaryKey) {
+            this.properties = properties;
+            this.embeddable = embeddable;
+            this.primaryKeyProperty = primaryKeyProperty;
+            this.compositePrimaryKey = compositePrimaryKey;
+        }
+    }
+
+    protected static class PropertyInfo {
+        protected final MetaProperty metaProperty;
+        protected final String name;
+        protected final boolean persistent;
+        protected final boolean readOnly;
+        protected final boolean dynamicAttribute;
+
+        public PropertyInfo(MetaProperty metaProperty, boolean persistent) {
+            this.metaProperty = metaProperty;
+            this.name = metaProperty.getName();
+            this.persistent = persistent;
+            this.readOnly = metaProperty.isReadOnly();
+            this.dynamicAttribute = DynamicAttributesUtils.isDynamicAttribute(metaProperty);
+        }
+    }
+
+    protected MetaClassInfo getMetaClassInfo(MetaClass metaClass) {
+        return metaClassInfos.computeIfAbsent(metaClass, this::createMetaClassInfo);
+    }
+
+    protected MetaClassInfo createMetaClassInfo(MetaClass metaClass) {
+        List<PropertyInfo> properties = new ArrayList<>();
+        for (MetaProperty metaProperty : metaClass.getProperties()) {
+            if (!"id".equals(metaProperty.getName())) {
+                properties.add(new PropertyInfo(metaProperty, metadataTools.isPersistent(metaProperty)));
+            }
+        }
+        MetaProperty primaryKeyProperty = metadataTools.getPrimaryKeyProperty(metaClass);
+        if (primaryKeyProperty == null) {
+            primaryKeyProperty = metaClass.getProperty("id");
+        }
+        return new MetaClassInfo(properties, metadataTools.isEmbeddable(metaClass),
+                primaryKeyProperty, metadataTools.hasCompositePrimaryKey(metaClass));
+    }
+
+    /**
+     * Writes entities directly to {@link JsonWriter} without building a tree of JSON elements.
+     */
+    protected class EntitySerializer extends TypeAdapter<Entity> {
 
         protected boolean compactRepeatedEntities = false;
         protected boolean serializeInstanceName;
@@ -208,15 +410,32 @@ public class EntitySerialization implements EntitySerializationAPI {
         }
 
         @Override
-        public JsonElement serialize(Entity entity, Type typeOfSrc, JsonSerializationContext context) {
-            return serializeEntity(entity, view, new HashSet<>());
+        public void write(JsonWriter out, Entity entity) throws IOException {
+            if (entity == null) {
+                out.nullValue();
+            } else {
+                writeEntity(out, entity, view, new HashSet<>());
+            }
         }
 
-        protected JsonObject serializeEntity(Entity entity, @Nullable View view, Set<Entity> cyclicReferences) {
-            JsonObject jsonObject = new JsonObject();
+        @Override
+        public Entity read(JsonReader in) {
+            throw new UnsupportedOperationException("EntitySerializer is used only for serialization");
+        }
+
+        /**
+         * Writes the entity as a JSON object.
+         *
+         * @param cyclicReferences entities on the path from the root entity, they are written with the id only.
+         *                         The set is restored to the initial state when the method returns.
+         */
+        protected void writeEntity(JsonWriter out, Entity entity, @Nullable View view, Set<Entity> cyclicReferences)
+                throws IOException {
+            out.beginObject();
             MetaClass metaClass = entity.getMetaClass();
-            if (!metadataTools.isEmbeddable(metaClass)) {
-                jsonObject.addProperty(ENTITY_NAME_PROP, metaClass.getName());
+            MetaClassInfo metaClassInfo = getMetaClassInfo(metaClass);
+            if (!metaClassInfo.embeddable) {
+                out.name(ENTITY_NAME_PROP).value(metaClass.getName());
                 if (serializeInstanceName) {
                     String instanceName = null;
                     try {
@@ -224,23 +443,26 @@ public class EntitySerialization implements EntitySerializationAPI {
                     } catch (Exception ignored) {
                         // todo trace logging
                     }
-                    jsonObject.addProperty(INSTANCE_NAME_PROP, instanceName);
+                    out.name(INSTANCE_NAME_PROP).value(instanceName);
                 }
-                writeIdField(entity, jsonObject);
+                writeIdField(out, entity, metaClassInfo);
                 if (compactRepeatedEntities) {
                     Table<Object, MetaClass, Entity> processedObjects = context.get().getProcessedEntities();
                     if (processedObjects.get(entity.getId(), metaClass) == null) {
                         processedObjects.put(entity.getId(), metaClass, entity);
-                        writeFields(entity, jsonObject, view, cyclicReferences);
+                        writeFields(out, entity, metaClassInfo, view, cyclicReferences);
                     }
                 } else {
-                    if (!cyclicReferences.contains(entity)) {
-                        cyclicReferences.add(entity);
-                        writeFields(entity, jsonObject, view, cyclicReferences);
+                    if (cyclicReferences.add(entity)) {
+                        try {
+                            writeFields(out, entity, metaClassInfo, view, cyclicReferences);
+                        } finally {
+                            cyclicReferences.remove(entity);
+                        }
                     }
                 }
             } else {
-                writeFields(entity, jsonObject, view, cyclicReferences);
+                writeFields(out, entity, metaClassInfo, view, cyclicReferences);
             }
 
             if (globalConfig.getRestRequiresSecurityToken()) {
@@ -249,28 +471,24 @@ public class EntitySerialization implements EntitySerializationAPI {
                     if (securityState != null) {
                         byte[] securityToken = getSecurityToken(securityState);
                         if (securityToken != null) {
-                            jsonObject.addProperty("__securityToken", Base64.getEncoder().encodeToString(securityToken));
+                            out.name("__securityToken").value(Base64.getEncoder().encodeToString(securityToken));
                         }
                     }
                 }
             }
-
-            return jsonObject;
+            out.endObject();
         }
 
-        protected void writeIdField(Entity entity, JsonObject jsonObject) {
-            MetaProperty primaryKeyProperty = metadataTools.getPrimaryKeyProperty(entity.getMetaClass());
-            if (primaryKeyProperty == null) {
-                primaryKeyProperty = entity.getMetaClass().getProperty("id");
-            }
+        protected void writeIdField(JsonWriter out, Entity entity, MetaClassInfo metaClassInfo) throws IOException {
+            MetaProperty primaryKeyProperty = metaClassInfo.primaryKeyProperty;
             if (primaryKeyProperty == null)
                 throw new EntitySerializationException("Primary key property not found for entity " + entity.getMetaClass());
-            if (metadataTools.hasCompositePrimaryKey(entity.getMetaClass())) {
-                JsonObject serializedIdEntity = serializeEntity((Entity) entity.getId(), null, Collections.emptySet());
-                jsonObject.add("id", serializedIdEntity);
+            out.name("id");
+            if (metaClassInfo.compositePrimaryKey) {
+                writeEntity(out, (Entity) entity.getId(), null, new HashSet<>());
             } else {
                 Datatype idDatatype = Datatypes.getNN(primaryKeyProperty.getJavaType());
-                jsonObject.addProperty("id", idDatatype.format(entity.getId()));
+                out.value(idDatatype.format(entity.getId()));
             }
         }
 
@@ -283,102 +501,111 @@ public class EntitySerialization implements EntitySerializationAPI {
                             (metadataTools.isPersistent(metaProperty) && PersistenceHelper.isLoaded(entity, metaProperty.getName())));
         }
 
-        protected void writeFields(Entity entity, JsonObject jsonObject, @Nullable View view, Set<Entity> cyclicReferences) {
-            Collection<MetaProperty> properties = new ArrayList<>(entity.getMetaClass().getProperties());
+        /**
+         * Same as {@link #propertyWritingAllowed(MetaProperty, Entity)} but uses the precomputed property info.
+         */
+        protected boolean propertyWritingAllowed(PropertyInfo property, Entity entity) {
+            return property.dynamicAttribute ||
+                    (entity instanceof AbstractNotPersistentEntity) ||
+                    (!property.persistent && (!property.readOnly || !doNotSerializeReadOnlyProperties)) ||
+                    (property.persistent && PersistenceHelper.isLoaded(entity, property.name));
+        }
+
+        protected void writeFields(JsonWriter out, Entity entity, MetaClassInfo metaClassInfo, @Nullable View view,
+                                   Set<Entity> cyclicReferences) throws IOException {
+            for (PropertyInfo property : metaClassInfo.properties) {
+                if (propertyWritingAllowed(property, entity)) {
+                    writeProperty(out, entity, property.metaProperty, property.dynamicAttribute, view, cyclicReferences);
+                }
+            }
             if (entity instanceof BaseGenericIdEntity && ((BaseGenericIdEntity) entity).getDynamicAttributes() != null) {
-                List<MetaProperty> dynamicProperties = dynamicAttributes.getAttributesForMetaClass(entity.getMetaClass()).stream()
-                        .map(categoryAttribute -> DynamicAttributesUtils.getMetaPropertyPath(entity.getMetaClass(), categoryAttribute).getMetaProperty())
-                        .collect(Collectors.toList());
-                properties.addAll(dynamicProperties);
+                for (CategoryAttribute categoryAttribute : dynamicAttributes.getAttributesForMetaClass(entity.getMetaClass())) {
+                    MetaProperty metaProperty = DynamicAttributesUtils.getMetaPropertyPath(entity.getMetaClass(), categoryAttribute)
+                            .getMetaProperty();
+                    if (propertyWritingAllowed(metaProperty, entity)) {
+                        writeProperty(out, entity, metaProperty, DynamicAttributesUtils.isDynamicAttribute(metaProperty),
+                                view, cyclicReferences);
+                    }
+                }
             }
-            for (MetaProperty metaProperty : properties) {
-                if (propertyWritingAllowed(metaProperty, entity)) {
-                    ViewProperty viewProperty = null;
-                    if (!DynamicAttributesUtils.isDynamicAttribute(metaProperty)) {
-                        if (view != null) {
-                            viewProperty = view.getProperty(metaProperty.getName());
-                            if (viewProperty == null) continue;
-                        }
+        }
 
-                        if (!PersistenceHelper.isNew(entity)
-                                && !PersistenceHelper.isLoaded(entity, metaProperty.getName())) {
-                            continue;
-                        }
-                    }
+        protected void writeProperty(JsonWriter out, Entity entity, MetaProperty metaProperty, boolean dynamicAttribute,
+                                     @Nullable View view, Set<Entity> cyclicReferences) throws IOException {
+            String propertyName = metaProperty.getName();
+            ViewProperty viewProperty = null;
+            if (!dynamicAttribute) {
+                if (view != null) {
+                    viewProperty = view.getProperty(propertyName);
+                    if (viewProperty == null) return;
+                }
 
-                    Object fieldValue = entity.getValue(metaProperty.getName());
+                if (!PersistenceHelper.isNew(entity)
+                        && !PersistenceHelper.isLoaded(entity, propertyName)) {
+                    return;
+                }
+            }
 
-                    //always write nulls here. GSON will not serialize them to the result if
-                    //EntitySerializationOptions.SERIALIZE_NULLS was not set.
-                    if (fieldValue == null) {
-                        jsonObject.add(metaProperty.getName(), null);
-                        continue;
-                    }
+            Object fieldValue = entity.getValue(propertyName);
 
-                    Range propertyRange = metaProperty.getRange();
-                    if (propertyRange.isDatatype()) {
-                        if (isCollectionDynamicAttribute(metaProperty) && fieldValue instanceof Collection) {
-                            jsonObject.add(metaProperty.getName(),
-                                    serializeSimpleCollection((Collection) fieldValue, metaProperty));
-                        } else {
-                            writeSimpleProperty(jsonObject, fieldValue, metaProperty);
-                        }
-                    } else if (propertyRange.isEnum()) {
-                        jsonObject.addProperty(metaProperty.getName(), fieldValue.toString());
-                    } else if (propertyRange.isClass()) {
-                        if (fieldValue instanceof Entity) {
-                            JsonObject propertyJsonObject = serializeEntity((Entity) fieldValue,
-                                    viewProperty != null ? viewProperty.getView() : null,
-                                    new HashSet<>(cyclicReferences));
-                            jsonObject.add(metaProperty.getName(), propertyJsonObject);
-                        } else if (fieldValue instanceof Collection) {
-                            JsonArray jsonArray = serializeCollection((Collection) fieldValue,
-                                    viewProperty != null ? viewProperty.getView() : null,
-                                    new HashSet<>(cyclicReferences));
-                            jsonObject.add(metaProperty.getName(), jsonArray);
-                        }
-                    }
+            //always write nulls here. JsonWriter will skip them if
+            //EntitySerializationOptions.SERIALIZE_NULLS was not set.
+            if (fieldValue == null) {
+                out.name(propertyName).nullValue();
+                return;
+            }
+
+            Range propertyRange = metaProperty.getRange();
+            if (propertyRange.isDatatype()) {
+                out.name(propertyName);
+                if (isCollectionDynamicAttribute(metaProperty) && fieldValue instanceof Collection) {
+                    writeSimpleCollection(out, (Collection) fieldValue, metaProperty);
+                } else {
+                    writeSimpleProperty(out, fieldValue, metaProperty);
+                }
+            } else if (propertyRange.isEnum()) {
+                out.name(propertyName).value(fieldValue.toString());
+            } else if (propertyRange.isClass()) {
+                if (fieldValue instanceof Entity) {
+                    out.name(propertyName);
+                    writeEntity(out, (Entity) fieldValue, viewProperty != null ? viewProperty.getView() : null,
+                            cyclicReferences);
+                } else if (fieldValue instanceof Collection) {
+                    out.name(propertyName);
+                    writeCollection(out, (Collection) fieldValue, viewProperty != null ? viewProperty.getView() : null,
+                            cyclicReferences);
                 }
             }
         }
 
-        protected void writeSimpleProperty(JsonObject jsonObject, @NotNull Object fieldValue, MetaProperty property) {
-            String propertyName = property.getName();
+        protected void writeSimpleProperty(JsonWriter out, Object fieldValue, MetaProperty property) throws IOException {
             if (fieldValue instanceof Number) {
-                jsonObject.addProperty(propertyName, (Number) fieldValue);
+                out.value((Number) fieldValue);
             } else if (fieldValue instanceof Boolean) {
-                jsonObject.addProperty(propertyName, (Boolean) fieldValue);
+                out.value((boolean) (Boolean) fieldValue);
             } else {
                 Datatype datatype = property.getRange().asDatatype();
-                jsonObject.addProperty(propertyName, datatype.format(fieldValue));
+                out.value(datatype.format(fieldValue));
             }
         }
 
-        protected JsonArray serializeCollection(Collection value, @Nullable View view, Set<Entity> cyclicReferences) {
-            JsonArray jsonArray = new JsonArray();
-            value.stream()
-                    .filter(e -> e instanceof Entity)
-                    .forEach(e -> {
-                        JsonObject jsonObject = serializeEntity((Entity) e, view, new HashSet<>(cyclicReferences));
-                        jsonArray.add(jsonObject);
-                    });
-            return jsonArray;
-        }
-
-        protected JsonArray serializeSimpleCollection(Collection fieldValue, MetaProperty property) {
-            JsonArray jsonArray = new JsonArray();
-            fieldValue.stream()
-                    .forEach(item -> {
-                        if (item instanceof Number) {
-                            jsonArray.add((Number) item);
-                        } else if (item instanceof Boolean) {
-                            jsonArray.add((Boolean) item);
-                        } else {
-                            Datatype datatype = property.getRange().asDatatype();
-                            jsonArray.add(datatype.format(item));
-                        }
-                    });
-            return jsonArray;
+        protected void writeCollection(JsonWriter out, Collection value, @Nullable View view,
+                                       Set<Entity> cyclicReferences) throws IOException {
+            out.beginArray();
+            for (Object item : value) {
+                if (item instanceof Entity) {
+                    writeEntity(out, (Entity) item, view, cyclicReferences);
+                }
+            }
+            out.endArray();
+        }
+
+        protected void writeSimpleCollection(JsonWriter out, Collection fieldValue, MetaProperty property) throws IOException {
+            out.beginArray();
+            for (Object item : fieldValue) {
+                writeSimpleProperty(out, item, property);
+            }
+            out.endArray();
         }
     }
 
@@ -22,8 +22,11 @@ import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.global.View;
 
 import javax.annotation.Nullable;
+import java.io.Reader;
+import java.io.Writer;
 import java.lang.reflect.Type;
 import java.util.Collection;
+import java.util.function.Consumer;
 
 /**
  * Class that is used for serialization and deserialization of entities to JSON.
@@ -69,6 +72,23 @@ public interface EntitySerializationAPI {
                   @Nullable View view,
                   EntitySerializationOption... options);
 
+    /**
+     * Creates a writer serializing entities to the JSON array one by one, so the whole JSON is never held in memory.
+     * The entities are serialized like in the {@link #toJson(Entity, View, EntitySerializationOption...)} method.
+     * <p>
+     * If the {@link EntitySerializationOption#COMPACT_REPEATED_ENTITIES} option is set, repeated entities are compacted
+     * within the graph of each written entity, so the memory used by the writer does not grow with the number of
+     * entities.
+     *
+     * @param writer  target writer, closed when the returned writer is closed
+     * @param view    a view that defines which entity properties should be added to the result JSON objects
+     * @param options options specifying how entities should be serialized
+     * @return entity writer which must be closed to complete the JSON array
+     */
+    EntityJsonWriter createJsonWriter(Writer writer,
+                                      @Nullable View view,
+                                      EntitySerializationOption... options);
+
     /**
      * An overloaded version of the {@link #toJson(Entity, View, EntitySerializationOption...)} method with a null
      * {@code view} parameter and with no serialization options.
@@ -128,6 +148,21 @@ public interface EntitySerializationAPI {
                                                                 @Nullable MetaClass metaClass,
                                                                 EntitySerializationOption... options);
 
+    /**
+     * Deserializes a JSON array of objects read from the reader and passes the entities to the consumer one by one,
+     * so the whole JSON and the whole collection are never held in memory. The reader is not closed.
+     *
+     * @param reader    reader of a JSON array of objects
+     * @param metaClass a metaClass of the entities that will be created
+     * @param consumer  consumer of the deserialized entities
+     * @param options   options specifying how a JSON object graph was serialized
+     * @return number of deserialized entities
+     */
+    <T extends Entity> int entitiesFromJson(Reader reader,
+                                            @Nullable MetaClass metaClass,
+                                            Consumer<? super T> consumer,
+                                            EntitySerializationOption... options);
+
     /**
      * Deserializes an object of any class from JSON. Date fields are deserialized according to the {@link
      * com.haulmont.chile.core.datatypes.impl.DateTimeDatatype} format, entities object and fields of Entity type are
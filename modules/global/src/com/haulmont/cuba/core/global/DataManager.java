@@ -27,6 +27,7 @@ import com.haulmont.cuba.core.entity.contracts.Id;
 import javax.annotation.CheckReturnValue;
 import javax.annotation.Nullable;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Central interface to provide CRUD functionality. Can be used on both middle and client tiers.
@@ -63,6 +64,36 @@ public interface DataManager {
     @CheckReturnValue
     <E extends Entity> List<E> loadList(LoadContext<E> context);
 
+    /**
+     * Loads collection of entity instances and passes them to the consumer one by one, without keeping the whole
+     * collection in memory.
+     * <p>On the middleware, identifiers of the instances are read through a database cursor and the instances are
+     * loaded by chunks of {@code cuba.dataManagerStreamChunkSize} size, each chunk in a separate persistence context.
+     * The {@code firstResult}, {@code maxResults} and {@code joinTransaction} settings of the context are not
+     * supported by this kind of loading, such contexts are loaded by {@link #loadList(LoadContext)}.</p>
+     * <p>The default implementation, used on the client tier, loads the collection by pages, so the query should
+     * define a stable order.</p>
+     * @param context   {@link LoadContext} object, defining what and how to load
+     * @param consumer  receives detached instances in the order of the query
+     */
+    default <E extends Entity> void stream(LoadContext<E> context, Consumer<? super E> consumer) {
+        LoadContext.Query query = context.getQuery();
+        if (query == null || query.getFirstResult() != 0 || query.getMaxResults() != 0 || !context.getIds().isEmpty()) {
+            loadList(context).forEach(consumer);
+            return;
+        }
+        int pageSize = 500;
+        @SuppressWarnings("unchecked")
+        LoadContext<E> pageContext = (LoadContext<E>) context.copy();
+        for (int firstResult = 0; ; firstResult += pageSize) {
+            pageContext.getQuery().setFirstResult(firstResult).setMaxResults(pageSize);
+            List<E> list = loadList(pageContext);
+            list.forEach(consumer);
+            if (list.size() < pageSize)
+                break;
+        }
+    }
+
     /**
      * Returns the number of entity instances for the given query passed in the {@link LoadContext}.
      * @param context   defines the query
@@ -17,8 +17,10 @@
 package com.haulmont.cuba.core.global;
 
 import com.haulmont.cuba.core.entity.FileDescriptor;
+import org.apache.commons.io.IOUtils;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.function.Supplier;
 
@@ -65,6 +67,32 @@ public interface FileLoader {
      */
     InputStream openStream(FileDescriptor fd) throws FileStorageException;
 
+    /**
+     * Return an input stream to load a file contents from middleware starting from the given offset.
+     * <p>
+     * If the client tier and middleware run in the same JVM and the file is kept in the local file storage,
+     * the returned stream is a {@link java.io.FileInputStream} which channel can be used to transfer the contents.
+     *
+     * @param fd     file descriptor
+     * @param offset number of bytes to skip
+     * @return input stream, must be closed after use
+     * @throws IllegalArgumentException if arguments are incorrect
+     * @throws FileStorageException     if something goes wrong
+     */
+    default InputStream openStream(FileDescriptor fd, long offset) throws FileStorageException {
+        if (offset < 0)
+            throw new IllegalArgumentException("Negative offset: " + offset);
+
+        InputStream inputStream = openStream(fd);
+        try {
+            IOUtils.skipFully(inputStream, offset);
+        } catch (IOException e) {
+            IOUtils.closeQuietly(inputStream);
+            throw new FileStorageException(FileStorageException.Type.IO_EXCEPTION, fd.getName(), e);
+        }
+        return inputStream;
+    }
+
     /**
      * Remove a file from the file storage.
      *
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.global;
+
+import com.haulmont.bali.util.Preconditions;
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.entity.IdProxy;
+
+import javax.annotation.Nullable;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Position of a page in the keyset (seek) pagination mode: values of the sort properties and the identifier
+ * of the last instance of the previous page.
+ * <p>
+ * When a keyset is set to {@link LoadContext.Query#setKeyset(Keyset)}, the query loads instances following
+ * the position instead of skipping {@code firstResult} rows, so loading of any page costs the same. The query is
+ * sorted by the properties of its {@link Sort} followed by the primary key. The sort can contain only persistent
+ * properties of datatypes, and their values must not be null.
+ * <p>
+ * Usage example:
+ * <pre>
+ * Sort sort = Sort.by("name");
+ * LoadContext.Query query = LoadContext.createQuery("select c from sample$Customer c")
+ *      .setSort(sort)
+ *      .setMaxResults(50);
+ * if (lastCustomer != null) {
+ *     query.setKeyset(Keyset.after(lastCustomer, sort));
+ * }
+ * </pre>
+ */
+public class Keyset implements Serializable {
+
+    private static final long serialVersionUID = -6208297815312412874L;
+
+    private final List<Object> values;
+
+    protected Keyset(List<Object> values) {
+        this.values = Collections.unmodifiableList(values);
+    }
+
+    /**
+     * Creates the position following the given instance. The primary key value is added after the values of
+     * the sort properties unless the sort already contains the primary key.
+     *
+     * @param entity last instance of the previous page
+     * @param sort   sort of the query, or null if the query is sorted by the primary key only
+     */
+    public static Keyset after(Entity entity, @Nullable Sort sort) {
+        Preconditions.checkNotNullArgument(entity, "entity is null");
+
+        String primaryKeyName = AppBeans.get(MetadataTools.class).getPrimaryKeyName(entity.getMetaClass());
+        boolean sortedByPrimaryKey = false;
+        List<Object> values = new ArrayList<>();
+        if (sort != null) {
+            for (Sort.Order order : sort.getOrders()) {
+                if (order.getProperty().equals(primaryKeyName)) {
+                    sortedByPrimaryKey = true;
+                }
+                Object value = entity.getValueEx(order.getProperty());
+                if (value == null) {
+                    throw new IllegalArgumentException(String.format(
+                            "Keyset pagination does not support null values, property '%s' of %s is null",
+                            order.getProperty(), entity));
+                }
+                values.add(value instanceof IdProxy ? ((IdProxy) value).getNN() : value);
+            }
+        }
+        if (!sortedByPrimaryKey) {
+            Object id = entity.getId();
+            values.add(id instanceof IdProxy ? ((IdProxy) id).getNN() : id);
+        }
+        return new Keyset(values);
+    }
+
+    /**
+     * Creates the position from values of the sort properties followed by the primary key value.
+     */
+    public static Keyset of(Object... values) {
+        Preconditions.checkNotNullArgument(values, "values are null");
+        return new Keyset(new ArrayList<>(Arrays.asList(values)));
+    }
+
+    /**
+     * @return values of the sort properties followed by the primary key value
+     */
+    public List<Object> getValues() {
+        return values;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return values.equals(((Keyset) o).values);
+    }
+
+    @Override
+    public int hashCode() {
+        return values.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "Keyset" + values;
+    }
+}
@@ -359,6 +359,7 @@ public class LoadContext<E extends Entity> implements DataLoadContext, Serializa
         private boolean cacheable;
         private Condition condition;
         private Sort sort;
+        private Keyset keyset;
 
         /**
          * @param queryString JPQL query string. Only named parameters are supported.
@@ -491,6 +492,25 @@ public class LoadContext<E extends Entity> implements DataLoadContext, Serializa
             return this;
         }
 
+        /**
+         * @return position of the page in the keyset pagination mode
+         */
+        @Nullable
+        public Keyset getKeyset() {
+            return keyset;
+        }
+
+        /**
+         * Turns on the keyset pagination mode: the query loads instances following the given position in the order
+         * defined by {@link #setSort(Sort)}. The first result should not be set in this mode.
+         * @param keyset position of the page, see {@link Keyset#after(Entity, Sort)}
+         * @return this query instance for chaining
+         */
+        public Query setKeyset(@Nullable Keyset keyset) {
+            this.keyset = keyset;
+            return this;
+        }
+
         /**
          * Indicates that the query results should be cached.
          * @return the same query instance
@@ -535,6 +555,7 @@ public class LoadContext<E extends Entity> implements DataLoadContext, Serializa
             query.cacheable = cacheable;
             query.condition = condition == null ? null : condition.copy();
             query.sort = sort;
+            query.keyset = keyset;
             return query;
         }
 
@@ -548,6 +569,7 @@ public class LoadContext<E extends Entity> implements DataLoadContext, Serializa
             if (firstResult != query.firstResult) return false;
             if (maxResults != query.maxResults) return false;
             if (!parameters.equals(query.parameters)) return false;
+            if (!Objects.equals(keyset, query.keyset)) return false;
             return queryString.equals(query.queryString);
         }
 
@@ -566,6 +588,7 @@ public class LoadContext<E extends Entity> implements DataLoadContext, Serializa
                     "queryString='" + queryString + '\'' +
                     ", condition=" + condition +
                     ", sort=" + sort +
+                    (keyset == null ? "" : ", keyset=" + keyset) +
                     ", firstResult=" + firstResult +
                     ", maxResults=" + maxResults +
                     "}";
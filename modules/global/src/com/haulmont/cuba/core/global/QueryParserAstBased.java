@@ -66,7 +66,8 @@ public class QueryParserAstBased implements QueryParser {
     protected QueryTree getTree() {
         if (queryTree == null) {
             try {
-                queryTree = new QueryTree(model, query);
+                // the tree is shared with other parsers and must not be modified
+                queryTree = QueryTreeCache.get(model, query);
             } catch (JPA2RecognitionException e) {
                 throw new JpqlSyntaxException(format("Errors found for input JPQL:[%s]\n%s", StringUtils.strip(query), e.getMessage()));
             }
@@ -206,9 +207,12 @@ public class QueryParserAstBased implements QueryParser {
     public List<String> getSelectedExpressionsList() {
         return getTree().getAstSelectedNodes()
                 .map(node -> {
+                    // children are visited without the item node itself to skip the separator
+                    // without modifying the shared tree
                     TreeToQuery toQuery = new TreeToQuery();
-                    node.setSkipSeparator(true);
-                    new TreeVisitor().visit(node, toQuery);
+                    for (Object child : node.getChildren()) {
+                        new TreeVisitor().visit(child, toQuery);
+                    }
                     return toQuery.getQueryString();
                 })
                 .collect(Collectors.toList());
@@ -18,6 +18,8 @@
 package com.haulmont.cuba.core.global;
 
 import groovy.lang.Binding;
+import groovy.lang.GroovyShell;
+import groovy.lang.Script;
 
 import javax.annotation.Nullable;
 import java.util.Map;
@@ -61,6 +63,20 @@ public interface Scripting {
      */
     <T> T evaluateGroovy(String text, Map<String, Object> context);
 
+    /**
+     * Compiles Groovy expression into a script class. The expression is compiled with the same imports and classpath
+     * as by {@link #evaluateGroovy(String, Binding)}, but the class is not cached. Instances of the class can
+     * evaluate the expression many times without recompilation, each instance should be used by one thread at a time.
+     * <p>
+     * The default implementation compiles the expression by {@link GroovyShell} with {@link #getClassLoader()},
+     * without the default imports.
+     * @param text      expression text
+     * @return          compiled script class
+     */
+    default Class<? extends Script> compileGroovy(String text) {
+        return new GroovyShell(getClassLoader()).parse(text).getClass();
+    }
+
     /**
      * Runs Groovy script.
      * The script must be located as file under <em>conf</em> directory, or as a classpath resource.
@@ -104,6 +104,16 @@ public class View implements Serializable {
 
     private boolean loadPartialEntities;
 
+    private transient boolean frozen;
+
+    private transient boolean sharedProperties;
+
+    private transient Collection<ViewProperty> unmodifiableProperties;
+
+    private transient View frozenSource;
+
+    private transient boolean modified;
+
     public View(Class<? extends Entity> entityClass) {
         this(entityClass, "", true);
     }
@@ -166,9 +176,15 @@ public class View implements Serializable {
                 View sourcePropertyView = sourceProperty.getView();
 
                 if (sourcePropertyView != null && isNotEmpty(sourcePropertyView.getProperties())) {
-
-                    Map<String, ViewProperty> thisViewProperties = thisProperties.get(sourcePropertyName).getView().properties;
-                    putProperties(thisViewProperties, sourcePropertyView.getProperties());
+                    ViewProperty thisProperty = thisProperties.get(sourcePropertyName);
+                    View thisPropertyView = thisProperty.getView();
+                    if (thisPropertyView.isFrozen()) {
+                        thisPropertyView = sharedCopy(thisPropertyView);
+                        thisProperties.put(sourcePropertyName,
+                                new ViewProperty(sourcePropertyName, thisPropertyView, thisProperty.getFetchMode()));
+                    }
+
+                    putProperties(thisPropertyView.getModifiableProperties(), sourcePropertyView.getProperties());
                 }
 
             } else {
@@ -193,6 +209,130 @@ public class View implements Serializable {
         return copy;
     }
 
+    /**
+     * Creates a lightweight copy of the given view. The copy shares properties with the source view
+     * until its properties are accessed or modified for the first time, so it is cheap to create for frozen views
+     * obtained from {@link ViewRepository}.
+     * <p>
+     * Frozen views of reference properties are replaced with their lightweight copies when the properties of the
+     * copy are accessed, so the whole graph of the copy can be modified.
+     *
+     * @param view source view
+     * @return copy-on-write copy of the view, or null if the source view is null
+     */
+    public static View sharedCopy(@Nullable View view) {
+        if (view == null) {
+            return null;
+        }
+
+        View copy = new View(new ViewParams()
+                .entityClass(view.getEntityClass())
+                .name(view.getName()));
+        copy.properties = view.properties;
+        copy.sharedProperties = true;
+        copy.unmodifiableProperties = view.unmodifiableProperties;
+        copy.loadPartialEntities = view.loadPartialEntities;
+        if (view.frozen) {
+            copy.frozenSource = view;
+        }
+        return copy;
+    }
+
+    /**
+     * INTERNAL.
+     * Returns the frozen view which has the same content as this view and can be used instead of it as
+     * a stable cache key, e.g. the source of an unmodified {@link #sharedCopy(View)}.
+     *
+     * @return this view if it is frozen, the frozen source of this shared copy if neither the copy nor views of its
+     * reference properties have been modified, or null
+     */
+    @Nullable
+    public View getFrozenSource() {
+        if (frozen) {
+            return this;
+        }
+        if (frozenSource == null || modified) {
+            return null;
+        }
+        if (!sharedProperties) {
+            for (ViewProperty property : properties.values()) {
+                View view = property.getView();
+                if (view != null && view.getFrozenSource() == null) {
+                    return null;
+                }
+            }
+        }
+        return frozenSource;
+    }
+
+    /**
+     * Makes this view and all views of its reference properties immutable. A frozen view can be safely shared
+     * between threads. Any attempt to modify it throws {@link IllegalStateException}, use {@link #copy(View)}
+     * or {@link #sharedCopy(View)} to obtain a modifiable instance.
+     * <p>
+     * As views of reference properties are frozen too, freeze only views that own their graph,
+     * e.g. obtained by {@link #copy(View)}.
+     *
+     * @return this view instance for chaining
+     */
+    public View freeze() {
+        if (!frozen) {
+            unshareProperties();
+            frozen = true;
+            if (unmodifiableProperties == null) {
+                unmodifiableProperties = Collections.unmodifiableCollection(properties.values());
+            }
+            for (ViewProperty property : properties.values()) {
+                if (property.getView() != null) {
+                    property.getView().freeze();
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return true if the view is immutable
+     * @see #freeze()
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    protected void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException(String.format("View %s is frozen and cannot be modified. " +
+                    "Use View.copy() to obtain a modifiable instance", this));
+        }
+    }
+
+    protected Map<String, ViewProperty> getModifiableProperties() {
+        checkNotFrozen();
+        unshareProperties();
+        modified = true;
+        return properties;
+    }
+
+    /**
+     * Makes own copy of the properties shared with the source of {@link #sharedCopy(View)}, replacing frozen
+     * views of reference properties with their lightweight copies.
+     */
+    protected void unshareProperties() {
+        if (sharedProperties && !frozen) {
+            Map<String, ViewProperty> copy = new LinkedHashMap<>();
+            for (ViewProperty property : properties.values()) {
+                View view = property.getView();
+                if (view != null && view.isFrozen()) {
+                    property = new ViewProperty(property.getName(), sharedCopy(view), property.getFetchMode());
+                }
+                copy.put(property.getName(), property);
+            }
+            properties = copy;
+            sharedProperties = false;
+            unmodifiableProperties = null;
+        }
+    }
+
     /**
      * @return entity class this view belongs to
      */
@@ -211,7 +351,8 @@ public class View implements Serializable {
      * @return collection of properties
      */
     public Collection<ViewProperty> getProperties() {
-        return properties.values();
+        unshareProperties();
+        return unmodifiableProperties != null ? unmodifiableProperties : properties.values();
     }
 
     /**
@@ -222,13 +363,13 @@ public class View implements Serializable {
      * @return      this view instance for chaining
      */
     public View addProperty(String name, @Nullable View view, FetchMode fetchMode) {
-        properties.put(name, new ViewProperty(name, view, fetchMode));
+        getModifiableProperties().put(name, new ViewProperty(name, view, fetchMode));
         return this;
     }
 
     @Deprecated
     public View addProperty(String name, @Nullable View view, boolean lazy) {
-        properties.put(name, new ViewProperty(name, view, lazy));
+        getModifiableProperties().put(name, new ViewProperty(name, view, lazy));
         return this;
     }
 
@@ -239,7 +380,7 @@ public class View implements Serializable {
      * @return      this view instance for chaining
      */
     public View addProperty(String name, View view) {
-        properties.put(name, new ViewProperty(name, view));
+        getModifiableProperties().put(name, new ViewProperty(name, view));
         return this;
     }
 
@@ -249,7 +390,7 @@ public class View implements Serializable {
      * @return      this view instance for chaining
      */
     public View addProperty(String name) {
-        properties.put(name, new ViewProperty(name, null));
+        getModifiableProperties().put(name, new ViewProperty(name, null));
         return this;
     }
 
@@ -282,6 +423,7 @@ public class View implements Serializable {
      */
     @Nullable
     public ViewProperty getProperty(String name) {
+        unshareProperties();
         return properties.get(name);
     }
 
@@ -312,7 +454,9 @@ public class View implements Serializable {
      * @return this view instance for chaining
      */
     public View setLoadPartialEntities(boolean loadPartialEntities) {
+        checkNotFrozen();
         this.loadPartialEntities = loadPartialEntities;
+        modified = true;
         return this;
     }
 
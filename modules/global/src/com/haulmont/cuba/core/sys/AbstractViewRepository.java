@@ -59,6 +59,13 @@ public class AbstractViewRepository implements ViewRepository {
 
     protected Map<MetaClass, Map<String, View>> storage = new ConcurrentHashMap<>();
 
+    /**
+     * Frozen copies of views from {@link #storage} which are shared between all callers of {@link #findView}.
+     * Replaced with an empty map when views in the storage change, so a view built from the previous
+     * state of the storage is put to the discarded map.
+     */
+    protected volatile Map<MetaClass, Map<String, View>> frozenViews = new ConcurrentHashMap<>();
+
     @Inject
     protected Metadata metadata;
 
@@ -79,6 +86,7 @@ public class AbstractViewRepository implements ViewRepository {
             try {
                 if (!initialized) {
                     log.info("Initializing views");
+                    invalidateFrozenViews();
                     init();
                     initialized = true;
                 }
@@ -153,6 +161,7 @@ public class AbstractViewRepository implements ViewRepository {
 
     public void reset() {
         initialized = false;
+        invalidateFrozenViews();
     }
 
     /**
@@ -188,6 +197,9 @@ public class AbstractViewRepository implements ViewRepository {
 
     /**
      * Searches for a View for an entity
+     * <p>
+     * Returned view is a copy-on-write instance sharing its content with a frozen view cached in the repository,
+     * so it and views of its reference properties can be modified. See {@link View#sharedCopy(View)}.
      *
      * @param metaClass entity class
      * @param name      view name
@@ -204,17 +216,37 @@ public class AbstractViewRepository implements ViewRepository {
             return null;
         }
 
+        if (initialized) {
+            Map<String, View> views = frozenViews.get(metaClass);
+            View view = views == null ? null : views.get(name);
+            if (view != null) {
+                return View.sharedCopy(view);
+            }
+        }
+
         lock.readLock().lock();
         try {
             checkInitialized();
 
+            Map<MetaClass, Map<String, View>> cache = frozenViews;
+
             View view = retrieveView(metaClass, name, new HashSet<>());
-            return copyView(view);
+            if (view == null) {
+                return null;
+            }
+
+            View frozenView = copyView(view).freeze();
+            cache.computeIfAbsent(metaClass, k -> new ConcurrentHashMap<>()).put(name, frozenView);
+            return View.sharedCopy(frozenView);
         } finally {
             lock.readLock().unlock();
         }
     }
 
+    protected void invalidateFrozenViews() {
+        frozenViews = new ConcurrentHashMap<>();
+    }
+
     protected View copyView(@Nullable View view) {
         if (view == null) {
             return null;
@@ -553,6 +585,8 @@ public class AbstractViewRepository implements ViewRepository {
 
         views.put(view.getName(), view);
         storage.put(metaClass, views);
+
+        invalidateFrozenViews();
     }
 
     protected List<View> getAllInitialized() {
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.haulmont.cuba.core.sys;
+
+import org.apache.commons.lang3.StringUtils;
+
+import javax.annotation.Nullable;
+
+/**
+ * INTERNAL.
+ * Single byte range requested by the HTTP {@code Range} header.
+ */
+public final class ByteRange {
+
+    private static final String BYTES_UNIT = "bytes=";
+
+    private final long start;
+    private final long end;
+    private final long totalLength;
+
+    private ByteRange(long start, long end, long totalLength) {
+        this.start = start;
+        this.end = end;
+        this.totalLength = totalLength;
+    }
+
+    /**
+     * Parses the value of the {@code Range} header.
+     *
+     * @param header      header value
+     * @param totalLength length of the content
+     * @return range or null if the whole content should be sent: the header is absent, malformed or
+     * requests several ranges. Check the returned range with {@link #isSatisfiable()}.
+     */
+    @Nullable
+    public static ByteRange parse(@Nullable String header, long totalLength) {
+        if (header == null || !header.startsWith(BYTES_UNIT) || header.indexOf(',') >= 0)
+            return null;
+
+        String spec = header.substring(BYTES_UNIT.length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0)
+            return null;
+
+        String first = spec.substring(0, dash).trim();
+        String last = spec.substring(dash + 1).trim();
+        if (first.isEmpty() && last.isEmpty()
+                || !first.isEmpty() && !StringUtils.isNumeric(first)
+                || !last.isEmpty() && !StringUtils.isNumeric(last))
+            return null;
+
+        try {
+            if (first.isEmpty()) {
+                // suffix range: the last N bytes
+                long suffixLength = Long.parseLong(last);
+                return new ByteRange(Math.max(totalLength - suffixLength, 0), totalLength - 1, totalLength);
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+            if (end < start)
+                return null;
+            return new ByteRange(start, Math.min(end, totalLength - 1), totalLength);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return false if the range is beyond the content, the response must have status 416 then
+     */
+    public boolean isSatisfiable() {
+        return start < totalLength && start <= end;
+    }
+
+    /**
+     * @return offset of the first byte
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * @return offset of the last byte, inclusive
+     */
+    public long getEnd() {
+        return end;
+    }
+
+    /**
+     * @return number of bytes in the range
+     */
+    public long getLength() {
+        return end - start + 1;
+    }
+
+    /**
+     * @return value of the {@code Content-Range} response header
+     */
+    public String getContentRange() {
+        return isSatisfiable()
+                ? "bytes " + start + "-" + end + "/" + totalLength
+                : "bytes */" + totalLength;
+    }
+
+    @Override
+    public String toString() {
+        return getContentRange();
+    }
+}
@@ -17,37 +17,82 @@
 
 package com.haulmont.cuba.core.sys;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.cuba.core.entity.annotation.IdSequence;
 import com.haulmont.cuba.core.global.GlobalConfig;
 import com.haulmont.cuba.core.global.Metadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Intermediate cache for generated ids of entities with long/integer PK.
  * The cache size is determined by the {@code cuba.numberIdCacheSize} app property.
+ * <p>
+ * Ids are taken from blocks of sequence values without locking. When the current block is half used,
+ * the next blocks are fetched from the database in background. If blocks are used up quickly, more of them
+ * are fetched at once, up to {@link #MAX_BLOCKS_PER_FETCH}.
  */
 @Component(NumberIdCache.NAME)
 public class NumberIdCache {
 
     public static final String NAME = "cuba_NumberIdCache";
 
+    private static final Logger log = LoggerFactory.getLogger(NumberIdCache.class);
+
+    /**
+     * Max number of sequence blocks fetched by one background fetch.
+     */
+    protected static final int MAX_BLOCKS_PER_FETCH = 16;
+
+    /**
+     * If a block is used up faster than this, the number of blocks per fetch is doubled,
+     * if slower than ten times this, it is halved.
+     */
+    protected static final long FAST_BLOCK_USAGE_MS = 1000;
+
     @Inject
     protected Metadata metadata;
 
+    protected ExecutorService prefetchExecutor = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("NumberIdCachePrefetch-%d").setDaemon(true).build());
+
+    /**
+     * Range of ids {@code (start, end]} obtained by one sequence call.
+     */
+    protected static class Block {
+        protected final long end;
+        protected final long watermark;
+        protected final AtomicLong counter;
+        protected volatile long startTime;
+
+        public Block(long sequenceValue, int size) {
+            this.end = sequenceValue + size;
+            this.watermark = sequenceValue + Math.max(1, size / 2);
+            this.counter = new AtomicLong(sequenceValue);
+        }
+    }
+
     protected class Generator {
-        protected long counter;
-        protected long sequenceValue;
         protected String entityName;
         protected String sequenceName;
         protected boolean cached;
         protected NumberIdSequence numberIdSequence;
 
+        protected volatile Block current;
+        protected Queue<Block> prefetched = new ConcurrentLinkedQueue<>();
+        protected AtomicBoolean prefetching = new AtomicBoolean();
+        protected volatile int blocksPerFetch = 1;
+
         public Generator(String entityName,
                          String sequenceName,
                          boolean cached,
@@ -56,30 +101,90 @@ public class NumberIdCache {
             this.sequenceName = sequenceName;
             this.cached = cached;
             this.numberIdSequence = sequence;
-            if (useIdCache()) {
-                createCachedCounter();
-            }
         }
 
         protected boolean useIdCache() {
             return config.getNumberIdCacheSize() != 0 && cached;
         }
 
-        protected void createCachedCounter() {
-            sequenceValue = numberIdSequence.createCachedLongId(entityName, sequenceName);
-            counter = sequenceValue;
+        protected boolean usePrefetch() {
+            // a cache of 1 id is used to minimize gaps in the sequence, so do not fetch ahead
+            return config.getNumberIdCacheSize() > 1;
         }
 
-        public synchronized long getNext() {
+        protected Block fetchBlock() {
+            int size = config.getNumberIdCacheSize();
+            return new Block(numberIdSequence.createCachedLongId(entityName, sequenceName), size);
+        }
+
+        public long getNext() {
             if (!useIdCache()) {
                 return numberIdSequence.createLongId(entityName, sequenceName);
-            } else {
-                long next = ++counter;
-                if (next > sequenceValue + config.getNumberIdCacheSize()) {
-                    createCachedCounter();
-                    next = ++counter;
+            }
+            while (true) {
+                Block block = current;
+                if (block == null) {
+                    switchBlock(null);
+                    continue;
                 }
-                return next;
+                long next = block.counter.incrementAndGet();
+                if (next <= block.end) {
+                    if (next == block.watermark && usePrefetch()) {
+                        startPrefetch();
+                    }
+                    return next;
+                }
+                switchBlock(block);
+            }
+        }
+
+        protected synchronized void switchBlock(Block exhausted) {
+            if (current != exhausted) {
+                return;
+            }
+
+            long now = System.currentTimeMillis();
+            if (exhausted != null && usePrefetch()) {
+                adaptBlocksPerFetch(now - exhausted.startTime);
+            }
+
+            Block block = prefetched.poll();
+            if (block == null) {
+                log.debug("No prefetched ids for {}, fetching synchronously", entityName);
+                block = fetchBlock();
+            }
+            block.startTime = now;
+            current = block;
+        }
+
+        protected void adaptBlocksPerFetch(long blockUsageTime) {
+            if (blockUsageTime < FAST_BLOCK_USAGE_MS) {
+                blocksPerFetch = Math.min(blocksPerFetch * 2, MAX_BLOCKS_PER_FETCH);
+            } else if (blockUsageTime > FAST_BLOCK_USAGE_MS * 10) {
+                blocksPerFetch = Math.max(blocksPerFetch / 2, 1);
+            }
+        }
+
+        protected void startPrefetch() {
+            if (!prefetched.isEmpty() || !prefetching.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                // the sequence can be a remote service requiring the user session, e.g. on the client tier
+                prefetchExecutor.execute(new SecurityContextAwareRunnable(() -> {
+                    try {
+                        int count = blocksPerFetch;
+                        for (int i = 0; i < count; i++) {
+                            prefetched.add(fetchBlock());
+                        }
+                    } catch (Exception e) {
+                        log.warn("Unable to prefetch ids for {}", entityName, e);
+                    } finally {
+                        prefetching.set(false);
+                    }
+                }));
+            } catch (RejectedExecutionException e) {
+                prefetching.set(false);
             }
         }
     }
@@ -123,6 +228,19 @@ public class NumberIdCache {
      */
     public void reset() {
         cache.clear();
+        // wait for running prefetches so that they do not touch sequences after reset
+        try {
+            prefetchExecutor.submit(() -> {}).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | RejectedExecutionException e) {
+            log.debug("Unable to wait for id prefetch", e);
+        }
+    }
+
+    @PreDestroy
+    protected void shutdown() {
+        prefetchExecutor.shutdownNow();
     }
 
     protected String getCacheKey(String entityName, String sequenceName) {
@@ -41,6 +41,10 @@ public class QueryBuilder {
         }
     }
 
+    public boolean isEmpty() {
+        return sb.length() == 0;
+    }
+
     public char getLast() {
         return sb.charAt(sb.length() - 1);
     }
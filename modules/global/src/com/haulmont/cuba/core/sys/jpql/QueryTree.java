@@ -57,6 +57,23 @@ public class QueryTree {
         new TreeVisitor().visit(tree, idVarSelector);
     }
 
+    protected QueryTree(DomainModel model, String queryString, CommonTree tree) {
+        this.model = model;
+        this.queryString = queryString;
+        this.tree = tree;
+
+        this.idVarSelector = new IdVarSelector(model);
+        new TreeVisitor().visit(tree, idVarSelector);
+    }
+
+    /**
+     * Creates a tree which can be modified independently of this one. The copy is much cheaper than parsing
+     * the query again.
+     */
+    public QueryTree copy() {
+        return new QueryTree(model, queryString, BaseCustomNode.dupTree(tree));
+    }
+
     public DomainModel getModel() {
         return model;
     }
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.jpql;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.haulmont.cuba.core.sys.AppContext;
+import org.apache.commons.lang3.math.NumberUtils;
+
+/**
+ * Keeps parsed query trees to be shared by {@link com.haulmont.cuba.core.global.QueryParserAstBased} and
+ * {@link com.haulmont.cuba.core.sys.jpql.transform.QueryTransformerAstBased} instances working with the same query.
+ * <p>
+ * Trees returned by {@link #get(DomainModel, String)} must not be modified, a transformer works with
+ * a {@link QueryTree#copy()}.
+ * <p>
+ * The max number of trees is set by the {@code cuba.jpqlParseCacheMaxSize} app property, 1000 by default.
+ * 0 turns off the cache. The property is read when the cache is first used and again on {@link #invalidateAll()},
+ * so a changed value is applied after clearing the cache, e.g. by {@code PersistenceManagerMBean}.
+ */
+public final class QueryTreeCache {
+
+    private static final int DEFAULT_MAX_SIZE = 1000;
+
+    private static volatile Cache<Key, QueryTree> cache;
+
+    private QueryTreeCache() {
+    }
+
+    private static Cache<Key, QueryTree> getCache() {
+        Cache<Key, QueryTree> result = cache;
+        if (result == null) {
+            synchronized (QueryTreeCache.class) {
+                result = cache;
+                if (result == null) {
+                    result = CacheBuilder.newBuilder()
+                            .maximumSize(getMaxSize())
+                            .recordStats()
+                            .build();
+                    cache = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static int getMaxSize() {
+        try {
+            return Math.max(NumberUtils.toInt(AppContext.getProperty("cuba.jpqlParseCacheMaxSize"), DEFAULT_MAX_SIZE), 0);
+        } catch (IllegalStateException e) {
+            // app properties are not initialized, e.g. in unit tests
+            return DEFAULT_MAX_SIZE;
+        }
+    }
+
+    /**
+     * Returns the parsed tree of the query, parsing the query if it is not in the cache.
+     * Trees containing invalid identification variables are not cached.
+     *
+     * @throws JPA2RecognitionException if the query cannot be parsed
+     */
+    public static QueryTree get(DomainModel model, String query) {
+        Key key = new Key(model, query);
+        Cache<Key, QueryTree> cache = getCache();
+        QueryTree queryTree = cache.getIfPresent(key);
+        if (queryTree == null) {
+            queryTree = new QueryTree(model, query);
+            if (queryTree.getInvalidIdVarNodes().isEmpty()) {
+                cache.put(key, queryTree);
+            }
+        }
+        return queryTree;
+    }
+
+    public static long size() {
+        return getCache().size();
+    }
+
+    public static CacheStats getStats() {
+        return getCache().stats();
+    }
+
+    /**
+     * Removes all trees and rebuilds the cache with the current value of {@code cuba.jpqlParseCacheMaxSize}.
+     * Statistics are reset.
+     */
+    public static void invalidateAll() {
+        synchronized (QueryTreeCache.class) {
+            cache = null;
+        }
+    }
+
+    private static class Key {
+        private final DomainModel model;
+        private final String query;
+
+        private Key(DomainModel model, String query) {
+            this.model = model;
+            this.query = query;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            // trees depend on the model instance they are built with
+            return model == key.model && query.equals(key.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(model) + query.hashCode();
+        }
+    }
+}
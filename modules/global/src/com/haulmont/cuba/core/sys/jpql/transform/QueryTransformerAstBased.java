@@ -67,15 +67,18 @@ public class QueryTransformerAstBased implements QueryTransformer {
 
     protected QueryTree getTree() {
         if (queryTree == null) {
+            QueryTree sharedTree;
             try {
-                queryTree = new QueryTree(model, query);
+                sharedTree = QueryTreeCache.get(model, query);
             } catch (JPA2RecognitionException e) {
                 throw new JpqlSyntaxException(format("Errors found for input JPQL:[%s]\n%s", StringUtils.strip(query), e.getMessage()));
             }
-            List<ErrorRec> errors = new ArrayList<>(queryTree.getInvalidIdVarNodes());
+            List<ErrorRec> errors = new ArrayList<>(sharedTree.getInvalidIdVarNodes());
             if (!errors.isEmpty()) {
                 throw new JpqlSyntaxException(format("Errors found for input JPQL:[%s]", StringUtils.strip(query)), errors);
             }
+            // the transformer modifies the tree, so it works with a copy of the cached one
+            queryTree = sharedTree.copy();
         }
         return queryTree;
     }
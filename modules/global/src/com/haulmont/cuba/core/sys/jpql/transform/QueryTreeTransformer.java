@@ -75,7 +75,7 @@ public class QueryTreeTransformer {
             sourceWhere.addChild(createLPAREN());
             for (Object o : targetWhere.getChildren()) {
                 CommonTree t = (CommonTree) o;
-                sourceWhere.addChild(t.dupNode());
+                sourceWhere.addChild(BaseCustomNode.dupTree(t));
             }
             sourceWhere.addChild(createRPAREN());
 
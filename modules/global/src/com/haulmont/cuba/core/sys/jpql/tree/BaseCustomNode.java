@@ -21,7 +21,6 @@ import com.haulmont.cuba.core.sys.jpql.ErrorRec;
 import com.haulmont.cuba.core.sys.jpql.QueryBuilder;
 import org.antlr.runtime.Token;
 import org.antlr.runtime.tree.CommonTree;
-import org.antlr.runtime.tree.Tree;
 
 import java.util.List;
 
@@ -53,10 +52,24 @@ public class BaseCustomNode extends CommonTree implements TreeToQueryCapable {
     }
 
     protected void dupChildren(CommonTree result) {
+        if (children == null)
+            return;
         for (Object child : children) {
-            CommonTree t = (CommonTree) child;
-            Tree copy = t.dupNode();
-            result.addChild(copy);
+            result.addChild(dupTree((CommonTree) child));
         }
     }
+
+    /**
+     * Copies the node with all its descendants. Tokens are shared with the original tree.
+     */
+    public static CommonTree dupTree(CommonTree node) {
+        CommonTree copy = (CommonTree) node.dupNode();
+        // custom nodes copy their children themselves
+        if (!(node instanceof BaseCustomNode) && node.getChildCount() > 0) {
+            for (Object child : node.getChildren()) {
+                copy.addChild(dupTree((CommonTree) child));
+            }
+        }
+        return copy;
+    }
 }
\ No newline at end of file
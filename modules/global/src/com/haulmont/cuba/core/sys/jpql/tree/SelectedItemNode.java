@@ -28,8 +28,6 @@ import java.util.List;
 
 public class SelectedItemNode extends BaseCustomNode {
 
-    protected boolean skipSeparator;
-
     private SelectedItemNode(Token token) {
         super(token);
     }
@@ -54,16 +52,20 @@ public class SelectedItemNode extends BaseCustomNode {
     @Override
     public CommonTree treeToQueryPre(QueryBuilder sb, List<ErrorRec> invalidNodes) {
         CommonTree prevNode = getPrevNode();
-        if (prevNode != null && prevNode instanceof SelectedItemNode && !skipSeparator) {
+        // the node can be shared by concurrent renderers, so the separator depends only on the rendered text:
+        // an item rendered alone starts with an empty builder
+        if (prevNode instanceof SelectedItemNode && !sb.isEmpty()) {
             sb.appendString(", ");
         } else {
             sb.appendSpace();
         }
-        skipSeparator = false;
         return super.treeToQueryPre(sb, invalidNodes);
     }
 
+    /**
+     * @deprecated the separator is skipped when the item is rendered first, the node keeps no rendering state
+     */
+    @Deprecated
     public void setSkipSeparator(boolean skipSeparator) {
-        this.skipSeparator = skipSeparator;
     }
 }
\ No newline at end of file
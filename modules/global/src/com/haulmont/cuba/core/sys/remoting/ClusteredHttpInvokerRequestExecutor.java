@@ -20,113 +20,146 @@ package com.haulmont.cuba.core.sys.remoting;
 import com.google.common.io.CountingInputStream;
 import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.core.sys.remoting.discovery.ServerSelector;
+import com.haulmont.cuba.core.sys.serialization.SerializationException;
 import com.haulmont.cuba.core.sys.serialization.SerializationSupport;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanClassLoaderAware;
 import org.springframework.remoting.httpinvoker.HttpInvokerClientConfiguration;
-import org.springframework.remoting.httpinvoker.SimpleHttpInvokerRequestExecutor;
+import org.springframework.remoting.httpinvoker.HttpInvokerRequestExecutor;
+import org.springframework.remoting.rmi.CodebaseAwareObjectInputStream;
 import org.springframework.remoting.support.RemoteInvocation;
 import org.springframework.remoting.support.RemoteInvocationResult;
 import org.springframework.util.StopWatch;
 
 import javax.annotation.Nullable;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.net.URLConnection;
+import java.io.*;
 
 /**
  * HttpInvokerRequestExecutor that executes a request on a server which is selected according to the current cluster
  * topology, provided by {@link ServerSelector}.
+ * <p>
+ * Requests are sent by a {@link HttpInvokerTransport}. The remote invocation is serialized directly to the connection,
+ * unless {@code cuba.remotingCompressionThreshold} app property is set. In this case, the request is serialized
+ * in memory and compressed if its size exceeds the threshold in bytes.
+ * Invocation latencies are passed to the {@link ServerSelector}.
  */
-public class ClusteredHttpInvokerRequestExecutor extends SimpleHttpInvokerRequestExecutor {
+public class ClusteredHttpInvokerRequestExecutor implements HttpInvokerRequestExecutor, BeanClassLoaderAware {
 
     private ServerSelector serverSelector;
 
     private static final Logger log = LoggerFactory.getLogger(ClusteredHttpInvokerRequestExecutor.class);
 
+    protected HttpInvokerTransport transport;
+
+    protected int compressionThreshold;
+
+    protected ClassLoader beanClassLoader;
+
     public ClusteredHttpInvokerRequestExecutor(ServerSelector serverSelector) {
+        this(serverSelector, new SimpleHttpInvokerTransport());
+    }
+
+    public ClusteredHttpInvokerRequestExecutor(ServerSelector serverSelector, HttpInvokerTransport transport) {
         this.serverSelector = serverSelector;
+        this.transport = transport;
+        this.compressionThreshold = NumberUtils.toInt(AppContext.getProperty("cuba.remotingCompressionThreshold"), -1);
+    }
 
-        String connectTimeoutProp = AppContext.getProperty("cuba.connectionTimeout");
-        setConnectTimeout(connectTimeoutProp == null ? -1 : Integer.parseInt(connectTimeoutProp));
+    @Override
+    public void setBeanClassLoader(ClassLoader classLoader) {
+        this.beanClassLoader = classLoader;
+    }
 
-        String readTimeoutProp = AppContext.getProperty("cuba.connectionReadTimeout");
-        setReadTimeout(readTimeoutProp == null ? -1 : Integer.parseInt(readTimeoutProp));
+    public HttpInvokerTransport getTransport() {
+        return transport;
     }
 
     @Override
-    protected RemoteInvocationResult doExecuteRequest(HttpInvokerClientConfiguration config, ByteArrayOutputStream baos)
-            throws IOException, ClassNotFoundException {
+    public RemoteInvocationResult executeRequest(HttpInvokerClientConfiguration config, RemoteInvocation invocation)
+            throws Exception {
 
         RemoteInvocationResult result;
 
+        HttpInvokerTransport.RequestBody requestBody = createRequestBody(invocation);
+
         Object context = serverSelector.initContext();
-        String url = currentServiceUrl(serverSelector.getUrl(context), config);
-        if (url == null)
-            throw new IllegalStateException("Server URL list is empty");
+        try {
+            String url = currentServiceUrl(serverSelector.getUrl(context), config);
+            if (url == null)
+                throw new IllegalStateException("Server URL list is empty");
 
-        while (true) {
-            HttpURLConnection con = openConnection(url);
-            try {
-                StopWatch sw = new StopWatch();
-                prepareConnection(con, baos.size());
-                writeRequestBody(config, con, baos);
-                sw.start("waiting time");
-                validateResponse(config, con);
-                CountingInputStream responseInputStream = new CountingInputStream(readResponseBody(config, con));
-                sw.stop();
-
-                serverSelector.success(context);
-
-                sw.start("reading time");
-                try (ObjectInputStream ois = createObjectInputStream(decorateInputStream(responseInputStream), config.getCodebaseUrl())) {
-                    result = doReadRemoteInvocationResult(ois);
-                }
-                sw.stop();
-                if (log.isDebugEnabled()) {
-                    log.debug(String.format("Receiving HTTP invoker response for service at [%s], with size %s, %s", config.getServiceUrl(),
-                            responseInputStream.getCount(), printStopWatch(sw)));
-                }
-                break;
-            } catch (IOException e) {
-                log.info(String.format("Invocation of %s failed: %s", url, e));
+            while (true) {
+                try {
+                    StopWatch sw = new StopWatch();
+                    sw.start("waiting time");
+                    long start = System.nanoTime();
+                    CountingInputStream responseInputStream = new CountingInputStream(transport.execute(url, requestBody));
+                    long duration = System.nanoTime() - start;
+                    sw.stop();
+
+                    serverSelector.success(context, duration);
+
+                    sw.start("reading time");
+                    try (ObjectInputStream ois = createObjectInputStream(responseInputStream, config.getCodebaseUrl())) {
+                        result = doReadRemoteInvocationResult(ois);
+                    }
+                    sw.stop();
+                    if (log.isDebugEnabled()) {
+                        log.debug(String.format("Receiving HTTP invoker response for service at [%s], with size %s, %s", config.getServiceUrl(),
+                                responseInputStream.getCount(), printStopWatch(sw)));
+                    }
+                    break;
+                } catch (IOException e) {
+                    log.info(String.format("Invocation of %s failed: %s", url, e));
 
-                serverSelector.fail(context);
-                url = currentServiceUrl(serverSelector.getUrl(context), config);
-                if (url != null) {
-                    log.info("Trying to invoke the next available URL: " + url);
-                    continue;
+                    serverSelector.fail(context);
+                    url = currentServiceUrl(serverSelector.getUrl(context), config);
+                    if (url != null) {
+                        log.info("Trying to invoke the next available URL: " + url);
+                        continue;
+                    }
+                    log.info("No more URL available");
+                    throw e;
                 }
-                log.info("No more URL available");
-                throw e;
             }
+        } finally {
+            serverSelector.complete(context);
         }
         return result;
     }
 
-    @Nullable
-    protected String currentServiceUrl(String url, HttpInvokerClientConfiguration config) {
-        return url == null ? null :  url + "/" + config.getServiceUrl();
+    protected HttpInvokerTransport.RequestBody createRequestBody(RemoteInvocation invocation) throws IOException {
+        if (compressionThreshold < 0) {
+            return new StreamingRequestBody(invocation);
+        }
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(1024);
+        ThresholdGzipOutputStream os = new ThresholdGzipOutputStream(baos, compressionThreshold, () -> {});
+        writeRemoteInvocation(invocation, os);
+        return new BufferedRequestBody(baos.toByteArray(), os.isCompressed() ? HttpInvokerTransport.ENCODING_GZIP : null);
     }
 
-    protected HttpURLConnection openConnection(String serviceUrl) throws IOException {
-        URLConnection con = new URL(serviceUrl).openConnection();
-        if (!(con instanceof HttpURLConnection)) {
-            throw new IOException(String.format("Service URL [%s] is not an HTTP URL", serviceUrl));
+    protected void writeRemoteInvocation(RemoteInvocation invocation, OutputStream os) throws IOException {
+        try (ObjectOutputStream oos = new ObjectOutputStream(os)) {
+            doWriteRemoteInvocation(invocation, oos);
         }
-        return (HttpURLConnection) con;
     }
 
-    @Override
+    protected ObjectInputStream createObjectInputStream(InputStream is, @Nullable String codebaseUrl) throws IOException {
+        return new CodebaseAwareObjectInputStream(is, beanClassLoader, codebaseUrl);
+    }
+
+    @Nullable
+    protected String currentServiceUrl(String url, HttpInvokerClientConfiguration config) {
+        return url == null ? null :  url + "/" + config.getServiceUrl();
+    }
+
     protected void doWriteRemoteInvocation(RemoteInvocation invocation, ObjectOutputStream oos) throws IOException {
         SerializationSupport.serialize(invocation, oos);
     }
 
-    @Override
     protected RemoteInvocationResult doReadRemoteInvocationResult(ObjectInputStream ois) throws IOException, ClassNotFoundException {
         return (RemoteInvocationResult) SerializationSupport.deserialize(ois);
     }
@@ -143,4 +176,107 @@ public class ClusteredHttpInvokerRequestExecutor extends SimpleHttpInvokerReques
         }
         return sb.toString();
     }
+
+    /**
+     * Serializes the invocation directly to the connection on each attempt.
+     */
+    protected class StreamingRequestBody implements HttpInvokerTransport.RequestBody {
+
+        protected final RemoteInvocation invocation;
+
+        public StreamingRequestBody(RemoteInvocation invocation) {
+            this.invocation = invocation;
+        }
+
+        @Override
+        public void writeTo(OutputStream outputStream) throws IOException {
+            IOExceptionTrackingOutputStream os = new IOExceptionTrackingOutputStream(outputStream);
+            try {
+                writeRemoteInvocation(invocation, os);
+            } catch (SerializationException e) {
+                // connection errors are reported as IOException to try the next server
+                if (os.exception != null) {
+                    throw os.exception;
+                }
+                throw e;
+            }
+        }
+
+        @Override
+        public long getContentLength() {
+            return -1;
+        }
+
+        @Nullable
+        @Override
+        public String getContentEncoding() {
+            return null;
+        }
+    }
+
+    protected static class BufferedRequestBody implements HttpInvokerTransport.RequestBody {
+
+        protected final byte[] bytes;
+        protected final String contentEncoding;
+
+        public BufferedRequestBody(byte[] bytes, @Nullable String contentEncoding) {
+            this.bytes = bytes;
+            this.contentEncoding = contentEncoding;
+        }
+
+        @Override
+        public void writeTo(OutputStream outputStream) throws IOException {
+            outputStream.write(bytes);
+        }
+
+        @Override
+        public long getContentLength() {
+            return bytes.length;
+        }
+
+        @Nullable
+        @Override
+        public String getContentEncoding() {
+            return contentEncoding;
+        }
+    }
+
+    protected static class IOExceptionTrackingOutputStream extends FilterOutputStream {
+
+        protected IOException exception;
+
+        public IOExceptionTrackingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            try {
+                out.write(b);
+            } catch (IOException e) {
+                exception = e;
+                throw e;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            try {
+                out.write(b, off, len);
+            } catch (IOException e) {
+                exception = e;
+                throw e;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                exception = e;
+                throw e;
+            }
+        }
+    }
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.sys.remoting;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Sends serialized remote invocations to middleware over HTTP for {@link ClusteredHttpInvokerRequestExecutor}.
+ * <p>
+ * The transport is shared by all remote service proxies of the client block.
+ * The implementation is selected by the {@code cuba.remotingTransport} app property:
+ * <ul>
+ *     <li>{@code pooled} (default) - {@link PooledHttpInvokerTransport}</li>
+ *     <li>{@code simple} - {@link SimpleHttpInvokerTransport}</li>
+ *     <li>fully qualified name of a class implementing this interface and having a public no-arg constructor</li>
+ * </ul>
+ */
+public interface HttpInvokerTransport {
+
+    /**
+     * Bean name under which {@link RemoteProxyBeanCreator} registers the shared transport.
+     */
+    String NAME = "cuba_HttpInvokerTransport";
+
+    String CONTENT_TYPE_SERIALIZED_OBJECT = "application/x-java-serialized-object";
+
+    String ENCODING_GZIP = "gzip";
+
+    /**
+     * Performs an HTTP POST request.
+     *
+     * @param url  service URL
+     * @param body request body
+     * @return response body stream, decompressed if the server sent it compressed. Must be closed by the caller.
+     * @throws IOException if the request failed or the response status is not 200
+     */
+    InputStream execute(String url, RequestBody body) throws IOException;
+
+    /**
+     * Releases resources held by the transport.
+     */
+    default void shutdown() {
+    }
+
+    /**
+     * Body of a request, written directly to the connection.
+     */
+    interface RequestBody {
+
+        void writeTo(OutputStream outputStream) throws IOException;
+
+        /**
+         * @return content length or -1 if it is unknown and the body should be sent in chunks
+         */
+        long getContentLength();
+
+        /**
+         * @return value of the {@code Content-Encoding} header or null
+         */
+        @Nullable
+        String getContentEncoding();
+    }
+}
@@ -28,9 +28,13 @@ import java.lang.reflect.InvocationTargetException;
 public class HttpServiceProxy extends HttpInvokerProxyFactoryBean {
 
     public HttpServiceProxy(ServerSelector selector) {
+        this(selector, new SimpleHttpInvokerTransport());
+    }
+
+    public HttpServiceProxy(ServerSelector selector, HttpInvokerTransport transport) {
         setRemoteInvocationFactory(new CubaRemoteInvocationFactory());
 
-        ClusteredHttpInvokerRequestExecutor executor = new ClusteredHttpInvokerRequestExecutor(selector);
+        ClusteredHttpInvokerRequestExecutor executor = new ClusteredHttpInvokerRequestExecutor(selector, transport);
         executor.setBeanClassLoader(getBeanClassLoader());
         setHttpInvokerRequestExecutor(executor);
     }
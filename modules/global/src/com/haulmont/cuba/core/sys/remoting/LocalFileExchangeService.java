@@ -33,4 +33,7 @@ public interface LocalFileExchangeService {
 
     @BypassSerialization
     InputStream downloadFile(FileDescriptor fileDescriptor) throws FileStorageException;
+
+    @BypassSerialization
+    InputStream downloadFile(FileDescriptor fileDescriptor, long offset) throws FileStorageException;
 }
\ No newline at end of file
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.sys.remoting;
+
+import com.haulmont.cuba.core.sys.AppContext;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link HttpInvokerTransport} based on Apache HttpClient with a pool of keep-alive connections.
+ * <p>
+ * The pool is configured by the following app properties:
+ * <ul>
+ *     <li>{@code cuba.remotingMaxConnectionsPerHost} - max number of connections to one middleware server, 20 by default</li>
+ *     <li>{@code cuba.remotingMaxConnectionsTotal} - max number of connections to all servers, 100 by default</li>
+ *     <li>{@code cuba.remotingConnectionIdleTimeoutSec} - time after which idle connections are closed, 60 by default</li>
+ * </ul>
+ * Timeouts are taken from {@code cuba.connectionTimeout} and {@code cuba.connectionReadTimeout}.
+ */
+public class PooledHttpInvokerTransport implements HttpInvokerTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(PooledHttpInvokerTransport.class);
+
+    protected PoolingHttpClientConnectionManager connectionManager;
+
+    protected CloseableHttpClient httpClient;
+
+    public PooledHttpInvokerTransport() {
+        int maxPerHost = NumberUtils.toInt(AppContext.getProperty("cuba.remotingMaxConnectionsPerHost"), 20);
+        int maxTotal = NumberUtils.toInt(AppContext.getProperty("cuba.remotingMaxConnectionsTotal"), 100);
+        int idleTimeoutSec = NumberUtils.toInt(AppContext.getProperty("cuba.remotingConnectionIdleTimeoutSec"), 60);
+        int connectTimeout = NumberUtils.toInt(AppContext.getProperty("cuba.connectionTimeout"), -1);
+        int readTimeout = NumberUtils.toInt(AppContext.getProperty("cuba.connectionReadTimeout"), -1);
+
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setDefaultMaxPerRoute(maxPerHost);
+        connectionManager.setMaxTotal(Math.max(maxTotal, maxPerHost));
+        // a pooled connection could be closed by the server while idle
+        connectionManager.setValidateAfterInactivity(2000);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeout)
+                .setSocketTimeout(readTimeout)
+                .build();
+
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictExpiredConnections()
+                .evictIdleConnections(idleTimeoutSec, TimeUnit.SECONDS)
+                .build();
+
+        log.debug("Created HTTP connection pool: maxPerHost={}, maxTotal={}", maxPerHost, maxTotal);
+    }
+
+    @Override
+    public InputStream execute(String url, RequestBody body) throws IOException {
+        HttpPost post = new HttpPost(url);
+        post.setEntity(new RequestBodyEntity(body));
+
+        CloseableHttpResponse response = httpClient.execute(post);
+        try {
+            int status = response.getStatusLine().getStatusCode();
+            if (status != 200) {
+                throw new IOException(String.format("Did not receive successful HTTP response: status code = %s, " +
+                        "status message = [%s]", status, response.getStatusLine().getReasonPhrase()));
+            }
+            HttpEntity entity = response.getEntity();
+            if (entity == null) {
+                throw new IOException("Empty HTTP response from " + url);
+            }
+            // compressed content is decoded by the client, closing the stream returns the connection to the pool
+            return new ResponseInputStream(entity.getContent(), response);
+        } catch (IOException | RuntimeException e) {
+            EntityUtils.consumeQuietly(response.getEntity());
+            response.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            log.warn("Error closing HTTP client", e);
+        }
+    }
+
+    /**
+     * @return number of leased and available connections of the pool
+     */
+    public String getPoolStats() {
+        return connectionManager.getTotalStats().toString();
+    }
+
+    protected static class RequestBodyEntity extends AbstractHttpEntity {
+
+        protected final RequestBody body;
+
+        public RequestBodyEntity(RequestBody body) {
+            this.body = body;
+            setContentType(CONTENT_TYPE_SERIALIZED_OBJECT);
+            setContentEncoding(body.getContentEncoding());
+            setChunked(body.getContentLength() < 0);
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return false;
+        }
+
+        @Override
+        public long getContentLength() {
+            return body.getContentLength();
+        }
+
+        @Override
+        public InputStream getContent() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void writeTo(OutputStream outputStream) throws IOException {
+            body.writeTo(outputStream);
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+    }
+
+    /**
+     * Releases the connection when the response is read or closed.
+     */
+    protected static class ResponseInputStream extends FilterInputStream {
+
+        protected final CloseableHttpResponse response;
+
+        public ResponseInputStream(InputStream in, CloseableHttpResponse response) {
+            super(in);
+            this.response = response;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                // reading the rest of the content lets the connection be reused
+                EntityUtils.consume(response.getEntity());
+            } finally {
+                response.close();
+            }
+        }
+    }
+}
@@ -17,7 +17,10 @@
 
 package com.haulmont.cuba.core.sys.remoting;
 
+import com.haulmont.bali.util.ReflectionHelper;
+import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.core.sys.remoting.discovery.ServerSelector;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeansException;
@@ -25,6 +28,7 @@ import org.springframework.beans.MutablePropertyValues;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
 import org.springframework.beans.factory.support.RootBeanDefinition;
 import org.springframework.context.ApplicationContext;
@@ -64,6 +68,12 @@ public class RemoteProxyBeanCreator implements BeanFactoryPostProcessor, Applica
 
         BeanDefinitionRegistry registry = (BeanDefinitionRegistry) beanFactory;
 
+        if (!registry.containsBeanDefinition(HttpInvokerTransport.NAME)) {
+            RootBeanDefinition transportDefinition = new RootBeanDefinition(HttpInvokerTransport.class, this::createTransport);
+            transportDefinition.setDestroyMethodName("shutdown");
+            registry.registerBeanDefinition(HttpInvokerTransport.NAME, transportDefinition);
+        }
+
         for (Map.Entry<String, String> entry : services.entrySet()) {
             String name = entry.getKey();
 
@@ -71,6 +81,7 @@ public class RemoteProxyBeanCreator implements BeanFactoryPostProcessor, Applica
             String serviceInterface = entry.getValue();
             BeanDefinition definition = new RootBeanDefinition(HttpServiceProxy.class);
             definition.getConstructorArgumentValues().addIndexedArgumentValue(0, serverSelector);
+            definition.getConstructorArgumentValues().addIndexedArgumentValue(1, new RuntimeBeanReference(HttpInvokerTransport.NAME));
             MutablePropertyValues propertyValues = definition.getPropertyValues();
             propertyValues.add("serviceUrl", serviceUrl);
             propertyValues.add("serviceInterface", serviceInterface);
@@ -82,6 +93,26 @@ public class RemoteProxyBeanCreator implements BeanFactoryPostProcessor, Applica
         processSubstitutions(beanFactory);
     }
 
+    /**
+     * Creates the transport shared by all remote service proxies according to {@code cuba.remotingTransport}
+     * app property.
+     */
+    protected HttpInvokerTransport createTransport() {
+        String transport = AppContext.getProperty("cuba.remotingTransport");
+        if (StringUtils.isBlank(transport) || "pooled".equals(transport)) {
+            return new PooledHttpInvokerTransport();
+        } else if ("simple".equals(transport)) {
+            return new SimpleHttpInvokerTransport();
+        } else {
+            log.info("Using remoting transport " + transport);
+            try {
+                return ReflectionHelper.<HttpInvokerTransport>newInstance(ReflectionHelper.getClass(transport));
+            } catch (NoSuchMethodException e) {
+                throw new RuntimeException("Unable to create remoting transport " + transport, e);
+            }
+        }
+    }
+
     protected void processSubstitutions(ConfigurableListableBeanFactory beanFactory) {
         if (substitutions != null) {
             BeanDefinitionRegistry registry = (BeanDefinitionRegistry) beanFactory;
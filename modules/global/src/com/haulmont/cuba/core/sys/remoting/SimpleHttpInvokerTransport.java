@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.sys.remoting;
+
+import com.haulmont.cuba.core.sys.AppContext;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * {@link HttpInvokerTransport} opening a {@link HttpURLConnection} for each request. Relies on the keep-alive
+ * support of the JDK.
+ */
+public class SimpleHttpInvokerTransport implements HttpInvokerTransport {
+
+    protected int connectTimeout;
+
+    protected int readTimeout;
+
+    public SimpleHttpInvokerTransport() {
+        String connectTimeoutProp = AppContext.getProperty("cuba.connectionTimeout");
+        connectTimeout = connectTimeoutProp == null ? -1 : Integer.parseInt(connectTimeoutProp);
+
+        String readTimeoutProp = AppContext.getProperty("cuba.connectionReadTimeout");
+        readTimeout = readTimeoutProp == null ? -1 : Integer.parseInt(readTimeoutProp);
+    }
+
+    @Override
+    public InputStream execute(String url, RequestBody body) throws IOException {
+        HttpURLConnection con = openConnection(url);
+        prepareConnection(con, body);
+        try (OutputStream os = con.getOutputStream()) {
+            body.writeTo(os);
+        }
+
+        if (con.getResponseCode() != HttpURLConnection.HTTP_OK) {
+            throw new IOException(String.format("Did not receive successful HTTP response: status code = %s, " +
+                    "status message = [%s]", con.getResponseCode(), con.getResponseMessage()));
+        }
+
+        InputStream is = con.getInputStream();
+        if (StringUtils.containsIgnoreCase(con.getHeaderField("Content-Encoding"), ENCODING_GZIP)) {
+            return new GZIPInputStream(is);
+        }
+        return is;
+    }
+
+    protected HttpURLConnection openConnection(String serviceUrl) throws IOException {
+        URLConnection con = new URL(serviceUrl).openConnection();
+        if (!(con instanceof HttpURLConnection)) {
+            throw new IOException(String.format("Service URL [%s] is not an HTTP URL", serviceUrl));
+        }
+        return (HttpURLConnection) con;
+    }
+
+    protected void prepareConnection(HttpURLConnection con, RequestBody body) throws IOException {
+        if (connectTimeout >= 0) {
+            con.setConnectTimeout(connectTimeout);
+        }
+        if (readTimeout >= 0) {
+            con.setReadTimeout(readTimeout);
+        }
+        con.setDoOutput(true);
+        con.setRequestMethod("POST");
+        con.setRequestProperty("Content-Type", CONTENT_TYPE_SERIALIZED_OBJECT);
+        con.setRequestProperty("Accept-Encoding", ENCODING_GZIP);
+        if (body.getContentEncoding() != null) {
+            con.setRequestProperty("Content-Encoding", body.getContentEncoding());
+        }
+        long contentLength = body.getContentLength();
+        if (contentLength >= 0) {
+            con.setFixedLengthStreamingMode(contentLength);
+        } else {
+            con.setChunkedStreamingMode(0);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.sys.remoting;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Output stream which keeps written data in memory until its size exceeds the threshold, then switches
+ * to writing GZIP-compressed data to the target stream. Data of smaller size is written to the target stream
+ * uncompressed on close.
+ * <p>
+ * The callback passed to the constructor is invoked right before anything is written to the target in compressed
+ * form, so it can set up the {@code Content-Encoding} header.
+ */
+public class ThresholdGzipOutputStream extends OutputStream {
+
+    protected final OutputStream target;
+    protected final int threshold;
+    protected final Runnable beforeCompression;
+
+    protected ByteArrayOutputStream buffer;
+    protected OutputStream compressed;
+    protected boolean closed;
+
+    public ThresholdGzipOutputStream(OutputStream target, int threshold, Runnable beforeCompression) {
+        this.target = target;
+        this.threshold = threshold;
+        this.beforeCompression = beforeCompression;
+        this.buffer = new ByteArrayOutputStream(Math.min(Math.max(threshold, 32), 8192));
+    }
+
+    /**
+     * @return true if the data is written compressed
+     */
+    public boolean isCompressed() {
+        return compressed != null;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (compressed != null) {
+            compressed.write(b);
+        } else {
+            buffer.write(b);
+            checkThreshold();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (compressed != null) {
+            compressed.write(b, off, len);
+        } else {
+            buffer.write(b, off, len);
+            checkThreshold();
+        }
+    }
+
+    protected void checkThreshold() throws IOException {
+        if (buffer.size() > threshold) {
+            beforeCompression.run();
+            compressed = new GZIPOutputStream(target, 8192);
+            buffer.writeTo(compressed);
+            buffer = null;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        // buffered data is written only on close, when it is known whether it should be compressed
+        if (compressed != null) {
+            compressed.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+
+        if (compressed != null) {
+            compressed.close();
+        } else {
+            try {
+                buffer.writeTo(target);
+            } finally {
+                target.close();
+            }
+        }
+    }
+}
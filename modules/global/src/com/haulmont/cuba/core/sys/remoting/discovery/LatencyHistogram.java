@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.remoting.discovery;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of invocation latencies of a server.
+ * <p>
+ * Values are counted in buckets of exponentially growing width: bucket {@code i} holds latencies from
+ * {@code 2^(i-1)} inclusive to {@code 2^i} exclusive microseconds, the last bucket holds all greater values.
+ */
+public class LatencyHistogram {
+
+    protected static final int BUCKETS = 32;
+
+    protected final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    protected final AtomicLong count = new AtomicLong();
+    protected final AtomicLong totalMicros = new AtomicLong();
+    protected final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * Records an invocation latency.
+     *
+     * @param durationNanos latency in nanoseconds
+     */
+    public void record(long durationNanos) {
+        long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(durationNanos));
+        buckets.incrementAndGet(bucketIndex(micros));
+        count.incrementAndGet();
+        totalMicros.addAndGet(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    protected int bucketIndex(long micros) {
+        int index = 64 - Long.numberOfLeadingZeros(micros);
+        return Math.min(index, BUCKETS - 1);
+    }
+
+    /**
+     * @return number of recorded invocations
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return mean latency in microseconds or 0 if nothing is recorded
+     */
+    public long getMeanMicros() {
+        long n = count.get();
+        return n == 0 ? 0 : totalMicros.get() / n;
+    }
+
+    /**
+     * @return max latency in microseconds
+     */
+    public long getMaxMicros() {
+        return maxMicros.get();
+    }
+
+    /**
+     * Returns an upper bound of the latency below which the given share of invocations falls.
+     *
+     * @param percentile value from 0 to 100
+     * @return latency in microseconds or 0 if nothing is recorded
+     */
+    public long getPercentileMicros(double percentile) {
+        long n = count.get();
+        if (n == 0)
+            return 0;
+
+        long threshold = (long) Math.ceil(n * Math.min(100.0, Math.max(0.0, percentile)) / 100.0);
+        long accumulated = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            accumulated += buckets.get(i);
+            if (accumulated >= threshold && accumulated > 0) {
+                return i == BUCKETS - 1 ? maxMicros.get() : Math.min(1L << i, Math.max(maxMicros.get(), 1));
+            }
+        }
+        return maxMicros.get();
+    }
+
+    /**
+     * Clears all recorded values.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        totalMicros.set(0);
+        maxMicros.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram{" +
+                "count=" + getCount() +
+                ", meanMicros=" + getMeanMicros() +
+                ", p50Micros=" + getPercentileMicros(50) +
+                ", p99Micros=" + getPercentileMicros(99) +
+                ", maxMicros=" + getMaxMicros() +
+                '}';
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.remoting.discovery;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link StaticServerSelector} which assigns new sessions to the least loaded server.
+ * <p>
+ * For each server, the selector tracks the exponentially weighted moving average (EWMA) of response time and
+ * the number of requests in progress. The score of a server is the product of the average response time and
+ * the number of requests in progress plus one, the server with the lowest score is selected for a new session.
+ * <p>
+ * After {@link #setFailureThreshold(int) failureThreshold} consecutive failures, the circuit of a server is open
+ * and the server is used only if all other servers fail. After {@link #setCircuitOpenTimeMs(long) circuitOpenTimeMs},
+ * the server gets requests again, and the circuit is closed on the first success or opened again on a failure.
+ * <p>
+ * To use this selector, set its class in the definition of the {@code cuba_ServerSelector} bean instead of
+ * {@link StaticServerSelector}. The {@code serverSorter} property is not used.
+ */
+public class LoadBalancingServerSelector extends StaticServerSelector {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadBalancingServerSelector.class);
+
+    protected double ewmaAlpha = 0.3;
+
+    protected int failureThreshold = 3;
+
+    protected long circuitOpenTimeMs = TimeUnit.SECONDS.toMillis(30);
+
+    protected ConcurrentMap<String, ServerStats> serverStats = new ConcurrentHashMap<>();
+
+    protected static class LoadBalancingContext extends Context {
+        protected String inFlightUrl;
+    }
+
+    protected static class ServerStats {
+        protected final AtomicInteger inFlight = new AtomicInteger();
+        protected final AtomicInteger consecutiveFailures = new AtomicInteger();
+        protected volatile double ewmaMillis = -1;
+        protected volatile long circuitOpenUntil;
+
+        protected synchronized void recordLatency(double millis, double alpha) {
+            ewmaMillis = ewmaMillis < 0 ? millis : alpha * millis + (1 - alpha) * ewmaMillis;
+        }
+
+        protected boolean isCircuitOpen(long now) {
+            return now < circuitOpenUntil;
+        }
+    }
+
+    public double getEwmaAlpha() {
+        return ewmaAlpha;
+    }
+
+    /**
+     * Sets the weight of the last response time in the moving average, from 0 to 1. Default is 0.3.
+     */
+    public void setEwmaAlpha(double ewmaAlpha) {
+        if (ewmaAlpha <= 0 || ewmaAlpha > 1)
+            throw new IllegalArgumentException("ewmaAlpha must be in (0, 1]");
+        this.ewmaAlpha = ewmaAlpha;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    /**
+     * Sets the number of consecutive failures after which the circuit of a server is open. Default is 3.
+     */
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    public long getCircuitOpenTimeMs() {
+        return circuitOpenTimeMs;
+    }
+
+    /**
+     * Sets the time during which a server with open circuit is not used. Default is 30 sec.
+     */
+    public void setCircuitOpenTimeMs(long circuitOpenTimeMs) {
+        this.circuitOpenTimeMs = circuitOpenTimeMs;
+    }
+
+    @Override
+    public void init() {
+        super.init();
+        serverSorter = this::sortByScore;
+    }
+
+    @Override
+    protected Context createContext() {
+        return new LoadBalancingContext();
+    }
+
+    @Override
+    public Object initContext() {
+        Context ctx = (Context) super.initContext();
+        // servers with open circuit are tried last also by sessions bound to them
+        long now = System.currentTimeMillis();
+        List<String> open = new ArrayList<>();
+        for (Iterator<String> it = ctx.urls.iterator(); it.hasNext(); ) {
+            String url = it.next();
+            if (getServerStats(url).isCircuitOpen(now)) {
+                open.add(url);
+                it.remove();
+            }
+        }
+        ctx.urls.addAll(open);
+        return ctx;
+    }
+
+    @Nullable
+    @Override
+    public String getUrl(Object context) {
+        LoadBalancingContext ctx = (LoadBalancingContext) context;
+        releaseInFlight(ctx);
+
+        String url = super.getUrl(context);
+        if (url != null) {
+            getServerStats(url).inFlight.incrementAndGet();
+            ctx.inFlightUrl = url;
+        }
+        return url;
+    }
+
+    @Override
+    public void success(Object context, long durationNanos) {
+        Context ctx = (Context) context;
+        if (ctx.lastUrl != null) {
+            getServerStats(ctx.lastUrl).recordLatency(durationNanos / 1_000_000.0, ewmaAlpha);
+        }
+        super.success(context, durationNanos);
+    }
+
+    @Override
+    public void success(Object context) {
+        super.success(context);
+
+        ServerStats stats = getServerStats(((Context) context).lastUrl);
+        stats.consecutiveFailures.set(0);
+        if (stats.circuitOpenUntil != 0) {
+            stats.circuitOpenUntil = 0;
+            log.info("Server {} is available again", ((Context) context).lastUrl);
+        }
+    }
+
+    @Override
+    public void fail(Object context) {
+        String url = ((Context) context).lastUrl;
+        super.fail(context);
+
+        ServerStats stats = getServerStats(url);
+        if (stats.consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            stats.circuitOpenUntil = System.currentTimeMillis() + circuitOpenTimeMs;
+            log.warn("Server {} failed {} times in a row, it will not be used for {} ms",
+                    url, stats.consecutiveFailures.get(), circuitOpenTimeMs);
+        }
+    }
+
+    @Override
+    public void complete(Object context) {
+        releaseInFlight((LoadBalancingContext) context);
+    }
+
+    protected void releaseInFlight(LoadBalancingContext ctx) {
+        if (ctx.inFlightUrl != null) {
+            getServerStats(ctx.inFlightUrl).inFlight.decrementAndGet();
+            ctx.inFlightUrl = null;
+        }
+    }
+
+    protected ServerStats getServerStats(String url) {
+        return serverStats.computeIfAbsent(url, s -> new ServerStats());
+    }
+
+    /**
+     * Returns the current score of the server. The lower the score, the more preferable the server is.
+     *
+     * @param url server URL
+     * @return score or {@link Double#MAX_VALUE} if the circuit of the server is open
+     */
+    public double getScore(String url) {
+        return getScore(getServerStats(url), System.currentTimeMillis());
+    }
+
+    protected double getScore(ServerStats stats, long now) {
+        if (stats.isCircuitOpen(now))
+            return Double.MAX_VALUE;
+        // a server without statistics gets the best score to be tried
+        double latency = Math.max(stats.ewmaMillis, 1.0);
+        return latency * (stats.inFlight.get() + 1);
+    }
+
+    protected void sortByScore(List<String> urls) {
+        // shuffling first distributes sessions among servers with equal scores
+        Collections.shuffle(urls);
+        long now = System.currentTimeMillis();
+        Map<String, Double> scores = new HashMap<>();
+        for (String url : urls) {
+            scores.put(url, getScore(getServerStats(url), now));
+        }
+        urls.sort(Comparator.comparing(scores::get));
+    }
+
+    @Override
+    public String printServerStats() {
+        StringBuilder sb = new StringBuilder();
+        long now = System.currentTimeMillis();
+        for (String url : getUrls()) {
+            ServerStats stats = getServerStats(url);
+            sb.append(url).append(": ");
+            if (stats.isCircuitOpen(now)) {
+                sb.append("circuit open for ").append(stats.circuitOpenUntil - now).append(" ms, ");
+            } else {
+                sb.append(String.format("score=%.2f, ", getScore(stats, now)));
+            }
+            sb.append(String.format("ewma=%.2f ms, inFlight=%d, consecutiveFailures=%d",
+                    Math.max(stats.ewmaMillis, 0), stats.inFlight.get(), stats.consecutiveFailures.get()));
+            LatencyHistogram histogram = getLatencyHistogram(url);
+            if (histogram != null) {
+                sb.append(", ").append(histogram);
+            }
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+}
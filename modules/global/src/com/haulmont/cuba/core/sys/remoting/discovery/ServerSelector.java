@@ -55,10 +55,40 @@ public interface ServerSelector {
      */
     void success(Object context);
 
+    /**
+     * Mark the last obtained server URL as successfully invoked and record the invocation latency.
+     *
+     * @param context       obtained by the prior invocation of {@link #initContext()}
+     * @param durationNanos time between sending the request and receiving the response
+     */
+    default void success(Object context, long durationNanos) {
+        success(context);
+    }
+
     /**
      * Mark the last obtained server URL as failed.
      *
      * @param context obtained by the prior invocation of {@link #initContext()}
      */
     void fail(Object context);
+
+    /**
+     * Notify that the current request is finished, successfully or not. Invoked once after all
+     * {@link #getUrl(Object)}, {@link #success(Object)} and {@link #fail(Object)} calls for the request.
+     *
+     * @param context obtained by the prior invocation of {@link #initContext()}
+     */
+    default void complete(Object context) {
+    }
+
+    /**
+     * Get latency statistics of the given server URL.
+     *
+     * @param url server URL returned by {@link #getUrl(Object)}
+     * @return histogram or null if the selector does not collect latencies
+     */
+    @Nullable
+    default LatencyHistogram getLatencyHistogram(String url) {
+        return null;
+    }
 }
@@ -28,6 +28,8 @@ import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.function.Consumer;
 
@@ -51,9 +53,11 @@ public abstract class StickySessionServerSelector implements ServerSelector {
 
     protected ThreadLocal<List<String>> lastNoSessionUrls = new ThreadLocal<>();
 
+    protected ConcurrentMap<String, LatencyHistogram> latencyHistograms = new ConcurrentHashMap<>();
+
     protected static class Context {
-        private List<String> urls;
-        private String lastUrl;
+        protected List<String> urls;
+        protected String lastUrl;
 
         @Override
         public String toString() {
@@ -110,7 +114,7 @@ public abstract class StickySessionServerSelector implements ServerSelector {
             lastNoSessionUrls.remove();
         }
 
-        Context ctx = new Context();
+        Context ctx = createContext();
         ctx.urls = new ArrayList<>(sessionUrls.size());
         if (isNewSession) {
             // each new session retries access to all servers - this way we can find out if some failed server is back online
@@ -132,6 +136,10 @@ public abstract class StickySessionServerSelector implements ServerSelector {
         return ctx;
     }
 
+    protected Context createContext() {
+        return new Context();
+    }
+
     private List<String> sortUrls() {
         List<String> list = new ArrayList<>(getUrls());
         if (serverSorter != null) {
@@ -162,6 +170,37 @@ public abstract class StickySessionServerSelector implements ServerSelector {
         failedUrls.remove(ctx.lastUrl);
     }
 
+    @Override
+    public void success(Object context, long durationNanos) {
+        Context ctx = (Context) context;
+        Preconditions.checkNotNullArgument(ctx.lastUrl, "lastUrl is null");
+
+        latencyHistograms.computeIfAbsent(ctx.lastUrl, url -> new LatencyHistogram()).record(durationNanos);
+        success(context);
+    }
+
+    @Nullable
+    @Override
+    public LatencyHistogram getLatencyHistogram(String url) {
+        return latencyHistograms.get(url);
+    }
+
+    /**
+     * @return latency statistics of all servers, one server per line
+     */
+    public String printServerStats() {
+        StringBuilder sb = new StringBuilder();
+        for (String url : getUrls()) {
+            sb.append(url).append(": ");
+            if (failedUrls.contains(url)) {
+                sb.append("failed, ");
+            }
+            LatencyHistogram histogram = latencyHistograms.get(url);
+            sb.append(histogram != null ? histogram : "no requests").append("\n");
+        }
+        return sb.toString();
+    }
+
     @Override
     public void fail(Object context) {
         Context ctx = (Context) context;
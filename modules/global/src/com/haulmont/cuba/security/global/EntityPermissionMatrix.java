@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.security.global;
+
+import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.chile.core.model.MetaProperty;
+import com.haulmont.cuba.security.entity.EntityOp;
+import com.haulmont.cuba.security.entity.Permission;
+import com.haulmont.cuba.security.entity.PermissionType;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiFunction;
+
+/**
+ * INTERNAL.
+ * Effective entity and attribute permission values of a {@link UserSession} compiled per {@link MetaClass}.
+ * <p>
+ * Values are merged from the effective role and the role types of the session when a meta-class is checked for
+ * the first time, so subsequent checks do not build target strings and do not allocate. The matrix must be
+ * discarded when permissions of the session change.
+ */
+class EntityPermissionMatrix {
+
+    /**
+     * Value of a target without permission, such a target is permitted for any requested value.
+     */
+    static final int NOT_SET = Integer.MAX_VALUE;
+
+    private static final EntityOp[] ENTITY_OPS = EntityOp.values();
+
+    private final BiFunction<PermissionType, String, Integer> valueFunction;
+
+    private final ConcurrentMap<MetaClass, ClassPermissions> classes = new ConcurrentHashMap<>();
+
+    private static class ClassPermissions {
+        private final int[] entityOps = new int[ENTITY_OPS.length];
+        private final Map<String, Integer> attributes = new HashMap<>();
+    }
+
+    /**
+     * @param valueFunction returns the effective permission value for the given type and target, or null if
+     *                      the target has no permission
+     */
+    EntityPermissionMatrix(BiFunction<PermissionType, String, Integer> valueFunction) {
+        this.valueFunction = valueFunction;
+    }
+
+    boolean isEntityOpPermitted(MetaClass metaClass, EntityOp entityOp) {
+        return getClassPermissions(metaClass).entityOps[entityOp.ordinal()] >= 1;
+    }
+
+    boolean isEntityAttrPermitted(MetaClass metaClass, String property, int value) {
+        Integer attrValue = getClassPermissions(metaClass).attributes.get(property);
+        if (attrValue == null) {
+            // not a property of the meta-class, e.g. a dynamic attribute
+            attrValue = getValue(PermissionType.ENTITY_ATTR, metaClass.getName(), property);
+        }
+        return attrValue >= value;
+    }
+
+    private ClassPermissions getClassPermissions(MetaClass metaClass) {
+        // get() first to avoid locking in computeIfAbsent() when the meta-class is already compiled
+        ClassPermissions permissions = classes.get(metaClass);
+        if (permissions == null) {
+            permissions = classes.computeIfAbsent(metaClass, this::compile);
+        }
+        return permissions;
+    }
+
+    private ClassPermissions compile(MetaClass metaClass) {
+        ClassPermissions permissions = new ClassPermissions();
+        String entityName = metaClass.getName();
+        for (EntityOp entityOp : ENTITY_OPS) {
+            permissions.entityOps[entityOp.ordinal()] = getValue(PermissionType.ENTITY_OP, entityName, entityOp.getId());
+        }
+        for (MetaProperty metaProperty : metaClass.getProperties()) {
+            String property = metaProperty.getName();
+            permissions.attributes.put(property, getValue(PermissionType.ENTITY_ATTR, entityName, property));
+        }
+        return permissions;
+    }
+
+    private int getValue(PermissionType type, String entityName, String name) {
+        Integer value = valueFunction.apply(type, entityName + Permission.TARGET_PATH_DELIMETER + name);
+        return value == null ? NOT_SET : value;
+    }
+}
@@ -64,6 +64,8 @@ public class UserSession implements Serializable {
 
     protected transient Map<String, Object> localAttributes;
 
+    private transient volatile EntityPermissionMatrix entityPermissionMatrix;
+
     /**
      * INTERNAL
      * Used only for kryo serialization
@@ -303,6 +305,7 @@ public class UserSession implements Serializable {
      */
     public void addPermission(PermissionType type, String target, @Nullable String extTarget, int value) {
         performPermissionsAction(type, p -> PermissionsUtils.addPermission(p, target, extTarget, value));
+        entityPermissionMatrix = null;
     }
 
     /**
@@ -310,6 +313,7 @@ public class UserSession implements Serializable {
      */
     public void removePermission(PermissionType type, String target) {
         performPermissionsAction(type, p -> PermissionsUtils.removePermission(p, target));
+        entityPermissionMatrix = null;
     }
 
     /**
@@ -317,6 +321,7 @@ public class UserSession implements Serializable {
      */
     public void removePermissions(PermissionType type) {
         performPermissionsAction(type, PermissionsUtils::removePermissions);
+        entityPermissionMatrix = null;
     }
 
     /**
@@ -345,17 +350,31 @@ public class UserSession implements Serializable {
      * Check user permission for the entity operation
      */
     public boolean isEntityOpPermitted(MetaClass metaClass, EntityOp entityOp) {
-        return isPermitted(PermissionType.ENTITY_OP,
-                metaClass.getName() + Permission.TARGET_PATH_DELIMETER + entityOp.getId());
+        if (roleTypes.contains(RoleType.SUPER))
+            return true;
+        return getEntityPermissionMatrix().isEntityOpPermitted(metaClass, entityOp);
     }
 
     /**
      * Check user permission for the entity attribute
      */
     public boolean isEntityAttrPermitted(MetaClass metaClass, String property, EntityAttrAccess access) {
-        return isPermitted(PermissionType.ENTITY_ATTR,
-                metaClass.getName() + Permission.TARGET_PATH_DELIMETER + property,
-                access.getId());
+        if (roleTypes.contains(RoleType.SUPER))
+            return true;
+        return getEntityPermissionMatrix().isEntityAttrPermitted(metaClass, property, access.getId());
+    }
+
+    /**
+     * Returns entity and attribute permissions compiled on first check of each meta-class.
+     * The matrix is not serialized and is discarded when permissions of the session change.
+     */
+    private EntityPermissionMatrix getEntityPermissionMatrix() {
+        EntityPermissionMatrix matrix = entityPermissionMatrix;
+        if (matrix == null) {
+            matrix = new EntityPermissionMatrix(this::getEffectivePermissionValue);
+            entityPermissionMatrix = matrix;
+        }
+        return matrix;
     }
 
     /**
@@ -402,6 +421,13 @@ public class UserSession implements Serializable {
         // If we have super-role no need to check anything
         if (roleTypes.contains(RoleType.SUPER))
             return true;
+        Integer v = getEffectivePermissionValue(type, target);
+        // Return true if no value set for this target, or if the value is more than requested
+        return v == null || v >= value;
+    }
+
+    @Nullable
+    private Integer getEffectivePermissionValue(PermissionType type, String target) {
         // Get permission value assigned by the set of permissions
         Integer v = getPermissionValue(type, target);
         // Get permission value assigned by non-standard roles
@@ -411,8 +437,7 @@ public class UserSession implements Serializable {
                 v = v1;
             }
         }
-        // Return true if no value set for this target, or if the value is more than requested
-        return v == null || v >= value;
+        return v;
     }
 
     /**
@@ -547,6 +572,7 @@ public class UserSession implements Serializable {
      */
     public void applyEffectiveRole(RoleDefinition effectiveRole) {
         this.effectiveRole = effectiveRole;
+        entityPermissionMatrix = null;
     }
 
     /**
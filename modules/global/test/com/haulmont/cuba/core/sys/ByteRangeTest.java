@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.haulmont.cuba.core.sys;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ByteRangeTest {
+
+    @Test
+    public void testClosedRange() {
+        ByteRange range = ByteRange.parse("bytes=10-19", 100);
+        assertNotNull(range);
+        assertTrue(range.isSatisfiable());
+        assertEquals(10, range.getStart());
+        assertEquals(19, range.getEnd());
+        assertEquals(10, range.getLength());
+        assertEquals("bytes 10-19/100", range.getContentRange());
+    }
+
+    @Test
+    public void testOpenRanges() {
+        ByteRange range = ByteRange.parse("bytes=90-", 100);
+        assertNotNull(range);
+        assertEquals("bytes 90-99/100", range.getContentRange());
+
+        range = ByteRange.parse("bytes=-30", 100);
+        assertNotNull(range);
+        assertEquals("bytes 70-99/100", range.getContentRange());
+
+        range = ByteRange.parse("bytes=-300", 100);
+        assertEquals("bytes 0-99/100", range.getContentRange());
+
+        range = ByteRange.parse("bytes=50-1000", 100);
+        assertEquals("bytes 50-99/100", range.getContentRange());
+    }
+
+    @Test
+    public void testUnsatisfiableRange() {
+        ByteRange range = ByteRange.parse("bytes=100-", 100);
+        assertNotNull(range);
+        assertFalse(range.isSatisfiable());
+        assertEquals("bytes */100", range.getContentRange());
+
+        range = ByteRange.parse("bytes=-10", 0);
+        assertNotNull(range);
+        assertFalse(range.isSatisfiable());
+    }
+
+    @Test
+    public void testIgnoredHeaders() {
+        assertNull(ByteRange.parse(null, 100));
+        assertNull(ByteRange.parse("items=0-10", 100));
+        assertNull(ByteRange.parse("bytes=0-10,20-30", 100));
+        assertNull(ByteRange.parse("bytes=-", 100));
+        assertNull(ByteRange.parse("bytes=20-10", 100));
+        assertNull(ByteRange.parse("bytes=a-b", 100));
+        assertNull(ByteRange.parse("bytes=a-", 100));
+        assertNull(ByteRange.parse("bytes=-b", 100));
+    }
+}
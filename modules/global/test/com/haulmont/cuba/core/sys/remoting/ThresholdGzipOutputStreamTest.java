@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.sys.remoting;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ThresholdGzipOutputStreamTest {
+
+    @Test
+    public void testSmallDataNotCompressed() throws Exception {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        AtomicBoolean compressedCallback = new AtomicBoolean();
+
+        ThresholdGzipOutputStream os = new ThresholdGzipOutputStream(target, 100, () -> compressedCallback.set(true));
+        os.write(new byte[50]);
+        os.flush();
+        assertEquals(0, target.size());
+        os.close();
+
+        assertFalse(os.isCompressed());
+        assertFalse(compressedCallback.get());
+        assertArrayEquals(new byte[50], target.toByteArray());
+    }
+
+    @Test
+    public void testLargeDataCompressed() throws Exception {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        AtomicBoolean compressedCallback = new AtomicBoolean();
+
+        byte[] data = new byte[10000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i % 10);
+        }
+
+        ThresholdGzipOutputStream os = new ThresholdGzipOutputStream(target, 100, () -> compressedCallback.set(true));
+        for (int i = 0; i < data.length; i += 1000) {
+            os.write(data, i, 1000);
+        }
+        os.close();
+
+        assertTrue(os.isCompressed());
+        assertTrue(compressedCallback.get());
+        assertTrue(target.size() < data.length);
+
+        byte[] decompressed = IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(target.toByteArray())));
+        assertArrayEquals(data, decompressed);
+    }
+}
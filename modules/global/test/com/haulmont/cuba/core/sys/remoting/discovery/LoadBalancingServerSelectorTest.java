@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.remoting.discovery;
+
+import org.junit.jupiter.api.Test;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoadBalancingServerSelectorTest {
+
+    private LoadBalancingServerSelector createSelector(int failureThreshold) {
+        LoadBalancingServerSelector selector = new LoadBalancingServerSelector() {
+            @Nullable
+            @Override
+            protected SessionUrlsHolder getSessionUrlsHolder() {
+                return null;
+            }
+        };
+        selector.setBaseUrl("http://server1,http://server2");
+        selector.setServletPath("path");
+        selector.setFailureThreshold(failureThreshold);
+        selector.init();
+        return selector;
+    }
+
+    @Test
+    public void testSlowServerAvoided() {
+        LoadBalancingServerSelector selector = createSelector(3);
+
+        selector.success(selectContext(selector, "http://server1/path"), TimeUnit.MILLISECONDS.toNanos(500));
+        Object context = selectContext(selector, "http://server2/path");
+        selector.success(context, TimeUnit.MILLISECONDS.toNanos(10));
+        selector.complete(context);
+
+        assertTrue(selector.getScore("http://server1/path") > selector.getScore("http://server2/path"));
+        for (int i = 0; i < 10; i++) {
+            Object ctx = selector.initContext();
+            assertEquals("http://server2/path", selector.getUrl(ctx));
+            selector.complete(ctx);
+        }
+    }
+
+    @Test
+    public void testInFlightRequestsIncreaseScore() {
+        LoadBalancingServerSelector selector = createSelector(3);
+        for (String url : new String[]{"http://server1/path", "http://server2/path"}) {
+            Object context = selectContext(selector, url);
+            selector.success(context, TimeUnit.MILLISECONDS.toNanos(10));
+            selector.complete(context);
+        }
+
+        double idleScore = selector.getScore("http://server1/path");
+        Object context = selectContext(selector, "http://server1/path");
+        assertEquals(idleScore * 2, selector.getScore("http://server1/path"), 0.001);
+
+        selector.complete(context);
+        assertEquals(idleScore, selector.getScore("http://server1/path"), 0.001);
+    }
+
+    @Test
+    public void testCircuitBreaker() {
+        LoadBalancingServerSelector selector = createSelector(1);
+
+        Object failedContext = selectContext(selector, "http://server1/path");
+        selector.fail(failedContext);
+        selector.complete(failedContext);
+        assertEquals(Double.MAX_VALUE, selector.getScore("http://server1/path"));
+
+        Object context = selector.initContext();
+        assertEquals("http://server2/path", selector.getUrl(context));
+        selector.fail(context);
+        // both servers have failed, the one with open circuit is tried as the last resort
+        assertEquals("http://server1/path", selector.getUrl(context));
+        selector.success(context);
+        selector.complete(context);
+
+        assertNotEquals(Double.MAX_VALUE, selector.getScore("http://server1/path"));
+    }
+
+    private Object selectContext(LoadBalancingServerSelector selector, String url) {
+        while (true) {
+            Object context = selector.initContext();
+            if (url.equals(selector.getUrl(context)))
+                return context;
+            selector.complete(context);
+        }
+    }
+}
@@ -35,20 +35,20 @@ public class ExcelAutoColumnSizer {
 
     private static final short WIDTH_PADDING = 5;
 
-    private static final int[] ROW_BAND = {1, 100, 1000, 10000, 65536};
-    private static final int[] ROW_BAND_SAMPLE_FREQUENCY = {1, 10, 100, 1000};
+    private static final int[] ROW_BAND = {1, 100, 1000, 10000, 100000, 1048576};
+    private static final int[] ROW_BAND_SAMPLE_FREQUENCY = {1, 10, 100, 1000, 10000};
 
     /** Graphics context used for obtaining FontMetrics objects */
     private Graphics2D graphics = null;
 
-    /** Maps a Short (HSSF font index) to a FontMetrics object */
-    private Map<Short, FontMetrics> fontMetrics = new HashMap<>();
+    /** Maps a font index to a FontMetrics object */
+    private Map<Integer, FontMetrics> fontMetrics = new HashMap<>();
 
     private short currentWidth = WIDTH_MIN;
 
-    private FontMetrics getFontMetrics(HSSFFont hf){
+    private FontMetrics getFontMetrics(org.apache.poi.ss.usermodel.Font hf){
         FontMetrics fm;
-        Short pFont = hf.getIndex();
+        Integer pFont = hf.getIndexAsInt();
 
         fm = fontMetrics.get(pFont);
         if (fm == null) {
@@ -102,6 +102,10 @@ public class ExcelAutoColumnSizer {
     }
 
     public void notifyCellValue(String val, HSSFFont font) {
+        notifyCellValue(val, (org.apache.poi.ss.usermodel.Font) font);
+    }
+
+    public void notifyCellValue(String val, org.apache.poi.ss.usermodel.Font font) {
         if (val == null || val.length() == 0) return;
         if (font == null) throw new IllegalArgumentException("font is null");
 
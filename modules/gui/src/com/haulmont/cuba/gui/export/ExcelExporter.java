@@ -30,29 +30,53 @@ import com.haulmont.cuba.gui.components.data.*;
 import com.haulmont.cuba.gui.components.data.meta.EntityDataGridItems;
 import com.haulmont.cuba.gui.components.data.meta.EntityTableItems;
 import com.haulmont.cuba.gui.data.GroupInfo;
+import com.haulmont.cuba.gui.model.CollectionLoader;
 import com.haulmont.cuba.gui.model.InstanceContainer;
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.poi.hssf.usermodel.*;
+import org.apache.poi.hssf.usermodel.HSSFCell;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.DataFormat;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.RichTextString;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.VerticalAlignment;
+import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.util.LocaleUtil;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.dom4j.Element;
 
 import javax.annotation.Nullable;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.ObjIntConsumer;
 import java.util.stream.Collectors;
 
 /**
  * Use this class to export {@link com.haulmont.cuba.gui.components.Table} into Excel format
  * and show using {@link ExportDisplay}.
  * <br>Just create an instance of this class and invoke one of <code>exportTable</code> methods.
+ * <p>
+ * By default, the document is built in memory in the legacy XLS format limited to {@value #MAX_ROW_COUNT} rows.
+ * If the exporter is created for {@link ExportFormat#XLSX}, rows are written to a streaming workbook which keeps
+ * only the last {@link #setRowAccessWindowSize(int) rowAccessWindowSize} rows in memory and flushes the others
+ * to a temporary file. In this mode, rows can also be loaded directly from the database by pages using
+ * {@link #exportTable(Table, List, LoadContext, OutputStream, IntConsumer)} or
+ * {@link #exportDataGrid(DataGrid, List, LoadContext, OutputStream, IntConsumer)}, which can be invoked
+ * in a background task.
  */
 public class ExcelExporter {
     protected static final int COL_WIDTH_MAGIC = 48;
@@ -61,17 +85,25 @@ public class ExcelExporter {
 
     public static final int MAX_ROW_COUNT = 65535;
 
-    protected HSSFWorkbook wb;
+    public static final int MAX_XLSX_ROW_COUNT = 1048575;
 
-    protected HSSFFont boldFont;
-    protected HSSFFont stdFont;
-    protected HSSFSheet sheet;
+    protected static final int PROGRESS_STEP = 100;
 
-    protected HSSFCellStyle timeFormatCellStyle;
-    protected HSSFCellStyle dateFormatCellStyle;
-    protected HSSFCellStyle dateTimeFormatCellStyle;
-    protected HSSFCellStyle integerFormatCellStyle;
-    protected HSSFCellStyle doubleFormatCellStyle;
+    protected Workbook wb;
+
+    protected Font boldFont;
+    protected Font stdFont;
+    protected Sheet sheet;
+
+    protected CellStyle timeFormatCellStyle;
+    protected CellStyle dateFormatCellStyle;
+    protected CellStyle dateTimeFormatCellStyle;
+    protected CellStyle integerFormatCellStyle;
+    protected CellStyle doubleFormatCellStyle;
+
+    protected ExportFormat exportFormat = ExportFormat.XLS;
+
+    protected int rowAccessWindowSize = SXSSFWorkbook.DEFAULT_WINDOW_SIZE;
 
     protected ExcelAutoColumnSizer[] sizers;
 
@@ -83,6 +115,7 @@ public class ExcelExporter {
     protected final Messages messages;
     protected final UserSessionSource userSessionSource;
     protected final MetadataTools metadataTools;
+    protected final DataManager dataManager;
 
     protected boolean isRowNumberExceeded = false;
 
@@ -92,9 +125,19 @@ public class ExcelExporter {
     }
 
     public ExcelExporter() {
+        this(ExportFormat.XLS);
+    }
+
+    /**
+     * @param exportFormat {@link ExportFormat#XLS} or {@link ExportFormat#XLSX}
+     */
+    public ExcelExporter(ExportFormat exportFormat) {
+        setExportFormat(exportFormat);
+
         messages = AppBeans.get(Messages.NAME);
         userSessionSource = AppBeans.get(UserSessionSource.NAME);
         metadataTools = AppBeans.get(MetadataTools.NAME);
+        dataManager = AppBeans.get(DataManager.NAME);
 
         trueStr = messages.getMessage(ExcelExporter.class, "excelExporter.true");
         falseStr = messages.getMessage(ExcelExporter.class, "excelExporter.false");
@@ -108,11 +151,88 @@ public class ExcelExporter {
         exportTable(table, columns, false, display, null, null, exportMode);
     }
 
+    public ExportFormat getExportFormat() {
+        return exportFormat;
+    }
+
+    /**
+     * Sets the format of exported documents.
+     *
+     * @param exportFormat {@link ExportFormat#XLS} or {@link ExportFormat#XLSX}
+     */
+    public void setExportFormat(ExportFormat exportFormat) {
+        if (exportFormat != ExportFormat.XLS && exportFormat != ExportFormat.XLSX) {
+            throw new IllegalArgumentException("Unsupported export format: " + exportFormat.getFileExt());
+        }
+        this.exportFormat = exportFormat;
+    }
+
+    public int getRowAccessWindowSize() {
+        return rowAccessWindowSize;
+    }
+
+    /**
+     * Sets the number of rows kept in memory when exporting to XLSX, other rows are flushed to a temporary file.
+     * Default is 100.
+     */
+    public void setRowAccessWindowSize(int rowAccessWindowSize) {
+        if (rowAccessWindowSize <= 0) {
+            throw new IllegalArgumentException("rowAccessWindowSize must be positive");
+        }
+        this.rowAccessWindowSize = rowAccessWindowSize;
+    }
+
+    protected boolean isStreaming() {
+        return exportFormat == ExportFormat.XLSX;
+    }
+
+    /**
+     * @return index of the last row that can be exported in the current format
+     */
+    protected int getMaxRowCount() {
+        return isStreaming() ? MAX_XLSX_ROW_COUNT : MAX_ROW_COUNT;
+    }
+
     protected void createWorkbookWithSheet() {
-        wb = new HSSFWorkbook();
+        if (isStreaming()) {
+            wb = new SXSSFWorkbook(rowAccessWindowSize);
+        } else {
+            wb = new HSSFWorkbook();
+        }
         sheet = wb.createSheet("Export");
     }
 
+    /**
+     * Keeps all rows of the streaming sheet in memory. Required if the rows are modified after creation,
+     * e.g. grouped.
+     */
+    protected void disableRowFlushing() {
+        if (sheet instanceof SXSSFSheet) {
+            ((SXSSFSheet) sheet).setRandomAccessWindowSize(-1);
+        }
+    }
+
+    protected RichTextString createRichTextString(String text) {
+        return wb.getCreationHelper().createRichTextString(text);
+    }
+
+    protected void writeWorkbook(OutputStream out) {
+        try {
+            wb.write(out);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to write document", e);
+        } finally {
+            disposeWorkbook();
+        }
+    }
+
+    protected void disposeWorkbook() {
+        if (wb instanceof SXSSFWorkbook) {
+            // deletes temporary files with flushed rows
+            ((SXSSFWorkbook) wb).dispose();
+        }
+    }
+
     protected void createFonts() {
         stdFont = wb.createFont();
         boldFont = wb.createFont();
@@ -147,54 +267,10 @@ public class ExcelExporter {
         createFonts();
         createFormats();
 
-        int r = 0;
-        if (filterDescription != null) {
-            for (r = 0; r < filterDescription.size(); r++) {
-                String line = filterDescription.get(r);
-                HSSFRow row = sheet.createRow(r);
-                if (r == 0) {
-                    HSSFRichTextString richTextFilterName = new HSSFRichTextString(line);
-                    richTextFilterName.applyFont(boldFont);
-                    row.createCell(0).setCellValue(richTextFilterName);
-                } else {
-                    row.createCell(0).setCellValue(line);
-                }
-            }
-            r++;
-        }
-        HSSFRow row = sheet.createRow(r);
-        createAutoColumnSizers(columns.size());
-
-        float maxHeight = sheet.getDefaultRowHeightInPoints();
-
-        CellStyle headerCellStyle = wb.createCellStyle();
-        headerCellStyle.setVerticalAlignment(VerticalAlignment.CENTER);
-        for (Table.Column column : columns) {
-            String caption = column.getCaption();
-
-            int countOfReturnSymbols = StringUtils.countMatches(caption, "\n");
-            if (countOfReturnSymbols > 0) {
-                maxHeight = Math.max(maxHeight, (countOfReturnSymbols + 1) * sheet.getDefaultRowHeightInPoints());
-                headerCellStyle.setWrapText(true);
-            }
-        }
-        row.setHeightInPoints(maxHeight);
-
-        for (int c = 0; c < columns.size(); c++) {
-            Table.Column column = columns.get(c);
-            String caption = column.getCaption();
-
-            HSSFCell cell = row.createCell(c);
-            HSSFRichTextString richTextString = new HSSFRichTextString(caption);
-            richTextString.applyFont(boldFont);
-            cell.setCellValue(richTextString);
-
-            ExcelAutoColumnSizer sizer = new ExcelAutoColumnSizer();
-            sizer.notifyCellValue(caption, boldFont);
-            sizers[c] = sizer;
-
-            cell.setCellStyle(headerCellStyle);
-        }
+        List<String> captions = columns.stream()
+                .map(Table.Column::getCaption)
+                .collect(Collectors.toList());
+        int r = createHeader(captions, filterDescription);
 
         TableItems<Entity> tableItems = table.getItems();
 
@@ -232,6 +308,8 @@ public class ExcelExporter {
             } else if (table instanceof GroupTable && tableItems instanceof GroupTableItems
                     && ((GroupTableItems) tableItems).hasGroups()) {
                 GroupTableItems groupTableSource = (GroupTableItems) tableItems;
+                // rows are grouped after their creation
+                disableRowFlushing();
 
                 for (Object item : groupTableSource.rootGroups()) {
                     if (checkIsRowNumberExceed(r)) {
@@ -257,21 +335,15 @@ public class ExcelExporter {
             }
         }
 
-        for (int c = 0; c < columns.size(); c++) {
-            sheet.setColumnWidth(c, sizers[c].getWidth() * COL_WIDTH_MAGIC);
-        }
+        setColumnWidths(columns.size());
 
         ByteArrayOutputStream out = new ByteArrayOutputStream();
-        try {
-            wb.write(out);
-        } catch (IOException e) {
-            throw new RuntimeException("Unable to write document", e);
-        }
+        writeWorkbook(out);
         if (fileName == null) {
             fileName = messages.getTools().getEntityCaption(((EntityTableItems) tableItems).getEntityMetaClass());
         }
 
-        display.show(new ByteArrayDataProvider(out.toByteArray()), fileName + ".xls", ExportFormat.XLS);
+        display.show(new ByteArrayDataProvider(out.toByteArray()), fileName + "." + exportFormat.getFileExt(), exportFormat);
     }
 
     public void exportDataGrid(DataGrid dataGrid, ExportDisplay display) {
@@ -303,54 +375,10 @@ public class ExcelExporter {
         createFonts();
         createFormats();
 
-        int r = 0;
-        if (filterDescription != null) {
-            for (r = 0; r < filterDescription.size(); r++) {
-                String line = filterDescription.get(r);
-                HSSFRow row = sheet.createRow(r);
-                if (r == 0) {
-                    HSSFRichTextString richTextFilterName = new HSSFRichTextString(line);
-                    richTextFilterName.applyFont(boldFont);
-                    row.createCell(0).setCellValue(richTextFilterName);
-                } else {
-                    row.createCell(0).setCellValue(line);
-                }
-            }
-            r++;
-        }
-        HSSFRow row = sheet.createRow(r);
-        createAutoColumnSizers(columns.size());
-
-        float maxHeight = sheet.getDefaultRowHeightInPoints();
-
-        CellStyle headerCellStyle = wb.createCellStyle();
-        headerCellStyle.setVerticalAlignment(VerticalAlignment.CENTER);
-        for (DataGrid.Column column : columns) {
-            String caption = column.getCaption();
-
-            int countOfReturnSymbols = StringUtils.countMatches(caption, "\n");
-            if (countOfReturnSymbols > 0) {
-                maxHeight = Math.max(maxHeight, (countOfReturnSymbols + 1) * sheet.getDefaultRowHeightInPoints());
-                headerCellStyle.setWrapText(true);
-            }
-        }
-        row.setHeightInPoints(maxHeight);
-
-        for (int c = 0; c < columns.size(); c++) {
-            DataGrid.Column column = columns.get(c);
-            String caption = column.getCaption();
-
-            HSSFCell cell = row.createCell(c);
-            HSSFRichTextString richTextString = new HSSFRichTextString(caption);
-            richTextString.applyFont(boldFont);
-            cell.setCellValue(richTextString);
-
-            ExcelAutoColumnSizer sizer = new ExcelAutoColumnSizer();
-            sizer.notifyCellValue(caption, boldFont);
-            sizers[c] = sizer;
-
-            cell.setCellStyle(headerCellStyle);
-        }
+        List<String> captions = columns.stream()
+                .map(DataGrid.Column::getCaption)
+                .collect(Collectors.toList());
+        int r = createHeader(captions, filterDescription);
 
         EntityDataGridItems<Entity> dataGridSource = (EntityDataGridItems) dataGrid.getItems();
         if (dataGridSource == null) {
@@ -391,39 +419,265 @@ public class ExcelExporter {
             }
         }
 
-        for (int c = 0; c < columns.size(); c++) {
-            sheet.setColumnWidth(c, sizers[c].getWidth() * COL_WIDTH_MAGIC);
+        setColumnWidths(columns.size());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeWorkbook(out);
+        if (fileName == null) {
+            fileName = messages.getTools().getEntityCaption(dataGridSource.getEntityMetaClass());
+        }
+
+        display.show(new ByteArrayDataProvider(out.toByteArray()), fileName + "." + exportFormat.getFileExt(), exportFormat);
+    }
+
+    /**
+     * Exports all entities of the loader query without loading them into the table container. Columns and value
+     * formatting are taken from the table, but grouping, hierarchy and aggregation are not exported.
+     * The pagination settings of the loader are ignored.
+     *
+     * @param table    table providing columns
+     * @param columns  exported columns
+     * @param loader   loader defining the query
+     * @param display  display to show the document
+     * @param fileName file name without extension, if null the entity caption is used
+     */
+    public void exportTable(Table<Entity> table, List<Table.Column> columns, CollectionLoader<? extends Entity> loader,
+                            ExportDisplay display, @Nullable String fileName) {
+        if (display == null) {
+            throw new IllegalArgumentException("ExportDisplay is null");
         }
 
         ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportTable(table, columns, createExportLoadContext(loader), out, null);
+        show(display, out, fileName, loader);
+    }
+
+    /**
+     * Exports entities loaded by the given context. Columns and value formatting are taken from the table,
+     * but grouping, hierarchy and aggregation are not exported.
+     * <p>
+     * The entities are loaded by pages using {@link DataManager#stream(LoadContext, Consumer)}, so the query should
+     * define a stable order. With {@link ExportFormat#XLSX} format, neither the entities nor the rows of the document
+     * are kept in memory, so the method is suitable for large result sets. It does not show the document and can be
+     * invoked in {@code BackgroundTask#doInBackground()}: if the thread is interrupted, the export is stopped
+     * with {@link CancellationException}.
+     *
+     * @param table            table providing columns
+     * @param columns          exported columns
+     * @param loadContext      context defining the query, e.g. created by {@link CollectionLoader#createLoadContext()}
+     * @param out              stream to write the document to, it is not closed
+     * @param progressListener receives the number of exported rows, can be null
+     * @return number of exported rows
+     */
+    public int exportTable(Table<Entity> table, List<Table.Column> columns, LoadContext<? extends Entity> loadContext,
+                           OutputStream out, @Nullable IntConsumer progressListener) {
+        List<String> captions = columns.stream()
+                .map(Table.Column::getCaption)
+                .collect(Collectors.toList());
+        return exportLoadedEntities(captions, loadContext, out, progressListener,
+                (entity, rowNumber) -> createRow(table, columns, 0, rowNumber, entity, 0));
+    }
+
+    /**
+     * Exports all entities of the loader query without loading them into the data grid container. Columns and value
+     * formatting are taken from the data grid, but hierarchy is not exported. The pagination settings of the loader
+     * are ignored.
+     *
+     * @param dataGrid data grid providing columns
+     * @param columns  exported columns
+     * @param loader   loader defining the query
+     * @param display  display to show the document
+     * @param fileName file name without extension, if null the entity caption is used
+     */
+    public void exportDataGrid(DataGrid<Entity> dataGrid, List<DataGrid.Column> columns,
+                               CollectionLoader<? extends Entity> loader, ExportDisplay display,
+                               @Nullable String fileName) {
+        if (display == null) {
+            throw new IllegalArgumentException("ExportDisplay is null");
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportDataGrid(dataGrid, columns, createExportLoadContext(loader), out, null);
+        show(display, out, fileName, loader);
+    }
+
+    /**
+     * Exports entities loaded by the given context. Columns and value formatting are taken from the data grid,
+     * but hierarchy is not exported.
+     * <p>
+     * See {@link #exportTable(Table, List, LoadContext, OutputStream, IntConsumer)} for details.
+     *
+     * @param dataGrid         data grid providing columns
+     * @param columns          exported columns
+     * @param loadContext      context defining the query, e.g. created by {@link CollectionLoader#createLoadContext()}
+     * @param out              stream to write the document to, it is not closed
+     * @param progressListener receives the number of exported rows, can be null
+     * @return number of exported rows
+     */
+    public int exportDataGrid(DataGrid<Entity> dataGrid, List<DataGrid.Column> columns,
+                              LoadContext<? extends Entity> loadContext, OutputStream out,
+                              @Nullable IntConsumer progressListener) {
+        List<String> captions = columns.stream()
+                .map(DataGrid.Column::getCaption)
+                .collect(Collectors.toList());
+        return exportLoadedEntities(captions, loadContext, out, progressListener,
+                (entity, rowNumber) -> createDataGridRow(dataGrid, columns, 0, rowNumber, entity, 0));
+    }
+
+    protected LoadContext<? extends Entity> createExportLoadContext(CollectionLoader<? extends Entity> loader) {
+        LoadContext<? extends Entity> loadContext = loader.createLoadContext();
+        LoadContext.Query query = loadContext.getQuery();
+        if (query != null) {
+            query.setFirstResult(0);
+            query.setMaxResults(0);
+            query.setKeyset(null);
+        }
+        return loadContext;
+    }
+
+    protected int exportLoadedEntities(List<String> captions, LoadContext<? extends Entity> loadContext,
+                                       OutputStream out, @Nullable IntConsumer progressListener,
+                                       ObjIntConsumer<Entity> rowCreator) {
+        createWorkbookWithSheet();
+        createFonts();
+        createFormats();
+
+        int[] r = {createHeader(captions, null)};
+        int headerRow = r[0];
         try {
-            wb.write(out);
-        } catch (IOException e) {
-            throw new RuntimeException("Unable to write document", e);
+            dataManager.stream(loadContext, entity -> {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("Export is interrupted");
+                }
+                if (checkIsRowNumberExceed(r[0])) {
+                    throw new RowLimitExceededException();
+                }
+
+                rowCreator.accept(entity, ++r[0]);
+
+                int count = r[0] - headerRow;
+                if (progressListener != null && count % PROGRESS_STEP == 0) {
+                    progressListener.accept(count);
+                }
+            });
+        } catch (RowLimitExceededException e) {
+            // the rest of entities is not loaded
+        } catch (RuntimeException e) {
+            disposeWorkbook();
+            throw e;
+        }
+
+        int count = r[0] - headerRow;
+        if (progressListener != null && count % PROGRESS_STEP != 0) {
+            progressListener.accept(count);
         }
+
+        setColumnWidths(captions.size());
+        writeWorkbook(out);
+        return count;
+    }
+
+    protected void show(ExportDisplay display, ByteArrayOutputStream out, @Nullable String fileName,
+                        CollectionLoader<? extends Entity> loader) {
         if (fileName == null) {
-            fileName = messages.getTools().getEntityCaption(dataGridSource.getEntityMetaClass());
+            fileName = messages.getTools().getEntityCaption(loader.getContainer().getEntityMetaClass());
+        }
+        display.show(new ByteArrayDataProvider(out.toByteArray()), fileName + "." + exportFormat.getFileExt(), exportFormat);
+    }
+
+    /**
+     * Stops loading of entities when the document has no more rows.
+     */
+    protected static class RowLimitExceededException extends RuntimeException {
+        public RowLimitExceededException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Creates rows with the filter description and the header row.
+     *
+     * @return number of the header row
+     */
+    protected int createHeader(List<String> captions, @Nullable List<String> filterDescription) {
+        // the streaming workbook writes inline strings without rich text formatting, so bold font is set by styles
+        CellStyle boldCellStyle = wb.createCellStyle();
+        boldCellStyle.setFont(boldFont);
+
+        int r = 0;
+        if (filterDescription != null) {
+            for (r = 0; r < filterDescription.size(); r++) {
+                String line = filterDescription.get(r);
+                Row row = sheet.createRow(r);
+                if (r == 0) {
+                    RichTextString richTextFilterName = createRichTextString(line);
+                    richTextFilterName.applyFont(boldFont);
+                    Cell cell = row.createCell(0);
+                    cell.setCellValue(richTextFilterName);
+                    cell.setCellStyle(boldCellStyle);
+                } else {
+                    row.createCell(0).setCellValue(line);
+                }
+            }
+            r++;
+        }
+        Row row = sheet.createRow(r);
+        createAutoColumnSizers(captions.size());
+
+        float maxHeight = sheet.getDefaultRowHeightInPoints();
+
+        CellStyle headerCellStyle = wb.createCellStyle();
+        headerCellStyle.setVerticalAlignment(VerticalAlignment.CENTER);
+        headerCellStyle.setFont(boldFont);
+        for (String caption : captions) {
+            int countOfReturnSymbols = StringUtils.countMatches(caption, "\n");
+            if (countOfReturnSymbols > 0) {
+                maxHeight = Math.max(maxHeight, (countOfReturnSymbols + 1) * sheet.getDefaultRowHeightInPoints());
+                headerCellStyle.setWrapText(true);
+            }
+        }
+        row.setHeightInPoints(maxHeight);
+
+        for (int c = 0; c < captions.size(); c++) {
+            String caption = captions.get(c);
+
+            Cell cell = row.createCell(c);
+            RichTextString richTextString = createRichTextString(caption);
+            richTextString.applyFont(boldFont);
+            cell.setCellValue(richTextString);
+
+            ExcelAutoColumnSizer sizer = new ExcelAutoColumnSizer();
+            sizer.notifyCellValue(caption, boldFont);
+            sizers[c] = sizer;
+
+            cell.setCellStyle(headerCellStyle);
         }
 
-        display.show(new ByteArrayDataProvider(out.toByteArray()), fileName + ".xls", ExportFormat.XLS);
+        return r;
+    }
+
+    protected void setColumnWidths(int columnCount) {
+        for (int c = 0; c < columnCount; c++) {
+            sheet.setColumnWidth(c, sizers[c].getWidth() * COL_WIDTH_MAGIC);
+        }
     }
 
     protected void createFormats() {
         timeFormatCellStyle = wb.createCellStyle();
         String timeFormat = messages.getMainMessage("excelExporter.timeFormat");
-        timeFormatCellStyle.setDataFormat(HSSFDataFormat.getBuiltinFormat(timeFormat));
+        timeFormatCellStyle.setDataFormat((short) BuiltinFormats.getBuiltinFormat(timeFormat));
 
         dateFormatCellStyle = wb.createCellStyle();
         String dateFormat = messages.getMainMessage("excelExporter.dateFormat");
-        dateFormatCellStyle.setDataFormat(HSSFDataFormat.getBuiltinFormat(dateFormat));
+        dateFormatCellStyle.setDataFormat((short) BuiltinFormats.getBuiltinFormat(dateFormat));
 
         dateTimeFormatCellStyle = wb.createCellStyle();
         String dateTimeFormat = messages.getMainMessage("excelExporter.dateTimeFormat");
-        dateTimeFormatCellStyle.setDataFormat(HSSFDataFormat.getBuiltinFormat(dateTimeFormat));
+        dateTimeFormatCellStyle.setDataFormat((short) BuiltinFormats.getBuiltinFormat(dateTimeFormat));
 
         integerFormatCellStyle = wb.createCellStyle();
         String integerFormat = messages.getMainMessage("excelExporter.integerFormat");
-        integerFormatCellStyle.setDataFormat(HSSFDataFormat.getBuiltinFormat(integerFormat));
+        integerFormatCellStyle.setDataFormat((short) BuiltinFormats.getBuiltinFormat(integerFormat));
 
         DataFormat format = wb.createDataFormat();
         doubleFormatCellStyle = wb.createCellStyle();
@@ -454,7 +708,7 @@ public class ExcelExporter {
 
     protected int createAggregatableRow(Table table, List<Table.Column> columns, int rowNumber,
                                         int aggregatableRow) {
-        HSSFRow row = sheet.createRow(rowNumber);
+        Row row = sheet.createRow(rowNumber);
         Map<Object, Object> results = table.getAggregationResults();
 
         int i = 0;
@@ -464,7 +718,7 @@ public class ExcelExporter {
                 Object key = agr.getPropertyPath() != null ? agr.getPropertyPath() : column.getId();
                 Object aggregationResult = results.get(key);
                 if (aggregationResult != null) {
-                    HSSFCell cell = row.createCell(i);
+                    Cell cell = row.createCell(i);
                     formatValueCell(cell, aggregationResult, null, i, rowNumber, 0, null);
                 }
             }
@@ -477,7 +731,7 @@ public class ExcelExporter {
                                  GroupInfo groupInfo, int groupNumber) {
         GroupTableItems<Entity> groupTableSource = (GroupTableItems) table.getItems();
 
-        HSSFRow row = sheet.createRow(rowNumber);
+        Row row = sheet.createRow(rowNumber);
         Map<Object, Object> aggregations = table.isAggregatable()
                 ? table.getAggregationResults(groupInfo)
                 : Collections.emptyMap();
@@ -486,7 +740,7 @@ public class ExcelExporter {
         int initialGroupNumber = groupNumber;
         for (Table.Column column : columns) {
             if (i == initialGroupNumber) {
-                HSSFCell cell = row.createCell(i);
+                Cell cell = row.createCell(i);
                 Object val = groupInfo.getValue();
 
                 if (val == null) {
@@ -540,7 +794,7 @@ public class ExcelExporter {
                     Object key = agr.getPropertyPath() != null ? agr.getPropertyPath() : column.getId();
                     Object aggregationResult = aggregations.get(key);
                     if (aggregationResult != null) {
-                        HSSFCell cell = row.createCell(i);
+                        Cell cell = row.createCell(i);
                         formatValueCell(cell, aggregationResult, null, i, rowNumber, 0, null);
                     }
                 }
@@ -563,7 +817,7 @@ public class ExcelExporter {
         }
 
         if (checkIsRowNumberExceed(rowNumber)) {
-            sheet.groupRow(oldRowNumber + 1, MAX_ROW_COUNT);
+            sheet.groupRow(oldRowNumber + 1, getMaxRowCount());
         } else {
             sheet.groupRow(oldRowNumber + 1, rowNumber);
         }
@@ -576,11 +830,10 @@ public class ExcelExporter {
             return;
         }
 
-        if (rowNumber > MAX_ROW_COUNT) {
+        if (rowNumber > getMaxRowCount()) {
             return;
         }
 
-        HSSFRow row = sheet.createRow(rowNumber);
         Entity instance = (Entity) table.getItems().getItem(itemId);
 
         int level = 0;
@@ -588,8 +841,15 @@ public class ExcelExporter {
             level = ((TreeTable) table).getLevel(itemId);
         }
 
+        createRow(table, columns, startColumn, rowNumber, instance, level);
+    }
+
+    protected void createRow(Table table, List<Table.Column> columns, int startColumn, int rowNumber,
+                             Entity instance, int level) {
+        Row row = sheet.createRow(rowNumber);
+
         for (int c = startColumn; c < columns.size(); c++) {
-            HSSFCell cell = row.createCell(c);
+            Cell cell = row.createCell(c);
 
             Table.Column column = columns.get(c);
             Object cellValue = null;
@@ -645,15 +905,20 @@ public class ExcelExporter {
         if (startColumn >= columns.size()) {
             return;
         }
-        HSSFRow row = sheet.createRow(rowNumber);
         Entity item = (Entity) dataGrid.getItems().getItem(itemId);
 
         int level = 0;
         if (dataGrid instanceof TreeDataGrid) {
             level = ((TreeDataGrid) dataGrid).getLevel(item);
         }
+        createDataGridRow(dataGrid, columns, startColumn, rowNumber, item, level);
+    }
+
+    protected void createDataGridRow(DataGrid dataGrid, List<DataGrid.Column> columns,
+                                     int startColumn, int rowNumber, Entity item, int level) {
+        Row row = sheet.createRow(rowNumber);
         for (int c = startColumn; c < columns.size(); c++) {
-            HSSFCell cell = row.createCell(c);
+            Cell cell = row.createCell(c);
 
             DataGrid.Column column = columns.get(c);
             Object cellValue = null;
@@ -700,8 +965,17 @@ public class ExcelExporter {
         return sb.toString();
     }
 
+    /**
+     * @deprecated use {@link #formatValueCell(Cell, Object, MetaPropertyPath, int, int, int, Integer)}
+     */
+    @Deprecated
     protected void formatValueCell(HSSFCell cell, @Nullable Object cellValue, @Nullable MetaPropertyPath metaPropertyPath,
                                    int sizersIndex, int notificationRequired, int level, @Nullable Integer groupChildCount) {
+        formatValueCell((Cell) cell, cellValue, metaPropertyPath, sizersIndex, notificationRequired, level, groupChildCount);
+    }
+
+    protected void formatValueCell(Cell cell, @Nullable Object cellValue, @Nullable MetaPropertyPath metaPropertyPath,
+                                   int sizersIndex, int notificationRequired, int level, @Nullable Integer groupChildCount) {
 
         if (cellValue == null) {
             if (metaPropertyPath != null
@@ -810,7 +1084,7 @@ public class ExcelExporter {
                 str += createSpaceString(level);
             }
             str += ((Boolean) cellValue) ? trueStr : falseStr;
-            cell.setCellValue(new HSSFRichTextString(str));
+            cell.setCellValue(createRichTextString(str));
             if (sizers[sizersIndex].isNotificationRequired(notificationRequired)) {
                 sizers[sizersIndex].notifyCellValue(str, stdFont);
             }
@@ -828,13 +1102,13 @@ public class ExcelExporter {
             String instanceName = metadataTools.getInstanceName(entityVal);
             String str = sizersIndex == 0 ? createSpaceString(level) + instanceName : instanceName;
             str = str + childCountValue;
-            cell.setCellValue(new HSSFRichTextString(str));
+            cell.setCellValue(createRichTextString(str));
             if (sizers[sizersIndex].isNotificationRequired(notificationRequired)) {
                 sizers[sizersIndex].notifyCellValue(str, stdFont);
             }
         } else if (cellValue instanceof Collection) {
             String str = "";
-            cell.setCellValue(new HSSFRichTextString(str));
+            cell.setCellValue(createRichTextString(str));
             if (sizers[sizersIndex].isNotificationRequired(notificationRequired)) {
                 sizers[sizersIndex].notifyCellValue(str, stdFont);
             }
@@ -842,7 +1116,7 @@ public class ExcelExporter {
             String strValue = cellValue == null ? "" : cellValue.toString();
             String str = sizersIndex == 0 ? createSpaceString(level) + strValue : strValue;
             str = str + childCountValue;
-            cell.setCellValue(new HSSFRichTextString(str));
+            cell.setCellValue(createRichTextString(str));
             if (sizers[sizersIndex].isNotificationRequired(notificationRequired)) {
                 sizers[sizersIndex].notifyCellValue(str, stdFont);
             }
@@ -850,11 +1124,12 @@ public class ExcelExporter {
     }
 
     protected boolean checkIsRowNumberExceed(int r) {
-        return isRowNumberExceeded = r >= MAX_ROW_COUNT;
+        return isRowNumberExceeded = r >= getMaxRowCount();
     }
 
     /**
-     * @return true if exported table contains more than 65536 records
+     * @return true if exported table contains more records than the format allows: 65536 for XLS
+     * and 1048576 for XLSX
      */
     public boolean isXlsMaxRowNumberExceeded() {
         return isRowNumberExceeded;
@@ -18,11 +18,13 @@ package com.haulmont.cuba.gui.model;
 
 import com.haulmont.bali.events.Subscription;
 import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.global.Keyset;
 import com.haulmont.cuba.core.global.LoadContext;
 import com.haulmont.cuba.core.global.View;
 import com.haulmont.cuba.gui.screen.InstallSubject;
 import com.haulmont.cuba.gui.screen.Subscribe;
 
+import javax.annotation.Nullable;
 import java.util.EventObject;
 import java.util.List;
 import java.util.function.Consumer;
@@ -70,6 +72,25 @@ public interface CollectionLoader<E extends Entity> extends BaseCollectionLoader
      */
     void setCacheable(boolean cacheable);
 
+    /**
+     * Returns the position of the page in the keyset pagination mode.
+     */
+    @Nullable
+    Keyset getKeyset();
+
+    /**
+     * Sets the position of the page to load in the keyset pagination mode, for example:
+     * <pre>
+     *     List&lt;Customer&gt; items = customersDc.getItems();
+     *     customersDl.setKeyset(Keyset.after(items.get(items.size() - 1), customersDl.getSort()));
+     *     customersDl.load();
+     * </pre>
+     * The first result is ignored in this mode. The keyset is reset when the query or sort is changed.
+     *
+     * @see LoadContext.Query#setKeyset(Keyset)
+     */
+    void setKeyset(@Nullable Keyset keyset);
+
     /**
      * Returns the view which is used when loading.
      */
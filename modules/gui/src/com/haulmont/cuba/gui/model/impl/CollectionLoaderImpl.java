@@ -49,6 +49,7 @@ public class CollectionLoaderImpl<E extends Entity> implements CollectionLoader<
     protected View view;
     protected String viewName;
     protected Sort sort;
+    protected Keyset keyset;
     protected Function<LoadContext<E>, List<E>> delegate;
     protected LoadContext.Query lastQuery;
     protected List<LoadContext.Query> prevQueries;
@@ -137,7 +138,9 @@ public class CollectionLoaderImpl<E extends Entity> implements CollectionLoader<
 
         query.setCacheable(cacheable);
 
-        if (firstResult > 0)
+        if (keyset != null)
+            query.setKeyset(keyset);
+        else if (firstResult > 0)
             query.setFirstResult(firstResult);
         if (maxResults < Integer.MAX_VALUE)
             query.setMaxResults(maxResults);
@@ -200,6 +203,7 @@ public class CollectionLoaderImpl<E extends Entity> implements CollectionLoader<
     @Override
     public void setQuery(String query) {
         this.query = query;
+        this.keyset = null;
     }
 
     @Override
@@ -319,6 +323,19 @@ public class CollectionLoaderImpl<E extends Entity> implements CollectionLoader<
         } else {
             this.sort = sort;
         }
+        // the position of the page is defined by values of the previous sort properties
+        this.keyset = null;
+    }
+
+    @Nullable
+    @Override
+    public Keyset getKeyset() {
+        return keyset;
+    }
+
+    @Override
+    public void setKeyset(@Nullable Keyset keyset) {
+        this.keyset = keyset;
     }
 
     @Override
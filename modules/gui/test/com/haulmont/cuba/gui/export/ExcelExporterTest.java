@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.haulmont.cuba.gui.export;
+
+import com.haulmont.cuba.client.testsupport.CubaClientTestCase;
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.DataManager;
+import com.haulmont.cuba.core.global.LoadContext;
+import com.haulmont.cuba.gui.components.DataGrid;
+import com.haulmont.cuba.security.entity.User;
+import mockit.Delegate;
+import mockit.Expectations;
+import mockit.Mocked;
+import org.apache.poi.hssf.usermodel.HSSFFont;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ExcelExporterTest extends CubaClientTestCase {
+
+    @Mocked
+    protected DataManager dataManager;
+
+    @Mocked
+    protected DataGrid<Entity> dataGrid;
+
+    @Mocked
+    protected DataGrid.Column loginColumn;
+
+    protected List<User> users;
+
+    @BeforeEach
+    public void setUp() {
+        addEntityPackage("com.haulmont.cuba");
+        setupInfrastructure();
+
+        users = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            User user = metadata.create(User.class);
+            user.setLogin("user-" + i);
+            users.add(user);
+        }
+
+        new Expectations() {
+            {
+                AppBeans.get(DataManager.NAME); result = dataManager; minTimes = 0;
+
+                dataManager.stream((LoadContext) any, (Consumer) any); result = new Delegate() {
+                    @SuppressWarnings("unused")
+                    void stream(LoadContext<User> context, Consumer<? super User> consumer) {
+                        users.forEach(consumer);
+                    }
+                }; minTimes = 0;
+
+                loginColumn.getCaption(); result = "Login"; minTimes = 0;
+                loginColumn.getPropertyPath(); result = metadata.getClassNN(User.class).getPropertyPath("login"); minTimes = 0;
+                loginColumn.getFormatter(); result = null; minTimes = 0;
+            }
+        };
+
+        messages.init();
+    }
+
+    @Test
+    public void testExportLoadedEntitiesToXlsx() throws Exception {
+        ExcelExporter exporter = new ExcelExporter(ExportFormat.XLSX);
+        exporter.setRowAccessWindowSize(10);
+
+        List<Integer> progress = new ArrayList<>();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int count = exporter.exportDataGrid(dataGrid, Collections.singletonList(loginColumn),
+                LoadContext.create(User.class), out, progress::add);
+
+        assertEquals(250, count);
+        assertEquals(3, progress.size());
+        assertEquals(250, (int) progress.get(progress.size() - 1));
+
+        try (Workbook workbook = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            Sheet sheet = workbook.getSheetAt(0);
+            assertEquals(250, sheet.getLastRowNum());
+            assertEquals("Login", sheet.getRow(0).getCell(0).getStringCellValue());
+            assertTrue(workbook.getFontAt(sheet.getRow(0).getCell(0).getCellStyle().getFontIndexAsInt()).getBold());
+            assertEquals("user-0", sheet.getRow(1).getCell(0).getStringCellValue());
+            assertEquals("user-249", sheet.getRow(250).getCell(0).getStringCellValue());
+        }
+    }
+
+    @Test
+    public void testExportLoadedEntitiesToXls() throws Exception {
+        ExcelExporter exporter = new ExcelExporter();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int count = exporter.exportDataGrid(dataGrid, Collections.singletonList(loginColumn),
+                LoadContext.create(User.class), out, null);
+
+        assertEquals(250, count);
+        try (Workbook workbook = new HSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            Sheet sheet = workbook.getSheetAt(0);
+            assertEquals(250, sheet.getLastRowNum());
+            assertEquals("user-249", sheet.getRow(250).getCell(0).getStringCellValue());
+        }
+    }
+
+    @Test
+    public void testAutoColumnSizerWithHssfFont() throws Exception {
+        try (HSSFWorkbook workbook = new HSSFWorkbook()) {
+            HSSFFont font = workbook.createFont();
+            ExcelAutoColumnSizer sizer = new ExcelAutoColumnSizer();
+            sizer.notifyCellValue("a rather long value to widen the column", font);
+            assertTrue(sizer.getWidth() > 40);
+            sizer.dispose();
+        }
+    }
+}
@@ -24,6 +24,7 @@ import com.haulmont.cuba.core.global.FileStorageException;
 import com.haulmont.cuba.core.global.FileTypesHelper;
 import com.haulmont.cuba.core.global.LoadContext;
 import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.ByteRange;
 import com.haulmont.cuba.core.sys.SecurityContext;
 import com.haulmont.cuba.security.app.UserSessionService;
 import com.haulmont.cuba.security.global.NoUserSessionException;
@@ -38,18 +39,22 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.servlet.ModelAndView;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Date;
 import java.util.UUID;
 
 /**
  * Handles file download requests to the web client.
  * <br> This controller is deployed in Spring context defined by {@code cuba.dispatcherSpringContextConfig}
  * app property.
+ * <br> Supports conditional requests by {@code ETag} and {@code Last-Modified} of the file descriptor, and
+ * requests of a single byte range for files with known size.
  */
 @Controller
 public class FileDownloadController {
@@ -102,7 +107,36 @@ public class FileDownloadController {
             response.setHeader("Content-Disposition", (attach ? "attachment" : "inline")
                     + "; filename=" + fileName);
 
-            downloadFromMiddlewareAndWriteResponse(fd, response);
+            String eTag = getETag(fd);
+            Date lastModified = getLastModified(fd);
+            response.setHeader(HttpHeaders.ETAG, eTag);
+            if (lastModified != null) {
+                response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified.getTime());
+            }
+            if (isNotModified(request, eTag, lastModified)) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return null;
+            }
+
+            ByteRange range = null;
+            if (fd.getSize() != null) {
+                response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+                if (isRangeApplicable(request, eTag, lastModified)) {
+                    range = ByteRange.parse(request.getHeader(HttpHeaders.RANGE), fd.getSize());
+                }
+            }
+
+            if (range == null) {
+                downloadFromMiddlewareAndWriteResponse(fd, response);
+            } else if (!range.isSatisfiable()) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, range.getContentRange());
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            } else {
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, range.getContentRange());
+                response.setHeader(HttpHeaders.CONTENT_LENGTH, String.valueOf(range.getLength()));
+                downloadFromMiddlewareAndWriteResponse(fd, range, response);
+            }
         } finally {
             AppContext.setSecurityContext(null);
         }
@@ -110,9 +144,19 @@ public class FileDownloadController {
     }
 
     protected void downloadFromMiddlewareAndWriteResponse(FileDescriptor fd, HttpServletResponse response) throws IOException {
+        downloadFromMiddlewareAndWriteResponse(fd, null, response);
+    }
+
+    protected void downloadFromMiddlewareAndWriteResponse(FileDescriptor fd, @Nullable ByteRange range,
+                                                          HttpServletResponse response) throws IOException {
         ServletOutputStream os = response.getOutputStream();
-        try (InputStream is = fileLoader.openStream(fd)) {
-            IOUtils.copy(is, os);
+        try (InputStream is = fileLoader.openStream(fd, range != null ? range.getStart() : 0)) {
+            long length = range != null ? range.getLength() : -1;
+            if (length >= 0) {
+                IOUtils.copyLarge(is, os, 0, length);
+            } else {
+                IOUtils.copy(is, os);
+            }
             os.flush();
         } catch (FileStorageException e) {
             log.error("Unable to load file from middleware", e);
@@ -120,6 +164,51 @@ public class FileDownloadController {
         }
     }
 
+    protected String getETag(FileDescriptor fd) {
+        return "\"" + fd.getId() + "-" + fd.getVersion() + "\"";
+    }
+
+    @Nullable
+    protected Date getLastModified(FileDescriptor fd) {
+        return fd.getUpdateTs() != null ? fd.getUpdateTs() : fd.getCreateDate();
+    }
+
+    protected boolean isNotModified(HttpServletRequest request, String eTag, @Nullable Date lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            for (String tag : ifNoneMatch.split(",")) {
+                tag = StringUtils.removeStart(tag.trim(), "W/");
+                if (tag.equals(eTag) || tag.equals("*")) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long ifModifiedSince = getDateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return lastModified != null && ifModifiedSince >= 0
+                && lastModified.getTime() / 1000 <= ifModifiedSince / 1000;
+    }
+
+    protected boolean isRangeApplicable(HttpServletRequest request, String eTag, @Nullable Date lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(eTag);
+        }
+        long date = getDateHeader(request, HttpHeaders.IF_RANGE);
+        return lastModified != null && date >= 0 && lastModified.getTime() / 1000 == date / 1000;
+    }
+
+    protected long getDateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
     protected UserSession getSession(HttpServletRequest request, HttpServletResponse response) throws IOException {
         UUID sessionId;
         try {
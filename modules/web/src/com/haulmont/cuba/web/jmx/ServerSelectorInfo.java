@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.web.jmx;
+
+import com.haulmont.cuba.core.sys.remoting.discovery.ServerSelector;
+import com.haulmont.cuba.core.sys.remoting.discovery.StickySessionServerSelector;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+@Component("cuba_ServerSelectorInfoMBean")
+public class ServerSelectorInfo implements ServerSelectorInfoMBean {
+
+    @Inject
+    @Named(ServerSelector.NAME)
+    protected ServerSelector serverSelector;
+
+    @Override
+    public String getServerSelectorClass() {
+        return serverSelector.getClass().getName();
+    }
+
+    @Override
+    public String printServerStats() {
+        if (serverSelector instanceof StickySessionServerSelector) {
+            return ((StickySessionServerSelector) serverSelector).printServerStats();
+        }
+        return "Statistics are not supported by " + serverSelector.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.web.controllers
+
+import com.haulmont.cuba.core.app.DataService
+import com.haulmont.cuba.core.entity.FileDescriptor
+import com.haulmont.cuba.core.global.FileLoader
+import com.haulmont.cuba.core.global.Metadata
+import com.haulmont.cuba.security.app.UserSessionService
+import com.haulmont.cuba.security.entity.User
+import com.haulmont.cuba.security.global.UserSession
+import com.haulmont.cuba.web.container.CubaTestContainer
+import com.haulmont.cuba.web.controllers.FileDownloadController
+import com.haulmont.cuba.web.testsupport.TestContainer
+import org.apache.http.HttpHeaders
+import org.junit.ClassRule
+import spock.lang.Shared
+import spock.lang.Specification
+
+import javax.servlet.ServletOutputStream
+import javax.servlet.WriteListener
+import javax.servlet.http.HttpServletRequest
+import javax.servlet.http.HttpServletResponse
+
+class FileDownloadControllerTest extends Specification {
+
+    @Shared @ClassRule
+    TestContainer cont = CubaTestContainer.Common.INSTANCE
+
+    private static final byte[] CONTENT = (0..99).collect { it as byte } as byte[]
+
+    private FileDownloadController controller
+    private FileDescriptor fd
+    private UserSession session
+
+    private Map<String, String> requestHeaders = [:]
+    private Map<String, Object> responseHeaders = [:]
+    private int status = HttpServletResponse.SC_OK
+    private ByteArrayOutputStream body = new ByteArrayOutputStream()
+
+    void setup() {
+        def metadata = cont.getBean(Metadata)
+
+        fd = metadata.create(FileDescriptor)
+        fd.name = 'test.txt'
+        fd.extension = 'txt'
+        fd.size = CONTENT.length
+        fd.version = 1
+        fd.createDate = new Date(1_500_000_000_000L)
+
+        def user = metadata.create(User)
+        user.login = 'test'
+        session = new UserSession(UUID.randomUUID(), user, Collections.emptyList(), Locale.ENGLISH, false)
+
+        controller = new FileDownloadController()
+        controller.dataService = Stub(DataService)
+        controller.dataService.load(_) >> fd
+        controller.userSessionService = Stub(UserSessionService)
+        controller.userSessionService.getUserSession(session.id) >> session
+        controller.fileLoader = Stub(FileLoader)
+        controller.fileLoader.openStream(fd, _ as Long) >> { FileDescriptor file, long offset ->
+            new ByteArrayInputStream(CONTENT, offset as int, CONTENT.length - (offset as int))
+        }
+    }
+
+    def "whole file is sent without range"() {
+        when:
+        download()
+
+        then:
+        status == HttpServletResponse.SC_OK
+        body.toByteArray() == CONTENT
+        responseHeaders[HttpHeaders.ACCEPT_RANGES] == 'bytes'
+        responseHeaders[HttpHeaders.ETAG] == "\"${fd.id}-1\"".toString()
+    }
+
+    def "partial content is sent for a range"() {
+        requestHeaders[HttpHeaders.RANGE] = range
+
+        when:
+        download()
+
+        then:
+        status == HttpServletResponse.SC_PARTIAL_CONTENT
+        responseHeaders[HttpHeaders.CONTENT_RANGE] == contentRange
+        body.toByteArray() == Arrays.copyOfRange(CONTENT, from, to + 1)
+
+        where:
+        range         | contentRange      | from | to
+        'bytes=10-19' | 'bytes 10-19/100' | 10   | 19
+        'bytes=90-'   | 'bytes 90-99/100' | 90   | 99
+        'bytes=-5'    | 'bytes 95-99/100' | 95   | 99
+    }
+
+    def "whole file is sent if the range is for another version"() {
+        requestHeaders[HttpHeaders.RANGE] = 'bytes=10-19'
+        requestHeaders[HttpHeaders.IF_RANGE] = "\"${fd.id}-0\"".toString()
+
+        when:
+        download()
+
+        then:
+        status == HttpServletResponse.SC_OK
+        body.toByteArray() == CONTENT
+    }
+
+    def "file matching the ETag is not sent"() {
+        requestHeaders[HttpHeaders.IF_NONE_MATCH] = "\"${UUID.randomUUID()}-1\", W/\"${fd.id}-1\"".toString()
+
+        when:
+        download()
+
+        then:
+        status == HttpServletResponse.SC_NOT_MODIFIED
+        body.size() == 0
+    }
+
+    def "file not modified since the date is not sent"() {
+        requestHeaders[HttpHeaders.IF_MODIFIED_SINCE] = String.valueOf(fd.createDate.time)
+
+        when:
+        download()
+
+        then:
+        status == HttpServletResponse.SC_NOT_MODIFIED
+        body.size() == 0
+    }
+
+    def "unsatisfiable range is rejected"() {
+        requestHeaders[HttpHeaders.RANGE] = 'bytes=100-'
+
+        when:
+        download()
+
+        then:
+        status == HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE
+        responseHeaders[HttpHeaders.CONTENT_RANGE] == 'bytes */100'
+        body.size() == 0
+    }
+
+    private void download() {
+        def request = Stub(HttpServletRequest)
+        request.getParameter('s') >> session.id.toString()
+        request.getParameter('f') >> fd.id.toString()
+        request.getHeader(_ as String) >> { String name -> requestHeaders[name] }
+        request.getDateHeader(_ as String) >> { String name ->
+            requestHeaders[name] != null ? Long.parseLong(requestHeaders[name]) : -1L
+        }
+        def response = Stub(HttpServletResponse)
+        response.setHeader(_, _) >> { String name, String value -> responseHeaders[name] = value }
+        response.setDateHeader(_, _) >> { String name, long value -> responseHeaders[name] = value }
+        response.setStatus(_) >> { int sc -> status = sc }
+        response.sendError(_) >> { int sc -> status = sc }
+        response.getOutputStream() >> new TestOutputStream(body)
+
+        controller.download(request, response)
+    }
+
+    static class TestOutputStream extends ServletOutputStream {
+        private final OutputStream delegate
+
+        TestOutputStream(OutputStream delegate) {
+            this.delegate = delegate
+        }
+
+        @Override
+        void write(int b) throws IOException {
+            delegate.write(b)
+        }
+
+        @Override
+        boolean isReady() {
+            true
+        }
+
+        @Override
+        void setWriteListener(WriteListener writeListener) {
+        }
+    }
+}